@@ -17,15 +17,30 @@
 package org.jboss.quickstarts.wfk;
 
 
+import com.fasterxml.jackson.jaxrs.cbor.JacksonCBORProvider;
+import com.fasterxml.jackson.jaxrs.smile.JacksonSmileProvider;
 import io.swagger.jaxrs.config.BeanConfig;
 
 import org.jboss.quickstarts.wfk.booking.BookingRestService;
 import org.jboss.quickstarts.wfk.customer.CustomerRestService;
+import org.jboss.quickstarts.wfk.feed.ChangeFeedRestService;
 import org.jboss.quickstarts.wfk.guestBooking.GuestBookingRestService;
+import org.jboss.quickstarts.wfk.health.HealthRestService;
+import org.jboss.quickstarts.wfk.metrics.MetricsFilter;
+import org.jboss.quickstarts.wfk.metrics.MetricsRestService;
+import org.jboss.quickstarts.wfk.report.ReportRestService;
 import org.jboss.quickstarts.wfk.taxi.TaxiRestService;
+import org.jboss.quickstarts.wfk.trace.CorrelationFilter;
+import org.jboss.quickstarts.wfk.trace.TraceRestService;
 import org.jboss.quickstarts.wfk.travelAgency.TravelAgencyRestService;
+import org.jboss.quickstarts.wfk.travelAgency.TravelCatalogRestService;
+import org.jboss.quickstarts.wfk.util.CompressionInterceptor;
 import org.jboss.quickstarts.wfk.util.JacksonConfig;
+import org.jboss.quickstarts.wfk.util.RepresentationTags;
 import org.jboss.quickstarts.wfk.util.RestServiceExceptionHandler;
+import org.jboss.quickstarts.wfk.util.SparseFieldsetInterceptor;
+import org.jboss.quickstarts.wfk.util.SwaggerSpecRestService;
+import org.jboss.quickstarts.wfk.util.VaryAcceptFilter;
 import org.jboss.resteasy.plugins.providers.RegisterBuiltin;
 import org.jboss.resteasy.spi.ResteasyProviderFactory;
 
@@ -46,26 +61,37 @@ import java.util.Set;
 public class ContactServiceApplication extends Application {
 
 
+    /**
+     * The Swagger document is generated at build time (see the swagger-maven-plugin in pom.xml) and served by
+     * {@link SwaggerSpecRestService}. Scanning for it at deployment instead is a fallback, used when the system property
+     * <code>swagger.scan</code> is set or the build did not generate it.
+     */
+    private static final boolean SCAN_SWAGGER = Boolean.getBoolean("swagger.scan")
+            || !SwaggerSpecRestService.isPrecomputed();
+
     public ContactServiceApplication() {
-        BeanConfig beanConfig = new BeanConfig();
-        beanConfig.setVersion("0.1.0");
-        beanConfig.setSchemes(new String[]{"http"});
-        // We may no longer need to change this
-        // beanConfig.setHost("localhost:8080/jboss-contacts-swagger");
-        
-        beanConfig.setBasePath("/api");
-        beanConfig.setTitle("Travel-Agency");
-        beanConfig.setDescription("Taxi-Booking-Customer");
-        //Add additional RESTService containing packages here, separated by commas:
-        // "org.jboss.quickstarts.wfk.contact," +
-        // "org.jboss.quickstarts.wfk.other"
-        
-        beanConfig.setResourcePackage("org.jboss.quickstarts.wfk.customer,"
-        							  +"org.jboss.quickstarts.wfk.taxi,"
-        							  +"org.jboss.quickstarts.wfk.booking,"
-        							  +"org.jboss.quickstarts.wfk.guestBooking,"
-        							  +"org.jboss.quickstarts.wfk.travelAgency");
-        beanConfig.setScan(true);
+        if (SCAN_SWAGGER) {
+            BeanConfig beanConfig = new BeanConfig();
+            beanConfig.setVersion("0.1.0");
+            beanConfig.setSchemes(new String[]{"http"});
+            // We may no longer need to change this
+            // beanConfig.setHost("localhost:8080/jboss-contacts-swagger");
+            
+            beanConfig.setBasePath("/api");
+            beanConfig.setTitle("Travel-Agency");
+            beanConfig.setDescription("Taxi-Booking-Customer");
+            //Add additional RESTService containing packages here, separated by commas, and to the
+            //swagger-maven-plugin <locations> in pom.xml:
+            // "org.jboss.quickstarts.wfk.contact," +
+            // "org.jboss.quickstarts.wfk.other"
+            
+            beanConfig.setResourcePackage("org.jboss.quickstarts.wfk.customer,"
+            							  +"org.jboss.quickstarts.wfk.taxi,"
+            							  +"org.jboss.quickstarts.wfk.booking,"
+            							  +"org.jboss.quickstarts.wfk.guestBooking,"
+            							  +"org.jboss.quickstarts.wfk.travelAgency");
+            beanConfig.setScan(true);
+        }
 
         //Do not edit below
         RegisterBuiltin.register(ResteasyProviderFactory.getInstance());
@@ -81,11 +107,27 @@ public class ContactServiceApplication extends Application {
         services.add(BookingRestService.class);
         services.add(GuestBookingRestService.class);
         services.add(TravelAgencyRestService.class);
+        services.add(TravelCatalogRestService.class);
+        services.add(ReportRestService.class);
+        services.add(ChangeFeedRestService.class);
+        services.add(MetricsRestService.class);
+        services.add(TraceRestService.class);
+        services.add(HealthRestService.class);
+        services.add(MetricsFilter.class);
+        services.add(CorrelationFilter.class);
+        services.add(VaryAcceptFilter.class);
+        services.add(RepresentationTags.class);
+        services.add(SparseFieldsetInterceptor.class);
+        services.add(CompressionInterceptor.class);
         
         //Do not edit below
         services.add(RestServiceExceptionHandler.class);
-        services.add(io.swagger.jaxrs.listing.ApiListingResource.class);
-        services.add(io.swagger.jaxrs.listing.SwaggerSerializers.class);
+        if (SCAN_SWAGGER) {
+            services.add(io.swagger.jaxrs.listing.ApiListingResource.class);
+            services.add(io.swagger.jaxrs.listing.SwaggerSerializers.class);
+        } else {
+            services.add(SwaggerSpecRestService.class);
+        }
 
         return services;
     }
@@ -94,6 +136,9 @@ public class ContactServiceApplication extends Application {
     public Set<Object> getSingletons() {
         Set<Object> singletons = new HashSet<>();
         singletons.add(new JacksonConfig());
+        // Binary representations, sharing the JSON mapper's configuration
+        singletons.add(new JacksonCBORProvider(JacksonConfig.cborMapper()));
+        singletons.add(new JacksonSmileProvider(JacksonConfig.smileMapper()));
         return singletons;
     }
 
@@ -0,0 +1,135 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.quickstarts.wfk.admission;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * <p>Limits the number of requests being handled at once, adapting the limit to the latency observed.</p>
+ *
+ * <p>The limit follows the gradient between the shortest recent latency of a route, i.e. its latency without
+ * queueing, and the latency of each completed request on it. While requests complete in up to twice the shortest
+ * latency of their route the limit grows, by about its square root; beyond that it shrinks in proportion, to no less
+ * than half at a time. A slow partner thus shrinks the number of requests allowed to pile up waiting for it, instead of
+ * every request queueing behind it. Each route is measured against itself, so a mix of fast lookups and slow partner
+ * calls is not mistaken for queueing.</p>
+ *
+ * <p>The limit starts at <code>admission.limit.initial</code> (50 by default) and stays between
+ * <code>admission.limit.min</code> (8) and <code>admission.limit.max</code> (500). The shortest latency of a route is
+ * forgotten every 30 seconds, so that the baseline follows lasting changes, e.g. a bigger database. At most
+ * {@link #MAX_ROUTES} routes are told apart; requests on any others share one baseline.</p>
+ *
+ * @author Constance He
+ */
+class AdaptiveLimit {
+
+    private static final int MIN = Integer.getInteger("admission.limit.min", 8);
+
+    private static final int MAX = Integer.getInteger("admission.limit.max", 500);
+
+    static final int MAX_ROUTES = 64;
+
+    private static final String OTHER_ROUTES = "";
+
+    private static final double TOLERANCE = 2.0;
+
+    private static final double SMOOTHING = 0.2;
+
+    private static final long BASELINE_WINDOW = TimeUnit.SECONDS.toNanos(30);
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private volatile double limit = Math.max(MIN, Math.min(MAX, Integer.getInteger("admission.limit.initial", 50)));
+
+    private final Map<String, Baseline> baselines = new ConcurrentHashMap<>();
+
+    /**
+     * @return True if the request may go ahead, in which case {@link #release} must be called once it is done
+     */
+    boolean tryAcquire() {
+        if (inFlight.incrementAndGet() > (int) limit) {
+            inFlight.decrementAndGet();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * @param route The route class of the request, e.g. its method and resource
+     * @param nanos How long the request took
+     */
+    void release(String route, long nanos) {
+        int concurrency = inFlight.getAndDecrement();
+        sample(baselineOf(route).shortest(nanos), nanos, concurrency);
+    }
+
+    private Baseline baselineOf(String route) {
+        Baseline baseline = baselines.get(route);
+        if (baseline == null) {
+            baseline = baselines.computeIfAbsent(baselines.size() < MAX_ROUTES ? route : OTHER_ROUTES,
+                    r -> new Baseline());
+        }
+        return baseline;
+    }
+
+    private synchronized void sample(long shortest, long nanos, int concurrency) {
+        double gradient = Math.max(0.5, Math.min(1.0, TOLERANCE * shortest / Math.max(1, nanos)));
+        double target = limit * gradient;
+        // Only grow while the limit is actually being used, not while the service idles
+        if (gradient == 1.0 && concurrency * 2 >= limit) {
+            target += Math.sqrt(limit);
+        }
+        limit = Math.max(MIN, Math.min(MAX, limit * (1 - SMOOTHING) + target * SMOOTHING));
+    }
+
+    int getLimit() {
+        return (int) limit;
+    }
+
+    int getInFlight() {
+        return inFlight.get();
+    }
+
+    /**
+     * The shortest latency of one route in the current window.
+     */
+    private static class Baseline {
+
+        // Guarded by this
+        private long shortest = Long.MAX_VALUE;
+
+        // Guarded by this
+        private long since = System.nanoTime();
+
+        /**
+         * Takes the given latency into account, and returns the shortest latency now.
+         */
+        synchronized long shortest(long nanos) {
+            long now = System.nanoTime();
+            if (now - since > BASELINE_WINDOW) {
+                shortest = nanos;
+                since = now;
+            } else {
+                shortest = Math.min(shortest, nanos);
+            }
+            return shortest;
+        }
+    }
+}
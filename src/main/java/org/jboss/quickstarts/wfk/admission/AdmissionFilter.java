@@ -0,0 +1,237 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.quickstarts.wfk.admission;
+
+import org.jboss.quickstarts.wfk.feed.ChangeFeedRestService;
+import org.jboss.quickstarts.wfk.util.ApiOriginFilter;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.annotation.WebFilter;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * <p>This filter sheds the requests the service cannot take, before they use up a thread or a database connection.</p>
+ *
+ * <p>A client which exceeds its rate, see {@link ClientRateLimiter}, gets a 429 Too Many Requests. Clients are told
+ * apart by their address, or by their <code>X-API-Key</code> header if it is one of the keys listed, comma separated,
+ * in the system property <code>admission.api.keys</code>. Any other key is ignored, so that a client cannot get a fresh
+ * rate by making one up. Once the {@link AdaptiveLimit} of requests are in progress, further requests get a 503
+ * Service Unavailable. Both carry a <code>Retry-After</code> header.</p>
+ *
+ * <p>Behind a reverse proxy every request comes from the proxy's address. The addresses of the proxies, as the server
+ * reports them, can be listed, comma separated, in the system property <code>admission.trusted.proxies</code>. For a
+ * request from one of them, the client's address is taken from its <code>X-Forwarded-For</code> header, or else its
+ * <code>Forwarded</code> header: the last address in it which is not a listed proxy itself. Those headers are ignored on
+ * requests from anywhere else, as the client may have made them up.</p>
+ *
+ * <p>CORS preflight requests, event streams of the change feed at <code>/api/changes</code>, <code>/api/metrics</code>
+ * and <code>/api/health</code> are let through untouched. Setting the system property <code>admission.disabled</code>
+ * lets everything through.</p>
+ *
+ * @author Constance He
+ * @see javax.servlet.Filter
+ */
+@WebFilter("/api/*")
+public class AdmissionFilter implements Filter {
+
+    public static final String API_KEY = "X-API-Key";
+
+    private static final boolean DISABLED = Boolean.getBoolean("admission.disabled");
+
+    private static final int TOO_MANY_REQUESTS = 429;
+
+    private static final Set<String> API_KEYS = listed("admission.api.keys");
+
+    private static final Set<String> TRUSTED_PROXIES = listed("admission.trusted.proxies");
+
+    private final ClientRateLimiter clients = new ClientRateLimiter();
+
+    private final AdaptiveLimit limit = new AdaptiveLimit();
+
+    @Inject
+    private @Named("logger") Logger log;
+
+    @Override
+    public void doFilter(ServletRequest request, ServletResponse response,
+                         FilterChain chain) throws IOException, ServletException {
+        HttpServletRequest req = (HttpServletRequest) request;
+        HttpServletResponse res = (HttpServletResponse) response;
+        if (DISABLED || isExempt(req)) {
+            chain.doFilter(request, response);
+            return;
+        }
+
+        String client = clientOf(req);
+        long wait = clients.tryAcquire(client);
+        if (wait > 0) {
+            log.log(Level.FINE, "Rate limiting client {0}", client);
+            reject(res, TOO_MANY_REQUESTS, Math.max(1, TimeUnit.NANOSECONDS.toSeconds(wait + 999999999)),
+                    "Too Many Requests");
+            return;
+        }
+
+        if (!limit.tryAcquire()) {
+            log.log(Level.FINE, "Shedding request, limit {0} reached", limit.getLimit());
+            reject(res, HttpServletResponse.SC_SERVICE_UNAVAILABLE, 1, "Service Unavailable");
+            return;
+        }
+
+        long started = System.nanoTime();
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            limit.release(routeOf(req), System.nanoTime() - started);
+        }
+    }
+
+    private static boolean isExempt(HttpServletRequest req) {
+        if ("OPTIONS".equals(req.getMethod())) {
+            return true;
+        }
+        String uri = req.getRequestURI();
+        // Event streams stay open for long by design; polling the same path for JSON is admitted like any request.
+        String accept = req.getHeader("Accept");
+        if ("GET".equals(req.getMethod()) && uri.equals(req.getContextPath() + "/api/changes")
+                && accept != null && accept.contains(ChangeFeedRestService.SERVER_SENT_EVENTS)) {
+            return true;
+        }
+        return uri.startsWith(req.getContextPath() + "/api/metrics") || uri.startsWith(req.getContextPath() + "/api/health");
+    }
+
+    private static String clientOf(HttpServletRequest req) {
+        String key = req.getHeader(API_KEY);
+        if (key != null && API_KEYS.contains(key)) {
+            return "key:" + key;
+        }
+        return "address:" + addressOf(req.getRemoteAddr(), req.getHeader("X-Forwarded-For"), req.getHeader("Forwarded"),
+                TRUSTED_PROXIES);
+    }
+
+    /**
+     * Returns the address of the client which sent a request from the given address, through the given proxies.
+     *
+     * @param remoteAddr The address the request came from
+     * @param forwardedFor The X-Forwarded-For header; or null
+     * @param forwarded The Forwarded header; or null
+     * @param trustedProxies The addresses of the proxies whose headers are believed
+     * @return The address of the client
+     */
+    static String addressOf(String remoteAddr, String forwardedFor, String forwarded, Set<String> trustedProxies) {
+        if (!trustedProxies.contains(remoteAddr)) {
+            return remoteAddr;
+        }
+        List<String> hops = new ArrayList<>();
+        if (forwardedFor != null) {
+            for (String hop : forwardedFor.split(",")) {
+                hops.add(nodeOf(hop));
+            }
+        } else if (forwarded != null) {
+            for (String element : forwarded.split(",")) {
+                String hop = "";
+                for (String pair : element.split(";")) {
+                    int equals = pair.indexOf('=');
+                    if (equals > 0 && "for".equalsIgnoreCase(pair.substring(0, equals).trim())) {
+                        hop = nodeOf(pair.substring(equals + 1));
+                    }
+                }
+                hops.add(hop);
+            }
+        }
+        // Each proxy appends the address it was called from, so the nearest hop which is not one of ours is the client.
+        for (int i = hops.size() - 1; i >= 0; i--) {
+            String hop = hops.get(i);
+            if (hop.isEmpty()) {
+                break;
+            }
+            if (!trustedProxies.contains(hop)) {
+                return hop;
+            }
+        }
+        return remoteAddr;
+    }
+
+    /**
+     * Strips the quotes, IPv6 brackets and port off a hop of a forwarding header, e.g. "[2001:db8::1]:4711".
+     */
+    private static String nodeOf(String hop) {
+        String node = hop.trim();
+        if (node.length() > 1 && node.startsWith("\"") && node.endsWith("\"")) {
+            node = node.substring(1, node.length() - 1);
+        }
+        if (node.startsWith("[")) {
+            int end = node.indexOf(']');
+            return end < 0 ? "" : node.substring(1, end);
+        }
+        int colon = node.indexOf(':');
+        // More than one colon is an IPv6 address without a port.
+        return colon >= 0 && colon == node.lastIndexOf(':') ? node.substring(0, colon) : node;
+    }
+
+    private static Set<String> listed(String property) {
+        Set<String> values = new HashSet<>();
+        for (String value : System.getProperty(property, "").split(",")) {
+            if (!value.trim().isEmpty()) {
+                values.add(value.trim());
+            }
+        }
+        return values;
+    }
+
+    /**
+     * Returns the method and the first path segment under /api, e.g. "GET customers", which the latency of the
+     * request is judged against.
+     */
+    private static String routeOf(HttpServletRequest req) {
+        String path = req.getRequestURI().substring(Math.min(req.getRequestURI().length(),
+                req.getContextPath().length() + "/api/".length()));
+        int end = path.indexOf('/');
+        return req.getMethod() + " " + (end < 0 ? path : path.substring(0, end));
+    }
+
+    private static void reject(HttpServletResponse res, int status, long retryAfter, String error) throws IOException {
+        ApiOriginFilter.allowOrigin(res);
+        res.setStatus(status);
+        res.setHeader("Retry-After", String.valueOf(retryAfter));
+        res.setContentType("application/json");
+        res.getOutputStream().write(("{\"error\":\"" + error + "\",\"reasons\":{}}").getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public void destroy() {
+    }
+
+    @Override
+    public void init(FilterConfig filterConfig) throws ServletException {
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.quickstarts.wfk.admission;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>A token bucket per client: each client may make <code>admission.rate</code> requests per second (20 by default)
+ * on average, in bursts of up to <code>admission.burst</code> requests (40 by default).</p>
+ *
+ * <p>Buckets of clients which have been quiet for a minute are forgotten, and at most 100000 are kept, so a flood of
+ * new addresses cannot exhaust the memory.</p>
+ *
+ * @author Constance He
+ */
+class ClientRateLimiter {
+
+    private static final double RATE = Double.parseDouble(System.getProperty("admission.rate", "20"));
+
+    private static final double BURST = Double.parseDouble(System.getProperty("admission.burst", "40"));
+
+    private final Cache<String, Bucket> buckets = CacheBuilder.newBuilder()
+            .expireAfterAccess(1, TimeUnit.MINUTES)
+            .maximumSize(100000)
+            .build();
+
+    /**
+     * <p>Takes a token from the client's bucket.</p>
+     *
+     * @param client The API key or address of the client
+     * @return 0 if the request may go ahead; otherwise the nanoseconds until the bucket holds a token again
+     */
+    long tryAcquire(String client) {
+        try {
+            return buckets.get(client, Bucket::new).tryAcquire();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private static class Bucket {
+
+        private double tokens = BURST;
+
+        private long refilledAt = System.nanoTime();
+
+        synchronized long tryAcquire() {
+            long now = System.nanoTime();
+            tokens = Math.min(BURST, tokens + (now - refilledAt) * RATE / TimeUnit.SECONDS.toNanos(1));
+            refilledAt = now;
+
+            if (tokens >= 1) {
+                tokens--;
+                return 0;
+            }
+            return (long) Math.ceil((1 - tokens) / RATE * TimeUnit.SECONDS.toNanos(1));
+        }
+    }
+}
@@ -18,29 +18,34 @@
  */
 package org.jboss.quickstarts.wfk.area;
 
-import javax.validation.ValidationException;
+import org.jboss.quickstarts.wfk.util.BusinessRuleException;
+
+import javax.ws.rs.core.Response;
 
 /**
  * <p>ValidationException which should be thrown if a non-existant US Area code is provided to AreaService.</p>
  *
- * <p>In such cases the ClientResponse status should be 404 NOT_FOUND.</p>
+ * <p>In such cases the ClientResponse status should be 404 NOT_FOUND; our own response is a 400 Bad Request, as it is
+ * the phone number in the request body which is at fault.</p>
  *
  * @author hugofirth
  * @see AreaService
  */
-public class InvalidAreaCodeException extends ValidationException {
+public class InvalidAreaCodeException extends BusinessRuleException {
 
 	private static final long serialVersionUID = 1L;
 
+	private static final String REASON = "The telephone area code provided is not recognised, please provide another";
+
 	public InvalidAreaCodeException(Throwable cause) {
-        super(cause);
+        this(cause == null ? null : cause.toString(), cause);
     }
 
     public InvalidAreaCodeException(String message, Throwable cause) {
-        super(message, cause);
+        super(message, cause, Response.Status.BAD_REQUEST, "area_code", REASON);
     }
 
     public InvalidAreaCodeException(String message) {
-        super(message);
+        super(message, Response.Status.BAD_REQUEST, "area_code", REASON);
     }
 }
@@ -1,17 +1,22 @@
 package org.jboss.quickstarts.wfk.booking;
 
+import javax.enterprise.context.ApplicationScoped;
 import javax.inject.Inject;
 import javax.inject.Named;
 import javax.persistence.EntityManager;
+import javax.persistence.LockModeType;
 import javax.persistence.TypedQuery;
 import javax.validation.ConstraintViolationException;
 import javax.validation.ValidationException;
 
 import org.jboss.quickstarts.wfk.customer.Customer;
 import org.jboss.quickstarts.wfk.taxi.Taxi;
+import org.jboss.quickstarts.wfk.metrics.Timed;
 
+import java.util.Collection;
 import java.util.Date;
 import java.util.List;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
@@ -25,6 +30,8 @@ import java.util.logging.Logger;
  * @see Booking
  * @see javax.persistence.EntityManager
  */
+@ApplicationScoped
+@Timed
 public class BookingRepository {
 
     @Inject
@@ -82,19 +89,72 @@ public class BookingRepository {
     TaxiBooking findById(Long id) {
         return em.find(TaxiBooking.class, id);
     }
+
+    /**
+     * <p>Returns the TaxiBooking objects with the given ids, in no particular order, using a single query which also fetches their Customers and Taxis. Ids which do not
+     * belong to a TaxiBooking are left out.</p>
+     *
+     * @param ids The ids of the TaxiBookings to be returned, must not be empty
+     * @return List of TaxiBooking objects
+     */
+    List<TaxiBooking> findByIds(Collection<Long> ids) {
+        TypedQuery<TaxiBooking> query = em.createNamedQuery(TaxiBooking.FIND_BY_IDS, TaxiBooking.class).setParameter("ids", ids);
+        return query.getResultList();
+    }
     
     /**
-     * <p>Returns a single Booking object, specified by a Date date and taxiId.<p/>
+     * <p>Returns the Bookings of a taxi on a date whose slots overlap the given one.<p/>
      *
-     * <p>If there is more then one, only the first will be returned.<p/>
+     * <p>The query is answered from the (taxiId, date, startTime) index, so its cost grows with the log of the number of
+     * bookings rather than with the number of bookings the taxi has.<p/>
      *
-     * @param date The date field of the Booking to be returned
-     * @param taxiId The taxiId field of the Booking to be returned
-     * @return The Booking with the specified date and taxiId
+     * @param taxiId The taxi
+     * @param date The date
+     * @param startTime The start of the slot, as HH:mm
+     * @param endTime The end of the slot, as HH:mm
+     * @return List of Booking objects
      */
-    TaxiBooking findByDateAndTaxi(Date date, Long taxiId) {
-        TypedQuery<TaxiBooking> query = em.createNamedQuery(TaxiBooking. FIND_BY_DATE_AND_TAXI, TaxiBooking.class).setParameter("date", date).setParameter("taxiId", taxiId);
-        return query.getSingleResult();
+    List<TaxiBooking> findOverlapping(Long taxiId, Date date, String startTime, String endTime) {
+        TypedQuery<TaxiBooking> query = em.createNamedQuery(TaxiBooking.FIND_OVERLAPPING, TaxiBooking.class)
+                .setParameter("taxiId", taxiId).setParameter("date", date)
+                .setParameter("startTime", startTime).setParameter("endTime", endTime);
+        return query.getResultList();
+    }
+
+    /**
+     * <p>Returns the ids of a page of the taxis with at least the given number of seats which are not booked on a date
+     * for any part of the given slot, those with the fewest seats first.<p/>
+     *
+     * <p>The taxis are walked along the (seats, id) index and each is checked for an overlapping booking through the
+     * (taxiId, date, startTime) index, so the query stops after a page of free taxis rather than reading the fleet.<p/>
+     *
+     * @param seats The smallest number of seats
+     * @param date The date
+     * @param startTime The start of the slot, as HH:mm
+     * @param endTime The end of the slot, as HH:mm
+     * @param first The position of the first taxi to return
+     * @param max The most taxis to return
+     * @return List of taxi ids
+     */
+    List<Long> findFreeTaxiIds(int seats, Date date, String startTime, String endTime, int first, int max) {
+        TypedQuery<Long> query = em.createNamedQuery(TaxiBooking.FIND_FREE_TAXI_IDS, Long.class)
+                .setParameter("seats", seats).setParameter("date", date)
+                .setParameter("startTime", startTime).setParameter("endTime", endTime)
+                .setFirstResult(first).setMaxResults(max);
+        return query.getResultList();
+    }
+
+    /**
+     * <p>Returns a taxi, locking its row until the end of the transaction.</p>
+     *
+     * <p>Bookings of the same taxi take this lock before looking for overlapping slots, so two of them cannot both find
+     * the slot free and both be written. Bookings of other taxis are not held up.</p>
+     *
+     * @param taxiId The id of the taxi
+     * @return The taxi; or null
+     */
+    Taxi lockTaxi(Long taxiId) {
+        return em.find(Taxi.class, taxiId, LockModeType.PESSIMISTIC_WRITE);
     }
     
     /**
@@ -110,7 +170,11 @@ public class BookingRepository {
      * @throws ConstraintViolationException, ValidationException, Exception
      */
     TaxiBooking create(TaxiBooking booking) throws ConstraintViolationException, ValidationException, Exception {
-        log.info("BookingRepository.create() - Creating " + booking.getTaxi() + "-" + booking.getDate());
+        if (log.isLoggable(Level.INFO)) {
+            log.log(Level.INFO, "BookingRepository.create() - Creating taxi={0} date={1} {2}-{3}",
+                    new Object[]{booking.getTaxi() == null ? null : booking.getTaxi().getId(), booking.getDate(),
+                            booking.getStartTime(), booking.getEndTime()});
+        }
 
         // Write the booking to the database.
         em.persist(booking);
@@ -126,9 +190,13 @@ public class BookingRepository {
      * @throws Exception
      */
     TaxiBooking delete(TaxiBooking booking) throws Exception {
-        log.info("BookingRepository.delete() - Deleting " + booking.getId());
+        log.log(Level.INFO, "BookingRepository.delete() - Deleting {0}", booking.getId());
 
         if (booking.getId() != null) {
+            // Nothing to delete if it is gone already, e.g. deleted by a concurrent request
+            if (em.find(TaxiBooking.class, booking.getId()) == null) {
+                return null;
+            }
             /*
              * The Hibernate session (aka EntityManager's persistent context) is closed and invalidated after the commit(), 
              * because it is bound to a transaction. The object goes into a detached status. If you open a new persistent 
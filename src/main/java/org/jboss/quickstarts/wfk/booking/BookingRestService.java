@@ -2,21 +2,32 @@ package org.jboss.quickstarts.wfk.booking;
 
 import io.swagger.annotations.*;
 
+import org.jboss.quickstarts.wfk.feed.ChangeEvent;
+import org.jboss.quickstarts.wfk.util.EntityTags;
+import org.jboss.quickstarts.wfk.util.MultiGet;
+import org.jboss.quickstarts.wfk.util.ResponseCache;
+import org.jboss.quickstarts.wfk.util.BinaryMediaTypes;
 import org.jboss.quickstarts.wfk.util.RestServiceException;
+import org.jboss.quickstarts.wfk.util.SparseFieldsets;
 import org.jboss.resteasy.annotations.cache.Cache;
 
 import javax.ejb.Stateless;
+import javax.ejb.TransactionAttribute;
+import javax.ejb.TransactionAttributeType;
 import javax.inject.Inject;
 import javax.inject.Named;
 import javax.validation.ConstraintViolation;
 import javax.validation.ConstraintViolationException;
 import javax.ws.rs.*;
+import javax.ws.rs.core.Context;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Request;
 import javax.ws.rs.core.Response;
 
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
@@ -37,8 +48,9 @@ import java.util.logging.Logger;
  * @see javax.ws.rs.core.Response
  */
 @Path("/bookings")
-@Consumes(MediaType.APPLICATION_JSON)
-@Produces(MediaType.APPLICATION_JSON)
+@Consumes({MediaType.APPLICATION_JSON, BinaryMediaTypes.APPLICATION_CBOR, BinaryMediaTypes.APPLICATION_SMILE})
+@Produces({MediaType.APPLICATION_JSON, BinaryMediaTypes.APPLICATION_CBOR, BinaryMediaTypes.APPLICATION_SMILE})
+@SparseFieldsets
 @Api(value = "/bookings", description = "Operations about bookings")
 @Stateless
 public class BookingRestService {
@@ -48,6 +60,9 @@ public class BookingRestService {
     @Inject
     private BookingService service;
 
+    @Inject
+    private ResponseCache cache;
+
     /**
      * <p>Return all the Bookings.  They are sorted alphabetically by name.</p>
      *
@@ -55,14 +70,30 @@ public class BookingRestService {
      *
      * <p>Examples: <pre>GET api/bookings?firstname=John</pre></p>
      *
+     * <p>With the <code>ids</code> query parameter only the Bookings with those ids are returned, in the order
+     * given and with null for every id that was not found, e.g. <pre>GET "api/bookings?ids=2,4"</pre></p>
+     *
+     * @param ids The ids of the Bookings to return, comma separated or repeated; optional
      * @return A Response containing a list of Bookings
      */
     @GET
-    @ApiOperation(value = "Fetch all Bookings", notes = "Returns a JSON array of all stored Booking objects.")
-    public Response retrieveAllBookings() {
-        //Create an empty collection to contain the intersection of Bookings to be returned
-        List<TaxiBooking> bookings = service.findAllOrderedById();
-        return Response.ok(bookings).build();
+    @TransactionAttribute(TransactionAttributeType.SUPPORTS)
+    @ApiOperation(value = "Fetch all Bookings, or those with the given ids",
+            notes = "Returns a JSON array of all stored Booking objects. If ids are given, returns the Booking with each "
+                    + "id in the order requested, or null where there is none.")
+    public Response retrieveAllBookings(
+            @ApiParam(value = "Ids of the Bookings to be fetched, comma separated")
+            @QueryParam(MultiGet.IDS)
+            List<String> ids,
+            @Context Request request) {
+
+        List<Long> requested = MultiGet.parseIds(ids);
+        if (!requested.isEmpty()) {
+            return cache.batch(request, ChangeEvent.TAXI_BOOKING, requested, service::findByIds, TaxiBooking::getId,
+                    booking -> EntityTags.of(booking.getVersion(), booking.getCustomer().getVersion(),
+                            booking.getTaxi().getVersion())).build();
+        }
+        return cache.list(request, ChangeEvent.TAXI_BOOKING, "all", service::findAllOrderedById).build();
     }
 
     /**
@@ -72,6 +103,7 @@ public class BookingRestService {
      * @return A Response containing a single Booking
      */
     @GET
+    @TransactionAttribute(TransactionAttributeType.SUPPORTS)
     @Cache
     @Path("/{id:[0-9]+}")
     @ApiOperation(
@@ -85,16 +117,18 @@ public class BookingRestService {
     public Response retrieveBookingById(
             @ApiParam(value = "Id of Booking to be fetched", allowableValues = "range[0, infinity]", required = true)
             @PathParam("id")
-            long id) {
+            long id,
+            @Context Request request) {
 
-    	TaxiBooking booking = service.findById(id);
-        if (booking == null) {
+        // The representation embeds the customer and the taxi, so their versions are part of the tag.
+        Response.ResponseBuilder builder = cache.entity(request, ChangeEvent.TAXI_BOOKING, String.valueOf(id),
+                () -> service.findById(id),
+                booking -> EntityTags.of(booking.getVersion(), booking.getCustomer().getVersion(), booking.getTaxi().getVersion()));
+        if (builder == null) {
             // Verify that the booking exists. Return 404, if not present.
             throw new RestServiceException("No Booking with the id " + id + " was found!", Response.Status.NOT_FOUND);
         }
-        log.info("findById " + id + ": found Booking = " + booking.toString());
-
-        return Response.ok(booking).build();
+        return builder.build();
     }
     
 
@@ -150,7 +184,68 @@ public class BookingRestService {
             throw new RestServiceException(e);
         }
 
-        log.info("createbooking completed. booking = " + booking.toString());
+        log.log(Level.INFO, "createBooking completed. Booking id = {0}", booking.getId());
+        return builder.build();
+    }
+
+    /**
+     * <p>Books any free taxi with at least the given number of seats for the customer, date and slot provided, so that
+     * clients need not try taxis one by one until a booking succeeds. Will return a JAX-RS response with either 201
+     * (Resource created), holding the booking and the taxi allocated to it, or with a map of fields, and related
+     * errors. No suitable taxi being free is a 409.</p>
+     *
+     * <p>Examples: <pre>POST "api/bookings/allocate?seats=4" -H "content-type: application/json" -d "{ \"customer\": { \"id\": 10002 }, \"date\": \"2030-11-11\", \"startTime\": \"09:30\", \"endTime\": \"11:00\" }"</pre></p>
+     *
+     * @param seats The smallest number of seats the taxi must have
+     * @param booking The booking object, without a taxi, constructed automatically from JSON input
+     * @return A Response indicating the outcome of the allocation
+     */
+    @POST
+    @Path("/allocate")
+    @ApiOperation(value = "Book any free taxi with enough seats")
+    @ApiResponses(value = {
+            @ApiResponse(code = 201, message = "A taxi has been allocated and the booking created successfully."),
+            @ApiResponse(code = 400, message = "Invalid booking supplied in request body"),
+            @ApiResponse(code = 409, message = "No taxi with enough seats is free at that time"),
+            @ApiResponse(code = 500, message = "An unexpected error occurred whilst processing the request")
+    })
+    public Response allocateTaxi(
+            @ApiParam(value = "Smallest number of seats the taxi must have", allowableValues = "range[1, infinity]")
+            @QueryParam("seats") @DefaultValue("1")
+            int seats,
+            @ApiParam(value = "JSON representation of the booking, without a taxi", required = true)
+            TaxiBooking booking) {
+
+        if (booking == null || booking.getCustomer() == null || booking.getDate() == null || seats < 1) {
+            throw new RestServiceException("Bad Request", Response.Status.BAD_REQUEST);
+        }
+
+        Response.ResponseBuilder builder;
+
+        try {
+            // Find a taxi and add the new booking.
+            service.allocate(booking, seats);
+
+            // Create a "Resource Created" 201 Response and pass the booking back, as the client needs its taxi.
+            builder = Response.status(Response.Status.CREATED).entity(booking);
+
+        } catch (ConstraintViolationException ce) {
+            //Handle bean validation issues
+            Map<String, String> responseObj = new HashMap<>();
+
+            for (ConstraintViolation<?> violation : ce.getConstraintViolations()) {
+                responseObj.put(violation.getPropertyPath().toString(), violation.getMessage());
+            }
+            throw new RestServiceException("Bad Request", responseObj, Response.Status.BAD_REQUEST, ce);
+        } catch (Exception e) {
+            // Handle generic exceptions
+            throw new RestServiceException(e);
+        }
+
+        if (log.isLoggable(Level.INFO)) {
+            log.log(Level.INFO, "allocateTaxi completed. Booking id = {0}, taxi id = {1}",
+                    new Object[]{booking.getId(), booking.getTaxiId()});
+        }
         return builder.build();
     }
 
@@ -193,7 +288,7 @@ public class BookingRestService {
             // Handle generic exceptions
             throw new RestServiceException(e);
         }
-        log.info("deleteBooking completed. Booking = " + booking.toString());
+        log.log(Level.INFO, "deleteBooking completed. Booking id = {0}", booking.getId());
         return builder.build();
     }
 }
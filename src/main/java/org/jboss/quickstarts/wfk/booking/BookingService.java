@@ -1,13 +1,22 @@
 package org.jboss.quickstarts.wfk.booking;
 
-import org.jboss.resteasy.client.jaxrs.ResteasyClientBuilder;
+import org.jboss.quickstarts.wfk.feed.ChangeEvent;
+import org.jboss.quickstarts.wfk.report.ReportService;
+import org.jboss.quickstarts.wfk.taxi.Taxi;
+import org.jboss.quickstarts.wfk.util.BusinessRuleException;
 
-import javax.enterprise.context.Dependent;
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Event;
 import javax.inject.Inject;
 import javax.inject.Named;
 import javax.validation.ConstraintViolationException;
 import javax.validation.ValidationException;
+import javax.ws.rs.core.Response;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
@@ -21,15 +30,20 @@ import java.util.logging.Logger;
  * <p>There are no access modifiers on the methods, making them 'package' scope.  They should only be accessed by a
  * Boundary / Web Service class with public methods.</p>
  *
+ * <p>Every booking request goes through the same instance, so the taxis being booked or held are tracked by
+ * {@link TaxiAllocator} and {@link TaxiHolds}, never in fields of this class.</p>
+ *
  *
  * @author Constance He
  * @see BookingValidator
  * @see BookingRepository
  */
-//The @Dependent is the default scope is listed here so that you know what scope is being used.
-@Dependent
+@ApplicationScoped
 public class BookingService {
 
+    /** How many free taxis are listed at a time for {@link #allocate} to claim one from. */
+    private static final int CANDIDATES = 10;
+
     @Inject
     private @Named("logger") Logger log;
 
@@ -39,12 +53,17 @@ public class BookingService {
     @Inject
     private BookingRepository crud;
 
-    /**
-     * <p>Create a new client which will be used for our outgoing REST client communication</p>
-     */
-    public BookingService() {
-        new ResteasyClientBuilder().build();
-    }
+    @Inject
+    private ReportService reports;
+
+    @Inject
+    private Event<ChangeEvent> changes;
+
+    @Inject
+    private TaxiAllocator allocator;
+
+    @Inject
+    private TaxiHolds holds;
 
     /**
      * <p>Returns a List of all persisted {@link Booking} objects, sorted alphabetically by last name.<p/>
@@ -61,10 +80,20 @@ public class BookingService {
      * @param id The id field of the Booking to be returned
      * @return The Booking with the specified id
      */
-    TaxiBooking findById(Long id) {
+    public TaxiBooking findById(Long id) {
         return crud.findById(id);
     }
 
+    /**
+     * <p>Returns the Booking objects with the given ids, in no particular order. Missing ids are left out.<p/>
+     *
+     * @param ids The ids of the Bookings to be returned
+     * @return List of Booking objects
+     */
+    List<TaxiBooking> findByIds(Collection<Long> ids) {
+        return ids.isEmpty() ? Collections.<TaxiBooking>emptyList() : crud.findByIds(ids);
+    }
+
 
     /**
      * <p>Returns a single Booking object, specified by a Long customerId.</p>
@@ -94,6 +123,8 @@ public class BookingService {
     /**
      * <p>Writes the provided Booking object to the application database.<p/>
      *
+     * <p>A booking without a start and end time holds its taxi for the whole day.<p/>
+     *
      * <p>Validates the data in the provided Booking object using a {@link BookingValidator} object.<p/>
      *
      * @param booking The Booking object to be written to the database using a {@link BookingRepository} object
@@ -101,17 +132,152 @@ public class BookingService {
      * @throws ConstraintViolationException, ValidationException, Exception
      */
     public TaxiBooking create(TaxiBooking booking) throws ConstraintViolationException, ValidationException, Exception {
-        log.info("BookingService.create() - Creating " + booking.getId());
-        
-        booking.setCustomer(crud.findCustomerById(booking.getCustomerId()));
-        booking.setTaxi(crud.findTaxiById(booking.getTaxiId()));
+        return create(booking, null);
+    }
+
+    /**
+     * <p>Reserves the slot of the provided Booking object for a short while, without writing anything to the
+     * application database, so that it can be booked once other steps, such as calls to remote services, have
+     * succeeded.<p/>
+     *
+     * <p>The booking is validated as {@link #create(TaxiBooking)} would, and the hold refused with 409 Conflict if the
+     * slot is booked or held already. It must then be either confirmed or released.<p/>
+     *
+     * @param booking The Booking object to be held
+     * @return The hold on its slot
+     * @throws ConstraintViolationException, ValidationException, Exception
+     * @see TaxiHolds
+     */
+    public TaxiHold hold(TaxiBooking booking) throws ConstraintViolationException, ValidationException, Exception {
+        if (log.isLoggable(Level.INFO)) {
+            log.log(Level.INFO, "BookingService.hold() - Holding taxi {0} on {1}",
+                    new Object[]{booking.getTaxiId(), booking.getDate()});
+        }
+
+        // Nothing is written yet, so the taxi need not be locked.
+        booking.setCustomer(booking.getCustomerId() == null ? null : crud.findCustomerById(booking.getCustomerId()));
+        booking.setTaxi(booking.getTaxiId() == null ? null : crud.findTaxiById(booking.getTaxiId()));
+        wholeDayIfUnset(booking);
+
+        validator.validateBooking(booking);
+
+        // Another request may have taken the slot since it was validated.
+        TaxiHold hold = holds.hold(booking);
+        if (hold == null) {
+            throw new BusinessRuleException("Booking Exists", Response.Status.CONFLICT,
+                    "date", "The taxi is already booked at that time");
+        }
+        return hold;
+    }
+
+    /**
+     * <p>Writes the booking held by the provided hold to the application database, and ends the hold once the
+     * transaction completes.<p/>
+     *
+     * <p>The booking is validated again, as a booking made through another node, or under another hold once this one
+     * had expired, may have taken the slot.<p/>
+     *
+     * @param hold The hold made by {@link #hold(TaxiBooking)}
+     * @return The Booking object that has been successfully written to the application database
+     * @throws ConstraintViolationException, ValidationException, Exception
+     */
+    public TaxiBooking confirm(TaxiHold hold) throws ConstraintViolationException, ValidationException, Exception {
+        try {
+            return create(hold.getBooking(), hold);
+        } finally {
+            holds.releaseOnCompletion(hold);
+        }
+    }
 
+    /**
+     * <p>Ends the provided hold without booking its slot, once the current transaction completes. Ending a hold which
+     * has been confirmed or has expired does nothing.<p/>
+     *
+     * @param hold The hold made by {@link #hold(TaxiBooking)}
+     */
+    public void release(TaxiHold hold) {
+        holds.releaseOnCompletion(hold);
+    }
+
+    private TaxiBooking create(TaxiBooking booking, TaxiHold hold) throws ConstraintViolationException, ValidationException, Exception {
+        log.log(Level.INFO, "BookingService.create() - Creating {0}", booking.getId());
         
+        booking.setCustomer(booking.getCustomerId() == null ? null : crud.findCustomerById(booking.getCustomerId()));
+        // Lock the taxi, so that no other booking of it can take the slot between the overlap check and the insert.
+        booking.setTaxi(booking.getTaxiId() == null ? null : crud.lockTaxi(booking.getTaxiId()));
+
+        wholeDayIfUnset(booking);
+
         // Check to make sure the data fits with the parameters in the Booking model and passes validation.
-        validator.validateBooking(booking);
+        validator.validateBooking(booking, hold);
+
+        // Write the booking to the database, and count it in the report rollups in the same transaction.
+        TaxiBooking createdBooking = crud.create(booking);
+        reports.bookingCreated(createdBooking);
+        changes.fire(new ChangeEvent(ChangeEvent.TAXI_BOOKING, createdBooking.getId(), ChangeEvent.Action.CREATE));
 
-        // Write the booking to the database.
-        return crud.create(booking);
+        return createdBooking;
+    }
+
+    /**
+     * <p>Books any taxi with at least the given number of seats which is free for the date and slot of the provided
+     * Booking object, and writes the booking to the application database.<p/>
+     *
+     * <p>The date and slot are validated first. The free taxis, those with the fewest seats first, are then listed a
+     * page at a time by a single indexed query, and the first that is not being booked for an overlapping slot by another
+     * request on this node is claimed through the {@link TaxiAllocator}. Should it have been booked or held in the
+     * meantime, the next free taxi is tried; only the taxi finally chosen is locked. A booking through another node
+     * which slips in between that last look and the lock ends in a 409 Conflict.<p/>
+     *
+     * @param booking The Booking object, with a customer and a date but no taxi, to be written to the database
+     * @param seats The smallest number of seats the taxi must have
+     * @return The Booking object, with the taxi allocated to it, that has been successfully written to the database
+     * @throws BusinessRuleException 409 Conflict if no suitable taxi is free
+     * @throws ConstraintViolationException, ValidationException, Exception
+     */
+    TaxiBooking allocate(TaxiBooking booking, int seats) throws ConstraintViolationException, ValidationException, Exception {
+        if (log.isLoggable(Level.INFO)) {
+            log.log(Level.INFO, "BookingService.allocate() - Allocating a taxi with {0} seats on {1}",
+                    new Object[]{seats, booking.getDate()});
+        }
+
+        wholeDayIfUnset(booking);
+
+        // Nothing below may compare a missing or malformed time.
+        validator.validateSlot(booking);
+
+        for (int first = 0; ; first += CANDIDATES) {
+            List<Long> page = crud.findFreeTaxiIds(seats, booking.getDate(), booking.getStartTime(),
+                    booking.getEndTime(), first, CANDIDATES);
+            List<Long> free = new ArrayList<>(page);
+
+            while (!free.isEmpty()) {
+                Long taxiId = allocator.claim(booking, free);
+                if (taxiId == null) {
+                    break;
+                }
+                free.remove(taxiId);
+
+                Taxi taxi = new Taxi();
+                taxi.setId(taxiId);
+                booking.setTaxi(taxi);
+
+                // Look again without a lock, as the taxi may have been booked or held since the free ones were listed.
+                // Only the taxi which passes is locked, so the transaction does not keep the locks of those it passed
+                // over.
+                if (crud.findOverlapping(taxiId, booking.getDate(), booking.getStartTime(), booking.getEndTime()).isEmpty()
+                        && !holds.isHeld(booking, null)) {
+                    return create(booking);
+                }
+            }
+
+            if (page.size() < CANDIDATES) {
+                break;
+            }
+        }
+
+        throw new BusinessRuleException("No Taxi Free", Response.Status.CONFLICT,
+                "seats", "No taxi with that many seats is free at that time");
     }
 
     /**
@@ -122,16 +288,32 @@ public class BookingService {
      * @throws Exception
      */
     public TaxiBooking delete(TaxiBooking booking) throws Exception {
-        log.info("delete() - Deleting " + booking.toString());
+        log.log(Level.INFO, "delete() - Deleting booking {0}", booking.getId());
 
         TaxiBooking deletedBooking = null;
 
         if (booking.getId() != null) {
+            // The rollups are keyed on the stored date, taxi and customer, not whatever the caller passed in.
+            TaxiBooking storedBooking = crud.findById(booking.getId());
             deletedBooking = crud.delete(booking);
+            if (deletedBooking != null) {
+                reports.bookingDeleted(storedBooking);
+                changes.fire(new ChangeEvent(ChangeEvent.TAXI_BOOKING, booking.getId(), ChangeEvent.Action.DELETE));
+            }
         } else {
             log.info("delete() - No Id was found so can't Delete.");
         }
 
         return deletedBooking;
     }
+
+    /**
+     * <p>A booking which does not give a slot holds the taxi for the whole day, as every booking used to.</p>
+     */
+    private static void wholeDayIfUnset(TaxiBooking booking) {
+        if (booking.getStartTime() == null && booking.getEndTime() == null) {
+            booking.setStartTime(TaxiBooking.START_OF_DAY);
+            booking.setEndTime(TaxiBooking.END_OF_DAY);
+        }
+    }
 }
@@ -1,20 +1,22 @@
 package org.jboss.quickstarts.wfk.booking;
 
+import javax.enterprise.context.ApplicationScoped;
 import javax.inject.Inject;
 import javax.persistence.NoResultException;
 import javax.validation.ConstraintViolation;
 import javax.validation.ConstraintViolationException;
 import javax.validation.ValidationException;
 import javax.validation.Validator;
+import javax.ws.rs.core.Response;
 
 import org.jboss.quickstarts.wfk.customer.Customer;
 import org.jboss.quickstarts.wfk.customer.CustomerRepository;
 import org.jboss.quickstarts.wfk.taxi.Taxi;
 import org.jboss.quickstarts.wfk.taxi.TaxiRepository;
+import org.jboss.quickstarts.wfk.util.BusinessRuleException;
+import org.jboss.quickstarts.wfk.util.Stackless;
 
-import java.util.Date;
 import java.util.HashSet;
-import java.util.List;
 import java.util.Set;
 
 /**
@@ -25,6 +27,7 @@ import java.util.Set;
  * @see BookingRepository
  * @see javax.validation.Validator
  */
+@ApplicationScoped
 public class BookingValidator {
     @Inject
     private Validator validator;
@@ -38,75 +41,110 @@ public class BookingValidator {
     @Inject
     private TaxiRepository crud3;
 
+    @Inject
+    private TaxiHolds holds;
+
     /**
      * <p>Validates the given Booking object and throws validation exceptions based on the type of error. If the error is standard
      * bean validation errors then it will throw a ConstraintValidationException with the set of the constraints violated.<p/>
      *
      *
-     * <p>If the error is caused because an existing booking with the same email is registered it throws a regular validation
+     * <p>If the error is caused because the taxi is already booked for part of the slot it throws a regular validation
      * exception so that it can be interpreted separately.</p>
      *
      *
      * @param booking The Booking object to be validated
      * @throws ConstraintViolationException If Bean Validation errors exist
-     * @throws ValidationException If booking with the same email already exists
+     * @throws ValidationException If the slot ends before it starts, or the taxi is already booked for part of it
      */
     void validateBooking(TaxiBooking booking) throws ConstraintViolationException, ValidationException {
+        validateBooking(booking, null);
+    }
+
+    /**
+     * <p>Validates the given Booking object as {@link #validateBooking(TaxiBooking)} does, for a booking being made
+     * under the given hold, which is not counted as taking the slot.</p>
+     *
+     * @param booking The Booking object to be validated
+     * @param hold The hold on the slot of the booking; or null
+     * @throws ConstraintViolationException If Bean Validation errors exist
+     * @throws ValidationException If the slot ends before it starts, or the taxi is already booked or held for part of it
+     */
+    void validateBooking(TaxiBooking booking, TaxiHold hold) throws ConstraintViolationException, ValidationException {
         // Create a bean validator and check for issues.
         Set<ConstraintViolation<TaxiBooking>> violations = validator.validate(booking);
 
         if (!violations.isEmpty()) {
-            throw new ConstraintViolationException(new HashSet<ConstraintViolation<?>>(violations));
+            throw Stackless.constraintViolations(violations);
         }
         
-        // Check the uniqueness of the booking id ??? 
-        if (bookingAlreadyExists(booking.getTaxiId(), booking.getDate(), booking.getId())) {
-            throw new ValidationException("Booking Exists");
+        checkSlotOrder(booking);
+
+        // Check that the taxi is not already booked, or held for another booking, for any part of the slot
+        if (slotAlreadyBooked(booking) || holds.isHeld(booking, hold)) {
+            throw new BusinessRuleException("Booking Exists", Response.Status.CONFLICT,
+                    "date", "The taxi is already booked at that time");
         }
         
         // Check whether the taxi is exist
         if (!taxiAlreadyExists(booking.getTaxiId())) {
-            throw new ValidationException("TaxiNotExist");
+            throw new BusinessRuleException("TaxiNotExist", Response.Status.BAD_REQUEST,
+                    "taxi", "No taxi with that id exists");
         }
         
         // Check whether the customer is exist
         if (!customerAlreadyExists(booking.getCustomerId())) {
-            throw new ValidationException("CustomerNotExist");
+            throw new BusinessRuleException("CustomerNotExist", Response.Status.BAD_REQUEST,
+                    "customer", "No customer with that id exists");
         }
     }
 
     /**
-     * <p>Checks if a booking with the same combination of taxi and date is already registered.
-     * 
-     * <p>Since Update will being using an booking that is already in the database we need to make sure that it is the combination of taxi and date
-     * from the record being updated.</p>
-     * 
-     * @param taxiId
-     * @param date
-     * @param id
-     * @return
+     * <p>Validates only the date and slot of the given Booking object, e.g. before a taxi has been chosen for it, so that
+     * nothing compares a missing or malformed time.</p>
      *
+     * @param booking The Booking object whose date and slot are to be validated
+     * @throws ConstraintViolationException If the date or either time is missing or malformed
+     * @throws ValidationException If the slot ends before it starts
      */
-	private boolean bookingAlreadyExists(Long taxiId, Date date, Long id) {
-		List<TaxiBooking> booking = null;
-		TaxiBooking bookingWithId = null;
-	        try {
-	        	booking = crud1.findAllByTaxiId(taxiId);
-	        } catch (NoResultException e) {
-	            // ignore    
-	        }
-
-	        try {
-	        	for(TaxiBooking b: booking){
-	        		if (b.getDate().equals(date) && b.getId()!=id) {
-	        			bookingWithId = b;
-	                }
-	            }
-	        } catch (NoResultException e) {
-	        // ignore
-	        }
-	    return bookingWithId != null;
-	}
+    void validateSlot(TaxiBooking booking) throws ConstraintViolationException, ValidationException {
+        Set<ConstraintViolation<TaxiBooking>> violations = new HashSet<>();
+        for (String property : new String[]{"date", "startTime", "endTime"}) {
+            violations.addAll(validator.validateProperty(booking, property));
+        }
+
+        if (!violations.isEmpty()) {
+            throw Stackless.constraintViolations(violations);
+        }
+
+        checkSlotOrder(booking);
+    }
+
+    private static void checkSlotOrder(TaxiBooking booking) {
+        if (booking.getStartTime().compareTo(booking.getEndTime()) >= 0) {
+            throw new BusinessRuleException("Bad Request", Response.Status.BAD_REQUEST,
+                    "endTime", "The booking must end after it starts");
+        }
+    }
+
+    /**
+     * <p>Checks if another booking of the same taxi on the same date has a slot which overlaps that of the given one.</p>
+     *
+     * <p>Since Update will being using a booking that is already in the database we need to make sure that the overlap
+     * is not with the record being updated.</p>
+     *
+     * @param booking The booking to check
+     * @return boolean whether the slot is taken
+     */
+    private boolean slotAlreadyBooked(TaxiBooking booking) {
+        for (TaxiBooking b : crud1.findOverlapping(booking.getTaxiId(), booking.getDate(),
+                booking.getStartTime(), booking.getEndTime())) {
+            if (!b.getId().equals(booking.getId())) {
+                return true;
+            }
+        }
+        return false;
+    }
 	
 	/**
 	 * <p>Check whether the customer exists with customerId</p>
@@ -0,0 +1,151 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.quickstarts.wfk.booking;
+
+import com.google.common.util.concurrent.Striped;
+
+import javax.annotation.Resource;
+import javax.enterprise.context.ApplicationScoped;
+import javax.transaction.Synchronization;
+import javax.transaction.TransactionSynchronizationRegistry;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * <p>Keeps track of the taxis which requests on this node are booking right now, and for which slots, so that
+ * concurrent allocations for overlapping slots pick different taxis rather than all trying the first free one and
+ * queueing on its row lock. Allocations for slots which do not overlap may still share a taxi.</p>
+ *
+ * <p>A claim lasts until the transaction which made it completes: by then the booking is either in the database, where
+ * the next allocation will find it, or rolled back, and the taxi is free again. The claims for a date are guarded by
+ * one of a fixed set of locks chosen by the date, so allocations for different dates rarely wait for each other.</p>
+ *
+ * <p>Claims only avoid collisions between requests on one node. The database still has the last word: a booking on
+ * another node may take the taxi first, which {@link BookingService#allocate(TaxiBooking, int)} looks for before it
+ * locks the taxi.</p>
+ *
+ * @author Constance He
+ * @see BookingService
+ */
+@ApplicationScoped
+public class TaxiAllocator {
+
+    private final Striped<Lock> locks = Striped.lock(64);
+
+    private final Map<LocalDate, List<Claim>> claims = new ConcurrentHashMap<>();
+
+    @Resource
+    private TransactionSynchronizationRegistry transactions;
+
+    /**
+     * <p>Claims the first of the given taxis which no other request on this node has claimed for a slot overlapping
+     * that of the booking. The claim is released when the current transaction completes.</p>
+     *
+     * @param booking The booking, with its date and slot set
+     * @param candidates The ids of the taxis which are free in the database, best first
+     * @return The id of the claimed taxi; or null if every candidate is claimed already
+     */
+    Long claim(TaxiBooking booking, Collection<Long> candidates) {
+        LocalDate day = Instant.ofEpochMilli(booking.getDate().getTime()).atZone(ZoneId.systemDefault()).toLocalDate();
+        Claim claimed = null;
+
+        Lock lock = locks.get(day);
+        lock.lock();
+        try {
+            List<Claim> taken = claims.computeIfAbsent(day, d -> new ArrayList<>());
+            for (Long taxiId : candidates) {
+                Claim claim = new Claim(taxiId, booking.getStartTime(), booking.getEndTime());
+                if (taken.stream().noneMatch(claim::overlaps)) {
+                    taken.add(claim);
+                    claimed = claim;
+                    break;
+                }
+            }
+            if (taken.isEmpty()) {
+                claims.remove(day);
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        if (claimed != null) {
+            Claim claim = claimed;
+            try {
+                transactions.registerInterposedSynchronization(new Synchronization() {
+                    @Override
+                    public void beforeCompletion() {
+                    }
+
+                    @Override
+                    public void afterCompletion(int status) {
+                        release(day, claim);
+                    }
+                });
+            } catch (IllegalStateException e) {
+                // No transaction to tie the claim to
+                release(day, claim);
+                throw e;
+            }
+            return claim.taxiId;
+        }
+        return null;
+    }
+
+    private void release(LocalDate day, Claim claim) {
+        Lock lock = locks.get(day);
+        lock.lock();
+        try {
+            List<Claim> taken = claims.get(day);
+            if (taken != null && taken.remove(claim) && taken.isEmpty()) {
+                claims.remove(day);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * <p>A taxi claimed for a slot of a day. Two claims are only equal if they are the same claim.</p>
+     */
+    private static final class Claim {
+
+        private final Long taxiId;
+
+        private final String startTime;
+
+        private final String endTime;
+
+        private Claim(Long taxiId, String startTime, String endTime) {
+            this.taxiId = taxiId;
+            this.startTime = startTime;
+            this.endTime = endTime;
+        }
+
+        private boolean overlaps(Claim other) {
+            return Objects.equals(taxiId, other.taxiId)
+                    && TaxiBooking.slotsOverlap(startTime, endTime, other.startTime, other.endTime);
+        }
+    }
+}
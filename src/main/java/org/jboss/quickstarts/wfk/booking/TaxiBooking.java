@@ -2,10 +2,12 @@ package org.jboss.quickstarts.wfk.booking;
 
 import org.jboss.quickstarts.wfk.customer.Customer;
 import org.jboss.quickstarts.wfk.taxi.Taxi;
+import org.jboss.quickstarts.wfk.util.QueryHints;
 
 import javax.persistence.*;
 import javax.validation.constraints.Future;
 import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Pattern;
 
 import javax.xml.bind.annotation.XmlRootElement;
 
@@ -20,6 +22,11 @@ import java.util.Date;
  * <p>The class also specifies how a bookings are retrieved from the database (with @NamedQueries), and acceptable values
  * for Booking fields (with @NotNull, @Pattern etc...)</p>
  *
+ * <p>A booking holds its taxi for a slot of the day, from <code>startTime</code> up to <code>endTime</code>, written as
+ * "HH:mm" on a 24 hour clock. The end of the day is "24:00", and a booking which gives neither time holds the taxi for
+ * the whole day. Times are kept in that zero-padded form in the database, so that comparing them as strings orders them
+ * by time, and overlapping slots can be found with a range query.</p>
+ *
  * @author Constance He
  */
 /*
@@ -28,14 +35,23 @@ import java.util.Date;
  */
 @Entity
 @NamedQueries({
-        @NamedQuery(name = TaxiBooking.FIND_ALL, query = "SELECT b FROM TaxiBooking b ORDER BY b.id ASC"),
+        @NamedQuery(name = TaxiBooking.FIND_ALL, query = "SELECT b FROM TaxiBooking b ORDER BY b.id ASC",
+                hints = @QueryHint(name = QueryHints.READ_ONLY, value = "true")),
         @NamedQuery(name = TaxiBooking.FIND_BY_CUSTOMER, query = "SELECT b FROM TaxiBooking b WHERE b.customer.id = :customerId"),
         @NamedQuery(name = TaxiBooking.FIND_BY_TAXI, query = "SELECT b FROM TaxiBooking b WHERE b.taxi.id = :taxiId"),
-        @NamedQuery(name = TaxiBooking.FIND_BY_DATE_AND_TAXI, query = "SELECT b FROM TaxiBooking b WHERE b.taxi.id = :taxiId and b.date = :date")
+        @NamedQuery(name = TaxiBooking.FIND_OVERLAPPING, query = "SELECT b FROM TaxiBooking b WHERE b.taxi.id = :taxiId and b.date = :date"
+                + " and b.startTime < :endTime and b.endTime > :startTime"),
+        @NamedQuery(name = TaxiBooking.FIND_FREE_TAXI_IDS, query = "SELECT t.id FROM Taxi t WHERE t.seats >= :seats"
+                + " and not exists (SELECT b.id FROM TaxiBooking b WHERE b.taxi = t and b.date = :date"
+                + " and b.startTime < :endTime and b.endTime > :startTime) ORDER BY t.seats ASC, t.id ASC"),
+        @NamedQuery(name = TaxiBooking.FIND_BY_IDS, query = "SELECT b FROM TaxiBooking b JOIN FETCH b.customer JOIN FETCH b.taxi WHERE b.id IN :ids",
+                hints = @QueryHint(name = QueryHints.READ_ONLY, value = "true"))
 
 })
 @XmlRootElement
-@Table(name = "booking", uniqueConstraints = @UniqueConstraint(columnNames = { "date", "taxiId" }))
+@Table(name = "booking", indexes = {
+        @Index(name = "ix_booking_taxi_slot", columnList = "taxiId, date, startTime"),
+        @Index(name = "ix_booking_date_slot", columnList = "date, startTime")})
 public class TaxiBooking implements Serializable {
     /** Default value included to remove warning. Remove or modify at will. **/
     private static final long serialVersionUID = 1L;
@@ -43,7 +59,14 @@ public class TaxiBooking implements Serializable {
     public static final String FIND_ALL = "Booking.findAll";
     public static final String FIND_BY_CUSTOMER = "Booking.findByCustomer";
     public static final String FIND_BY_TAXI = "Booking.findByTaxi";
-    public static final String FIND_BY_DATE_AND_TAXI = "Booking.findByDateAndTaxi";
+    public static final String FIND_OVERLAPPING = "Booking.findOverlapping";
+    public static final String FIND_FREE_TAXI_IDS = "Booking.findFreeTaxiIds";
+    public static final String FIND_BY_IDS = "Booking.findByIds";
+
+    /** The start of a booking which holds its taxi for the whole day. */
+    public static final String START_OF_DAY = "00:00";
+    /** The end of a booking which holds its taxi for the whole day. */
+    public static final String END_OF_DAY = "24:00";
     
     @Id
     @GeneratedValue(strategy = GenerationType.TABLE)
@@ -65,6 +88,20 @@ public class TaxiBooking implements Serializable {
     @Temporal(TemporalType.DATE)  
     private Date date;
 
+    @NotNull
+    @Pattern(regexp = "^([01][0-9]|2[0-3]):[0-5][0-9]$", message = "Please give the start time as HH:mm, e.g. 09:30.")
+    @Column(name = "startTime", length = 5)
+    private String startTime;
+
+    @NotNull
+    @Pattern(regexp = "^(([01][0-9]|2[0-3]):[0-5][0-9]|24:00)$", message = "Please give the end time as HH:mm, e.g. 17:00, or 24:00.")
+    @Column(name = "endTime", length = 5)
+    private String endTime;
+
+    @Version
+    @Column(name = "version")
+    private Long version;
+
     public Long getId() {
         return id;
     }
@@ -91,18 +128,24 @@ public class TaxiBooking implements Serializable {
     }
     
     public Long getCustomerId() {
-        return customer.getId();
+        return customer == null ? null : customer.getId();
     }
     
     public void setCustomerId(Long id) {
+        if (customer == null) {
+            customer = new Customer();
+        }
         this.customer.setId(id);
     }
 
     public Long getTaxiId() {
-        return taxi.getId();
+        return taxi == null ? null : taxi.getId();
     }
     
     public void setTaxiId(Long id) {
+        if (taxi == null) {
+            taxi = new Taxi();
+        }
         this.taxi.setId(id);
     }
     
@@ -113,4 +156,41 @@ public class TaxiBooking implements Serializable {
     public void setDate(Date date) {
         this.date = date;
     }
+
+    public String getStartTime() {
+        return startTime;
+    }
+
+    public void setStartTime(String startTime) {
+        this.startTime = startTime;
+    }
+
+    public String getEndTime() {
+        return endTime;
+    }
+
+    public void setEndTime(String endTime) {
+        this.endTime = endTime;
+    }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
+    /**
+     * <p>Tells if two slots of the same day overlap. A missing start is taken as the start of the day and a missing end
+     * as its end, so a slot which has not been validated yet is never compared with null.</p>
+     */
+    static boolean slotsOverlap(String startTime, String endTime, String otherStartTime, String otherEndTime) {
+        return orElse(startTime, START_OF_DAY).compareTo(orElse(otherEndTime, END_OF_DAY)) < 0
+                && orElse(otherStartTime, START_OF_DAY).compareTo(orElse(endTime, END_OF_DAY)) < 0;
+    }
+
+    private static String orElse(String time, String otherwise) {
+        return time == null ? otherwise : time;
+    }
 }
@@ -0,0 +1,77 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.quickstarts.wfk.booking;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Objects;
+
+/**
+ * <p>A short lived reservation of a taxi for the slot of a booking which has not been written yet, made with
+ * {@link BookingService#hold(TaxiBooking)}. While it lasts, no other booking may take the slot on this node.</p>
+ *
+ * <p>A hold ends when it is confirmed, turning it into the booking, when it is released, or when it expires.</p>
+ *
+ * @author Constance He
+ * @see TaxiHolds
+ */
+public final class TaxiHold {
+
+    private final TaxiBooking booking;
+
+    private final LocalDate day;
+
+    private final long expiresAt;
+
+    TaxiHold(TaxiBooking booking, long expiresAt) {
+        this.booking = booking;
+        this.day = dayOf(booking);
+        this.expiresAt = expiresAt;
+    }
+
+    /**
+     * @return The booking to be written when the hold is confirmed
+     */
+    public TaxiBooking getBooking() {
+        return booking;
+    }
+
+    Long getTaxiId() {
+        return booking.getTaxiId();
+    }
+
+    boolean isExpired(long now) {
+        return now - expiresAt >= 0;
+    }
+
+    /**
+     * @return true if the other booking is of the same taxi, on the same date, for an overlapping slot
+     */
+    boolean overlaps(TaxiBooking other) {
+        return Objects.equals(booking.getTaxiId(), other.getTaxiId()) && Objects.equals(day, dayOf(other))
+                && TaxiBooking.slotsOverlap(booking.getStartTime(), booking.getEndTime(),
+                        other.getStartTime(), other.getEndTime());
+    }
+
+    private static LocalDate dayOf(TaxiBooking booking) {
+        if (booking.getDate() == null) {
+            return null;
+        }
+        return Instant.ofEpochMilli(booking.getDate().getTime()).atZone(ZoneId.systemDefault()).toLocalDate();
+    }
+}
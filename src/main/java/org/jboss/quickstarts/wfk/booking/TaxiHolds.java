@@ -0,0 +1,191 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.quickstarts.wfk.booking;
+
+import com.google.common.util.concurrent.Striped;
+
+import javax.annotation.Resource;
+import javax.enterprise.context.ApplicationScoped;
+import javax.transaction.Synchronization;
+import javax.transaction.TransactionSynchronizationRegistry;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * <p>The table of the {@link TaxiHold}s in force on this node, by taxi.</p>
+ *
+ * <p>A hold lasts 60 seconds (system property <code>hold.ttl</code>, in seconds), long enough for the hotel and flight
+ * calls of a travel agent booking to time out. Every new hold first sweeps the expired holds of all taxis, so that
+ * holds on a taxi which is never asked for again do not pile up. The holds of a taxi are guarded by one of a fixed set
+ * of locks chosen by the taxi, so that holds on different taxis rarely wait for each other.</p>
+ *
+ * <p>Holds are kept in memory only: they are meant to last for the duration of one request, and a restart ends that
+ * request anyway. They keep other requests on this node off a slot; the overlap check made when a hold is confirmed
+ * still guards against bookings made through other nodes.</p>
+ *
+ * <p>A hold ended within a transaction, e.g. once its booking has been written, is only dropped when that transaction
+ * completes, so that the slot is never free on this node while the booking is not yet committed.</p>
+ *
+ * @author Constance He
+ * @see BookingService#hold(TaxiBooking)
+ */
+@ApplicationScoped
+public class TaxiHolds {
+
+    private static final long TTL = TimeUnit.SECONDS.toNanos(Long.getLong("hold.ttl", 60L));
+
+    private final Striped<Lock> locks = Striped.lock(64);
+
+    private final Map<Long, List<TaxiHold>> holds = new ConcurrentHashMap<>();
+
+    @Resource
+    private TransactionSynchronizationRegistry transactions;
+
+    /**
+     * <p>Holds the slot of the given booking, unless a live hold on another booking overlaps it.</p>
+     *
+     * @param booking The booking, with its taxi, date and slot set
+     * @return The new hold; or null if the slot is held already
+     */
+    TaxiHold hold(TaxiBooking booking) {
+        purge();
+
+        Long taxiId = booking.getTaxiId();
+        Lock lock = locks.get(taxiId);
+        lock.lock();
+        try {
+            List<TaxiHold> taxiHolds = live(taxiId);
+            for (TaxiHold hold : taxiHolds) {
+                if (hold.overlaps(booking)) {
+                    return null;
+                }
+            }
+            TaxiHold hold = new TaxiHold(booking, System.nanoTime() + TTL);
+            taxiHolds.add(hold);
+            holds.put(taxiId, taxiHolds);
+            return hold;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * <p>Whether a live hold, other than the given one, overlaps the slot of the booking.</p>
+     *
+     * @param booking The booking, with its taxi, date and slot set
+     * @param except The hold the booking is being made under; or null
+     * @return true if the slot is held for another booking
+     */
+    boolean isHeld(TaxiBooking booking, TaxiHold except) {
+        Long taxiId = booking.getTaxiId();
+        if (!holds.containsKey(taxiId)) {
+            return false;
+        }
+        Lock lock = locks.get(taxiId);
+        lock.lock();
+        try {
+            for (TaxiHold hold : live(taxiId)) {
+                if (hold != except && hold.overlaps(booking)) {
+                    return true;
+                }
+            }
+            return false;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * <p>Ends the given hold once the current transaction completes, whether it commits or rolls back; at once if there
+     * is no transaction.</p>
+     *
+     * @param hold The hold
+     */
+    void releaseOnCompletion(TaxiHold hold) {
+        try {
+            transactions.registerInterposedSynchronization(new Synchronization() {
+                @Override
+                public void beforeCompletion() {
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    release(hold);
+                }
+            });
+        } catch (IllegalStateException e) {
+            // No transaction, or one that can only roll back, to wait for
+            release(hold);
+        }
+    }
+
+    /**
+     * <p>Ends the given hold, if it has not ended already.</p>
+     *
+     * @param hold The hold
+     */
+    void release(TaxiHold hold) {
+        Long taxiId = hold.getTaxiId();
+        Lock lock = locks.get(taxiId);
+        lock.lock();
+        try {
+            List<TaxiHold> taxiHolds = holds.get(taxiId);
+            if (taxiHolds != null && taxiHolds.remove(hold) && taxiHolds.isEmpty()) {
+                holds.remove(taxiId);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Drops the expired holds of every taxi. There are only ever as many holds as travel agent bookings in progress, so
+     * this is cheap. Each taxi is swept under its own lock, taken one at a time.
+     */
+    private void purge() {
+        for (Long taxiId : holds.keySet()) {
+            Lock lock = locks.get(taxiId);
+            lock.lock();
+            try {
+                live(taxiId);
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Returns the holds of the taxi which have not expired, dropping the others. The caller must hold the lock of the
+     * taxi.
+     */
+    private List<TaxiHold> live(Long taxiId) {
+        List<TaxiHold> taxiHolds = holds.get(taxiId);
+        if (taxiHolds == null) {
+            return new ArrayList<>();
+        }
+        long now = System.nanoTime();
+        taxiHolds.removeIf(hold -> hold.isExpired(now));
+        if (taxiHolds.isEmpty()) {
+            holds.remove(taxiId);
+        }
+        return taxiHolds;
+    }
+}
@@ -19,6 +19,8 @@ package org.jboss.quickstarts.wfk.contact;
 import org.hibernate.validator.constraints.Email;
 import org.hibernate.validator.constraints.NotEmpty;
 
+import org.jboss.quickstarts.wfk.util.QueryHints;
+
 import javax.persistence.*;
 import javax.validation.constraints.NotNull;
 import javax.validation.constraints.Past;
@@ -44,8 +46,13 @@ import java.util.Objects;
  */
 @Entity
 @NamedQueries({
-        @NamedQuery(name = Contact.FIND_ALL, query = "SELECT c FROM Contact c ORDER BY c.lastName ASC, c.firstName ASC"),
-        @NamedQuery(name = Contact.FIND_BY_EMAIL, query = "SELECT c FROM Contact c WHERE c.email = :email")
+        @NamedQuery(name = Contact.FIND_ALL, query = "SELECT c FROM Contact c ORDER BY c.lastName ASC, c.firstName ASC",
+                hints = @QueryHint(name = QueryHints.READ_ONLY, value = "true")),
+        @NamedQuery(name = Contact.FIND_BY_EMAIL, query = "SELECT c FROM Contact c WHERE c.email = :email"),
+        @NamedQuery(name = Contact.UPDATE_IF_VERSION, query = "UPDATE Contact c SET c.firstName = :firstName, "
+                + "c.lastName = :lastName, c.email = :email, c.phoneNumber = :phoneNumber, c.birthDate = :birthDate, "
+                + "c.state = :state, c.version = c.version + 1 WHERE c.id = :id "
+                + "AND (:version IS NULL OR c.version = :version)")
 })
 @XmlRootElement
 @Table(name = "contact", uniqueConstraints = @UniqueConstraint(columnNames = "email"))
@@ -55,6 +62,7 @@ public class Contact implements Serializable {
 
     public static final String FIND_ALL = "Contact.findAll";
     public static final String FIND_BY_EMAIL = "Contact.findByEmail";
+    public static final String UPDATE_IF_VERSION = "Contact.updateIfVersion";
 
     @Id
     @GeneratedValue(strategy = GenerationType.TABLE)
@@ -91,6 +99,10 @@ public class Contact implements Serializable {
     @Column(name = "state")
     private String state;
 
+    @Version
+    @Column(name = "version")
+    private Long version;
+
     public Long getId() {
         return id;
     }
@@ -147,6 +159,14 @@ public class Contact implements Serializable {
         return this.state;
     }
 
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
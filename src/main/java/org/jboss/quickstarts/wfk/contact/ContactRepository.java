@@ -16,9 +16,15 @@
  */
 package org.jboss.quickstarts.wfk.contact;
 
+import org.jboss.quickstarts.wfk.util.QueryHints;
+import org.jboss.quickstarts.wfk.metrics.Timed;
+
+import javax.enterprise.context.ApplicationScoped;
 import javax.inject.Inject;
 import javax.inject.Named;
 import javax.persistence.EntityManager;
+import javax.persistence.NoResultException;
+import javax.persistence.OptimisticLockException;
 import javax.persistence.TypedQuery;
 import javax.persistence.criteria.CriteriaBuilder;
 import javax.persistence.criteria.CriteriaQuery;
@@ -26,6 +32,7 @@ import javax.persistence.criteria.Root;
 import javax.validation.ConstraintViolationException;
 import javax.validation.ValidationException;
 import java.util.List;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
@@ -39,6 +46,8 @@ import java.util.logging.Logger;
  * @see Contact
  * @see javax.persistence.EntityManager
  */
+@ApplicationScoped
+@Timed
 public class ContactRepository {
 
     @Inject
@@ -93,7 +102,7 @@ public class ContactRepository {
         // Swap criteria statements if you would like to try out type-safe criteria queries, a new feature in JPA 2.0.
         // criteria.select(contact).where(cb.equal(contact.get(Contact_.firstName), firstName));
         criteria.select(contact).where(cb.equal(contact.get("firstName"), firstName));
-        return em.createQuery(criteria).getResultList();
+        return em.createQuery(criteria).setHint(QueryHints.READ_ONLY, true).getResultList();
     }
 
     /**
@@ -109,7 +118,7 @@ public class ContactRepository {
         // Swap criteria statements if you would like to try out type-safe criteria queries, a new feature in JPA 2.0.
         // criteria.select(contact).where(cb.equal(contact.get(Contact_.lastName), lastName));
         criteria.select(contact).where(cb.equal(contact.get("lastName"), lastName));
-        return em.createQuery(criteria).getResultList();
+        return em.createQuery(criteria).setHint(QueryHints.READ_ONLY, true).getResultList();
     }
 
     /**
@@ -125,7 +134,9 @@ public class ContactRepository {
      * @throws ConstraintViolationException, ValidationException, Exception
      */
     Contact create(Contact contact) throws ConstraintViolationException, ValidationException, Exception {
-        log.info("ContactRepository.create() - Creating " + contact.getFirstName() + " " + contact.getLastName());
+        if (log.isLoggable(Level.INFO)) {
+            log.log(Level.INFO, "ContactRepository.create() - Creating {0} {1}", new Object[]{contact.getFirstName(), contact.getLastName()});
+        }
 
         // Write the contact to the database.
         em.persist(contact);
@@ -136,22 +147,42 @@ public class ContactRepository {
     /**
      * <p>Updates an existing Contact object in the application database with the provided Contact object.</p>
      *
-     * <p>{@link javax.persistence.EntityManager#merge(Object) merge(Object)} creates a new instance of your entity,
-     * copies the state from the supplied entity, and makes the new copy managed. The instance you pass in will not be
-     * managed (any changes you make will not be part of the transaction - unless you call merge again).</p>
-     *
-     * <p>merge(Object) however must have an object with the @Id already generated.</p>
+     * <p>The update is issued as a single UPDATE statement, so neither a prior read of the row nor a pessimistic lock
+     * is needed. If the provided Contact carries a version, the update only applies while the stored row is still at
+     * it; if no row was changed we look the Contact up once to tell a missing Contact apart from a concurrent
+     * modification. Without a version the last writer wins, and the new version is not known.</p>
      *
-     * @param contact The Contact object to be merged with an existing Contact
-     * @return The Contact that has been merged
+     * @param contact The Contact object, carrying the version it was read at if any, to be written over the existing Contact
+     * @return The Contact that has been updated, with its new version if it was given one
+     * @throws NoResultException If there is no Contact with the given id
+     * @throws OptimisticLockException If the Contact has been changed since the provided version was read
      * @throws ConstraintViolationException, ValidationException, Exception
      */
     Contact update(Contact contact) throws ConstraintViolationException, ValidationException, Exception {
-        log.info("ContactRepository.update() - Updating " + contact.getFirstName() + " " + contact.getLastName());
+        if (log.isLoggable(Level.INFO)) {
+            log.log(Level.INFO, "ContactRepository.update() - Updating {0} {1}", new Object[]{contact.getFirstName(), contact.getLastName()});
+        }
 
-        // Either update the contact or add it if it can't be found.
-        em.merge(contact);
+        int updated = em.createNamedQuery(Contact.UPDATE_IF_VERSION)
+                .setParameter("firstName", contact.getFirstName())
+                .setParameter("lastName", contact.getLastName())
+                .setParameter("email", contact.getEmail())
+                .setParameter("phoneNumber", contact.getPhoneNumber())
+                .setParameter("birthDate", contact.getBirthDate())
+                .setParameter("state", contact.getState())
+                .setParameter("id", contact.getId())
+                .setParameter("version", contact.getVersion())
+                .executeUpdate();
+
+        if (updated == 0) {
+            if (contact.getVersion() == null || em.find(Contact.class, contact.getId()) == null) {
+                throw new NoResultException("No Contact with the id " + contact.getId() + " was found");
+            }
+            throw new OptimisticLockException("Contact " + contact.getId() + " is no longer at version "
+                    + contact.getVersion(), null, contact);
+        }
 
+        contact.setVersion(contact.getVersion() == null ? null : contact.getVersion() + 1);
         return contact;
     }
 
@@ -163,7 +194,9 @@ public class ContactRepository {
      * @throws Exception
      */
     Contact delete(Contact contact) throws Exception {
-        log.info("ContactRepository.delete() - Deleting " + contact.getFirstName() + " " + contact.getLastName());
+        if (log.isLoggable(Level.INFO)) {
+            log.log(Level.INFO, "ContactRepository.delete() - Deleting {0} {1}", new Object[]{contact.getFirstName(), contact.getLastName()});
+        }
 
         if (contact.getId() != null) {
             /*
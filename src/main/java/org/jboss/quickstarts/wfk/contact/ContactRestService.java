@@ -17,22 +17,27 @@
 package org.jboss.quickstarts.wfk.contact;
 
 import io.swagger.annotations.*;
-import org.jboss.quickstarts.wfk.area.InvalidAreaCodeException;
+import org.jboss.quickstarts.wfk.util.EntityTags;
 import org.jboss.quickstarts.wfk.util.RestServiceException;
 import org.jboss.resteasy.annotations.cache.Cache;
 
 import javax.ejb.Stateless;
+import javax.ejb.TransactionAttribute;
+import javax.ejb.TransactionAttributeType;
 import javax.inject.Inject;
 import javax.inject.Named;
 import javax.persistence.NoResultException;
+import javax.persistence.OptimisticLockException;
 import javax.validation.ConstraintViolation;
 import javax.validation.ConstraintViolationException;
 import javax.ws.rs.*;
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
@@ -74,6 +79,7 @@ public class ContactRestService {
      * @return A Response containing a list of Contacts
      */
     @GET
+    @TransactionAttribute(TransactionAttributeType.SUPPORTS)
     @ApiOperation(value = "Fetch all Contacts", notes = "Returns a JSON array of all stored Contact objects.")
     public Response retrieveAllContacts(@QueryParam("firstname") String firstname, @QueryParam("lastname") String lastname) {
         //Create an empty collection to contain the intersection of Contacts to be returned
@@ -104,6 +110,7 @@ public class ContactRestService {
      * @return A Response containing a single Contact
      */
     @GET
+    @TransactionAttribute(TransactionAttributeType.SUPPORTS)
     @Cache
     @Path("/email/{email:.+[%40|@].+}")
     @ApiOperation(
@@ -136,6 +143,7 @@ public class ContactRestService {
      * @return A Response containing a single Contact
      */
     @GET
+    @TransactionAttribute(TransactionAttributeType.SUPPORTS)
     @Cache
     @Path("/{id:[0-9]+}")
     @ApiOperation(
@@ -156,7 +164,7 @@ public class ContactRestService {
             // Verify that the contact exists. Return 404, if not present.
             throw new RestServiceException("No Contact with the id " + id + " was found!", Response.Status.NOT_FOUND);
         }
-        log.info("findById " + id + ": found Contact = " + contact.toString());
+        log.log(Level.INFO, "findById {0}: found Contact", id);
 
         return Response.ok(contact).build();
     }
@@ -206,21 +214,12 @@ public class ContactRestService {
             }
             throw new RestServiceException("Bad Request", responseObj, Response.Status.BAD_REQUEST, ce);
 
-        } catch (UniqueEmailException e) {
-            // Handle the unique constraint violation
-            Map<String, String> responseObj = new HashMap<>();
-            responseObj.put("email", "That email is already used, please use a unique email");
-            throw new RestServiceException("Bad Request", responseObj, Response.Status.CONFLICT, e);
-        } catch (InvalidAreaCodeException e) {
-            Map<String, String> responseObj = new HashMap<>();
-            responseObj.put("area_code", "The telephone area code provided is not recognised, please provide another");
-            throw new RestServiceException("Bad Request", responseObj, Response.Status.BAD_REQUEST, e);
         } catch (Exception e) {
-            // Handle generic exceptions
+            // A broken business rule, e.g. a duplicate email, becomes its 4xx; anything else a 500
             throw new RestServiceException(e);
         }
 
-        log.info("createContact completed. Contact = " + contact.toString());
+        log.log(Level.INFO, "createContact completed. Contact id = {0}", contact.getId());
         return builder.build();
     }
 
@@ -241,12 +240,16 @@ public class ContactRestService {
             @ApiResponse(code = 400, message = "Invalid Contact supplied in request body"),
             @ApiResponse(code = 404, message = "Contact with id not found"),
             @ApiResponse(code = 409, message = "Contact details supplied in request body conflict with another existing Contact"),
+            @ApiResponse(code = 412, message = "Contact has been modified since the version given in If-Match"),
             @ApiResponse(code = 500, message = "An unexpected error occurred whilst processing the request")
     })
     public Response updateContact(
             @ApiParam(value = "Id of Contact to be updated", allowableValues = "range[0, infinity]", required = true)
             @PathParam("id")
             long id,
+            @ApiParam(value = "ETag of the version of the Contact being replaced; the update fails with 412 if it is stale")
+            @HeaderParam(HttpHeaders.IF_MATCH)
+            String ifMatch,
             @ApiParam(value = "JSON representation of Contact object to be updated in the database", required = true)
             Contact contact) {
 
@@ -262,9 +265,10 @@ public class ContactRestService {
                     responseObj, Response.Status.CONFLICT);
         }
 
-        if (service.findById(contact.getId()) == null) {
-            // Verify that the contact exists. Return 404, if not present.
-            throw new RestServiceException("No Contact with the id " + id + " was found!", Response.Status.NOT_FOUND);
+        // A version from If-Match takes precedence over one sent in the request body.
+        Long expectedVersion = EntityTags.parseIfMatch(ifMatch);
+        if (expectedVersion != null) {
+            contact.setVersion(expectedVersion);
         }
 
         Response.ResponseBuilder builder;
@@ -274,7 +278,12 @@ public class ContactRestService {
             service.update(contact);
 
             // Create an OK Response and pass the contact back in case it is needed.
+            // Clients which do not say which version they are replacing get the old unconditional behaviour. The
+            // version the Contact ends up at is not known then, so there is no ETag to give them.
             builder = Response.ok(contact);
+            if (contact.getVersion() != null) {
+                builder.tag(EntityTags.of(contact.getVersion()));
+            }
 
 
         } catch (ConstraintViolationException ce) {
@@ -285,22 +294,21 @@ public class ContactRestService {
                 responseObj.put(violation.getPropertyPath().toString(), violation.getMessage());
             }
             throw new RestServiceException("Bad Request", responseObj, Response.Status.BAD_REQUEST, ce);
-        } catch (UniqueEmailException e) {
-            // Handle the unique constraint violation
-            Map<String, String> responseObj = new HashMap<>();
-            responseObj.put("email", "That email is already used, please use a unique email");
-            throw new RestServiceException("Contact details supplied in request body conflict with another Contact",
-                    responseObj, Response.Status.CONFLICT, e);
-        } catch (InvalidAreaCodeException e) {
+        } catch (NoResultException e) {
+            // The Contact was deleted, or never existed. Return 404.
+            throw new RestServiceException("No Contact with the id " + id + " was found!", Response.Status.NOT_FOUND, e);
+        } catch (OptimisticLockException e) {
+            // Somebody else updated the Contact after this client read it.
             Map<String, String> responseObj = new HashMap<>();
-            responseObj.put("area_code", "The telephone area code provided is not recognised, please provide another");
-            throw new RestServiceException("Bad Request", responseObj, Response.Status.BAD_REQUEST, e);
+            responseObj.put("version", "The Contact has been modified since it was read, please fetch it again");
+            throw new RestServiceException("Contact has been modified by another request", responseObj,
+                    expectedVersion != null ? Response.Status.PRECONDITION_FAILED : Response.Status.CONFLICT, e);
         } catch (Exception e) {
-            // Handle generic exceptions
+            // A broken business rule, e.g. a duplicate email, becomes its 4xx; anything else a 500
             throw new RestServiceException(e);
         }
 
-        log.info("updateContact completed. Contact = " + contact.toString());
+        log.log(Level.INFO, "updateContact completed. Contact id = {0}", contact.getId());
         return builder.build();
     }
 
@@ -343,7 +351,7 @@ public class ContactRestService {
             // Handle generic exceptions
             throw new RestServiceException(e);
         }
-        log.info("deleteContact completed. Contact = " + contact.toString());
+        log.log(Level.INFO, "deleteContact completed. Contact id = {0}", contact.getId());
         return builder.build();
     }
 }
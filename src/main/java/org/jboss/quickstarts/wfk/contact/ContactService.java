@@ -19,11 +19,10 @@ package org.jboss.quickstarts.wfk.contact;
 import org.jboss.quickstarts.wfk.area.Area;
 import org.jboss.quickstarts.wfk.area.AreaService;
 import org.jboss.quickstarts.wfk.area.InvalidAreaCodeException;
-import org.jboss.resteasy.client.jaxrs.ResteasyClient;
-import org.jboss.resteasy.client.jaxrs.ResteasyClientBuilder;
-import org.jboss.resteasy.client.jaxrs.ResteasyWebTarget;
+import org.jboss.quickstarts.wfk.util.UpstreamClients;
 
-import javax.enterprise.context.Dependent;
+import javax.annotation.PostConstruct;
+import javax.enterprise.context.ApplicationScoped;
 import javax.inject.Inject;
 import javax.inject.Named;
 import javax.validation.ConstraintViolationException;
@@ -31,6 +30,7 @@ import javax.validation.ValidationException;
 import javax.ws.rs.ClientErrorException;
 import javax.ws.rs.core.Response;
 import java.util.List;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
@@ -42,15 +42,19 @@ import java.util.logging.Logger;
  * <p>There are no access modifiers on the methods, making them 'package' scope.  They should only be accessed by a
  * Boundary / Web Service class with public methods.</p>
  *
+ * <p>Every contact request goes through the same instance. The area service proxy is its only field set after
+ * injection, and is made once, so that the calls to the area service share its connections.</p>
+ *
  *
  * @author Joshua Wilson
  * @see ContactValidator
  * @see ContactRepository
  */
-//The @Dependent is the default scope is listed here so that you know what scope is being used.
-@Dependent
+@ApplicationScoped
 public class ContactService {
 
+    private static final String AREA_URL = "http://csc8104-areas.eastus.cloudapp.azure.com";
+
     @Inject
     private @Named("logger") Logger log;
 
@@ -60,14 +64,18 @@ public class ContactService {
     @Inject
     private ContactRepository crud;
 
-    private ResteasyClient client;
+    @Inject
+    private UpstreamClients clients;
+
+    private AreaService areas;
 
     /**
-     * <p>Create a new client which will be used for our outgoing REST client communication</p>
+     * <p>Create the proxy used for our outgoing REST client communication, over the client shared by every call to the
+     * area service</p>
      */
-    public ContactService() {
-        // Create client service instance to make REST requests to upstream service
-        client = new ResteasyClientBuilder().build();
+    @PostConstruct
+    void createProxy() {
+        areas = clients.client(UpstreamClients.AREA).target(AREA_URL).proxy(AreaService.class);
     }
 
     /**
@@ -131,25 +139,15 @@ public class ContactService {
      * @throws ConstraintViolationException, ValidationException, Exception
      */
     Contact create(Contact contact) throws ConstraintViolationException, ValidationException, Exception {
-        log.info("ContactService.create() - Creating " + contact.getFirstName() + " " + contact.getLastName());
+        if (log.isLoggable(Level.INFO)) {
+            log.log(Level.INFO, "ContactService.create() - Creating {0} {1}", new Object[]{contact.getFirstName(), contact.getLastName()});
+        }
         
         // Check to make sure the data fits with the parameters in the Contact model and passes validation.
         validator.validateContact(contact);
 
-        //Create client service instance to make REST requests to upstream service
-        ResteasyWebTarget target = client.target("http://csc8104-areas.eastus.cloudapp.azure.com");
-        AreaService service = target.proxy(AreaService.class);
-
-        try {
-            Area area = service.getAreaById(Integer.parseInt(contact.getPhoneNumber().substring(1, 4)));
-            contact.setState(area.getState());
-        } catch (ClientErrorException e) {
-            if (e.getResponse().getStatusInfo() == Response.Status.NOT_FOUND) {
-                throw new InvalidAreaCodeException("The area code provided does not exist", e);
-            } else {
-                throw e;
-            }
-        }
+        // Look up the state of the phone number's area code with the upstream service
+        setState(contact);
 
         // Write the contact to the database.
         return crud.create(contact);
@@ -165,25 +163,15 @@ public class ContactService {
      * @throws ConstraintViolationException, ValidationException, Exception
      */
     Contact update(Contact contact) throws ConstraintViolationException, ValidationException, Exception {
-        log.info("ContactService.update() - Updating " + contact.getFirstName() + " " + contact.getLastName());
+        if (log.isLoggable(Level.INFO)) {
+            log.log(Level.INFO, "ContactService.update() - Updating {0} {1}", new Object[]{contact.getFirstName(), contact.getLastName()});
+        }
         
         // Check to make sure the data fits with the parameters in the Contact model and passes validation.
         validator.validateContact(contact);
 
-        // Set client target location and define the proxy API class
-        ResteasyWebTarget target = client.target("http://csc8104-areas.eastus.cloudapp.azure.com");
-        AreaService service = target.proxy(AreaService.class);
-
-        try {
-            Area area = service.getAreaById(Integer.parseInt(contact.getPhoneNumber().substring(1, 4)));
-            contact.setState(area.getState());
-        } catch (ClientErrorException e) {
-            if (e.getResponse().getStatusInfo() == Response.Status.NOT_FOUND) {
-                throw new InvalidAreaCodeException("The area code provided does not exist", e);
-            } else {
-                throw e;
-            }
-        }
+        // Look up the state of the phone number's area code with the upstream service
+        setState(contact);
 
         // Either update the contact or add it if it can't be found.
         return crud.update(contact);
@@ -197,7 +185,7 @@ public class ContactService {
      * @throws Exception
      */
     Contact delete(Contact contact) throws Exception {
-        log.info("delete() - Deleting " + contact.toString());
+        log.log(Level.INFO, "delete() - Deleting contact {0}", contact.getId());
 
         Contact deletedContact = null;
 
@@ -209,4 +197,23 @@ public class ContactService {
 
         return deletedContact;
     }
+
+    /**
+     * <p>Sets the state of the contact to that of the area code of its phone number.</p>
+     *
+     * @param contact The contact
+     * @throws InvalidAreaCodeException if the area service does not know the area code
+     */
+    private void setState(Contact contact) {
+        try {
+            Area area = areas.getAreaById(Integer.parseInt(contact.getPhoneNumber().substring(1, 4)));
+            contact.setState(area.getState());
+        } catch (ClientErrorException e) {
+            if (e.getResponse().getStatusInfo() == Response.Status.NOT_FOUND) {
+                throw new InvalidAreaCodeException("The area code provided does not exist", e);
+            } else {
+                throw e;
+            }
+        }
+    }
 }
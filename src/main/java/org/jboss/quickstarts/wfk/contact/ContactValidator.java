@@ -16,13 +16,15 @@
  */
 package org.jboss.quickstarts.wfk.contact;
 
+import org.jboss.quickstarts.wfk.util.Stackless;
+
+import javax.enterprise.context.ApplicationScoped;
 import javax.inject.Inject;
 import javax.persistence.NoResultException;
 import javax.validation.ConstraintViolation;
 import javax.validation.ConstraintViolationException;
 import javax.validation.ValidationException;
 import javax.validation.Validator;
-import java.util.HashSet;
 import java.util.Set;
 
 /**
@@ -33,6 +35,7 @@ import java.util.Set;
  * @see ContactRepository
  * @see javax.validation.Validator
  */
+@ApplicationScoped
 public class ContactValidator {
     @Inject
     private Validator validator;
@@ -58,7 +61,7 @@ public class ContactValidator {
         Set<ConstraintViolation<Contact>> violations = validator.validate(contact);
 
         if (!violations.isEmpty()) {
-            throw new ConstraintViolationException(new HashSet<ConstraintViolation<?>>(violations));
+            throw Stackless.constraintViolations(violations);
         }
 
         // Check the uniqueness of the email address
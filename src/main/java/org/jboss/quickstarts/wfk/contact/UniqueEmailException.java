@@ -1,7 +1,9 @@
 
 package org.jboss.quickstarts.wfk.contact;
 
-import javax.validation.ValidationException;
+import org.jboss.quickstarts.wfk.util.BusinessRuleException;
+
+import javax.ws.rs.core.Response;
 
 /**
  * <p>ValidationException caused if a Contact's email address conflicts with that of another Contact.</p>
@@ -11,19 +13,21 @@ import javax.validation.ValidationException;
  * @author hugofirth
  * @see Contact
  */
-public class UniqueEmailException extends ValidationException {
+public class UniqueEmailException extends BusinessRuleException {
 
 	private static final long serialVersionUID = 1L;
 
+	static final String REASON = "That email is already used, please use a unique email";
+
 	public UniqueEmailException(String message) {
-        super(message);
+        super(message, Response.Status.CONFLICT, "email", REASON);
     }
 
     public UniqueEmailException(String message, Throwable cause) {
-        super(message, cause);
+        super(message, cause, Response.Status.CONFLICT, "email", REASON);
     }
 
     public UniqueEmailException(Throwable cause) {
-        super(cause);
+        this(cause == null ? null : cause.toString(), cause);
     }
 }
@@ -3,6 +3,8 @@ package org.jboss.quickstarts.wfk.customer;
 import org.hibernate.validator.constraints.Email;
 import org.hibernate.validator.constraints.NotEmpty;
 
+import org.jboss.quickstarts.wfk.util.QueryHints;
+
 import javax.persistence.*;
 
 import javax.validation.constraints.NotNull;
@@ -29,8 +31,14 @@ import java.util.Objects;
  */
 @Entity
 @NamedQueries({
-        @NamedQuery(name = Customer.FIND_ALL, query = "SELECT c FROM Customer c ORDER BY c.name ASC"),
-        @NamedQuery(name = Customer.FIND_BY_EMAIL, query = "SELECT c FROM Customer c WHERE c.email = :email")
+        @NamedQuery(name = Customer.FIND_ALL, query = "SELECT c FROM Customer c ORDER BY c.name ASC",
+                hints = @QueryHint(name = QueryHints.READ_ONLY, value = "true")),
+        @NamedQuery(name = Customer.FIND_BY_EMAIL, query = "SELECT c FROM Customer c WHERE c.email = :email"),
+        @NamedQuery(name = Customer.FIND_BY_IDS, query = "SELECT c FROM Customer c WHERE c.id IN :ids",
+                hints = @QueryHint(name = QueryHints.READ_ONLY, value = "true")),
+        @NamedQuery(name = Customer.UPDATE_IF_VERSION, query = "UPDATE Customer c SET c.name = :name, c.email = :email, "
+                + "c.phoneNumber = :phoneNumber, c.version = c.version + 1 WHERE c.id = :id "
+                + "AND (:version IS NULL OR c.version = :version)")
 })
 @XmlRootElement
 @Table(name = "customer", uniqueConstraints = @UniqueConstraint(columnNames = "email"))
@@ -40,6 +48,8 @@ public class Customer implements Serializable {
 
     public static final String FIND_ALL = "Customer.findAll";
     public static final String FIND_BY_EMAIL = "Customer.findByEmail";
+    public static final String FIND_BY_IDS = "Customer.findByIds";
+    public static final String UPDATE_IF_VERSION = "Customer.updateIfVersion";
 
     @Id
     @GeneratedValue(strategy = GenerationType.TABLE)
@@ -60,6 +70,14 @@ public class Customer implements Serializable {
     @Pattern(regexp = "[0][0-9]{10}$")
     @Column(name = "phoneNumber")
     private String phoneNumber;
+
+    /*
+     * Incremented on every update. An update only succeeds if the client still holds the current version, so concurrent
+     * edits are detected instead of the last writer silently winning.
+     */
+    @Version
+    @Column(name = "version")
+    private Long version;
     
     public Long getId() {
         return id;
@@ -92,6 +110,14 @@ public class Customer implements Serializable {
     public void setPhoneNumber(String phoneNumber) {
         this.phoneNumber = phoneNumber;
     }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
     
     @Override
     public boolean equals(Object o) {
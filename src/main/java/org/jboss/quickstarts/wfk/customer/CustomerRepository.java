@@ -1,8 +1,13 @@
 package org.jboss.quickstarts.wfk.customer;
 
+import org.jboss.quickstarts.wfk.util.QueryHints;
+
+import javax.enterprise.context.ApplicationScoped;
 import javax.inject.Inject;
 import javax.inject.Named;
 import javax.persistence.EntityManager;
+import javax.persistence.NoResultException;
+import javax.persistence.OptimisticLockException;
 import javax.persistence.TypedQuery;
 import javax.persistence.criteria.CriteriaBuilder;
 import javax.persistence.criteria.CriteriaQuery;
@@ -11,8 +16,11 @@ import javax.validation.ConstraintViolationException;
 import javax.validation.ValidationException;
 
 import org.jboss.quickstarts.wfk.customer.Customer;
+import org.jboss.quickstarts.wfk.metrics.Timed;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
@@ -26,6 +34,8 @@ import java.util.logging.Logger;
  * @see Customer
  * @see javax.persistence.EntityManager
  */
+@ApplicationScoped
+@Timed
 public class CustomerRepository {
 
     @Inject
@@ -58,6 +68,18 @@ public class CustomerRepository {
     public Customer findById(Long id) {
         return em.find(Customer.class, id);
     }
+
+    /**
+     * <p>Returns the Customer objects with the given ids, in no particular order, using a single query. Ids which do not
+     * belong to a Customer are left out.</p>
+     *
+     * @param ids The ids of the Customers to be returned, must not be empty
+     * @return List of Customer objects
+     */
+    List<Customer> findByIds(Collection<Long> ids) {
+        TypedQuery<Customer> query = em.createNamedQuery(Customer.FIND_BY_IDS, Customer.class).setParameter("ids", ids);
+        return query.getResultList();
+    }
     
     /**
      * <p>Returns a single Customer object, specified by a String name.<p/>
@@ -74,7 +96,7 @@ public class CustomerRepository {
         // Swap criteria statements if you would like to try out type-safe criteria queries, a new feature in JPA 2.0.
         // criteria.select(customer).where(cb.equal(customer.get(Customer_.name), name));
         criteria.select(customer).where(cb.equal(customer.get("name"), name));
-        return em.createQuery(criteria).getSingleResult();
+        return em.createQuery(criteria).setHint(QueryHints.READ_ONLY, true).getSingleResult();
     }
 
     /**
@@ -103,7 +125,7 @@ public class CustomerRepository {
      * @throws ConstraintViolationException, ValidationException, Exception
      */
     Customer create(Customer customer) throws ConstraintViolationException, ValidationException, Exception {
-        log.info("CustomerRepository.create() - Creating " + customer.getName());
+        log.log(Level.INFO, "CustomerRepository.create() - Creating {0}", customer.getName());
 
         // Write the Customer to the database.
         em.persist(customer);
@@ -114,22 +136,37 @@ public class CustomerRepository {
     /**
      * <p>Updates an existing Customer object in the application database with the provided Customer object.</p>
      *
-     * <p>{@link javax.persistence.EntityManager#merge(Object) merge(Object)} creates a new instance of your entity,
-     * copies the state from the supplied entity, and makes the new copy managed. The instance you pass in will not be
-     * managed (any changes you make will not be part of the transaction - unless you call merge again).</p>
-     *
-     * <p>merge(Object) however must have an object with the @Id already generated.</p>
+     * <p>The update is issued as a single UPDATE statement, so neither a prior read of the row nor a pessimistic lock
+     * is needed. If the provided Customer carries a version, the update only applies while the stored row is still at
+     * it; if no row was changed we look the Customer up once to tell a missing Customer apart from a concurrent
+     * modification. Without a version the last writer wins, and the new version is not known.</p>
      *
-     * @param Customer The Customer object to be merged with an existing Customer
-     * @return The Customer that has been merged
+     * @param Customer The Customer object, carrying the version it was read at if any, to be written over the existing Customer
+     * @return The Customer that has been updated, with its new version if it was given one
+     * @throws NoResultException If there is no Customer with the given id
+     * @throws OptimisticLockException If the Customer has been changed since the provided version was read
      * @throws ConstraintViolationException, ValidationException, Exception
      */
     Customer update(Customer customer) throws ConstraintViolationException, ValidationException, Exception {
-        log.info("CustomerRepository.update() - Updating " + customer.getName());
-
-        // Either update the Customer or add it if it can't be found.
-        em.merge(customer);
+        log.log(Level.INFO, "CustomerRepository.update() - Updating {0}", customer.getName());
+
+        int updated = em.createNamedQuery(Customer.UPDATE_IF_VERSION)
+                .setParameter("name", customer.getName())
+                .setParameter("email", customer.getEmail())
+                .setParameter("phoneNumber", customer.getPhoneNumber())
+                .setParameter("id", customer.getId())
+                .setParameter("version", customer.getVersion())
+                .executeUpdate();
+
+        if (updated == 0) {
+            if (customer.getVersion() == null || em.find(Customer.class, customer.getId()) == null) {
+                throw new NoResultException("No Customer with the id " + customer.getId() + " was found");
+            }
+            throw new OptimisticLockException("Customer " + customer.getId() + " is no longer at version "
+                    + customer.getVersion(), null, customer);
+        }
 
+        customer.setVersion(customer.getVersion() == null ? null : customer.getVersion() + 1);
         return customer;
     }
     
@@ -141,11 +178,15 @@ public class CustomerRepository {
      * @throws Exception
      */
     Customer delete(Customer customer) throws Exception {
-        log.info("CustomerRepository.delete() - Deleting " + customer.getName());
+        log.log(Level.INFO, "CustomerRepository.delete() - Deleting {0}", customer.getName());
 
         //List<Booking> bookings = service.findAllByCustomerId(customer.getId());
         
         if (customer.getId() != null) {
+            // Nothing to delete if it is gone already, e.g. deleted by a concurrent request
+            if (em.find(Customer.class, customer.getId()) == null) {
+                return null;
+            }
             /*
              * The Hibernate session (aka EntityManager's persistent context) is closed and invalidated after the commit(), 
              * because it is bound to a transaction. The object goes into a detached status. If you open a new persistent 
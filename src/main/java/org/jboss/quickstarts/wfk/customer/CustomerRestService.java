@@ -5,22 +5,34 @@ import io.swagger.annotations.*;
 import org.jboss.quickstarts.wfk.booking.BookingService;
 import org.jboss.quickstarts.wfk.booking.TaxiBooking;
 import org.jboss.quickstarts.wfk.customer.Customer;
-import org.jboss.quickstarts.wfk.customer.UniqueEmailException;
+import org.jboss.quickstarts.wfk.feed.ChangeEvent;
+import org.jboss.quickstarts.wfk.util.EntityTags;
+import org.jboss.quickstarts.wfk.util.MultiGet;
+import org.jboss.quickstarts.wfk.util.ResponseCache;
+import org.jboss.quickstarts.wfk.util.BinaryMediaTypes;
 import org.jboss.quickstarts.wfk.util.RestServiceException;
+import org.jboss.quickstarts.wfk.util.SparseFieldsets;
 import org.jboss.resteasy.annotations.cache.Cache;
 
 import javax.ejb.Stateless;
+import javax.ejb.TransactionAttribute;
+import javax.ejb.TransactionAttributeType;
 import javax.inject.Inject;
 import javax.inject.Named;
 import javax.persistence.NoResultException;
+import javax.persistence.OptimisticLockException;
 import javax.validation.ConstraintViolation;
 import javax.validation.ConstraintViolationException;
 import javax.ws.rs.*;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Request;
 import javax.ws.rs.core.Response;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
@@ -41,8 +53,9 @@ import java.util.logging.Logger;
  * @see javax.ws.rs.core.Response
  */
 @Path("/customers")
-@Consumes(MediaType.APPLICATION_JSON)
-@Produces(MediaType.APPLICATION_JSON)
+@Consumes({MediaType.APPLICATION_JSON, BinaryMediaTypes.APPLICATION_CBOR, BinaryMediaTypes.APPLICATION_SMILE})
+@Produces({MediaType.APPLICATION_JSON, BinaryMediaTypes.APPLICATION_CBOR, BinaryMediaTypes.APPLICATION_SMILE})
+@SparseFieldsets
 @Api(value = "/customers", description = "Operations about Customers")
 @Stateless
 public class CustomerRestService {
@@ -55,20 +68,37 @@ public class CustomerRestService {
     @Inject
     private BookingService service2;
 
+    @Inject
+    private ResponseCache cache;
+
     /**
      * <p>Return all the Customers.  They are sorted alphabetically by name.</p>
 	 *
      * <p>Examples: <pre>GET "api/customers" -H "accept: application/json </pre></p>
      *
+     * <p>With the <code>ids</code> query parameter only the Customers with those ids are returned, in the order
+     * given and with null for every id that was not found, e.g. <pre>GET "api/customers?ids=1,5,9"</pre></p>
+     *
+     * @param ids The ids of the Customers to return, comma separated or repeated; optional
      * @return A Response containing a list of Customers
      */
     @GET
-    @ApiOperation(value = "Fetch all Customers", notes = "Returns a JSON array of all stored Customer objects.")
-    public Response retrieveAllCustomers() {
-        //Create an empty collection to contain the intersection of Customers to be returned
-        List<Customer> customers = service.findAllOrderedByName();
-        
-        return Response.ok(customers).build();
+    @TransactionAttribute(TransactionAttributeType.SUPPORTS)
+    @ApiOperation(value = "Fetch all Customers, or those with the given ids",
+            notes = "Returns a JSON array of all stored Customer objects. If ids are given, returns the Customer with each id "
+                    + "in the order requested, or null where there is none.")
+    public Response retrieveAllCustomers(
+            @ApiParam(value = "Ids of the Customers to be fetched, comma separated")
+            @QueryParam(MultiGet.IDS)
+            List<String> ids,
+            @Context Request request) {
+
+        List<Long> requested = MultiGet.parseIds(ids);
+        if (!requested.isEmpty()) {
+            return cache.batch(request, ChangeEvent.CUSTOMER, requested, service::findByIds, Customer::getId,
+                    customer -> EntityTags.of(customer.getVersion())).build();
+        }
+        return cache.list(request, ChangeEvent.CUSTOMER, "all", service::findAllOrderedByName).build();
     }
 
     /**
@@ -83,6 +113,7 @@ public class CustomerRestService {
      * @return A Response containing a single Customer
      */
     @GET
+    @TransactionAttribute(TransactionAttributeType.SUPPORTS)
     @Cache
     @Path("/{email:.+[%40|@].+}")
     @ApiOperation(
@@ -96,17 +127,18 @@ public class CustomerRestService {
     public Response retrieveCustomersByEmail(
             @ApiParam(value = "Email of Customer to be fetched", required = true)
             @PathParam("email")
-            String email) {
+            String email,
+            @Context Request request) {
 
-        Customer customer;
+        Response.ResponseBuilder builder;
         try {
-            customer = service.findByEmail(email);
+            builder = cache.entity(request, ChangeEvent.CUSTOMER, "email:" + email, () -> service.findByEmail(email),
+                    customer -> EntityTags.of(customer.getVersion()));
         } catch (NoResultException e) {
             // Verify that the Customer exists. Return 404, if not present.
             throw new RestServiceException("No Customer with the email " + email + " was found!", Response.Status.NOT_FOUND);
         }
-        log.info("findByEmail " + email + ": found Customer = " + customer.toString());
-        return Response.ok(customer).build();
+        return builder.build();
     }
 
     /**
@@ -117,6 +149,7 @@ public class CustomerRestService {
      * @return A Response containing a single Customer
      */
     @GET
+    @TransactionAttribute(TransactionAttributeType.SUPPORTS)
     @Cache
     @Path("/{id:[0-9]+}")
     @ApiOperation(
@@ -130,16 +163,16 @@ public class CustomerRestService {
     public Response retrieveCustomerById(
             @ApiParam(value = "Id of Customer to be fetched", allowableValues = "range[0, infinity]", required = true)
             @PathParam("id")
-            long id) {
+            long id,
+            @Context Request request) {
 
-        Customer customer = service.findById(id);
-        if (customer == null) {
+        Response.ResponseBuilder builder = cache.entity(request, ChangeEvent.CUSTOMER, String.valueOf(id),
+                () -> service.findById(id), customer -> EntityTags.of(customer.getVersion()));
+        if (builder == null) {
             // Verify that the Customer exists. Return 404, if not present.
             throw new RestServiceException("No Customer with the id " + id + " was found!", Response.Status.NOT_FOUND);
         }
-        log.info("findById " + id + ": found Customer = " + customer.toString());
-
-        return Response.ok(customer).build();
+        return builder.build();
     }
 
     /**
@@ -187,17 +220,12 @@ public class CustomerRestService {
                 responseObj.put(violation.getPropertyPath().toString(), violation.getMessage());
             }
             throw new RestServiceException("Bad Request", responseObj, Response.Status.BAD_REQUEST, ce);
-        } catch (UniqueEmailException e) {
-            // Handle the unique constraint violation
-            Map<String, String> responseObj = new HashMap<>();
-            responseObj.put("email", "That email is already used, please use a unique email");
-            throw new RestServiceException("Bad Request", responseObj, Response.Status.CONFLICT, e);
         } catch (Exception e) {
-            // Handle generic exceptions
+            // A broken business rule, e.g. a duplicate email, becomes its 4xx; anything else a 500
             throw new RestServiceException(e);
         }
 
-        log.info("createCustomer completed. Customer = " + customer.toString());
+        log.log(Level.INFO, "createCustomer completed. Customer id = {0}", customer.getId());
         return builder.build();
     }
 
@@ -219,12 +247,16 @@ public class CustomerRestService {
             @ApiResponse(code = 400, message = "Invalid Customer supplied in request body"),
             @ApiResponse(code = 404, message = "Customer with id not found"),
             @ApiResponse(code = 409, message = "Customer details supplied in request body conflict with another existing Customer"),
+            @ApiResponse(code = 412, message = "Customer has been modified since the version given in If-Match"),
             @ApiResponse(code = 500, message = "An unexpected error occurred whilst processing the request")
     })
     public Response updateCustomer(
             @ApiParam(value = "Id of Customer to be updated", allowableValues = "range[0, infinity]", required = true)
             @PathParam("id")
             long id,
+            @ApiParam(value = "ETag of the version of the Customer being replaced; the update fails with 412 if it is stale")
+            @HeaderParam(HttpHeaders.IF_MATCH)
+            String ifMatch,
             @ApiParam(value = "JSON representation of Customer object to be updated in the database", required = true)
             Customer customer) {
 
@@ -240,9 +272,10 @@ public class CustomerRestService {
                     responseObj, Response.Status.CONFLICT);
         }
 
-        if (service.findById(customer.getId()) == null) {
-            // Verify that the Customer exists. Return 404, if not present.
-            throw new RestServiceException("No Customer with the id " + id + " was found!", Response.Status.NOT_FOUND);
+        // A version from If-Match takes precedence over one sent in the request body.
+        Long expectedVersion = EntityTags.parseIfMatch(ifMatch);
+        if (expectedVersion != null) {
+            customer.setVersion(expectedVersion);
         }
 
         Response.ResponseBuilder builder;
@@ -252,7 +285,12 @@ public class CustomerRestService {
             service.update(customer);
 
             // Create an OK Response and pass the Customer back in case it is needed.
+            // Clients which do not say which version they are replacing get the old unconditional behaviour. The
+            // version the Customer ends up at is not known then, so there is no ETag to give them.
             builder = Response.ok(customer);
+            if (customer.getVersion() != null) {
+                builder.tag(EntityTags.of(customer.getVersion()));
+            }
 
 
         } catch (ConstraintViolationException ce) {
@@ -263,12 +301,21 @@ public class CustomerRestService {
                 responseObj.put(violation.getPropertyPath().toString(), violation.getMessage());
             }
             throw new RestServiceException("Bad Request", responseObj, Response.Status.BAD_REQUEST, ce);
+        } catch (NoResultException e) {
+            // The Customer was deleted, or never existed. Return 404.
+            throw new RestServiceException("No Customer with the id " + id + " was found!", Response.Status.NOT_FOUND, e);
+        } catch (OptimisticLockException e) {
+            // Somebody else updated the Customer after this client read it.
+            Map<String, String> responseObj = new HashMap<>();
+            responseObj.put("version", "The Customer has been modified since it was read, please fetch it again");
+            throw new RestServiceException("Customer has been modified by another request", responseObj,
+                    expectedVersion != null ? Response.Status.PRECONDITION_FAILED : Response.Status.CONFLICT, e);
         } catch (Exception e) {
             // Handle generic exceptions
             throw new RestServiceException(e);
         }
 
-        log.info("updateCustomer completed. Customer = " + customer.toString());
+        log.log(Level.INFO, "updateCustomer completed. Customer id = {0}", customer.getId());
         return builder.build();
     }
     
@@ -318,7 +365,7 @@ public class CustomerRestService {
             // Handle generic exceptions
             throw new RestServiceException(e);
         }
-        log.info("deleteTaxi completed. Customer = " + customer.toString());
+        log.log(Level.INFO, "deleteCustomer completed. Customer id = {0}", customer.getId());
         return builder.build();
     }
 }
\ No newline at end of file
@@ -2,16 +2,20 @@ package org.jboss.quickstarts.wfk.customer;
 
 
 import org.jboss.quickstarts.wfk.customer.Customer;
+import org.jboss.quickstarts.wfk.feed.ChangeEvent;
 
-import org.jboss.resteasy.client.jaxrs.ResteasyClientBuilder;
 
-import javax.enterprise.context.Dependent;
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Event;
 import javax.inject.Inject;
 import javax.inject.Named;
 import javax.validation.ConstraintViolationException;
 import javax.validation.ValidationException;
 
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
@@ -30,8 +34,7 @@ import java.util.logging.Logger;
  * @see CustomerValidator
  * @see CustomerRepository
  */
-//The @Dependent is the default scope is listed here so that you know what scope is being used.
-@Dependent
+@ApplicationScoped
 public class CustomerService {
 
     @Inject
@@ -42,14 +45,11 @@ public class CustomerService {
 
     @Inject
     private CustomerRepository crud;
+
+    @Inject
+    private Event<ChangeEvent> changes;
     
 
-    /**
-     * <p>Create a new client which will be used for our outgoing REST client communication</p>
-     */
-    public CustomerService() {
-        new ResteasyClientBuilder().build();
-    }
 
     /**
      * <p>Returns a List of all persisted {@link Customer} objects, sorted alphabetically by last name.<p/>
@@ -81,6 +81,16 @@ public class CustomerService {
         return crud.findById(id);
     }
 
+    /**
+     * <p>Returns the Customer objects with the given ids, in no particular order. Missing ids are left out.<p/>
+     *
+     * @param ids The ids of the Customers to be returned
+     * @return List of Customer objects
+     */
+    List<Customer> findByIds(Collection<Long> ids) {
+        return ids.isEmpty() ? Collections.<Customer>emptyList() : crud.findByIds(ids);
+    }
+
     /**
      * <p>Returns a single Customer object, specified by a String email.</p>
      *
@@ -115,13 +125,16 @@ public class CustomerService {
      * @throws ConstraintViolationException, ValidationException, Exception
      */
     public Customer create(Customer customer) throws ConstraintViolationException, ValidationException, Exception {
-        log.info("CustomerService.create() - Creating " + customer.getName());
+        log.log(Level.INFO, "CustomerService.create() - Creating {0}", customer.getName());
         
         // Check to make sure the data fits with the parameters in the Customer model and passes validation.
         validator.validateCustomer(customer);
 
         // Write the Customer to the database.
-        return crud.create(customer);
+        Customer createdCustomer = crud.create(customer);
+        changes.fire(new ChangeEvent(ChangeEvent.CUSTOMER, createdCustomer.getId(), ChangeEvent.Action.CREATE));
+
+        return createdCustomer;
     }
     
     /**
@@ -134,13 +147,16 @@ public class CustomerService {
      * @throws ConstraintViolationException, ValidationException, Exception
      */
     Customer update(Customer customer) throws ConstraintViolationException, ValidationException, Exception {
-        log.info("CustomerService.update() - Updating " + customer.getName());
+        log.log(Level.INFO, "CustomerService.update() - Updating {0}", customer.getName());
         
         // Check to make sure the data fits with the parameters in the Customer model and passes validation.
         validator.validateCustomer(customer);
 
         // Either update the customer or add it if it can't be found.
-        return crud.update(customer);
+        Customer updatedCustomer = crud.update(customer);
+        changes.fire(new ChangeEvent(ChangeEvent.CUSTOMER, updatedCustomer.getId(), ChangeEvent.Action.UPDATE));
+
+        return updatedCustomer;
     }
     
     /**
@@ -151,13 +167,16 @@ public class CustomerService {
      * @throws Exception
      */
     Customer delete(Customer customer) throws Exception {
-        log.info("delete() - Deleting " + customer.toString());
+        log.log(Level.INFO, "delete() - Deleting customer {0}", customer.getId());
 
         Customer deletedCustomer = null;
        
 
         if (customer.getId() != null) {
             deletedCustomer = crud.delete(customer);
+            if (deletedCustomer != null) {
+                changes.fire(new ChangeEvent(ChangeEvent.CUSTOMER, customer.getId(), ChangeEvent.Action.DELETE));
+            }
         } 
         else {
             log.info("delete() - No ID was found so can't Delete.");
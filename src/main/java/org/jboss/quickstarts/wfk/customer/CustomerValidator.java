@@ -1,12 +1,14 @@
 package org.jboss.quickstarts.wfk.customer;
 
+import org.jboss.quickstarts.wfk.util.Stackless;
+
+import javax.enterprise.context.ApplicationScoped;
 import javax.inject.Inject;
 import javax.persistence.NoResultException;
 import javax.validation.ConstraintViolation;
 import javax.validation.ConstraintViolationException;
 import javax.validation.ValidationException;
 import javax.validation.Validator;
-import java.util.HashSet;
 import java.util.Set;
 
 /**
@@ -17,6 +19,7 @@ import java.util.Set;
  * @see CustomerRepository
  * @see javax.validation.Validator
  */
+@ApplicationScoped
 public class CustomerValidator {
     @Inject
     private Validator validator;
@@ -42,12 +45,12 @@ public class CustomerValidator {
         Set<ConstraintViolation<Customer>> violations = validator.validate(contact);
 
         if (!violations.isEmpty()) {
-            throw new ConstraintViolationException(new HashSet<ConstraintViolation<?>>(violations));
+            throw Stackless.constraintViolations(violations);
         }
         
         // Check the uniqueness of the email address
         if (emailAlreadyExists(contact.getEmail(), contact.getId())) {
-            throw new ValidationException("Unique Email Violation");
+            throw new UniqueEmailException("Unique Email Violation");
         }
     }
 
@@ -1,6 +1,8 @@
 package org.jboss.quickstarts.wfk.customer;
 
-import javax.validation.ValidationException;
+import org.jboss.quickstarts.wfk.util.BusinessRuleException;
+
+import javax.ws.rs.core.Response;
 
 /**
  * <p>ValidationException caused if a Customer's email address conflicts with that of another Customer.</p>
@@ -10,19 +12,21 @@ import javax.validation.ValidationException;
  * @author Constance He
  * @see Customer
  */
-public class UniqueEmailException extends ValidationException {
+public class UniqueEmailException extends BusinessRuleException {
 
 	private static final long serialVersionUID = -7146351126287466437L;
 
+	static final String REASON = "That email is already used, please use a unique email";
+
 	public UniqueEmailException(String message) {
-        super(message);
+        super(message, Response.Status.CONFLICT, "email", REASON);
     }
 
     public UniqueEmailException(String message, Throwable cause) {
-        super(message, cause);
+        super(message, cause, Response.Status.CONFLICT, "email", REASON);
     }
 
     public UniqueEmailException(Throwable cause) {
-        super(cause);
+        this(cause == null ? null : cause.toString(), cause);
     }
 }
@@ -0,0 +1,135 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.quickstarts.wfk.feed;
+
+import org.jboss.quickstarts.wfk.util.QueryHints;
+
+import javax.persistence.*;
+import javax.validation.constraints.NotNull;
+import javax.xml.bind.annotation.XmlRootElement;
+import java.io.Serializable;
+
+/**
+ * <p>One entry of the change feed: an entity of some type was created, updated or deleted.</p>
+ *
+ * <p>Events are fired as CDI events by the services that make the changes, and are only added to the feed by
+ * {@link ChangeFeed} once the transaction making the change has committed. The id is the position of the event in the
+ * feed, qualified with the run of the feed on the node which published it. It is assigned at that point, so ids
+ * increase in commit order and clients can resume from the last id they saw.</p>
+ *
+ * @author Constance He
+ */
+@Entity
+@NamedQueries({
+        @NamedQuery(name = ChangeEvent.FIND_AFTER, query = "SELECT e FROM ChangeEvent e "
+                + "WHERE e.id > :after AND e.id < :before ORDER BY e.id ASC",
+                hints = @QueryHint(name = QueryHints.READ_ONLY, value = "true"))
+})
+@XmlRootElement
+@Table(name = "change_event")
+public class ChangeEvent implements Serializable {
+    /** Default value included to remove warning. Remove or modify at will. **/
+    private static final long serialVersionUID = 1L;
+
+    public static final String FIND_AFTER = "ChangeEvent.findAfter";
+
+    public static final String TAXI_BOOKING = "TaxiBooking";
+    public static final String TRAVEL_AGENCY_BOOKING = "TravelAgencyBooking";
+    public static final String CUSTOMER = "Customer";
+    public static final String TAXI = "Taxi";
+
+    /**
+     * <p>What happened to the entity.</p>
+     */
+    public enum Action {
+        CREATE, UPDATE, DELETE
+    }
+
+    @Id
+    private Long id;
+
+    @NotNull
+    @Column(name = "entityType", length = 32)
+    private String entityType;
+
+    @NotNull
+    @Column(name = "entityId")
+    private Long entityId;
+
+    @NotNull
+    @Enumerated(EnumType.STRING)
+    @Column(name = "action", length = 16)
+    private Action action;
+
+    @Column(name = "occurredAt")
+    private long occurredAt;
+
+    public ChangeEvent() {
+    }
+
+    public ChangeEvent(String entityType, Long entityId, Action action) {
+        this.entityType = entityType;
+        this.entityId = entityId;
+        this.action = action;
+        this.occurredAt = System.currentTimeMillis();
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getEntityType() {
+        return entityType;
+    }
+
+    public void setEntityType(String entityType) {
+        this.entityType = entityType;
+    }
+
+    public Long getEntityId() {
+        return entityId;
+    }
+
+    public void setEntityId(Long entityId) {
+        this.entityId = entityId;
+    }
+
+    public Action getAction() {
+        return action;
+    }
+
+    public void setAction(Action action) {
+        this.action = action;
+    }
+
+    public long getOccurredAt() {
+        return occurredAt;
+    }
+
+    public void setOccurredAt(long occurredAt) {
+        this.occurredAt = occurredAt;
+    }
+
+    @Override
+    public String toString() {
+        return id + ": " + action + " " + entityType + " " + entityId;
+    }
+}
@@ -0,0 +1,267 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.quickstarts.wfk.feed;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import javax.ejb.Lock;
+import javax.ejb.LockType;
+import javax.ejb.Schedule;
+import javax.ejb.Singleton;
+import javax.ejb.Startup;
+import javax.ejb.TransactionAttribute;
+import javax.ejb.TransactionAttributeType;
+import javax.enterprise.concurrent.ManagedExecutorService;
+import javax.enterprise.event.Observes;
+import javax.enterprise.event.TransactionPhase;
+import javax.inject.Inject;
+import javax.inject.Named;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * <p>The append-only feed of changes to bookings, customers and taxis.</p>
+ *
+ * <p>Services fire a {@link ChangeEvent} through CDI when they create, update or delete something. The feed only receives it
+ * once the surrounding transaction has committed, so rolled back changes are never published. Recent events are held
+ * in a bounded {@link ChangeLog}, which is what nearly every reader is served from, and are written to the
+ * change_event table in the background every few seconds so that older positions can still be resumed from.</p>
+ *
+ * <p>The feed holds the changes made through this node. Each run of it takes a number from the database, see
+ * {@link FeedRun}, and its event ids are that number times 2<sup>40</sup> plus the position of the event in the run.
+ * Ids thus never collide between nodes or restarts, and an id from another run, which a client may send after being
+ * balanced to another node, is recognised as such rather than read as a position in this one.</p>
+ *
+ * <p>At most <code>changefeed.pending</code> events wait to be written; a spill starts straight away once more than a
+ * batch of them are waiting. Should the table not take them, e.g. while the database is down, further events are kept
+ * in the log only, and readers which would need them from the table are told that they are gone.</p>
+ *
+ * <p>The size of the in-memory log can be set with the <code>changefeed.capacity</code> system property.</p>
+ *
+ * @author Constance He
+ * @see ChangeFeedRestService
+ */
+@Singleton
+@Startup
+@Lock(LockType.READ)
+public class ChangeFeed {
+
+    private static final int CAPACITY = Integer.getInteger("changefeed.capacity", 4096);
+
+    private static final int PENDING_LIMIT = Integer.getInteger("changefeed.pending", 16384);
+
+    private static final int SPILL_BATCH = 500;
+
+    private static final int RUN_SHIFT = 40;
+
+    @Inject
+    private @Named("logger") Logger log;
+
+    @Inject
+    private ChangeRepository crud;
+
+    @Inject
+    private ChangeWriter writer;
+
+    @Resource
+    private ManagedExecutorService executor;
+
+    private ChangeLog changeLog;
+
+    // The number of this run of the feed, which qualifies its ids
+    private long run;
+
+    // Events which are in the log but have not been written to the table yet.
+    private final Queue<ChangeEvent> pending = new ConcurrentLinkedQueue<>();
+
+    // The size of pending, which the queue itself can only count by walking it
+    private final AtomicInteger queued = new AtomicInteger();
+
+    // The highest id of an event which was never queued, because the queue was full; 0 if there is none.
+    private final AtomicLong dropped = new AtomicLong();
+
+    private final AtomicBoolean spilling = new AtomicBoolean();
+
+    @PostConstruct
+    void init() {
+        run = crud.startRun();
+        changeLog = new ChangeLog(CAPACITY, run << RUN_SHIFT);
+        if (log.isLoggable(Level.INFO)) {
+            log.log(Level.INFO, "ChangeFeed.init() - Starting run {0} of the feed after event {1}",
+                    new Object[]{run, changeLog.lastId()});
+        }
+    }
+
+    /**
+     * <p>Adds a change to the feed once the transaction that made it has committed.</p>
+     *
+     * @param event The change
+     */
+    @TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+    public void onChange(@Observes(during = TransactionPhase.AFTER_SUCCESS) ChangeEvent event) {
+        List<Runnable> woken = changeLog.append(event);
+        if (queued.incrementAndGet() <= PENDING_LIMIT) {
+            pending.add(event);
+        } else {
+            queued.decrementAndGet();
+            // Warn once for each run of events which are not written, not for every one of them.
+            if (dropped.getAndAccumulate(event.getId(), Math::max) != event.getId() - 1) {
+                log.log(Level.WARNING, "ChangeFeed.onChange() - Too many events waiting to be written, not writing "
+                        + "those from {0} on", event.getId());
+            }
+        }
+        if (queued.get() > SPILL_BATCH && !spilling.get()) {
+            executor.execute(this::spill);
+        }
+        // The readers write their responses, which should not hold up the thread that committed the change.
+        for (Runnable waiter : woken) {
+            executor.execute(waiter);
+        }
+    }
+
+    /**
+     * <p>Writes the pending events to the change_event table.</p>
+     *
+     * <p>Events are written in batches, each committed by {@link ChangeWriter} before it is taken off the queue. If a
+     * batch fails it stays queued, and is retried by the next spill. Besides every few seconds, a spill runs as soon as
+     * more than a batch of events are waiting.</p>
+     */
+    @Schedule(second = "*/5", minute = "*", hour = "*", persistent = false)
+    @TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+    void spill() {
+        // Only one spill at a time takes events off the queue, so the head of it is always the batch just written.
+        if (!spilling.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            int written = 0;
+            List<ChangeEvent> batch = new ArrayList<>(SPILL_BATCH);
+            while (true) {
+                batch.clear();
+                for (ChangeEvent event : pending) {
+                    batch.add(event);
+                    if (batch.size() == SPILL_BATCH) {
+                        break;
+                    }
+                }
+                if (batch.isEmpty()) {
+                    break;
+                }
+                try {
+                    writer.writeAll(batch);
+                } catch (RuntimeException e) {
+                    log.log(Level.WARNING, "ChangeFeed.spill() - Could not write events, retrying on the next spill", e);
+                    break;
+                }
+                for (int i = 0; i < batch.size(); i++) {
+                    pending.poll();
+                }
+                queued.addAndGet(-batch.size());
+                written += batch.size();
+            }
+            if (written > 0) {
+                log.log(Level.FINE, "ChangeFeed.spill() - Wrote {0} events", written);
+            }
+        } finally {
+            spilling.set(false);
+        }
+    }
+
+    /**
+     * @param id The id of an event, as sent by a client
+     * @return true if it is an id of this run of the feed, or the position before its first event
+     */
+    @TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+    public boolean isOfThisRun(long id) {
+        return id >> RUN_SHIFT == run && id <= changeLog.lastId();
+    }
+
+    /**
+     * @return The id of the most recent event in the feed
+     */
+    @TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+    public long lastId() {
+        return changeLog.lastId();
+    }
+
+    /**
+     * <p>Returns up to max events following the given id, oldest first.</p>
+     *
+     * <p>Readers that are too far behind for the in-memory log are served from the table. If the events they need
+     * were never written there, e.g. because the log wrapped before a spill, or because they were not queued for one,
+     * or the id is not {@link #isOfThisRun of this run}, the reader cannot be brought up to date and gets null. It must
+     * then reload whatever it shows, and continue after {@link #lastId()}.</p>
+     *
+     * @param after The id of the last event the reader has seen; or 0 to read from the start of the run
+     * @param max The maximum number of events to return
+     * @return The events; or null if some of the events following the given id are no longer available
+     */
+    @TransactionAttribute(TransactionAttributeType.SUPPORTS)
+    public List<ChangeEvent> readAfter(long after, int max) {
+        if (after == 0) {
+            after = run << RUN_SHIFT;
+        } else if (!isOfThisRun(after)) {
+            return null;
+        }
+        List<ChangeEvent> events = changeLog.readAfter(after, max);
+        if (events != null) {
+            return events;
+        }
+
+        // Any event up to the last one not queued may be missing from the table, not only the first.
+        events = after < dropped.get() ? null : crud.findAfter(after, (run + 1) << RUN_SHIFT, max);
+        if (events != null && !events.isEmpty() && events.get(0).getId() == after + 1) {
+            return events;
+        }
+
+        log.log(Level.WARNING, "ChangeFeed.readAfter() - Events after {0} are no longer available", after);
+        return null;
+    }
+
+    /**
+     * <p>Calls the given reader back, on a managed thread, once an event following the given id is in the feed.</p>
+     *
+     * <p>No thread is held while the reader waits. A reader which stops waiting before it is called back must
+     * {@link #cancelAwait cancel}.</p>
+     *
+     * @param after The id of the last event the reader has seen
+     * @param waiter The reader
+     * @return true if the reader will be called back; false if there is a newer event already, in which case it will
+     *         not be
+     */
+    @TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+    public boolean awaitAfter(long after, Runnable waiter) {
+        return changeLog.await(after, waiter);
+    }
+
+    /**
+     * <p>Stops the given reader from waiting.</p>
+     *
+     * @param waiter The reader passed to {@link #awaitAfter}
+     */
+    @TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+    public void cancelAwait(Runnable waiter) {
+        changeLog.cancel(waiter);
+    }
+}
@@ -0,0 +1,219 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.quickstarts.wfk.feed;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.swagger.annotations.*;
+
+import org.jboss.quickstarts.wfk.util.BinaryMediaTypes;
+import org.jboss.quickstarts.wfk.util.RestServiceException;
+
+import javax.ejb.Stateless;
+import javax.ejb.TransactionAttribute;
+import javax.ejb.TransactionAttributeType;
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.ws.rs.*;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.Suspended;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * <p>This class produces a RESTful service exposing the {@link ChangeFeed}.</p>
+ *
+ * <p>Browsers subscribe with an EventSource on <code>api/changes</code>. Each event has the feed position as its id and
+ * the changed entity type as its event name, so a client can listen for just the types it displays. When the
+ * connection drops the EventSource reconnects with a <code>Last-Event-ID</code> header and picks up where it left off.
+ * A request waiting for events is suspended, so it holds no thread. It is answered with the events as soon as there
+ * are any, or after {@link #STREAM_MILLIS} without them, and the EventSource comes back for more after
+ * {@link #RETRY_MILLIS}.</p>
+ *
+ * <p>Clients that cannot use Server-Sent Events can poll <code>api/changes?after=&lt;id&gt;</code> for JSON
+ * instead. A client which cannot be brought up to date, because some of the events it missed are no longer held, or
+ * because it saw the feed of another node, gets an event named reset on a stream, or a 410 Gone when polling. It must
+ * then reload what it shows.</p>
+ *
+ * <p>The full path for accessing endpoints defined herein is: api/changes/*</p>
+ *
+ * @author Constance He
+ * @see ChangeFeed
+ */
+@Path("/changes")
+@Api(value = "/changes", description = "Feed of changes to bookings, customers and taxis")
+@Stateless
+@TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+public class ChangeFeedRestService {
+
+    public static final String SERVER_SENT_EVENTS = "text/event-stream";
+
+    static final long STREAM_MILLIS = 25000;
+    static final long RETRY_MILLIS = 500;
+    static final int BATCH_SIZE = 100;
+
+    @Inject
+    private @Named("logger") Logger log;
+
+    @Inject
+    private @Named("mapper") ObjectMapper mapper;
+
+    @Inject
+    private ChangeFeed feed;
+
+    /**
+     * <p>Stream changes as Server-Sent Events, starting after the given event or, without one, from now.</p>
+     *
+     * <p>Examples: <pre>GET api/changes -H "accept: text/event-stream" -H "Last-Event-ID: 42"</pre></p>
+     *
+     * @param lastEventId The id of the last event the client received, sent by EventSource when it reconnects
+     * @param lastEventIdParam The same, for clients which cannot set headers
+     * @param response Resumed with the events once there are any, or after {@link #STREAM_MILLIS} without them
+     */
+    @GET
+    @Produces(SERVER_SENT_EVENTS)
+    @ApiOperation(value = "Stream changes as Server-Sent Events",
+            notes = "Resumes after the id given in Last-Event-ID. An event named reset means the client must reload.")
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = "Event stream"),
+            @ApiResponse(code = 400, message = "Invalid event id supplied")
+    })
+    public void streamChanges(
+            @ApiParam(value = "Id of the last event received")
+            @HeaderParam("Last-Event-ID")
+            String lastEventId,
+            @ApiParam(value = "Id of the last event received, for clients which cannot set headers")
+            @QueryParam("lastEventId")
+            String lastEventIdParam,
+            @Suspended
+            AsyncResponse response) {
+
+        Long resumeFrom = parseEventId(lastEventId != null ? lastEventId : lastEventIdParam);
+        long start = resumeFrom == null ? feed.lastId() : resumeFrom;
+
+        Runnable waiter = () -> response.resume(eventsAfter(start));
+        response.setTimeout(STREAM_MILLIS, TimeUnit.MILLISECONDS);
+        response.setTimeoutHandler(timedOut -> {
+            feed.cancelAwait(waiter);
+            timedOut.resume(eventsAfter(start));
+        });
+
+        // A client with an id of another run is told to reset straight away, rather than once the next event is in.
+        if ((resumeFrom != null && !feed.isOfThisRun(resumeFrom)) || !feed.awaitAfter(start, waiter)) {
+            response.resume(eventsAfter(start));
+        }
+    }
+
+    /**
+     * <p>Return changes after the given event as a JSON array, for clients that poll.</p>
+     *
+     * <p>Examples: <pre>GET api/changes?after=42 -H "accept: application/json"</pre></p>
+     *
+     * @param after The id of the last event the client has seen
+     * @param limit The maximum number of events to return
+     * @return A Response containing a list of ChangeEvents
+     * @throws RestServiceException 410 Gone if some of the changes after the event are no longer available, in which
+     *                              case the client must reload
+     */
+    @GET
+    @Produces({MediaType.APPLICATION_JSON, BinaryMediaTypes.APPLICATION_CBOR, BinaryMediaTypes.APPLICATION_SMILE})
+    @ApiOperation(value = "Fetch changes after an event", notes = "Returns a JSON array of at most limit events.")
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = "Changes"),
+            @ApiResponse(code = 410, message = "Some of the changes after the event are no longer available")
+    })
+    public Response retrieveChanges(
+            @ApiParam(value = "Id of the last event seen", allowableValues = "range[0, infinity]")
+            @QueryParam("after")
+            @DefaultValue("0")
+            long after,
+            @ApiParam(value = "Maximum number of events to return", allowableValues = "range[1, 1000]")
+            @QueryParam("limit")
+            @DefaultValue("100")
+            int limit) {
+
+        List<ChangeEvent> events = feed.readAfter(after, Math.max(1, Math.min(limit, 1000)));
+        if (events == null) {
+            Map<String, String> responseObj = new HashMap<>();
+            responseObj.put("after", "The events after it are no longer available; reload, then fetch the changes after "
+                    + feed.lastId());
+            throw new RestServiceException("Gone", responseObj, Response.Status.GONE);
+        }
+        return Response.ok(events).build();
+    }
+
+    /**
+     * Returns a response streaming the events after the given one that are in the feed now, ending with the id of the
+     * last, so that the EventSource resumes after it even if there were none.
+     */
+    private Response eventsAfter(long start) {
+        StreamingOutput stream = output -> {
+            Writer writer = new OutputStreamWriter(output, StandardCharsets.UTF_8);
+            writer.write("retry: " + RETRY_MILLIS + "\n\n");
+            long last = start;
+            while (true) {
+                List<ChangeEvent> events = feed.readAfter(last, BATCH_SIZE);
+                if (events == null) {
+                    // Some of the events the client needs are gone, or it saw the feed of another node or of this one
+                    // before a restart. Its view cannot be patched up, only reloaded.
+                    last = feed.lastId();
+                    writer.write("id: " + last + "\nevent: reset\ndata: {}\n\n");
+                    break;
+                }
+                for (ChangeEvent event : events) {
+                    writer.write("id: " + event.getId() + "\nevent: " + event.getEntityType() + "\ndata: ");
+                    writer.write(mapper.writeValueAsString(event));
+                    writer.write("\n\n");
+                    last = event.getId();
+                }
+                if (events.size() < BATCH_SIZE) {
+                    break;
+                }
+            }
+            // Sets the id to resume from without dispatching an event; the comment tells the client the end is clean.
+            writer.write("id: " + last + "\n: closing\n\n");
+            writer.flush();
+        };
+
+        return Response.ok(stream)
+                .header("Cache-Control", "no-cache")
+                // Stop proxies such as nginx from buffering the stream.
+                .header("X-Accel-Buffering", "no")
+                .build();
+    }
+
+    private static Long parseEventId(String eventId) {
+        if (eventId == null || eventId.trim().isEmpty()) {
+            return null;
+        }
+        try {
+            return Long.valueOf(eventId.trim());
+        } catch (NumberFormatException e) {
+            Map<String, String> responseObj = new HashMap<>();
+            responseObj.put("Last-Event-ID", "Must be the id of an event previously sent by this feed");
+            throw new RestServiceException("Bad Request", responseObj, Response.Status.BAD_REQUEST, e);
+        }
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.quickstarts.wfk.feed;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * <p>A bounded, in-memory ring buffer holding the most recent events of the change feed.</p>
+ *
+ * <p>Appending an event gives it the next id and hands back the readers waiting for it. Once the buffer is full the oldest
+ * events are overwritten; readers that have fallen that far behind must read from the change_event table instead.</p>
+ *
+ * <p>All methods synchronise on the log itself.</p>
+ *
+ * @author Constance He
+ * @see ChangeFeed
+ */
+class ChangeLog {
+
+    private final ChangeEvent[] ring;
+
+    // The id of the first event appended to this log. Anything older was only ever in the table.
+    private final long firstId;
+
+    private long lastId;
+
+    // Called back once the next event is appended
+    private List<Runnable> waiters = new ArrayList<>();
+
+    /**
+     * @param capacity The number of events to hold
+     * @param lastId The id of the last event already in the feed, from which numbering continues
+     */
+    ChangeLog(int capacity, long lastId) {
+        this.ring = new ChangeEvent[capacity];
+        this.firstId = lastId + 1;
+        this.lastId = lastId;
+    }
+
+    /**
+     * <p>Assigns the next id to an event and adds it to the log.</p>
+     *
+     * @param event The event to add, which is given its id
+     * @return The readers which were waiting for it, to be called back by the caller
+     */
+    synchronized List<Runnable> append(ChangeEvent event) {
+        event.setId(++lastId);
+        ring[(int) (lastId % ring.length)] = event;
+        if (waiters.isEmpty()) {
+            return waiters;
+        }
+        List<Runnable> woken = waiters;
+        waiters = new ArrayList<>();
+        return woken;
+    }
+
+    /**
+     * @return The id of the most recent event; or the starting point if nothing has been appended yet
+     */
+    synchronized long lastId() {
+        return lastId;
+    }
+
+    /**
+     * @return The id of the oldest event still held
+     */
+    synchronized long oldestId() {
+        return Math.max(firstId, lastId - ring.length + 1);
+    }
+
+    /**
+     * <p>Returns up to max events following the given id, oldest first.</p>
+     *
+     * @param after The id of the last event the reader has seen
+     * @param max The maximum number of events to return
+     * @return The events; or null if some of the events that follow have already been overwritten
+     */
+    synchronized List<ChangeEvent> readAfter(long after, int max) {
+        if (after + 1 < oldestId()) {
+            return null;
+        }
+        long to = Math.min(lastId, after + max);
+        List<ChangeEvent> events = new ArrayList<>((int) Math.max(0, to - after));
+        for (long id = after + 1; id <= to; id++) {
+            events.add(ring[(int) (id % ring.length)]);
+        }
+        return events;
+    }
+
+    /**
+     * <p>Registers a reader to be handed back by the next {@link #append}, unless an event following the given id is
+     * in the log already.</p>
+     *
+     * @param after The id of the last event the reader has seen
+     * @param waiter The reader
+     * @return true if the reader is waiting; false if there is a newer event already
+     */
+    synchronized boolean await(long after, Runnable waiter) {
+        if (lastId > after) {
+            return false;
+        }
+        waiters.add(waiter);
+        return true;
+    }
+
+    /**
+     * <p>Stops a reader from waiting, e.g. because it has timed out.</p>
+     *
+     * @param waiter The reader
+     */
+    synchronized void cancel(Runnable waiter) {
+        waiters.remove(waiter);
+    }
+}
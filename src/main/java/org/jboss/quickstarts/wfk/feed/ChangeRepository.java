@@ -0,0 +1,84 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.quickstarts.wfk.feed;
+
+import org.jboss.quickstarts.wfk.metrics.Timed;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.persistence.EntityManager;
+import java.util.List;
+import java.util.logging.Logger;
+
+/**
+ * <p>This is a Repository class and connects {@link ChangeFeed} with the Domain/Entity Object (see
+ * {@link ChangeEvent}).</p>
+ *
+ * <p>There are no access modifiers on the methods making them 'package' scope.  They should only be accessed by a
+ * Service/Control object.</p>
+ *
+ * @author Constance He
+ * @see ChangeEvent
+ * @see javax.persistence.EntityManager
+ */
+@ApplicationScoped
+@Timed
+public class ChangeRepository {
+
+    @Inject
+    private @Named("logger") Logger log;
+
+    @Inject
+    private EntityManager em;
+
+    /**
+     * <p>Records the start of a run of the feed, which gives it a number no other run has.</p>
+     *
+     * @return The number of the run
+     */
+    long startRun() {
+        FeedRun run = new FeedRun(System.currentTimeMillis());
+        em.persist(run);
+        return run.getId();
+    }
+
+    /**
+     * <p>Returns up to max stored events following the given id and before another, oldest first.</p>
+     *
+     * @param after The id of the last event the reader has seen
+     * @param before The id at which to stop, i.e. the first id of the next run
+     * @param max The maximum number of events to return
+     * @return List of ChangeEvent objects
+     */
+    List<ChangeEvent> findAfter(long after, long before, int max) {
+        return em.createNamedQuery(ChangeEvent.FIND_AFTER, ChangeEvent.class)
+                .setParameter("after", after)
+                .setParameter("before", before)
+                .setMaxResults(max)
+                .getResultList();
+    }
+
+    /**
+     * <p>Writes an event, which already has its id, to the change_event table.</p>
+     *
+     * @param event The event to write
+     */
+    void create(ChangeEvent event) {
+        em.persist(event);
+    }
+}
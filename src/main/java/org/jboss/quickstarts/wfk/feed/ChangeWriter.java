@@ -0,0 +1,51 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.quickstarts.wfk.feed;
+
+import javax.ejb.Stateless;
+import javax.ejb.TransactionAttribute;
+import javax.ejb.TransactionAttributeType;
+import javax.inject.Inject;
+import java.util.List;
+
+/**
+ * <p>Writes events of the change feed to the change_event table in a transaction of their own.</p>
+ *
+ * <p>{@link ChangeFeed} only drops events from its queue once this has returned, i.e. once they are committed, so that
+ * a failed write leaves them queued for the next spill instead of losing them.</p>
+ *
+ * @author Constance He
+ * @see ChangeFeed
+ */
+@Stateless
+public class ChangeWriter {
+
+    @Inject
+    private ChangeRepository crud;
+
+    /**
+     * <p>Writes the given events, which already have their ids, and commits them.</p>
+     *
+     * @param events The events to write
+     */
+    @TransactionAttribute(TransactionAttributeType.REQUIRES_NEW)
+    public void writeAll(List<ChangeEvent> events) {
+        for (ChangeEvent event : events) {
+            crud.create(event);
+        }
+    }
+}
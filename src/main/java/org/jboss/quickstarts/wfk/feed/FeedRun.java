@@ -0,0 +1,66 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.quickstarts.wfk.feed;
+
+import javax.persistence.*;
+import java.io.Serializable;
+
+/**
+ * <p>One run of the {@link ChangeFeed} on one node, from its deployment to its shutdown.</p>
+ *
+ * <p>Each run takes its number from the database when it starts, so no two runs, on this node or any other, share a
+ * number. The ids of the events of a run are qualified with it, see {@link ChangeFeed}, so they never collide in the
+ * change_event table either.</p>
+ *
+ * @author Constance He
+ */
+@Entity
+@Table(name = "change_feed_run")
+public class FeedRun implements Serializable {
+    /** Default value included to remove warning. Remove or modify at will. **/
+    private static final long serialVersionUID = 1L;
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.TABLE)
+    private Long id;
+
+    @Column(name = "startedAt")
+    private long startedAt;
+
+    public FeedRun() {
+    }
+
+    FeedRun(long startedAt) {
+        this.startedAt = startedAt;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public long getStartedAt() {
+        return startedAt;
+    }
+
+    public void setStartedAt(long startedAt) {
+        this.startedAt = startedAt;
+    }
+}
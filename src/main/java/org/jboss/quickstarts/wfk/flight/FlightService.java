@@ -0,0 +1,16 @@
+package org.jboss.quickstarts.wfk.flight;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+
+
+@Path("/flights")
+@Produces(MediaType.APPLICATION_JSON)
+public interface FlightService{
+	
+	@GET
+	Response listFlights();
+}
@@ -1,5 +1,6 @@
 package org.jboss.quickstarts.wfk.guestBooking;
 
+import javax.enterprise.context.ApplicationScoped;
 import javax.inject.Inject;
 import javax.validation.ConstraintViolationException;
 import javax.validation.ValidationException;
@@ -12,6 +13,7 @@ import org.jboss.quickstarts.wfk.customer.CustomerService;
 import org.jboss.quickstarts.wfk.taxi.Taxi;
 import org.jboss.quickstarts.wfk.taxi.TaxiService;
 
+@ApplicationScoped
 public class GuestBookingService {
 	
 	@Inject
@@ -0,0 +1,82 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.quickstarts.wfk.health;
+
+import io.swagger.annotations.Api;
+import io.swagger.annotations.ApiOperation;
+import io.swagger.annotations.ApiResponse;
+import io.swagger.annotations.ApiResponses;
+
+import javax.ejb.Stateless;
+import javax.ejb.TransactionAttribute;
+import javax.ejb.TransactionAttributeType;
+import javax.inject.Inject;
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.CacheControl;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import java.util.Collections;
+
+/**
+ * <p>This class produces a RESTful service for load balancers and orchestrators to probe whether this node should be
+ * sent traffic.</p>
+ *
+ * <p>The full path for accessing endpoints defined herein is: api/health/*</p>
+ *
+ * @author Constance He
+ * @see WarmUp
+ */
+@Path("/health")
+@Api(value = "/health", description = "Node health")
+@Produces(MediaType.APPLICATION_JSON)
+@TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+@Stateless
+public class HealthRestService {
+
+    private static final CacheControl NO_STORE = CacheControl.valueOf("no-store");
+
+    @Inject
+    private WarmUp warmUp;
+
+    /**
+     * <p>Report whether this node is ready to be sent traffic, which it is once it has warmed up.</p>
+     *
+     * <p>Example: <pre>GET api/health/ready</pre></p>
+     *
+     * @return A 200 Response once the node is ready; a 503 Response, asking to be probed again, until then
+     */
+    @GET
+    @Path("/ready")
+    @ApiOperation(value = "Check readiness", notes = "Reports UP once the node has warmed up, and WARMING_UP before.")
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = "The node is ready"),
+            @ApiResponse(code = 503, message = "The node is still warming up")
+    })
+    public Response retrieveReadiness() {
+        if (!warmUp.isReady()) {
+            return Response.status(Response.Status.SERVICE_UNAVAILABLE)
+                    .entity(Collections.singletonMap("status", "WARMING_UP"))
+                    .header(HttpHeaders.RETRY_AFTER, 1)
+                    .cacheControl(NO_STORE)
+                    .build();
+        }
+        return Response.ok(Collections.singletonMap("status", "UP")).cacheControl(NO_STORE).build();
+    }
+}
@@ -0,0 +1,232 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.quickstarts.wfk.health;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.jboss.quickstarts.wfk.booking.TaxiBooking;
+import org.jboss.quickstarts.wfk.contact.Contact;
+import org.jboss.quickstarts.wfk.customer.Customer;
+import org.jboss.quickstarts.wfk.taxi.Taxi;
+import org.jboss.quickstarts.wfk.travelAgency.CatalogCache;
+import org.jboss.quickstarts.wfk.travelAgency.TravelAgencyBooking;
+import org.jboss.quickstarts.wfk.util.JacksonConfig;
+import org.jboss.quickstarts.wfk.util.TableVersion;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import javax.ejb.ConcurrencyManagement;
+import javax.ejb.ConcurrencyManagementType;
+import javax.ejb.Singleton;
+import javax.ejb.Startup;
+import javax.enterprise.concurrent.ManagedExecutorService;
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.persistence.EntityManager;
+import javax.persistence.Query;
+import javax.validation.Validator;
+import java.util.Collections;
+import java.util.Date;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * <p>Does, once at start up, the work which would otherwise make the first requests to a new node slow: running each
+ * named query, building the validation metadata of the entities, serializing them in every representation, and
+ * fetching the partner listings, which opens the upstream connections.</p>
+ *
+ * <p>It runs against synthetic data in the background, so that deployment is not held up, and
+ * {@link HealthRestService} reports the node as not ready until it has finished. A step which fails is logged and
+ * skipped; a cold path is no reason to keep the node out of service. Setting the system property
+ * <code>warmup.disabled</code> makes the node ready straight away.</p>
+ *
+ * @author Constance He
+ */
+@Singleton
+@Startup
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+public class WarmUp {
+
+    private static final boolean DISABLED = Boolean.getBoolean("warmup.disabled");
+
+    private static final Long NO_ID = -1L;
+
+    @Inject
+    private @Named("logger") Logger log;
+
+    @Inject
+    private EntityManager em;
+
+    @Inject
+    private Validator validator;
+
+    @Inject
+    private CatalogCache catalog;
+
+    @Resource
+    private ManagedExecutorService executor;
+
+    private volatile boolean ready;
+
+    @PostConstruct
+    void start() {
+        if (DISABLED) {
+            ready = true;
+            return;
+        }
+        try {
+            executor.execute(this::run);
+        } catch (RejectedExecutionException e) {
+            log.log(Level.WARNING, "Could not schedule the warm up, skipping it", e);
+            ready = true;
+        }
+    }
+
+    /**
+     * @return True once the warm up has finished, or been skipped
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    private void run() {
+        long start = System.nanoTime();
+        try {
+            step("queries", this::queries);
+            step("validation", this::validation);
+            step("serialization", this::serialization);
+            step("upstream", catalog::warm);
+        } finally {
+            ready = true;
+        }
+        log.log(Level.INFO, "WarmUp.run() - Ready after {0} ms",
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+
+    private void step(String name, Runnable step) {
+        long start = System.nanoTime();
+        try {
+            step.run();
+            if (log.isLoggable(Level.FINE)) {
+                log.log(Level.FINE, "WarmUp.step() - Warmed up {0} in {1} ms",
+                        new Object[]{name, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)});
+            }
+        } catch (RuntimeException e) {
+            log.log(Level.WARNING, "Warming up " + name + " failed", e);
+        }
+    }
+
+    /**
+     * Runs every read-only named query once, with parameters matching nothing, so that Hibernate has its plans and the
+     * pool its connections and statements. Updates are left alone; they would need a transaction.
+     */
+    private void queries() {
+        Date today = new Date();
+        execute(em.createNamedQuery(Customer.FIND_ALL));
+        execute(em.createNamedQuery(Customer.FIND_BY_EMAIL).setParameter("email", "warm.up@example.invalid"));
+        execute(em.createNamedQuery(Customer.FIND_BY_IDS).setParameter("ids", Collections.singletonList(NO_ID)));
+        execute(em.createNamedQuery(Taxi.FIND_ALL));
+        execute(em.createNamedQuery(Taxi.FIND_BY_REGISTRATION).setParameter("registration", "WARMUP0"));
+        execute(em.createNamedQuery(Taxi.FIND_BY_IDS).setParameter("ids", Collections.singletonList(NO_ID)));
+        execute(em.createNamedQuery(TaxiBooking.FIND_ALL));
+        execute(em.createNamedQuery(TaxiBooking.FIND_BY_CUSTOMER).setParameter("customerId", NO_ID));
+        execute(em.createNamedQuery(TaxiBooking.FIND_BY_TAXI).setParameter("taxiId", NO_ID));
+        execute(em.createNamedQuery(TaxiBooking.FIND_OVERLAPPING)
+                .setParameter("taxiId", NO_ID).setParameter("date", today)
+                .setParameter("startTime", TaxiBooking.START_OF_DAY).setParameter("endTime", TaxiBooking.END_OF_DAY));
+        execute(em.createNamedQuery(TaxiBooking.FIND_FREE_TAXI_IDS).setParameter("seats", Integer.MAX_VALUE)
+                .setParameter("date", today)
+                .setParameter("startTime", TaxiBooking.START_OF_DAY).setParameter("endTime", TaxiBooking.END_OF_DAY));
+        execute(em.createNamedQuery(TaxiBooking.FIND_BY_IDS).setParameter("ids", Collections.singletonList(NO_ID)));
+        execute(em.createNamedQuery(Contact.FIND_ALL));
+        execute(em.createNamedQuery(Contact.FIND_BY_EMAIL).setParameter("email", "warm.up@example.invalid"));
+        execute(em.createNamedQuery(TravelAgencyBooking.FIND_ALL));
+        execute(em.createNamedQuery(TravelAgencyBooking.FIND_BY_NUMBER).setParameter("number", NO_ID));
+        execute(em.createNamedQuery(TableVersion.FIND_BY_TYPES).setParameter("types", Collections.singletonList("WarmUp")));
+    }
+
+    private static void execute(Query query) {
+        query.setMaxResults(1).getResultList();
+    }
+
+    /**
+     * Validates a synthetic instance of each entity, which builds and caches its constraint metadata. The instances are
+     * not valid, and do not need to be.
+     */
+    private void validation() {
+        for (Object entity : syntheticEntities()) {
+            validator.validate(entity);
+        }
+    }
+
+    /**
+     * Writes a synthetic instance of each entity in JSON, CBOR and Smile, which creates the serializers and Afterburner
+     * accessors for it, and fetches a reader for its type, which creates the deserializers.
+     */
+    private void serialization() {
+        for (ObjectMapper mapper : new ObjectMapper[]{
+                JacksonConfig.mapper(), JacksonConfig.cborMapper(), JacksonConfig.smileMapper()}) {
+            for (Object entity : syntheticEntities()) {
+                try {
+                    mapper.writeValueAsBytes(entity);
+                } catch (JsonProcessingException e) {
+                    throw new IllegalStateException("Could not serialize " + entity.getClass().getSimpleName(), e);
+                }
+                mapper.readerFor(entity.getClass());
+            }
+        }
+    }
+
+    private static Object[] syntheticEntities() {
+        Customer customer = new Customer();
+        customer.setId(NO_ID);
+        customer.setName("Warm Up");
+        customer.setEmail("warm.up@example.invalid");
+        customer.setPhoneNumber("01234567890");
+
+        Taxi taxi = new Taxi();
+        taxi.setId(NO_ID);
+        taxi.setRegistration("WARMUP0");
+        taxi.setSeats(4);
+
+        TaxiBooking booking = new TaxiBooking();
+        booking.setId(NO_ID);
+        booking.setCustomer(customer);
+        booking.setTaxi(taxi);
+        booking.setDate(new Date());
+        booking.setStartTime(TaxiBooking.START_OF_DAY);
+        booking.setEndTime(TaxiBooking.END_OF_DAY);
+
+        Contact contact = new Contact();
+        contact.setId(NO_ID);
+        contact.setFirstName("Warm");
+        contact.setLastName("Up");
+        contact.setEmail("warm.up@example.invalid");
+        contact.setPhoneNumber("(212) 555-1234");
+        contact.setBirthDate(new Date(0));
+
+        TravelAgencyBooking travelAgencyBooking = new TravelAgencyBooking();
+        travelAgencyBooking.setId(NO_ID);
+        travelAgencyBooking.setCustomer(customer);
+        travelAgencyBooking.setTaxiId(NO_ID);
+        travelAgencyBooking.setTime(new Date());
+
+        return new Object[]{customer, taxi, booking, contact, travelAgencyBooking};
+    }
+}
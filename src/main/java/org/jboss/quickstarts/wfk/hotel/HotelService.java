@@ -0,0 +1,14 @@
+package org.jboss.quickstarts.wfk.hotel;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+
+@Path("/hotels")
+@Produces(MediaType.APPLICATION_JSON)
+public interface HotelService {
+	@GET
+	Response listHotels();
+}
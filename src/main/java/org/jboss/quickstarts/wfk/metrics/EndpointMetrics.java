@@ -0,0 +1,85 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.quickstarts.wfk.metrics;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * <p>The measurements of one endpoint, either one of our REST resource methods or one operation of an upstream
+ * service: a latency distribution, the number of requests in flight and the number of responses per status.</p>
+ *
+ * <p>Recording never takes a lock; see {@link LatencyTimer}. Counters are {@link LongAdder}s.</p>
+ *
+ * @author Constance He
+ */
+class EndpointMetrics {
+
+    private final String labels;
+
+    private final LatencyTimer latency = new LatencyTimer();
+
+    private final LongAdder inFlight = new LongAdder();
+
+    private final ConcurrentMap<String, LongAdder> statuses = new ConcurrentHashMap<>();
+
+    /**
+     * @param labels The Prometheus labels identifying the endpoint, e.g. <code>endpoint="TaxiRestService.retrieveTaxiById"</code>
+     */
+    EndpointMetrics(String labels) {
+        this.labels = labels;
+    }
+
+    String getLabels() {
+        return labels;
+    }
+
+    LatencyTimer getLatency() {
+        return latency;
+    }
+
+    void started() {
+        inFlight.increment();
+    }
+
+    void finished(long micros, String status) {
+        inFlight.decrement();
+        latency.record(micros);
+        counted(status);
+    }
+
+    /**
+     * Counts a response without timing it.
+     */
+    void counted(String status) {
+        LongAdder counter = statuses.get(status);
+        if (counter == null) {
+            counter = statuses.computeIfAbsent(status, s -> new LongAdder());
+        }
+        counter.increment();
+    }
+
+    long getInFlight() {
+        return inFlight.sum();
+    }
+
+    Map<String, LongAdder> getStatuses() {
+        return statuses;
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.quickstarts.wfk.metrics;
+
+import org.jboss.quickstarts.wfk.trace.SpanRecorder;
+import org.jboss.resteasy.client.jaxrs.ClientHttpEngine;
+import org.jboss.resteasy.client.jaxrs.internal.ClientInvocation;
+import org.jboss.resteasy.client.jaxrs.internal.ClientResponse;
+
+import javax.net.ssl.HostnameVerifier;
+import javax.net.ssl.SSLContext;
+import javax.ws.rs.ProcessingException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * <p>Wraps the HTTP engine of a RESTEasy client to time every call it makes to an upstream service.</p>
+ *
+ * <p>Calls are grouped into operations by HTTP method and path, with numeric path segments replaced by
+ * <code>{id}</code> so that e.g. every hotel booking deletion counts as <code>DELETE /bookings/{id}</code>. The time
+ * measured runs until the response headers have arrived, and includes waiting for a connection and writing the
+ * request. Calls which fail without a response are counted with the status <code>timeout</code> if a connect, pool or
+ * read timeout expired, and <code>error</code> otherwise. Each call is also recorded as a span of the current request,
+ * named after the upstream service and the operation.</p>
+ *
+ * @author Constance He
+ */
+class InstrumentedHttpEngine implements ClientHttpEngine {
+
+    private static final Pattern NUMERIC_SEGMENT = Pattern.compile("/[0-9]+(?=/|$)");
+
+    private final ClientHttpEngine delegate;
+
+    private final UpstreamMetrics upstream;
+
+    private final SpanRecorder spans;
+
+    InstrumentedHttpEngine(ClientHttpEngine delegate, UpstreamMetrics upstream, SpanRecorder spans) {
+        this.delegate = delegate;
+        this.upstream = upstream;
+        this.spans = spans;
+    }
+
+    @Override
+    public SSLContext getSslContext() {
+        return delegate.getSslContext();
+    }
+
+    @Override
+    public HostnameVerifier getHostnameVerifier() {
+        return delegate.getHostnameVerifier();
+    }
+
+    @Override
+    public ClientResponse invoke(ClientInvocation request) {
+        String path = request.getUri().getPath();
+        String name = request.getMethod() + " "
+                + (path == null || path.isEmpty() ? "/" : NUMERIC_SEGMENT.matcher(path).replaceAll("/{id}"));
+        EndpointMetrics operation = upstream.operation(name);
+
+        operation.started();
+        long started = System.nanoTime();
+        String status = "error";
+        try {
+            ClientResponse response = delegate.invoke(request);
+            status = String.valueOf(response.getStatus());
+            return response;
+        } catch (ProcessingException e) {
+            if (isTimeout(e)) {
+                status = "timeout";
+            }
+            throw e;
+        } finally {
+            operation.finished(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - started), status);
+            spans.record(upstream.getName() + " " + name, started, status);
+        }
+    }
+
+    /**
+     * Connect, read and connection pool timeouts are all reported as an InterruptedIOException somewhere in the chain.
+     */
+    private static boolean isTimeout(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof InterruptedIOException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public void close() {
+        delegate.close();
+    }
+}
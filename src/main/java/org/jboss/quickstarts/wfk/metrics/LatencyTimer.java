@@ -0,0 +1,63 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.quickstarts.wfk.metrics;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * <p>A latency distribution, recorded in microseconds.</p>
+ *
+ * <p>Recording never takes a lock: values go into an HdrHistogram {@link Recorder}, which hands its samples over to the
+ * cumulative histogram only when the metrics are scraped.</p>
+ *
+ * @author Constance He
+ */
+class LatencyTimer {
+
+    // 3 significant digits; the range grows as needed.
+    private final Recorder recorder = new Recorder(3);
+
+    private final Histogram cumulative = new Histogram(3);
+
+    private Histogram interval;
+
+    private final LongAdder totalMicros = new LongAdder();
+
+    void record(long micros) {
+        recorder.recordValue(Math.max(micros, 1));
+        totalMicros.add(micros);
+    }
+
+    double getTotalSeconds() {
+        return totalMicros.sum() / 1e6;
+    }
+
+    /**
+     * <p>Moves the samples recorded since the last call into the cumulative histogram and returns a copy of it, so the
+     * caller can read it without holding up the next scrape.</p>
+     *
+     * @return All latencies recorded since start up, in microseconds
+     */
+    synchronized Histogram snapshot() {
+        interval = recorder.getIntervalHistogram(interval);
+        cumulative.add(interval);
+        return cumulative.copy();
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.quickstarts.wfk.metrics;
+
+import javax.annotation.Priority;
+import javax.inject.Inject;
+import javax.ws.rs.Priorities;
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.container.ContainerRequestFilter;
+import javax.ws.rs.container.ContainerResponseContext;
+import javax.ws.rs.container.ContainerResponseFilter;
+import javax.ws.rs.container.ResourceInfo;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.ext.Provider;
+import javax.ws.rs.ext.WriterInterceptor;
+import javax.ws.rs.ext.WriterInterceptorContext;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>Records the latency, the status code and the number of in flight requests of every REST endpoint in the
+ * {@link MetricsRegistry}.</p>
+ *
+ * <p>The clock starts when the request filters run and stops once the response body has been written, so the time
+ * spent serialising the entity is included. Responses without a body stop it in the response filter.</p>
+ *
+ * @author Constance He
+ */
+@Provider
+// Outermost, so the timing covers the other filters and interceptors
+@Priority(Priorities.AUTHENTICATION - 500)
+public class MetricsFilter implements ContainerRequestFilter, ContainerResponseFilter, WriterInterceptor {
+
+    private static final String STARTED = MetricsFilter.class.getName() + ".started";
+    private static final String ENDPOINT = MetricsFilter.class.getName() + ".endpoint";
+    private static final String STATUS = MetricsFilter.class.getName() + ".status";
+
+    @Inject
+    private MetricsRegistry registry;
+
+    @Context
+    private ResourceInfo resourceInfo;
+
+    @Override
+    public void filter(ContainerRequestContext requestContext) {
+        EndpointMetrics metrics = registry.endpoint(resourceInfo.getResourceClass(), resourceInfo.getResourceMethod());
+        metrics.started();
+        requestContext.setProperty(ENDPOINT, metrics);
+        requestContext.setProperty(STARTED, System.nanoTime());
+    }
+
+    @Override
+    public void filter(ContainerRequestContext requestContext, ContainerResponseContext responseContext) {
+        if (requestContext.getProperty(STARTED) == null) {
+            // Rejected before the request filters ran, e.g. no resource matched
+            registry.endpoint(null, null).counted(String.valueOf(responseContext.getStatus()));
+        } else if (responseContext.hasEntity()) {
+            requestContext.setProperty(STATUS, responseContext.getStatus());
+        } else {
+            finish(requestContext.getProperty(ENDPOINT), requestContext.getProperty(STARTED), responseContext.getStatus());
+            requestContext.removeProperty(STARTED);
+        }
+    }
+
+    @Override
+    public void aroundWriteTo(WriterInterceptorContext context) throws IOException {
+        Object started = context.getProperty(STARTED);
+        if (started == null) {
+            context.proceed();
+            return;
+        }
+
+        try {
+            context.proceed();
+        } finally {
+            Object status = context.getProperty(STATUS);
+            finish(context.getProperty(ENDPOINT), started, status == null ? 200 : (Integer) status);
+            context.removeProperty(STARTED);
+        }
+    }
+
+    private static void finish(Object endpoint, Object started, int status) {
+        long micros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - (Long) started);
+        ((EndpointMetrics) endpoint).finished(micros, String.valueOf(status));
+    }
+}
@@ -0,0 +1,264 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.quickstarts.wfk.metrics;
+
+import org.HdrHistogram.Histogram;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.jboss.quickstarts.wfk.trace.SpanRecorder;
+import org.jboss.resteasy.client.jaxrs.ResteasyClientBuilder;
+import org.jboss.resteasy.client.jaxrs.engines.ApacheHttpClient4Engine;
+
+import javax.annotation.PreDestroy;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * <p>Holds the {@link EndpointMetrics} of every REST endpoint, i.e. resource method, of every upstream service called
+ * through a client from {@link #clientBuilder}, and of every {@link Timed} repository method, and renders them in the
+ * Prometheus text exposition format.</p>
+ *
+ * <p>Endpoints are named after their resource class and method, e.g. <code>TaxiRestService.retrieveTaxiById</code>.
+ * Requests which did not match any resource method are counted under <code>unmatched</code>. Upstream calls are
+ * labelled with the name the client was built for and the operation, see {@link InstrumentedHttpEngine}.</p>
+ *
+ * @author Constance He
+ * @see MetricsFilter
+ */
+@ApplicationScoped
+public class MetricsRegistry {
+
+    static final String UNMATCHED = "unmatched";
+
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+
+    private final ConcurrentMap<Method, EndpointMetrics> byMethod = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<String, EndpointMetrics> byName = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<String, UpstreamMetrics> upstreams = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<Method, RepositoryMetrics> repositories = new ConcurrentHashMap<>();
+
+    private final PoolingHttpClientConnectionManager pool = new PoolingHttpClientConnectionManager();
+
+    @Inject
+    private SpanRecorder spans;
+
+    /**
+     * @param resourceClass The matched resource class; null if the request did not match one
+     * @param method The matched resource method; null if the request did not match one
+     * @return The metrics of the endpoint
+     */
+    EndpointMetrics endpoint(Class<?> resourceClass, Method method) {
+        if (resourceClass == null || method == null) {
+            return named(UNMATCHED);
+        }
+
+        EndpointMetrics metrics = byMethod.get(method);
+        if (metrics == null) {
+            metrics = byMethod.computeIfAbsent(method,
+                    m -> named(resourceClass.getSimpleName() + "." + m.getName()));
+        }
+        return metrics;
+    }
+
+    private EndpointMetrics named(String endpoint) {
+        EndpointMetrics metrics = byName.get(endpoint);
+        if (metrics == null) {
+            metrics = byName.computeIfAbsent(endpoint, e -> new EndpointMetrics("endpoint=\"" + e + "\""));
+        }
+        return metrics;
+    }
+
+    /**
+     * @param method A method of a {@link Timed} bean
+     * @return The metrics of the method
+     */
+    RepositoryMetrics repository(Method method) {
+        RepositoryMetrics metrics = repositories.get(method);
+        if (metrics == null) {
+            metrics = repositories.computeIfAbsent(method, m -> new RepositoryMetrics(
+                    "repository=\"" + m.getDeclaringClass().getSimpleName() + "\",method=\"" + m.getName() + "\""));
+        }
+        return metrics;
+    }
+
+    private UpstreamMetrics upstream(String name) {
+        return upstreams.computeIfAbsent(name, UpstreamMetrics::new);
+    }
+
+    /**
+     * <p>Returns a client builder whose calls are recorded as the given upstream service: their latency and status per
+     * operation, the time spent waiting for a pooled connection and the payload sizes.</p>
+     *
+     * <p>All clients draw their connections from one pool, which is grown by the given size the first time each
+     * upstream service is named and lives as long as the application. Closing a client does not close the pool, and
+     * building another client for the same upstream service does not add connections to it.</p>
+     *
+     * @param upstream The name to publish the calls under, e.g. "hotel"
+     * @param requestConfig The timeouts to use for the calls
+     * @param poolSize The most connections to keep open to the upstream service
+     * @return A builder with its HTTP engine set
+     */
+    public ResteasyClientBuilder clientBuilder(String upstream, RequestConfig requestConfig, int poolSize) {
+        UpstreamMetrics metrics;
+        synchronized (pool) {
+            if (!upstreams.containsKey(upstream)) {
+                pool.setMaxTotal(upstreams.isEmpty() ? poolSize : pool.getMaxTotal() + poolSize);
+                pool.setDefaultMaxPerRoute(Math.max(pool.getDefaultMaxPerRoute(), poolSize));
+            }
+            metrics = upstream(upstream);
+        }
+
+        ApacheHttpClient4Engine engine = new ApacheHttpClient4Engine(HttpClientBuilder.create()
+                .setConnectionManager(new TimedConnectionManager(pool, metrics.getConnectionWait()))
+                .setConnectionManagerShared(true)
+                .setDefaultRequestConfig(requestConfig)
+                .build(), true);
+
+        return new ResteasyClientBuilder()
+                .httpEngine(new InstrumentedHttpEngine(engine, metrics, spans))
+                .register(new PayloadSizeInterceptor(metrics));
+    }
+
+    @PreDestroy
+    void closePool() {
+        pool.shutdown();
+    }
+
+    /**
+     * <p>Renders all metrics in the Prometheus text format, version 0.0.4.</p>
+     *
+     * @return The metrics, one sample per line
+     */
+    String scrape() {
+        StringBuilder out = new StringBuilder(8192);
+
+        render(out, "http_requests", "http_request", byName.values());
+
+        List<UpstreamMetrics> upstreamList = new ArrayList<>(upstreams.values());
+        upstreamList.sort(Comparator.comparing(UpstreamMetrics::getName));
+
+        List<EndpointMetrics> operations = new ArrayList<>();
+        for (UpstreamMetrics upstream : upstreamList) {
+            operations.addAll(upstream.getOperations());
+        }
+        render(out, "upstream_requests", "upstream_request", operations);
+
+        header(out, "upstream_connection_wait_seconds", "summary", "Time spent waiting for a pooled connection");
+        for (UpstreamMetrics upstream : upstreamList) {
+            String labels = "upstream=\"" + upstream.getName() + "\"";
+            summary(out, "upstream_connection_wait_seconds", labels, upstream.getConnectionWait(),
+                    upstream.getConnectionWait().snapshot());
+        }
+
+        header(out, "upstream_request_bytes_total", "counter", "Bytes of request bodies sent");
+        for (UpstreamMetrics upstream : upstreamList) {
+            sample(out, "upstream_request_bytes_total", "upstream=\"" + upstream.getName() + "\"", null,
+                    upstream.getRequestBytes().sum());
+        }
+
+        header(out, "upstream_response_bytes_total", "counter", "Bytes of response bodies read");
+        for (UpstreamMetrics upstream : upstreamList) {
+            sample(out, "upstream_response_bytes_total", "upstream=\"" + upstream.getName() + "\"", null,
+                    upstream.getResponseBytes().sum());
+        }
+
+        List<RepositoryMetrics> repositoryList = new ArrayList<>(repositories.values());
+        repositoryList.sort(Comparator.comparing(EndpointMetrics::getLabels));
+        render(out, "repository_calls", "repository_call", repositoryList);
+
+        header(out, "repository_rows_total", "counter", "Rows returned or changed");
+        for (RepositoryMetrics metrics : repositoryList) {
+            sample(out, "repository_rows_total", metrics.getLabels(), null, metrics.getRows().sum());
+        }
+
+        return out.toString();
+    }
+
+    /**
+     * Renders the in flight, status and latency families of a group of endpoints, each family in one block.
+     */
+    private static void render(StringBuilder out, String requests, String request,
+                               Iterable<? extends EndpointMetrics> group) {
+        List<EndpointMetrics> endpoints = new ArrayList<>();
+        group.forEach(endpoints::add);
+        endpoints.sort(Comparator.comparing(EndpointMetrics::getLabels));
+
+        header(out, requests + "_in_flight", "gauge", "Calls currently in progress");
+        for (EndpointMetrics metrics : endpoints) {
+            sample(out, requests + "_in_flight", metrics.getLabels(), null, metrics.getInFlight());
+        }
+
+        header(out, requests + "_total", "counter", "Calls completed, by status code, timeout, ok or error");
+        for (EndpointMetrics metrics : endpoints) {
+            for (Map.Entry<String, LongAdder> status : new TreeMap<>(metrics.getStatuses()).entrySet()) {
+                sample(out, requests + "_total", metrics.getLabels(), "status=\"" + status.getKey() + "\"",
+                        status.getValue().sum());
+            }
+        }
+
+        Map<EndpointMetrics, Histogram> histograms = new TreeMap<>(Comparator.comparing(EndpointMetrics::getLabels));
+        for (EndpointMetrics metrics : endpoints) {
+            histograms.put(metrics, metrics.getLatency().snapshot());
+        }
+
+        header(out, request + "_duration_seconds", "summary", "Latency since start up");
+        for (Map.Entry<EndpointMetrics, Histogram> entry : histograms.entrySet()) {
+            summary(out, request + "_duration_seconds", entry.getKey().getLabels(), entry.getKey().getLatency(),
+                    entry.getValue());
+        }
+
+        header(out, request + "_duration_seconds_max", "gauge", "Longest call since start up");
+        for (Map.Entry<EndpointMetrics, Histogram> entry : histograms.entrySet()) {
+            sample(out, request + "_duration_seconds_max", entry.getKey().getLabels(), null,
+                    entry.getValue().getMaxValue() / 1e6);
+        }
+    }
+
+    private static void summary(StringBuilder out, String name, String labels, LatencyTimer timer, Histogram histogram) {
+        for (double quantile : QUANTILES) {
+            sample(out, name, labels, "quantile=\"" + quantile + "\"", histogram.getValueAtPercentile(quantile * 100) / 1e6);
+        }
+        sample(out, name + "_sum", labels, null, timer.getTotalSeconds());
+        sample(out, name + "_count", labels, null, histogram.getTotalCount());
+    }
+
+    private static void header(StringBuilder out, String name, String type, String help) {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    private static void sample(StringBuilder out, String name, String labels, String label, Object value) {
+        out.append(name).append('{').append(labels);
+        if (label != null) {
+            out.append(',').append(label);
+        }
+        out.append("} ").append(value).append('\n');
+    }
+}
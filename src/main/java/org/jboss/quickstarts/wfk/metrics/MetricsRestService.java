@@ -0,0 +1,65 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.quickstarts.wfk.metrics;
+
+import io.swagger.annotations.Api;
+import io.swagger.annotations.ApiOperation;
+
+import javax.ejb.Stateless;
+import javax.ejb.TransactionAttribute;
+import javax.ejb.TransactionAttributeType;
+import javax.inject.Inject;
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.Response;
+
+/**
+ * <p>This class produces a RESTful service exposing the per endpoint metrics collected by {@link MetricsFilter}, in
+ * the Prometheus text format.</p>
+ *
+ * <p>The full path for accessing endpoints defined herein is: api/metrics</p>
+ *
+ * @author Constance He
+ * @see MetricsRegistry
+ */
+@Path("/metrics")
+@Api(value = "/metrics", description = "Request metrics")
+@Stateless
+public class MetricsRestService {
+
+    static final String PROMETHEUS_TEXT = "text/plain; version=0.0.4; charset=utf-8";
+
+    @Inject
+    private MetricsRegistry registry;
+
+    /**
+     * <p>Return the latency, in flight and status code metrics of every endpoint.</p>
+     *
+     * <p>Example: <pre>GET api/metrics</pre></p>
+     *
+     * @return A Response containing the metrics in the Prometheus text exposition format
+     */
+    @GET
+    @TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+    @Produces(PROMETHEUS_TEXT)
+    @ApiOperation(value = "Fetch request metrics",
+            notes = "Returns latency quantiles, requests in flight and responses per status code of every endpoint.")
+    public Response retrieveMetrics() {
+        return Response.ok(registry.scrape()).build();
+    }
+}
@@ -0,0 +1,176 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.quickstarts.wfk.metrics;
+
+import javax.persistence.EntityManager;
+import javax.persistence.Parameter;
+import javax.persistence.Query;
+import javax.persistence.TypedQuery;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <p>Collects the queries run on the current thread while a {@link Timed} method is executing: the name of each named
+ * query, or the start of its JPQL, and the shape of every parameter bound to it.</p>
+ *
+ * <p>A shape is the type of the value, plus the size for collections, e.g. <code>Collection[12]</code>. Values are
+ * never recorded, so slow query records carry no customer data.</p>
+ *
+ * <p>The queries are seen through {@link #wrap(EntityManager)}, which {@link org.jboss.quickstarts.wfk.util.Resources}
+ * applies to the injected EntityManager only when the <code>slowquery.trace</code> system property is true. The wrapper
+ * is a reflective proxy around every EntityManager and Query call, so it is meant to be switched on while hunting a slow
+ * query, not left on. Without it slow query records still name the repository method and the shapes of its
+ * arguments.</p>
+ *
+ * @author Constance He
+ */
+public final class QueryTrace {
+
+    /** Whether queries are traced at all; read once, at start up */
+    public static final boolean ENABLED = Boolean.getBoolean("slowquery.trace");
+
+    private static final ThreadLocal<QueryTrace> CURRENT = new ThreadLocal<>();
+
+    private static final int MAX_JPQL = 120;
+
+    private final QueryTrace outer;
+
+    private final List<Map<String, Object>> queries = new ArrayList<>();
+
+    private QueryTrace(QueryTrace outer) {
+        this.outer = outer;
+    }
+
+    /**
+     * Starts collecting the queries of the current thread. Traces nest; the queries of an inner trace are only
+     * reported by it.
+     */
+    static QueryTrace begin() {
+        QueryTrace trace = new QueryTrace(CURRENT.get());
+        CURRENT.set(trace);
+        return trace;
+    }
+
+    /**
+     * Stops collecting, restoring the enclosing trace, if any.
+     */
+    void end() {
+        if (outer == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(outer);
+        }
+    }
+
+    /**
+     * @return One map per query, with its "query" and the shapes of its "parameters"
+     */
+    List<Map<String, Object>> getQueries() {
+        return queries;
+    }
+
+    private Map<String, String> record(String query) {
+        Map<String, String> parameters = new LinkedHashMap<>();
+        Map<String, Object> entry = new LinkedHashMap<>();
+        entry.put("query", query);
+        entry.put("parameters", parameters);
+        queries.add(entry);
+        return parameters;
+    }
+
+    static String shapeOf(Object value) {
+        if (value == null) {
+            return "null";
+        }
+        if (value instanceof Collection) {
+            return "Collection[" + ((Collection<?>) value).size() + "]";
+        }
+        return value.getClass().getSimpleName();
+    }
+
+    /**
+     * <p>Returns an EntityManager which reports the queries it creates to the current trace.</p>
+     *
+     * @param em The EntityManager to delegate to
+     * @return The wrapping EntityManager
+     */
+    public static EntityManager wrap(EntityManager em) {
+        return (EntityManager) Proxy.newProxyInstance(QueryTrace.class.getClassLoader(),
+                new Class<?>[] {EntityManager.class}, (proxy, method, args) -> {
+                    Object result = invoke(em, method, args);
+                    QueryTrace trace = CURRENT.get();
+                    if (trace == null || !method.getName().startsWith("create") || !isQueryType(method.getReturnType())) {
+                        return result;
+                    }
+                    return traced((Query) result, method.getReturnType(), trace.record(describe(method, args)));
+                });
+    }
+
+    private static boolean isQueryType(Class<?> type) {
+        return type == Query.class || type == TypedQuery.class;
+    }
+
+    private static String describe(Method method, Object[] args) {
+        Object query = args[0];
+        if (method.getName().equals("createNamedQuery")) {
+            return (String) query;
+        }
+        if (query instanceof String) {
+            String jpql = (String) query;
+            return jpql.length() > MAX_JPQL ? jpql.substring(0, MAX_JPQL) + "..." : jpql;
+        }
+        return "criteria " + query.getClass().getSimpleName();
+    }
+
+    private static Object traced(Query query, Class<?> type, Map<String, String> parameters) {
+        return Proxy.newProxyInstance(QueryTrace.class.getClassLoader(), new Class<?>[] {type},
+                new InvocationHandler() {
+                    @Override
+                    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                        if (method.getName().equals("setParameter")) {
+                            parameters.put(nameOf(args[0]), shapeOf(args[1]));
+                        }
+                        Object result = QueryTrace.invoke(query, method, args);
+                        // Keep the chained calls, e.g. setParameter(...).setParameter(...), going through the proxy
+                        return result == query ? proxy : result;
+                    }
+                });
+    }
+
+    private static String nameOf(Object parameter) {
+        if (parameter instanceof Parameter) {
+            Parameter<?> p = (Parameter<?>) parameter;
+            return p.getName() != null ? p.getName() : String.valueOf(p.getPosition());
+        }
+        return String.valueOf(parameter);
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.quickstarts.wfk.metrics;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import org.jboss.quickstarts.wfk.util.JacksonConfig;
+
+import javax.annotation.Priority;
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.interceptor.AroundInvoke;
+import javax.interceptor.Interceptor;
+import javax.interceptor.InvocationContext;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * <p>Records the latency, outcome and number of rows of every call to a {@link Timed} bean in the
+ * {@link MetricsRegistry}, and logs a slow query record for calls slower than the <code>slowquery.threshold</code>
+ * system property (in milliseconds, 200 by default). The queries of the call are only listed when
+ * <code>slowquery.trace</code> is set, see {@link QueryTrace}.</p>
+ *
+ * <p>The record is a single line of JSON, so it can be picked out of the server log and correlated with the endpoint
+ * latencies at <code>/api/metrics</code>, e.g.</p>
+ *
+ * <pre>SLOW_QUERY {"method":"BookingRepository.findByIds","millis":412,"outcome":"ok","rows":200,
+ *     "arguments":["Collection[200]"],"queries":[{"query":"Booking.findByIds","parameters":{"ids":"Collection[200]"}}]}</pre>
+ *
+ * <p>The rows of a call are the size of the list it returned, 1 for an entity, or the update count.</p>
+ *
+ * @author Constance He
+ * @see QueryTrace
+ */
+@Timed
+@Interceptor
+@Priority(Interceptor.Priority.APPLICATION)
+public class TimingInterceptor {
+
+    private static final long SLOW_MICROS = TimeUnit.MILLISECONDS.toMicros(Long.getLong("slowquery.threshold", 200));
+
+    @Inject
+    private @Named("logger") Logger log;
+
+    @Inject
+    private MetricsRegistry registry;
+
+    @AroundInvoke
+    public Object time(InvocationContext context) throws Exception {
+        RepositoryMetrics metrics = registry.repository(context.getMethod());
+        QueryTrace trace = QueryTrace.ENABLED ? QueryTrace.begin() : null;
+
+        metrics.started();
+        long started = System.nanoTime();
+        String outcome = "error";
+        Object result = null;
+        try {
+            result = context.proceed();
+            outcome = "ok";
+            return result;
+        } finally {
+            long micros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - started);
+            if (trace != null) {
+                trace.end();
+            }
+
+            long rows = rowsOf(result);
+            metrics.finished(micros, outcome);
+            metrics.getRows().add(rows);
+
+            if (micros >= SLOW_MICROS) {
+                logSlow(context, micros, outcome, rows, trace);
+            }
+        }
+    }
+
+    private static long rowsOf(Object result) {
+        if (result == null) {
+            return 0;
+        }
+        if (result instanceof Collection) {
+            return ((Collection<?>) result).size();
+        }
+        if (result instanceof Number) {
+            return ((Number) result).longValue();
+        }
+        return 1;
+    }
+
+    private void logSlow(InvocationContext context, long micros, String outcome, long rows, QueryTrace trace) {
+        Map<String, Object> record = new LinkedHashMap<>();
+        record.put("method", context.getMethod().getDeclaringClass().getSimpleName() + "." + context.getMethod().getName());
+        record.put("millis", TimeUnit.MICROSECONDS.toMillis(micros));
+        record.put("outcome", outcome);
+        record.put("rows", rows);
+
+        List<String> arguments = new ArrayList<>();
+        for (Object parameter : context.getParameters()) {
+            arguments.add(QueryTrace.shapeOf(parameter));
+        }
+        record.put("arguments", arguments);
+        if (trace != null) {
+            record.put("queries", trace.getQueries());
+        }
+
+        try {
+            log.log(Level.WARNING, "SLOW_QUERY {0}", JacksonConfig.mapper().writeValueAsString(record));
+        } catch (JsonProcessingException e) {
+            log.log(Level.WARNING, "SLOW_QUERY {0}", record);
+        }
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.quickstarts.wfk.metrics;
+
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * <p>The measurements of the calls to one upstream service, e.g. the hotel agency: one {@link EndpointMetrics} per
+ * operation, the time spent waiting for a pooled connection, and the bytes sent and received.</p>
+ *
+ * @author Constance He
+ */
+class UpstreamMetrics {
+
+    private final String name;
+
+    private final ConcurrentMap<String, EndpointMetrics> operations = new ConcurrentHashMap<>();
+
+    private final LatencyTimer connectionWait = new LatencyTimer();
+
+    private final LongAdder requestBytes = new LongAdder();
+
+    private final LongAdder responseBytes = new LongAdder();
+
+    UpstreamMetrics(String name) {
+        this.name = name;
+    }
+
+    String getName() {
+        return name;
+    }
+
+    /**
+     * @param operation The HTTP method and path template of the call, e.g. <code>DELETE /bookings/{id}</code>
+     * @return The metrics of the operation
+     */
+    EndpointMetrics operation(String operation) {
+        EndpointMetrics metrics = operations.get(operation);
+        if (metrics == null) {
+            metrics = operations.computeIfAbsent(operation,
+                    o -> new EndpointMetrics("upstream=\"" + name + "\",operation=\"" + o + "\""));
+        }
+        return metrics;
+    }
+
+    Collection<EndpointMetrics> getOperations() {
+        return operations.values();
+    }
+
+    LatencyTimer getConnectionWait() {
+        return connectionWait;
+    }
+
+    LongAdder getRequestBytes() {
+        return requestBytes;
+    }
+
+    LongAdder getResponseBytes() {
+        return responseBytes;
+    }
+}
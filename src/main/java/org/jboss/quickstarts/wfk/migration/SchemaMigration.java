@@ -0,0 +1,85 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.quickstarts.wfk.migration;
+
+import org.flywaydb.core.Flyway;
+import org.hibernate.boot.Metadata;
+import org.hibernate.engine.config.spi.ConfigurationService;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.integrator.spi.Integrator;
+import org.hibernate.service.spi.SessionFactoryServiceRegistry;
+
+import javax.naming.InitialContext;
+import javax.naming.NamingException;
+import javax.sql.DataSource;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * <p>Brings the database schema up to date when the application is deployed, with the Flyway migrations in
+ * <code>db/migration</code> (SQL) and in this package (Java). Each migration runs once per database, so restarts are
+ * quick and keep their data. Hibernate no longer creates the schema itself.</p>
+ *
+ * <p>Hibernate finds this class through <code>META-INF/services</code> and runs it while it builds the persistence
+ * unit, before it validates the schema against the entities (<code>hibernate.hbm2ddl.auto=validate</code>). A
+ * migration that does not match the entities therefore fails the deployment, and nothing that uses the persistence
+ * unit can run before the schema is there.</p>
+ *
+ * <p>The datasource migrated is the one named by the <code>migration.datasource</code> property of the persistence
+ * unit. A unit without it, such as the one the tests use, is left to <code>hibernate.hbm2ddl.auto</code>. Flyway
+ * commits each migration itself.</p>
+ *
+ * @author Constance He
+ */
+public class SchemaMigration implements Integrator {
+
+    static final String DATASOURCE_PROPERTY = "migration.datasource";
+
+    private static final Logger log = Logger.getLogger(SchemaMigration.class.getName());
+
+    @Override
+    public void integrate(Metadata metadata, SessionFactoryImplementor sessionFactory,
+                          SessionFactoryServiceRegistry serviceRegistry) {
+        Object name = serviceRegistry.getService(ConfigurationService.class).getSettings().get(DATASOURCE_PROPERTY);
+        if (name == null) {
+            log.info("SchemaMigration.integrate() - No " + DATASOURCE_PROPERTY + " configured, leaving the schema to Hibernate");
+            return;
+        }
+
+        DataSource dataSource;
+        try {
+            dataSource = InitialContext.doLookup(name.toString());
+        } catch (NamingException e) {
+            throw new IllegalStateException("Cannot find the datasource " + name + " to migrate", e);
+        }
+
+        long start = System.currentTimeMillis();
+        Flyway flyway = new Flyway();
+        flyway.setClassLoader(SchemaMigration.class.getClassLoader());
+        flyway.setDataSource(dataSource);
+        flyway.setLocations("classpath:db/migration", "classpath:org/jboss/quickstarts/wfk/migration");
+        int applied = flyway.migrate();
+        if (log.isLoggable(Level.INFO)) {
+            log.log(Level.INFO, "SchemaMigration.integrate() - Applied {0} migrations in {1} ms, schema version {2}",
+                    new Object[]{applied, System.currentTimeMillis() - start, flyway.info().current().getVersion()});
+        }
+    }
+
+    @Override
+    public void disintegrate(SessionFactoryImplementor sessionFactory, SessionFactoryServiceRegistry serviceRegistry) {
+    }
+}
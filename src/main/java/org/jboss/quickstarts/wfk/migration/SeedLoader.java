@@ -0,0 +1,195 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.quickstarts.wfk.migration;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * <p>Loads rows from CSV into a table with JDBC batch inserts, for seed data and test fixtures.</p>
+ *
+ * <p>The first line of the CSV names the columns, and every further line is a row. Values are converted to the type
+ * of their column; an empty value is NULL. Fields may be quoted, with <code>""</code> for a quote, but may not span
+ * lines. The file is streamed, so it can be far larger than memory, and rows are sent <code>seed.batch.size</code>
+ * (1000 by default) at a time. The caller owns the connection and its transaction.</p>
+ *
+ * @author Constance He
+ * @see V2__Seed_data
+ */
+public class SeedLoader {
+
+    private static final int BATCH_SIZE = Integer.getInteger("seed.batch.size", 1000);
+
+    private final Connection connection;
+
+    public SeedLoader(Connection connection) {
+        this.connection = connection;
+    }
+
+    /**
+     * <p>Loads the CSV resource <code>db/seed/&lt;table&gt;.csv</code> into the table, if there is one.</p>
+     *
+     * @param table The table to load
+     * @return The number of rows inserted
+     * @throws SQLException if a row cannot be inserted
+     * @throws IOException if the resource cannot be read
+     */
+    public int loadResource(String table) throws SQLException, IOException {
+        InputStream in = SeedLoader.class.getClassLoader().getResourceAsStream("db/seed/" + table + ".csv");
+        if (in == null) {
+            return 0;
+        }
+        try (Reader csv = new InputStreamReader(in, StandardCharsets.UTF_8)) {
+            return load(table, csv);
+        }
+    }
+
+    /**
+     * <p>Loads the rows of the CSV into the table.</p>
+     *
+     * @param table The table to load
+     * @param csv The rows, after a header line naming their columns
+     * @return The number of rows inserted
+     * @throws SQLException if a row cannot be inserted
+     * @throws IOException if the CSV cannot be read, or a line has the wrong number of fields
+     */
+    public int load(String table, Reader csv) throws SQLException, IOException {
+        BufferedReader lines = new BufferedReader(csv);
+        String header = lines.readLine();
+        if (header == null) {
+            return 0;
+        }
+        List<String> columns = parse(header);
+        int[] types = columnTypes(table, columns);
+
+        StringBuilder sql = new StringBuilder("insert into ").append(table).append(" (")
+                .append(String.join(", ", columns)).append(") values (");
+        for (int i = 0; i < columns.size(); i++) {
+            sql.append(i == 0 ? "?" : ", ?");
+        }
+        sql.append(')');
+
+        int rows = 0;
+        try (PreparedStatement insert = connection.prepareStatement(sql.toString())) {
+            int lineNumber = 1;
+            for (String line; (line = lines.readLine()) != null; ) {
+                lineNumber++;
+                if (line.isEmpty()) {
+                    continue;
+                }
+                List<String> values = parse(line);
+                if (values.size() != columns.size()) {
+                    throw new IOException(table + ".csv line " + lineNumber + " has " + values.size()
+                            + " fields, expected " + columns.size());
+                }
+                for (int i = 0; i < values.size(); i++) {
+                    bind(insert, i + 1, types[i], values.get(i));
+                }
+                insert.addBatch();
+                if (++rows % BATCH_SIZE == 0) {
+                    insert.executeBatch();
+                }
+            }
+            if (rows % BATCH_SIZE != 0) {
+                insert.executeBatch();
+            }
+        }
+        return rows;
+    }
+
+    private int[] columnTypes(String table, List<String> columns) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            ResultSetMetaData metaData = statement.executeQuery("select " + String.join(", ", columns) + " from "
+                    + table + " where 1 = 0").getMetaData();
+            int[] types = new int[columns.size()];
+            for (int i = 0; i < types.length; i++) {
+                types[i] = metaData.getColumnType(i + 1);
+            }
+            return types;
+        }
+    }
+
+    private static void bind(PreparedStatement insert, int index, int type, String value) throws SQLException {
+        if (value.isEmpty()) {
+            insert.setNull(index, type);
+            return;
+        }
+        switch (type) {
+            case Types.BIGINT:
+                insert.setLong(index, Long.parseLong(value));
+                break;
+            case Types.INTEGER:
+            case Types.SMALLINT:
+                insert.setInt(index, Integer.parseInt(value));
+                break;
+            case Types.DATE:
+                insert.setDate(index, Date.valueOf(value));
+                break;
+            case Types.TIMESTAMP:
+                insert.setTimestamp(index, value.length() == 10 ? new Timestamp(Date.valueOf(value).getTime())
+                        : Timestamp.valueOf(value));
+                break;
+            default:
+                insert.setString(index, value);
+        }
+    }
+
+    /**
+     * Splits a CSV line into its fields, unquoting them.
+     */
+    static List<String> parse(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c != '"') {
+                    field.append(c);
+                } else if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else {
+                    quoted = false;
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+}
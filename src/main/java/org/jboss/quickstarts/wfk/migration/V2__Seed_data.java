@@ -0,0 +1,58 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.quickstarts.wfk.migration;
+
+import org.flywaydb.core.api.migration.jdbc.JdbcMigration;
+
+import java.sql.Connection;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * <p>Loads the seed data in <code>db/seed</code> into a new database. Being a migration it runs exactly once, so the
+ * data is not loaded again over whatever the application has since done to it.</p>
+ *
+ * <p>Setting the system property <code>seed.disabled</code> when the database is first migrated leaves it empty, as a
+ * production database should be.</p>
+ *
+ * @author Constance He
+ * @see SchemaMigration
+ */
+public class V2__Seed_data implements JdbcMigration {
+
+    /** In the order their foreign keys require. */
+    private static final String[] TABLES = {"contact", "customer", "taxi", "booking", "TABooking"};
+
+    private static final Logger log = Logger.getLogger(V2__Seed_data.class.getName());
+
+    @Override
+    public void migrate(Connection connection) throws Exception {
+        if (Boolean.getBoolean("seed.disabled")) {
+            log.info("V2__Seed_data.migrate() - Seed data disabled, leaving the database empty");
+            return;
+        }
+        SeedLoader loader = new SeedLoader(connection);
+        for (String table : TABLES) {
+            long start = System.currentTimeMillis();
+            int rows = loader.loadResource(table);
+            if (log.isLoggable(Level.INFO)) {
+                log.log(Level.INFO, "V2__Seed_data.migrate() - Loaded {0} {1} rows in {2} ms",
+                        new Object[]{rows, table, System.currentTimeMillis() - start});
+            }
+        }
+    }
+}
@@ -0,0 +1,148 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.quickstarts.wfk.report;
+
+import org.jboss.quickstarts.wfk.util.QueryHints;
+
+import javax.persistence.*;
+import javax.validation.constraints.NotNull;
+import javax.xml.bind.annotation.XmlRootElement;
+import java.io.Serializable;
+
+/**
+ * <p>A pre-aggregated count of bookings for one key of one {@link Dimension}, e.g. the number of bookings on
+ * 2019-11-11, or the number of bookings ever made for taxi 10003.</p>
+ *
+ * <p>Rows are kept up to date incrementally by {@link ReportService} as bookings are created and deleted, and rebuilt
+ * from scratch by {@link RollupCompactor} to correct any drift. Reports read these rows instead of scanning the
+ * booking table.</p>
+ *
+ * <p>The keys are stored as strings so that all dimensions share one table. Day keys are ISO-8601 dates, which sort
+ * chronologically, so a date range is a simple BETWEEN on the key.</p>
+ *
+ * @author Constance He
+ */
+@Entity
+@NamedQueries({
+        @NamedQuery(name = BookingRollup.FIND_BY_DIMENSION, query = "SELECT r FROM BookingRollup r "
+                + "WHERE r.dimension = :dimension AND r.bookings > 0 ORDER BY r.rollupKey ASC",
+                hints = @QueryHint(name = QueryHints.READ_ONLY, value = "true")),
+        @NamedQuery(name = BookingRollup.FIND_RANGE, query = "SELECT r FROM BookingRollup r "
+                + "WHERE r.dimension = :dimension AND r.bookings > 0 AND r.rollupKey BETWEEN :from AND :to "
+                + "ORDER BY r.rollupKey ASC",
+                hints = @QueryHint(name = QueryHints.READ_ONLY, value = "true")),
+        @NamedQuery(name = BookingRollup.FIND_KEY_SPAN, query = "SELECT MIN(r.rollupKey), MAX(r.rollupKey) "
+                + "FROM BookingRollup r WHERE r.dimension = :dimension AND r.bookings > 0"),
+        @NamedQuery(name = BookingRollup.ADD, query = "UPDATE BookingRollup r SET r.bookings = r.bookings + :delta "
+                + "WHERE r.dimension = :dimension AND r.rollupKey = :rollupKey"),
+        @NamedQuery(name = BookingRollup.DELETE_ALL, query = "DELETE FROM BookingRollup r"),
+        @NamedQuery(name = BookingRollup.COUNT_PER_DAY,
+                query = "SELECT b.date, COUNT(b) FROM TaxiBooking b GROUP BY b.date"),
+        @NamedQuery(name = BookingRollup.COUNT_PER_TAXI,
+                query = "SELECT b.taxi.id, COUNT(b) FROM TaxiBooking b GROUP BY b.taxi.id"),
+        @NamedQuery(name = BookingRollup.COUNT_PER_TAXI_SLOT,
+                query = "SELECT b.taxi.id, b.startTime, b.endTime, COUNT(b) FROM TaxiBooking b "
+                        + "GROUP BY b.taxi.id, b.startTime, b.endTime"),
+        @NamedQuery(name = BookingRollup.COUNT_PER_CUSTOMER,
+                query = "SELECT b.customer.id, COUNT(b) FROM TaxiBooking b GROUP BY b.customer.id")
+})
+@XmlRootElement
+@Table(name = "booking_rollup", uniqueConstraints = @UniqueConstraint(columnNames = {"dimension", "rollupKey"}))
+public class BookingRollup implements Serializable {
+    /** Default value included to remove warning. Remove or modify at will. **/
+    private static final long serialVersionUID = 1L;
+
+    public static final String FIND_BY_DIMENSION = "BookingRollup.findByDimension";
+    public static final String FIND_RANGE = "BookingRollup.findRange";
+    public static final String FIND_KEY_SPAN = "BookingRollup.findKeySpan";
+    public static final String ADD = "BookingRollup.add";
+    public static final String DELETE_ALL = "BookingRollup.deleteAll";
+    public static final String COUNT_PER_DAY = "BookingRollup.countPerDay";
+    public static final String COUNT_PER_TAXI = "BookingRollup.countPerTaxi";
+    public static final String COUNT_PER_TAXI_SLOT = "BookingRollup.countPerTaxiSlot";
+    public static final String COUNT_PER_CUSTOMER = "BookingRollup.countPerCustomer";
+
+    /**
+     * <p>What a rollup row counts bookings by. TAXI_MINUTES rows hold the minutes a taxi is booked for in all, rather
+     * than a number of bookings.</p>
+     */
+    public enum Dimension {
+        DAY, TAXI, TAXI_MINUTES, CUSTOMER
+    }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.TABLE)
+    private Long id;
+
+    @NotNull
+    @Enumerated(EnumType.STRING)
+    @Column(name = "dimension", length = 16)
+    private Dimension dimension;
+
+    @NotNull
+    @Column(name = "rollupKey", length = 32)
+    private String rollupKey;
+
+    @Column(name = "bookings")
+    private long bookings;
+
+    public BookingRollup() {
+    }
+
+    public BookingRollup(Dimension dimension, String rollupKey, long bookings) {
+        this.dimension = dimension;
+        this.rollupKey = rollupKey;
+        this.bookings = bookings;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Dimension getDimension() {
+        return dimension;
+    }
+
+    public void setDimension(Dimension dimension) {
+        this.dimension = dimension;
+    }
+
+    public String getRollupKey() {
+        return rollupKey;
+    }
+
+    public void setRollupKey(String rollupKey) {
+        this.rollupKey = rollupKey;
+    }
+
+    public long getBookings() {
+        return bookings;
+    }
+
+    public void setBookings(long bookings) {
+        this.bookings = bookings;
+    }
+
+    @Override
+    public String toString() {
+        return dimension + ":" + rollupKey + "=" + bookings;
+    }
+}
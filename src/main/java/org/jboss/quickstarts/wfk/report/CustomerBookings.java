@@ -0,0 +1,56 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.quickstarts.wfk.report;
+
+import java.io.Serializable;
+
+/**
+ * <p>The number of bookings held by one customer, as returned by <code>GET /reports/customers</code>.</p>
+ *
+ * @author Constance He
+ */
+public class CustomerBookings implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private Long customerId;
+
+    private long bookings;
+
+    public CustomerBookings() {
+    }
+
+    public CustomerBookings(Long customerId, long bookings) {
+        this.customerId = customerId;
+        this.bookings = bookings;
+    }
+
+    public Long getCustomerId() {
+        return customerId;
+    }
+
+    public void setCustomerId(Long customerId) {
+        this.customerId = customerId;
+    }
+
+    public long getBookings() {
+        return bookings;
+    }
+
+    public void setBookings(long bookings) {
+        this.bookings = bookings;
+    }
+}
@@ -0,0 +1,208 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.quickstarts.wfk.report;
+
+import org.jboss.quickstarts.wfk.report.BookingRollup.Dimension;
+import org.jboss.quickstarts.wfk.metrics.Timed;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.persistence.EntityManager;
+import javax.persistence.LockModeType;
+import javax.persistence.TypedQuery;
+import java.sql.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * <p>This is a Repository class and connects the Service/Control layer (see {@link ReportService}) with the
+ * Domain/Entity Object (see {@link BookingRollup}).</p>
+ *
+ * <p>There are no access modifiers on the methods making them 'package' scope.  They should only be accessed by a
+ * Service/Control object.</p>
+ *
+ * @author Constance He
+ * @see BookingRollup
+ * @see javax.persistence.EntityManager
+ */
+@ApplicationScoped
+@Timed
+public class ReportRepository {
+
+    @Inject
+    private @Named("logger") Logger log;
+
+    @Inject
+    private EntityManager em;
+
+    /**
+     * <p>Returns every non-empty rollup of a dimension, ordered by key.</p>
+     *
+     * @param dimension The dimension to return
+     * @return List of BookingRollup objects
+     */
+    List<BookingRollup> findByDimension(Dimension dimension) {
+        TypedQuery<BookingRollup> query = em.createNamedQuery(BookingRollup.FIND_BY_DIMENSION, BookingRollup.class)
+                .setParameter("dimension", dimension);
+        return query.getResultList();
+    }
+
+    /**
+     * <p>Returns the non-empty rollups of a dimension whose keys lie between from and to inclusive, ordered by key.</p>
+     *
+     * @param dimension The dimension to return
+     * @param from The lowest key to return
+     * @param to The highest key to return
+     * @return List of BookingRollup objects
+     */
+    List<BookingRollup> findRange(Dimension dimension, String from, String to) {
+        TypedQuery<BookingRollup> query = em.createNamedQuery(BookingRollup.FIND_RANGE, BookingRollup.class)
+                .setParameter("dimension", dimension)
+                .setParameter("from", from)
+                .setParameter("to", to);
+        return query.getResultList();
+    }
+
+    /**
+     * <p>Returns the lowest and highest keys of the non-empty rollups of a dimension.</p>
+     *
+     * @param dimension The dimension to look at
+     * @return A two element array of {lowest, highest}; both are null if the dimension is empty
+     */
+    String[] findKeySpan(Dimension dimension) {
+        Object[] span = em.createNamedQuery(BookingRollup.FIND_KEY_SPAN, Object[].class)
+                .setParameter("dimension", dimension)
+                .getSingleResult();
+        return new String[] {(String) span[0], (String) span[1]};
+    }
+
+    /**
+     * <p>Adds delta to the count of an existing rollup row with a single UPDATE statement.</p>
+     *
+     * @param dimension The dimension of the row
+     * @param key The key of the row
+     * @param delta The number of bookings to add; may be negative
+     * @return false if there is no row for the key yet, in which case nothing was changed
+     */
+    boolean add(Dimension dimension, String key, long delta) {
+        int updated = em.createNamedQuery(BookingRollup.ADD)
+                .setParameter("delta", delta)
+                .setParameter("dimension", dimension)
+                .setParameter("rollupKey", key)
+                .executeUpdate();
+        return updated > 0;
+    }
+
+    /**
+     * <p>Tells, without locking anything, whether the rollups have been rebuilt at least once.</p>
+     *
+     * <p>Only the time is read, so the row is not put in the persistence context, and {@link #lockRebuild()} still
+     * reads it afresh.</p>
+     *
+     * @return true if a rebuild has finished
+     */
+    boolean isRebuilt() {
+        List<Long> rebuiltAt = em.createNamedQuery(RollupRebuild.FIND_REBUILT_AT, Long.class)
+                .setParameter("id", RollupRebuild.ID).getResultList();
+        return !rebuiltAt.isEmpty() && rebuiltAt.get(0) != null;
+    }
+
+    /**
+     * <p>Returns the {@link RollupRebuild} row, locking it until the end of the transaction.</p>
+     *
+     * <p>A schema made from the entities rather than the migrations, as in the tests, has no such row; it is added
+     * then.</p>
+     *
+     * @return The managed row
+     */
+    RollupRebuild lockRebuild() {
+        RollupRebuild rebuild = em.find(RollupRebuild.class, RollupRebuild.ID, LockModeType.PESSIMISTIC_WRITE);
+        if (rebuild == null) {
+            rebuild = new RollupRebuild();
+            rebuild.setId(RollupRebuild.ID);
+            em.persist(rebuild);
+        }
+        return rebuild;
+    }
+
+    /**
+     * <p>Replaces every rollup with counts aggregated directly from the booking table.</p>
+     *
+     * <p>This is the only operation which scans the bookings, and it is meant to be run in the background by
+     * {@link RollupCompactor}, with the {@link #lockRebuild() rebuild row} locked.</p>
+     *
+     * @return The number of rollup rows written
+     */
+    int rebuild() {
+        int deleted = em.createNamedQuery(BookingRollup.DELETE_ALL).executeUpdate();
+        log.log(Level.FINE, "ReportRepository.rebuild() - Removed {0} rollup rows", deleted);
+
+        int written = 0;
+        for (Object[] row : em.createNamedQuery(BookingRollup.COUNT_PER_DAY, Object[].class).getResultList()) {
+            em.persist(new BookingRollup(Dimension.DAY, dayKey((java.util.Date) row[0]), (Long) row[1]));
+            written++;
+        }
+        for (Object[] row : em.createNamedQuery(BookingRollup.COUNT_PER_TAXI, Object[].class).getResultList()) {
+            em.persist(new BookingRollup(Dimension.TAXI, row[0].toString(), (Long) row[1]));
+            written++;
+        }
+        Map<Long, Long> minutes = new HashMap<>();
+        for (Object[] row : em.createNamedQuery(BookingRollup.COUNT_PER_TAXI_SLOT, Object[].class).getResultList()) {
+            minutes.merge((Long) row[0], (Long) row[3] * slotMinutes((String) row[1], (String) row[2]), Long::sum);
+        }
+        for (Map.Entry<Long, Long> taxi : minutes.entrySet()) {
+            em.persist(new BookingRollup(Dimension.TAXI_MINUTES, taxi.getKey().toString(), taxi.getValue()));
+            written++;
+        }
+        for (Object[] row : em.createNamedQuery(BookingRollup.COUNT_PER_CUSTOMER, Object[].class).getResultList()) {
+            em.persist(new BookingRollup(Dimension.CUSTOMER, row[0].toString(), (Long) row[1]));
+            written++;
+        }
+        return written;
+    }
+
+    /**
+     * <p>Returns the key of the DAY rollup a booking date belongs to.</p>
+     *
+     * <p>The date is read in the default time zone, which is the zone the JDBC driver uses for DATE columns.</p>
+     *
+     * @param date The date of a booking
+     * @return The date as yyyy-MM-dd
+     */
+    static String dayKey(java.util.Date date) {
+        return new Date(date.getTime()).toLocalDate().toString();
+    }
+
+    /**
+     * <p>Returns the length of a booking slot.</p>
+     *
+     * @param startTime The start of the slot, as HH:mm
+     * @param endTime The end of the slot, as HH:mm; 24:00 for the end of the day
+     * @return The length of the slot in minutes
+     */
+    static long slotMinutes(String startTime, String endTime) {
+        return minuteOfDay(endTime) - minuteOfDay(startTime);
+    }
+
+    private static long minuteOfDay(String time) {
+        return Integer.parseInt(time.substring(0, 2)) * 60 + Integer.parseInt(time.substring(3, 5));
+    }
+}
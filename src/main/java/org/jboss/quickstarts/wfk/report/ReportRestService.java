@@ -0,0 +1,156 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.quickstarts.wfk.report;
+
+import io.swagger.annotations.*;
+
+import org.jboss.quickstarts.wfk.util.BinaryMediaTypes;
+import org.jboss.quickstarts.wfk.util.RestServiceException;
+
+import javax.ejb.Stateless;
+import javax.ejb.TransactionAttribute;
+import javax.ejb.TransactionAttributeType;
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.ws.rs.*;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * <p>This class produces a RESTful service exposing the functionality of {@link ReportService}.</p>
+ *
+ * <p>All reports are answered from the pre-aggregated {@link BookingRollup} rows, so their cost grows with the number
+ * of days, taxis or customers reported on rather than with the number of bookings.</p>
+ *
+ * <p>The full path for accessing endpoints defined herein is: api/reports/*</p>
+ *
+ * @author Constance He
+ * @see ReportService
+ * @see javax.ws.rs.core.Response
+ */
+@Path("/reports")
+@Consumes({MediaType.APPLICATION_JSON, BinaryMediaTypes.APPLICATION_CBOR, BinaryMediaTypes.APPLICATION_SMILE})
+@Produces({MediaType.APPLICATION_JSON, BinaryMediaTypes.APPLICATION_CBOR, BinaryMediaTypes.APPLICATION_SMILE})
+@Api(value = "/reports", description = "Booking reports")
+@Stateless
+public class ReportRestService {
+    @Inject
+    private @Named("logger") Logger log;
+
+    @Inject
+    private ReportService service;
+
+    @Inject
+    private RollupCompactor compactor;
+
+    /**
+     * <p>Return the number of bookings per day, optionally limited to a range of dates.</p>
+     *
+     * <p>Examples: <pre>GET api/reports/days?from=2019-11-01&amp;to=2019-11-30</pre></p>
+     *
+     * @param from The first day to include, as yyyy-MM-dd
+     * @param to The last day to include, as yyyy-MM-dd
+     * @return A Response containing a list of days and their booking counts
+     */
+    @GET
+    @TransactionAttribute(TransactionAttributeType.SUPPORTS)
+    @Path("/days")
+    @ApiOperation(value = "Fetch the number of bookings per day",
+            notes = "Returns a JSON array of days, in date order, on which at least one booking was made.")
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = "Report produced"),
+            @ApiResponse(code = 400, message = "Invalid date supplied")
+    })
+    public Response retrieveBookingsPerDay(
+            @ApiParam(value = "First day to include (yyyy-MM-dd)")
+            @QueryParam("from")
+            String from,
+            @ApiParam(value = "Last day to include (yyyy-MM-dd)")
+            @QueryParam("to")
+            String to) {
+
+        return Response.ok(service.bookingsPerDay(parseDay("from", from), parseDay("to", to))).build();
+    }
+
+    /**
+     * <p>Return the number of bookings and the utilisation of every booked taxi.</p>
+     *
+     * <p>Examples: <pre>GET api/reports/taxis</pre></p>
+     *
+     * @return A Response containing a list of taxis and their utilisation
+     */
+    @GET
+    @TransactionAttribute(TransactionAttributeType.SUPPORTS)
+    @Path("/taxis")
+    @ApiOperation(value = "Fetch the utilisation of each taxi",
+            notes = "Utilisation is the fraction of the hours, from the first to the last booked day, for which the taxi is "
+                    + "booked.")
+    public Response retrieveTaxiUtilisation() {
+        return Response.ok(service.taxiUtilisation()).build();
+    }
+
+    /**
+     * <p>Return the number of bookings held by every customer.</p>
+     *
+     * <p>Examples: <pre>GET api/reports/customers</pre></p>
+     *
+     * @return A Response containing a list of customers and their booking counts
+     */
+    @GET
+    @TransactionAttribute(TransactionAttributeType.SUPPORTS)
+    @Path("/customers")
+    @ApiOperation(value = "Fetch the number of bookings per customer")
+    public Response retrieveBookingsPerCustomer() {
+        return Response.ok(service.bookingsPerCustomer()).build();
+    }
+
+    /**
+     * <p>Rebuild every rollup from the booking table straight away, rather than waiting for the nightly job.</p>
+     *
+     * @return A Response containing the number of rollup rows written
+     */
+    @POST
+    @Path("/rebuild")
+    @ApiOperation(value = "Rebuild the report rollups from the bookings")
+    public Response rebuild() {
+        int written = compactor.rebuild();
+        log.log(Level.INFO, "rebuild completed. Rollup rows = {0}", written);
+
+        Map<String, Integer> responseObj = new HashMap<>();
+        responseObj.put("rollups", written);
+        return Response.ok(responseObj).build();
+    }
+
+    private static LocalDate parseDay(String name, String value) {
+        if (value == null || value.isEmpty()) {
+            return null;
+        }
+        try {
+            return LocalDate.parse(value);
+        } catch (DateTimeParseException e) {
+            Map<String, String> responseObj = new HashMap<>();
+            responseObj.put(name, "Must be a date in the form yyyy-MM-dd");
+            throw new RestServiceException("Bad Request", responseObj, Response.Status.BAD_REQUEST, e);
+        }
+    }
+}
@@ -0,0 +1,176 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.quickstarts.wfk.report;
+
+import org.jboss.quickstarts.wfk.booking.TaxiBooking;
+import org.jboss.quickstarts.wfk.report.BookingRollup.Dimension;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import javax.inject.Named;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * <p>This Service assumes the Control responsibility in the ECB(Entity-Control-Boundary) pattern.</p>
+ *
+ * <p>It keeps the {@link BookingRollup} rows in step with the bookings table, and answers reports from them. Every
+ * report reads one row per day, taxi or customer, whatever the number of bookings.</p>
+ *
+ * <p>The booking hooks are public so that {@link org.jboss.quickstarts.wfk.booking.BookingService} can call them in the
+ * same transaction as the change they record. The report methods are 'package' scope and should only be accessed by
+ * {@link ReportRestService}.</p>
+ *
+ * <p>Concurrent bookings meet in the UPDATEs of the rollup rows, which add to the stored counts; this class keeps no
+ * counts of its own.</p>
+ *
+ * @author Constance He
+ * @see ReportRepository
+ * @see RollupCompactor
+ */
+@ApplicationScoped
+public class ReportService {
+
+    // Bounds for open ended date ranges. Day keys are compared as strings, so these must sort like ISO dates.
+    private static final String FIRST_DAY = "0000-01-01";
+    private static final String LAST_DAY = "9999-12-31";
+
+    private static final long MINUTES_PER_DAY = 24 * 60;
+
+    @Inject
+    private @Named("logger") Logger log;
+
+    @Inject
+    private ReportRepository crud;
+
+    @Inject
+    private RollupRowCreator rows;
+
+    /**
+     * <p>Counts a newly created booking in the day, taxi and customer rollups, and its slot in the booked minutes of
+     * its taxi.</p>
+     *
+     * @param booking The booking that has just been persisted
+     */
+    public void bookingCreated(TaxiBooking booking) {
+        apply(booking, 1);
+    }
+
+    /**
+     * <p>Removes a deleted booking from the day, taxi and customer rollups.</p>
+     *
+     * @param booking The booking as it was stored before being deleted
+     */
+    public void bookingDeleted(TaxiBooking booking) {
+        apply(booking, -1);
+    }
+
+    private void apply(TaxiBooking booking, long delta) {
+        add(Dimension.DAY, ReportRepository.dayKey(booking.getDate()), delta);
+        add(Dimension.TAXI, booking.getTaxi().getId().toString(), delta);
+        add(Dimension.TAXI_MINUTES, booking.getTaxi().getId().toString(),
+                delta * ReportRepository.slotMinutes(booking.getStartTime(), booking.getEndTime()));
+        add(Dimension.CUSTOMER, booking.getCustomer().getId().toString(), delta);
+    }
+
+    private void add(Dimension dimension, String key, long delta) {
+        if (crud.add(dimension, key, delta)) {
+            return;
+        }
+        if (delta < 0) {
+            // Nothing was counted for this key yet, e.g. it predates the last rebuild. The next rebuild will fix it.
+            if (log.isLoggable(Level.FINE)) {
+                log.log(Level.FINE, "ReportService.add() - No rollup for {0}:{1} to decrement", new Object[]{dimension, key});
+            }
+            return;
+        }
+        rows.createIfAbsent(dimension, key);
+        crud.add(dimension, key, delta);
+    }
+
+    /**
+     * <p>Returns the number of bookings for each day between from and to inclusive. Days without bookings are left
+     * out.</p>
+     *
+     * @param from The first day to report on; or null for the first booked day
+     * @param to The last day to report on; or null for the last booked day
+     * @return The bookings per day, in date order
+     */
+    List<DailyBookings> bookingsPerDay(LocalDate from, LocalDate to) {
+        List<BookingRollup> rollups = (from == null && to == null)
+                ? crud.findByDimension(Dimension.DAY)
+                : crud.findRange(Dimension.DAY,
+                        from == null ? FIRST_DAY : from.toString(),
+                        to == null ? LAST_DAY : to.toString());
+
+        List<DailyBookings> days = new ArrayList<>(rollups.size());
+        for (BookingRollup rollup : rollups) {
+            days.add(new DailyBookings(rollup.getRollupKey(), rollup.getBookings()));
+        }
+        return days;
+    }
+
+    /**
+     * <p>Returns the number of bookings and the utilisation of every booked taxi.</p>
+     *
+     * <p>Utilisation is the number of hours the taxi is booked for, divided by the hours in the reporting period,
+     * which runs from the first to the last day that has any booking. Slots of one taxi never overlap, so a taxi
+     * booked around the clock on every one of those days has a utilisation of 1.0, and none has more.</p>
+     *
+     * @return The utilisation of each taxi
+     */
+    List<TaxiUtilisation> taxiUtilisation() {
+        String[] span = crud.findKeySpan(Dimension.DAY);
+        long days = span[0] == null ? 0 : ChronoUnit.DAYS.between(LocalDate.parse(span[0]), LocalDate.parse(span[1])) + 1;
+        long availableMinutes = days * MINUTES_PER_DAY;
+
+        Map<String, Long> bookedMinutes = new HashMap<>();
+        for (BookingRollup rollup : crud.findByDimension(Dimension.TAXI_MINUTES)) {
+            bookedMinutes.put(rollup.getRollupKey(), rollup.getBookings());
+        }
+
+        List<BookingRollup> rollups = crud.findByDimension(Dimension.TAXI);
+        List<TaxiUtilisation> taxis = new ArrayList<>(rollups.size());
+        for (BookingRollup rollup : rollups) {
+            long minutes = bookedMinutes.getOrDefault(rollup.getRollupKey(), 0L);
+            double utilisation = availableMinutes == 0 ? 0 : (double) minutes / availableMinutes;
+            taxis.add(new TaxiUtilisation(Long.valueOf(rollup.getRollupKey()), rollup.getBookings(), minutes / 60.0,
+                    utilisation));
+        }
+        return taxis;
+    }
+
+    /**
+     * <p>Returns the number of bookings held by every customer that has at least one.</p>
+     *
+     * @return The bookings per customer
+     */
+    List<CustomerBookings> bookingsPerCustomer() {
+        List<BookingRollup> rollups = crud.findByDimension(Dimension.CUSTOMER);
+        List<CustomerBookings> customers = new ArrayList<>(rollups.size());
+        for (BookingRollup rollup : rollups) {
+            customers.add(new CustomerBookings(Long.valueOf(rollup.getRollupKey()), rollup.getBookings()));
+        }
+        return customers;
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.quickstarts.wfk.report;
+
+import javax.ejb.Schedule;
+import javax.ejb.Singleton;
+import javax.ejb.Timer;
+import javax.inject.Inject;
+import javax.inject.Named;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * <p>Rebuilds the {@link BookingRollup} rows from the booking table.</p>
+ *
+ * <p>The rollups are normally maintained incrementally by {@link ReportService}. A rebuild runs every night to correct
+ * anything the incremental updates missed, and a few minutes after the first start on a new database, so that bookings
+ * loaded with the seed data are counted. Each node looks for that first rebuild every five minutes after it starts,
+ * without locking anything, and stops looking once the rollups have been rebuilt, by it or by another node.</p>
+ *
+ * <p>Every rebuild runs with the {@link RollupRebuild} row locked, so the nodes of a cluster never rebuild at the same
+ * time. A scheduled rebuild which finds that another node has just done the work skips it.</p>
+ *
+ * @author Constance He
+ */
+@Singleton
+public class RollupCompactor {
+
+    /** A nightly rebuild is skipped if another node rebuilt the rollups less than this long ago. */
+    private static final long NIGHTLY_AGE = TimeUnit.HOURS.toMillis(12);
+
+    @Inject
+    private @Named("logger") Logger log;
+
+    @Inject
+    private ReportRepository crud;
+
+    @Schedule(hour = "3", minute = "15", persistent = false)
+    void nightly() {
+        rebuildIfOlderThan(NIGHTLY_AGE);
+    }
+
+    @Schedule(hour = "*", minute = "*/5", persistent = false)
+    void firstRebuild(Timer timer) {
+        if (!crud.isRebuilt()) {
+            rebuildIfOlderThan(Long.MAX_VALUE);
+        }
+        // Only takes effect if the transaction commits, so a failed rebuild is tried again.
+        timer.cancel();
+    }
+
+    /**
+     * <p>Replaces every rollup with fresh counts in a single transaction, after any rebuild running on another node has
+     * finished.</p>
+     *
+     * @return The number of rollup rows written
+     */
+    public int rebuild() {
+        return rebuild(crud.lockRebuild());
+    }
+
+    private void rebuildIfOlderThan(long maxAge) {
+        RollupRebuild last = crud.lockRebuild();
+        if (last.getRebuiltAt() == null || System.currentTimeMillis() - last.getRebuiltAt() >= maxAge) {
+            rebuild(last);
+        }
+    }
+
+    private int rebuild(RollupRebuild last) {
+        long start = System.currentTimeMillis();
+        int written = crud.rebuild();
+        last.setRebuiltAt(System.currentTimeMillis());
+        if (log.isLoggable(Level.INFO)) {
+            log.log(Level.INFO, "RollupCompactor.rebuild() - Wrote {0} rollup rows in {1} ms",
+                    new Object[]{written, System.currentTimeMillis() - start});
+        }
+        return written;
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.quickstarts.wfk.report;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.NamedQuery;
+import javax.persistence.Table;
+import java.io.Serializable;
+
+/**
+ * <p>The single row which records when the {@link BookingRollup} rows were last rebuilt.</p>
+ *
+ * <p>{@link RollupCompactor} locks the row for the length of a rebuild, so that the nodes of a cluster take turns, and
+ * the ones which find a fresh rebuild behind the lock leave it at that.</p>
+ *
+ * @author Constance He
+ */
+@Entity
+@NamedQuery(name = RollupRebuild.FIND_REBUILT_AT, query = "SELECT r.rebuiltAt FROM RollupRebuild r WHERE r.id = :id")
+@Table(name = "rollup_rebuild")
+public class RollupRebuild implements Serializable {
+    /** Default value included to remove warning. Remove or modify at will. **/
+    private static final long serialVersionUID = 1L;
+
+    public static final String FIND_REBUILT_AT = "RollupRebuild.findRebuiltAt";
+
+    static final Long ID = 1L;
+
+    @Id
+    private Long id;
+
+    /** When the last rebuild finished, in milliseconds since the epoch; null if there has not been one. */
+    @Column(name = "rebuiltAt")
+    private Long rebuiltAt;
+
+    public RollupRebuild() {
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Long getRebuiltAt() {
+        return rebuiltAt;
+    }
+
+    public void setRebuiltAt(Long rebuiltAt) {
+        this.rebuiltAt = rebuiltAt;
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.quickstarts.wfk.report;
+
+import org.jboss.quickstarts.wfk.report.BookingRollup.Dimension;
+
+import javax.ejb.Stateless;
+import javax.ejb.TransactionAttribute;
+import javax.ejb.TransactionAttributeType;
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * <p>Creates empty rollup rows in a transaction of their own.</p>
+ *
+ * <p>The first booking for a new day, taxi or customer has no row to add to. Two such bookings may race to insert
+ * the same row, and the loser would hit the unique (dimension, rollupKey) constraint. Doing the insert here means only
+ * this small transaction fails, not the booking that triggered it. Either way the row exists afterwards and the
+ * caller can retry its UPDATE.</p>
+ *
+ * @author Constance He
+ * @see ReportService
+ */
+@Stateless
+public class RollupRowCreator {
+
+    @Inject
+    private @Named("logger") Logger log;
+
+    @Inject
+    private EntityManager em;
+
+    /**
+     * <p>Inserts a rollup row with a count of zero, unless one already exists.</p>
+     *
+     * @param dimension The dimension of the row
+     * @param key The key of the row
+     */
+    @TransactionAttribute(TransactionAttributeType.REQUIRES_NEW)
+    public void createIfAbsent(Dimension dimension, String key) {
+        try {
+            em.persist(new BookingRollup(dimension, key, 0));
+            em.flush();
+        } catch (PersistenceException e) {
+            // Another transaction created the row first. The container rolls this transaction back on return.
+            if (log.isLoggable(Level.FINE)) {
+                log.log(Level.FINE, "RollupRowCreator.createIfAbsent() - {0}:{1} already exists", new Object[]{dimension, key});
+            }
+        }
+    }
+}
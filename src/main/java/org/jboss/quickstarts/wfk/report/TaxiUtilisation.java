@@ -0,0 +1,81 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.quickstarts.wfk.report;
+
+import java.io.Serializable;
+
+/**
+ * <p>How busy one taxi is, as returned by <code>GET /reports/taxis</code>.</p>
+ *
+ * <p>Utilisation is the fraction of the hours in the reporting period for which the taxi is booked. Bookings of one
+ * taxi never overlap, so it is at most 1.0.</p>
+ *
+ * @author Constance He
+ */
+public class TaxiUtilisation implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private Long taxiId;
+
+    private long bookings;
+
+    private double bookedHours;
+
+    private double utilisation;
+
+    public TaxiUtilisation() {
+    }
+
+    public TaxiUtilisation(Long taxiId, long bookings, double bookedHours, double utilisation) {
+        this.taxiId = taxiId;
+        this.bookings = bookings;
+        this.bookedHours = bookedHours;
+        this.utilisation = utilisation;
+    }
+
+    public Long getTaxiId() {
+        return taxiId;
+    }
+
+    public void setTaxiId(Long taxiId) {
+        this.taxiId = taxiId;
+    }
+
+    public long getBookings() {
+        return bookings;
+    }
+
+    public void setBookings(long bookings) {
+        this.bookings = bookings;
+    }
+
+    public double getBookedHours() {
+        return bookedHours;
+    }
+
+    public void setBookedHours(double bookedHours) {
+        this.bookedHours = bookedHours;
+    }
+
+    public double getUtilisation() {
+        return utilisation;
+    }
+
+    public void setUtilisation(double utilisation) {
+        this.utilisation = utilisation;
+    }
+}
@@ -1,5 +1,7 @@
 package org.jboss.quickstarts.wfk.taxi;
 
+import org.jboss.quickstarts.wfk.util.QueryHints;
+
 import javax.persistence.*;
 import javax.validation.constraints.Max;
 import javax.validation.constraints.Min;
@@ -25,11 +27,18 @@ import java.io.Serializable;
  */
 @Entity
 @NamedQueries({
-        @NamedQuery(name = Taxi.FIND_ALL, query = "SELECT t FROM Taxi t ORDER BY t.registration ASC"),
-        @NamedQuery(name = Taxi.FIND_BY_REGISTRATION, query = "SELECT t FROM Taxi t WHERE t.registration = :registration")
+        @NamedQuery(name = Taxi.FIND_ALL, query = "SELECT t FROM Taxi t ORDER BY t.registration ASC",
+                hints = @QueryHint(name = QueryHints.READ_ONLY, value = "true")),
+        @NamedQuery(name = Taxi.FIND_BY_REGISTRATION, query = "SELECT t FROM Taxi t WHERE t.registration = :registration"),
+        @NamedQuery(name = Taxi.FIND_BY_IDS, query = "SELECT t FROM Taxi t WHERE t.id IN :ids",
+                hints = @QueryHint(name = QueryHints.READ_ONLY, value = "true")),
+        @NamedQuery(name = Taxi.UPDATE_IF_VERSION, query = "UPDATE Taxi t SET t.registration = :registration, t.seats = :seats, "
+                + "t.version = t.version + 1 WHERE t.id = :id "
+                + "AND (:version IS NULL OR t.version = :version)")
 })
 @XmlRootElement
-@Table(name = "taxi", uniqueConstraints = @UniqueConstraint(columnNames = "registration"))
+@Table(name = "taxi", uniqueConstraints = @UniqueConstraint(columnNames = "registration"),
+        indexes = @Index(name = "ix_taxi_seats", columnList = "seats, id"))
 public class Taxi implements Serializable {
     /** Default value included to remove warning. Remove or modify at will. **/
     private static final long serialVersionUID = 1L;
@@ -37,6 +46,8 @@ public class Taxi implements Serializable {
     public static final String FIND_ALL = "Taxi.findAll";
     public static final String FIND_BY_REGISTRATION = "Taxi.findByRegistration";
     public static final String FIND_BY_SEATS = "Taxi.findBySeats";
+    public static final String FIND_BY_IDS = "Taxi.findByIds";
+    public static final String UPDATE_IF_VERSION = "Taxi.updateIfVersion";
 
     @Id
     @GeneratedValue(strategy = GenerationType.TABLE)
@@ -53,6 +64,10 @@ public class Taxi implements Serializable {
     @Max(value = 20)
     private int seats;
 
+    @Version
+    @Column(name = "version")
+    private Long version;
+
     public Long getId() {
         return id;
     }
@@ -76,5 +91,13 @@ public class Taxi implements Serializable {
     public void setSeats(int seats) {
         this.seats = seats;
     }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
 }
 
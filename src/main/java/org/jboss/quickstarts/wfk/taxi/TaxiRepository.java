@@ -1,15 +1,21 @@
 package org.jboss.quickstarts.wfk.taxi;
 
+import javax.enterprise.context.ApplicationScoped;
 import javax.inject.Inject;
 import javax.inject.Named;
 import javax.persistence.EntityManager;
+import javax.persistence.NoResultException;
+import javax.persistence.OptimisticLockException;
 import javax.persistence.TypedQuery;
 import javax.validation.ConstraintViolationException;
 import javax.validation.ValidationException;
 
 import org.jboss.quickstarts.wfk.taxi.Taxi;
+import org.jboss.quickstarts.wfk.metrics.Timed;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
@@ -23,6 +29,8 @@ import java.util.logging.Logger;
  * @see Taxi
  * @see javax.persistence.EntityManager
  */
+@ApplicationScoped
+@Timed
 public class TaxiRepository {
 
     @Inject
@@ -65,6 +73,18 @@ public class TaxiRepository {
         return em.find(Taxi.class, id);
     }
 
+    /**
+     * <p>Returns the Taxi objects with the given ids, in no particular order, using a single query. Ids which do not
+     * belong to a Taxi are left out.</p>
+     *
+     * @param ids The ids of the Taxis to be returned, must not be empty
+     * @return List of Taxi objects
+     */
+    List<Taxi> findByIds(Collection<Long> ids) {
+        TypedQuery<Taxi> query = em.createNamedQuery(Taxi.FIND_BY_IDS, Taxi.class).setParameter("ids", ids);
+        return query.getResultList();
+    }
+
     /**
      * <p>Returns a single Taxi object, specified by a String registration.<p/>
      *
@@ -89,7 +109,7 @@ public class TaxiRepository {
      * @throws ConstraintViolationException, ValidationException, Exception
      */
     Taxi create(Taxi taxi) throws ConstraintViolationException, ValidationException, Exception {
-        log.info("TaxiRepository.create() - Creating " + taxi.getRegistration());
+        log.log(Level.INFO, "TaxiRepository.create() - Creating {0}", taxi.getRegistration());
 
         // Write the taxi to the database.
         em.persist(taxi);
@@ -100,22 +120,36 @@ public class TaxiRepository {
     /**
      * <p>Updates an existing Taxi object in the application database with the provided Taxi object.</p>
      *
-     * <p>{@link javax.persistence.EntityManager#merge(Object) merge(Object)} creates a new instance of your entity,
-     * copies the state from the supplied entity, and makes the new copy managed. The instance you pass in will not be
-     * managed (any changes you make will not be part of the transaction - unless you call merge again).</p>
-     *
-     * <p>merge(Object) however must have an object with the @Id already generated.</p>
+     * <p>The update is issued as a single UPDATE statement, so neither a prior read of the row nor a pessimistic lock
+     * is needed. If the provided Taxi carries a version, the update only applies while the stored row is still at
+     * it; if no row was changed we look the Taxi up once to tell a missing Taxi apart from a concurrent
+     * modification. Without a version the last writer wins, and the new version is not known.</p>
      *
-     * @param taxi The Taxi object to be merged with an existing Taxi
-     * @return The Taxi that has been merged
+     * @param taxi The Taxi object, carrying the version it was read at if any, to be written over the existing Taxi
+     * @return The Taxi that has been updated, with its new version if it was given one
+     * @throws NoResultException If there is no Taxi with the given id
+     * @throws OptimisticLockException If the Taxi has been changed since the provided version was read
      * @throws ConstraintViolationException, ValidationException, Exception
      */
     Taxi update(Taxi taxi) throws ConstraintViolationException, ValidationException, Exception {
-        log.info("TaxiRepository.update() - Updating " + taxi.getRegistration());
+        log.log(Level.INFO, "TaxiRepository.update() - Updating {0}", taxi.getRegistration());
 
-        // Either update the taxi or add it if it can't be found.
-        em.merge(taxi);
+        int updated = em.createNamedQuery(Taxi.UPDATE_IF_VERSION)
+                .setParameter("registration", taxi.getRegistration())
+                .setParameter("seats", taxi.getSeats())
+                .setParameter("id", taxi.getId())
+                .setParameter("version", taxi.getVersion())
+                .executeUpdate();
+
+        if (updated == 0) {
+            if (taxi.getVersion() == null || em.find(Taxi.class, taxi.getId()) == null) {
+                throw new NoResultException("No Taxi with the id " + taxi.getId() + " was found");
+            }
+            throw new OptimisticLockException("Taxi " + taxi.getId() + " is no longer at version " + taxi.getVersion(),
+                    null, taxi);
+        }
 
+        taxi.setVersion(taxi.getVersion() == null ? null : taxi.getVersion() + 1);
         return taxi;
     }
     
@@ -127,12 +161,16 @@ public class TaxiRepository {
      * @throws Exception
      */
     Taxi delete(Taxi taxi) throws Exception {
-        log.info("TaxiRepository.delete() - Deleting " + taxi.getRegistration());
+        log.log(Level.INFO, "TaxiRepository.delete() - Deleting {0}", taxi.getRegistration());
         
         // List<Booking> bookings = service.findAllByTaxiId(taxi.getId());
         
         
         if (taxi.getId() != null) {
+            // Nothing to delete if it is gone already, e.g. deleted by a concurrent request
+            if (em.find(Taxi.class, taxi.getId()) == null) {
+                return null;
+            }
             /*
              * The Hibernate session (aka EntityManager's persistent context) is closed and invalidated after the commit(), 
              * because it is bound to a transaction. The object goes into a detached status. If you open a new persistent 
@@ -21,21 +21,34 @@ import io.swagger.annotations.*;
 import org.jboss.quickstarts.wfk.booking.TaxiBooking;
 import org.jboss.quickstarts.wfk.booking.BookingService;
 import org.jboss.quickstarts.wfk.taxi.Taxi;
+import org.jboss.quickstarts.wfk.feed.ChangeEvent;
+import org.jboss.quickstarts.wfk.util.EntityTags;
+import org.jboss.quickstarts.wfk.util.MultiGet;
+import org.jboss.quickstarts.wfk.util.ResponseCache;
+import org.jboss.quickstarts.wfk.util.BinaryMediaTypes;
 import org.jboss.quickstarts.wfk.util.RestServiceException;
+import org.jboss.quickstarts.wfk.util.SparseFieldsets;
 import org.jboss.resteasy.annotations.cache.Cache;
 
 import javax.ejb.Stateless;
+import javax.ejb.TransactionAttribute;
+import javax.ejb.TransactionAttributeType;
 import javax.inject.Inject;
 import javax.inject.Named;
 import javax.persistence.NoResultException;
+import javax.persistence.OptimisticLockException;
 import javax.validation.ConstraintViolation;
 import javax.validation.ConstraintViolationException;
 import javax.ws.rs.*;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Request;
 import javax.ws.rs.core.Response;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
@@ -56,8 +69,9 @@ import java.util.logging.Logger;
  * @see javax.ws.rs.core.Response
  */
 @Path("/taxis")
-@Consumes(MediaType.APPLICATION_JSON)
-@Produces(MediaType.APPLICATION_JSON)
+@Consumes({MediaType.APPLICATION_JSON, BinaryMediaTypes.APPLICATION_CBOR, BinaryMediaTypes.APPLICATION_SMILE})
+@Produces({MediaType.APPLICATION_JSON, BinaryMediaTypes.APPLICATION_CBOR, BinaryMediaTypes.APPLICATION_SMILE})
+@SparseFieldsets
 @Api(value = "/taxis", description = "Operations about taxis")
 @Stateless
 public class TaxiRestService {
@@ -69,6 +83,9 @@ public class TaxiRestService {
 
     @Inject
     private BookingService service2;
+
+    @Inject
+    private ResponseCache cache;
     
     /**
      * <p>Return all the Taxis.  They are sorted alphabetically by name.</p>
@@ -76,15 +93,29 @@ public class TaxiRestService {
      * <p>Examples: <pre>GET "api/taxis" -H "accept: application/json"</pre>
      * </p>
      *
+     * <p>With the <code>ids</code> query parameter only the Taxis with those ids are returned, in the order
+     * given and with null for every id that was not found, e.g. <pre>GET "api/taxis?ids=10003,10005"</pre></p>
+     *
+     * @param ids The ids of the Taxis to return, comma separated or repeated; optional
      * @return A Response containing a list of Taxis
      */
     @GET
-    @ApiOperation(value = "Fetch all Taxis", notes = "Returns a JSON array of all stored Taxi objects.")
-    public Response retrieveAllTaxis() {
-        //Create an empty collection to contain the intersection of Taxis to be returned
-        List<Taxi> taxis = service.findAllOrderedByRegistration();
-
-        return Response.ok(taxis).build();
+    @TransactionAttribute(TransactionAttributeType.SUPPORTS)
+    @ApiOperation(value = "Fetch all Taxis, or those with the given ids",
+            notes = "Returns a JSON array of all stored Taxi objects. If ids are given, returns the Taxi with each id "
+                    + "in the order requested, or null where there is none.")
+    public Response retrieveAllTaxis(
+            @ApiParam(value = "Ids of the Taxis to be fetched, comma separated")
+            @QueryParam(MultiGet.IDS)
+            List<String> ids,
+            @Context Request request) {
+
+        List<Long> requested = MultiGet.parseIds(ids);
+        if (!requested.isEmpty()) {
+            return cache.batch(request, ChangeEvent.TAXI, requested, service::findByIds, Taxi::getId,
+                    taxi -> EntityTags.of(taxi.getVersion())).build();
+        }
+        return cache.list(request, ChangeEvent.TAXI, "all", service::findAllOrderedByRegistration).build();
     }
 
     
@@ -97,6 +128,7 @@ public class TaxiRestService {
      * @return A Response containing a single Taxi
      */
     @GET
+    @TransactionAttribute(TransactionAttributeType.SUPPORTS)
     @Cache
     @Path("/{id:[0-9]+}")
     @ApiOperation(
@@ -110,16 +142,16 @@ public class TaxiRestService {
     public Response retrieveTaxiById(
             @ApiParam(value = "Id of Taxi to be fetched", allowableValues = "range[0, infinity]", required = true)
             @PathParam("id")
-            long id) {
+            long id,
+            @Context Request request) {
 
-        Taxi taxi = service.findById(id);
-        if (taxi == null) {
+        Response.ResponseBuilder builder = cache.entity(request, ChangeEvent.TAXI, String.valueOf(id),
+                () -> service.findById(id), taxi -> EntityTags.of(taxi.getVersion()));
+        if (builder == null) {
             // Verify that the taxi exists. Return 404, if not present.
             throw new RestServiceException("No Taxi with the id " + id + " was found!", Response.Status.NOT_FOUND);
         }
-        log.info("findById " + id + ": found Taxi = " + taxi.toString());
-
-        return Response.ok(taxi).build();
+        return builder.build();
     }
 
     /**
@@ -134,6 +166,7 @@ public class TaxiRestService {
      * @return A Response containing a single Taxi
      */
     @GET
+    @TransactionAttribute(TransactionAttributeType.SUPPORTS)
     @Cache
    // @Path("/{registration:^[A-Za-z0-9]{7}$}")
     @Path("/{registration:[A-Za-z0-9]+}")
@@ -148,17 +181,18 @@ public class TaxiRestService {
     public Response retrieveTaxiByRegistration(
             @ApiParam(value = "Registration of Taxi to be fetched", required = true)
             @PathParam("registration")
-            String registration) {
+            String registration,
+            @Context Request request) {
 
-        Taxi taxi;
+        Response.ResponseBuilder builder;
         try {
-        	taxi = service.findByRegistration(registration);
+            builder = cache.entity(request, ChangeEvent.TAXI, "registration:" + registration,
+                    () -> service.findByRegistration(registration), taxi -> EntityTags.of(taxi.getVersion()));
         } catch (NoResultException e) {
             // Verify that the Taxi exists. Return 404, if not present.
             throw new RestServiceException("No Taxi with the registration " + registration + " was found!", Response.Status.NOT_FOUND);
         }
-        log.info("findByRegistration " + registration + ": found Taxi = " + taxi.toString());
-        return Response.ok(taxi).build();
+        return builder.build();
     }
     
     
@@ -213,7 +247,7 @@ public class TaxiRestService {
             throw new RestServiceException(e);
         }
 
-        log.info("createTaxi completed. Taxi = " + taxi.toString());
+        log.log(Level.INFO, "createTaxi completed. Taxi id = {0}", taxi.getId());
         return builder.build();
     }
 
@@ -236,12 +270,16 @@ public class TaxiRestService {
             @ApiResponse(code = 400, message = "Invalid Taxi supplied in request body"),
             @ApiResponse(code = 404, message = "Taxi with id not found"),
             @ApiResponse(code = 409, message = "Taxi details supplied in request body conflict with another existing Taxi"),
+            @ApiResponse(code = 412, message = "Taxi has been modified since the version given in If-Match"),
             @ApiResponse(code = 500, message = "An unexpected error occurred whilst processing the request")
     })
     public Response updateTaxi(
             @ApiParam(value = "Id of Taxi to be updated", allowableValues = "range[0, infinity]", required = true)
             @PathParam("id")
             long id,
+            @ApiParam(value = "ETag of the version of the Taxi being replaced; the update fails with 412 if it is stale")
+            @HeaderParam(HttpHeaders.IF_MATCH)
+            String ifMatch,
             @ApiParam(value = "JSON representation of Taxi object to be updated in the database", required = true)
             Taxi taxi) {
 
@@ -257,9 +295,10 @@ public class TaxiRestService {
                     responseObj, Response.Status.CONFLICT);
         }
 
-        if (service.findById(taxi.getId()) == null) {
-            // Verify that the taxi exists. Return 404, if not present.
-            throw new RestServiceException("No Taxi with the id " + id + " was found!", Response.Status.NOT_FOUND);
+        // A version from If-Match takes precedence over one sent in the request body.
+        Long expectedVersion = EntityTags.parseIfMatch(ifMatch);
+        if (expectedVersion != null) {
+            taxi.setVersion(expectedVersion);
         }
 
         Response.ResponseBuilder builder;
@@ -269,7 +308,12 @@ public class TaxiRestService {
             service.update(taxi);
 
             // Create an OK Response and pass the taxi back in case it is needed.
+            // Clients which do not say which version they are replacing get the old unconditional behaviour. The
+            // version the Taxi ends up at is not known then, so there is no ETag to give them.
             builder = Response.ok(taxi);
+            if (taxi.getVersion() != null) {
+                builder.tag(EntityTags.of(taxi.getVersion()));
+            }
 
 
         } catch (ConstraintViolationException ce) {
@@ -280,12 +324,21 @@ public class TaxiRestService {
                 responseObj.put(violation.getPropertyPath().toString(), violation.getMessage());
             }
             throw new RestServiceException("Bad Request", responseObj, Response.Status.BAD_REQUEST, ce);
+        } catch (NoResultException e) {
+            // The Taxi was deleted, or never existed. Return 404.
+            throw new RestServiceException("No Taxi with the id " + id + " was found!", Response.Status.NOT_FOUND, e);
+        } catch (OptimisticLockException e) {
+            // Somebody else updated the Taxi after this client read it.
+            Map<String, String> responseObj = new HashMap<>();
+            responseObj.put("version", "The Taxi has been modified since it was read, please fetch it again");
+            throw new RestServiceException("Taxi has been modified by another request", responseObj,
+                    expectedVersion != null ? Response.Status.PRECONDITION_FAILED : Response.Status.CONFLICT, e);
         } catch (Exception e) {
             // Handle generic exceptions
             throw new RestServiceException(e);
         }
 
-        log.info("updateTaxi completed. Taxi = " + taxi.toString());
+        log.log(Level.INFO, "updateTaxi completed. Taxi id = {0}", taxi.getId());
         return builder.build();
     }
 
@@ -334,7 +387,7 @@ public class TaxiRestService {
             // Handle generic exceptions
             throw new RestServiceException(e);
         }
-        log.info("deleteTaxi completed. Taxi = " + taxi.toString());
+        log.log(Level.INFO, "deleteTaxi completed. Taxi id = {0}", taxi.getId());
         return builder.build();
     }
 
@@ -17,14 +17,18 @@
 package org.jboss.quickstarts.wfk.taxi;
 
 import org.jboss.quickstarts.wfk.taxi.Taxi;
-import org.jboss.resteasy.client.jaxrs.ResteasyClientBuilder;
+import org.jboss.quickstarts.wfk.feed.ChangeEvent;
 
-import javax.enterprise.context.Dependent;
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Event;
 import javax.inject.Inject;
 import javax.inject.Named;
 import javax.validation.ConstraintViolationException;
 import javax.validation.ValidationException;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
@@ -43,8 +47,7 @@ import java.util.logging.Logger;
  * @see TaxiValidator
  * @see TaxiRepository
  */
-//The @Dependent is the default scope is listed here so that you know what scope is being used.
-@Dependent
+@ApplicationScoped
 public class TaxiService {
 
     @Inject
@@ -56,12 +59,8 @@ public class TaxiService {
     @Inject
     private TaxiRepository crud;
 
-    /**
-     * <p>Create a new client which will be used for our outgoing REST client communication</p>
-     */
-    public TaxiService() {
-        new ResteasyClientBuilder().build();
-    }
+    @Inject
+    private Event<ChangeEvent> changes;
 
     /**
      * <p>Returns a List of all persisted {@link Taxi} objects, sorted alphabetically by registration.<p/>
@@ -82,6 +81,16 @@ public class TaxiService {
         return crud.findById(id);
     }
 
+    /**
+     * <p>Returns the Taxi objects with the given ids, in no particular order. Missing ids are left out.<p/>
+     *
+     * @param ids The ids of the Taxis to be returned
+     * @return List of Taxi objects
+     */
+    List<Taxi> findByIds(Collection<Long> ids) {
+        return ids.isEmpty() ? Collections.<Taxi>emptyList() : crud.findByIds(ids);
+    }
+
     /**
      * <p>Returns a single Taxi object, specified by a String registration.</p>
      *
@@ -104,13 +113,16 @@ public class TaxiService {
      * @throws ConstraintViolationException, ValidationException, Exception
      */
     public Taxi create(Taxi taxi) throws ConstraintViolationException, ValidationException, Exception {
-        log.info("TaxiService.create() - Creating " + taxi.getRegistration());
+        log.log(Level.INFO, "TaxiService.create() - Creating {0}", taxi.getRegistration());
         
         // Check to make sure the data fits with the parameters in the Taxi model and passes validation.
         validator.validateTaxi(taxi);
 
         // Write the taxi to the database.
-        return crud.create(taxi);
+        Taxi createdTaxi = crud.create(taxi);
+        changes.fire(new ChangeEvent(ChangeEvent.TAXI, createdTaxi.getId(), ChangeEvent.Action.CREATE));
+
+        return createdTaxi;
     }
 
     /**
@@ -123,13 +135,16 @@ public class TaxiService {
      * @throws ConstraintViolationException, ValidationException, Exception
      */
     Taxi update(Taxi taxi) throws ConstraintViolationException, ValidationException, Exception {
-        log.info("TaxiService.update() - Updating " + taxi.getRegistration());
+        log.log(Level.INFO, "TaxiService.update() - Updating {0}", taxi.getRegistration());
         
         // Check to make sure the data fits with the parameters in the Taxi model and passes validation.
         validator.validateTaxi(taxi);
 
         // Either update the taxi or add it if it can't be found.
-        return crud.update(taxi);
+        Taxi updatedTaxi = crud.update(taxi);
+        changes.fire(new ChangeEvent(ChangeEvent.TAXI, updatedTaxi.getId(), ChangeEvent.Action.UPDATE));
+
+        return updatedTaxi;
     }
     
     /**
@@ -140,12 +155,15 @@ public class TaxiService {
      * @throws Exception
      */
     Taxi delete(Taxi taxi) throws Exception {
-        log.info("delete() - Deleting " + taxi.toString());
+        log.log(Level.INFO, "delete() - Deleting taxi {0}", taxi.getId());
 
         Taxi deletedTaxi = null;
 
         if (taxi.getId() != null) {
             deletedTaxi = crud.delete(taxi);
+            if (deletedTaxi != null) {
+                changes.fire(new ChangeEvent(ChangeEvent.TAXI, taxi.getId(), ChangeEvent.Action.DELETE));
+            }
         } else {
             log.info("delete() - No ID was found so can't Delete.");
         }
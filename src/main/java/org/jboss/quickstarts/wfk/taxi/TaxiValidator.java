@@ -1,13 +1,17 @@
 package org.jboss.quickstarts.wfk.taxi;
 
+import org.jboss.quickstarts.wfk.util.BusinessRuleException;
+import org.jboss.quickstarts.wfk.util.Stackless;
+
+import javax.enterprise.context.ApplicationScoped;
 import javax.inject.Inject;
 import javax.persistence.NoResultException;
 import javax.validation.ConstraintViolation;
 import javax.validation.ConstraintViolationException;
 import javax.validation.ValidationException;
 import javax.validation.Validator;
+import javax.ws.rs.core.Response;
 
-import java.util.HashSet;
 import java.util.Set;
 
 /**
@@ -18,6 +22,7 @@ import java.util.Set;
  * @see TaxiRepository
  * @see javax.validation.Validator
  */
+@ApplicationScoped
 public class TaxiValidator {
     @Inject
     private Validator validator;
@@ -43,12 +48,13 @@ public class TaxiValidator {
         Set<ConstraintViolation<Taxi>> violations = validator.validate(taxi);
 
         if (!violations.isEmpty()) {
-            throw new ConstraintViolationException(new HashSet<ConstraintViolation<?>>(violations));
+            throw Stackless.constraintViolations(violations);
         }
         
         // Check the uniqueness of the registration
         if (registrationAlreadyExists(taxi.getRegistration(), taxi.getId())) {
-            throw new ValidationException("Unique registration Violation");
+            throw new BusinessRuleException("Unique registration Violation", Response.Status.CONFLICT,
+                    "registration", "That registration is already used, please use a unique registration");
         }
     }
     
@@ -0,0 +1,64 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.quickstarts.wfk.trace;
+
+import java.util.UUID;
+import java.util.regex.Pattern;
+
+/**
+ * <p>The correlation ID of the request being handled on the current thread.</p>
+ *
+ * <p>The ID is taken from the <code>X-Correlation-ID</code> request header when the caller sends a usable one, and
+ * generated otherwise (see {@link CorrelationFilter}). It is sent on to every upstream service we call, returned in the
+ * response, prefixed to our log records and attached to the {@link Span}s of the request.</p>
+ *
+ * @author Constance He
+ */
+public final class Correlation {
+
+    public static final String HEADER = "X-Correlation-ID";
+
+    private static final Pattern VALID = Pattern.compile("[A-Za-z0-9._:-]{1,64}");
+
+    private static final ThreadLocal<String> CURRENT = new ThreadLocal<>();
+
+    private Correlation() {
+    }
+
+    /**
+     * @return The correlation ID of the current request; or null outside of a request
+     */
+    public static String current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * <p>Makes the given ID, or a new one if it is missing or not safe to echo into headers and logs, current.</p>
+     *
+     * @param requested The ID sent by the caller; may be null
+     * @return The ID now current
+     */
+    static String begin(String requested) {
+        String id = requested != null && VALID.matcher(requested).matches() ? requested : UUID.randomUUID().toString();
+        CURRENT.set(id);
+        return id;
+    }
+
+    static void end() {
+        CURRENT.remove();
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.quickstarts.wfk.trace;
+
+import javax.annotation.Priority;
+import javax.inject.Inject;
+import javax.ws.rs.Priorities;
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.container.ContainerRequestFilter;
+import javax.ws.rs.container.ContainerResponseContext;
+import javax.ws.rs.container.ContainerResponseFilter;
+import javax.ws.rs.container.PreMatching;
+import javax.ws.rs.container.ResourceInfo;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.ext.Provider;
+
+/**
+ * <p>Makes a {@link Correlation} ID current for every request, returns it in the <code>X-Correlation-ID</code>
+ * response header and records the whole request as a {@link Span} named after the matched resource method.</p>
+ *
+ * @author Constance He
+ */
+@Provider
+@PreMatching
+// Before everything else, so that all log records of the request carry the ID
+@Priority(Priorities.AUTHENTICATION - 1000)
+public class CorrelationFilter implements ContainerRequestFilter, ContainerResponseFilter {
+
+    private static final String STARTED = CorrelationFilter.class.getName() + ".started";
+
+    @Inject
+    private SpanRecorder spans;
+
+    @Context
+    private ResourceInfo resourceInfo;
+
+    @Override
+    public void filter(ContainerRequestContext requestContext) {
+        // Always replaces the ID; a request which failed before its response filter ran may have left one behind
+        Correlation.begin(requestContext.getHeaderString(Correlation.HEADER));
+        requestContext.setProperty(STARTED, System.nanoTime());
+    }
+
+    @Override
+    public void filter(ContainerRequestContext requestContext, ContainerResponseContext responseContext) {
+        String id = Correlation.current();
+        if (id == null) {
+            return;
+        }
+
+        responseContext.getHeaders().putSingle(Correlation.HEADER, id);
+        Object started = requestContext.getProperty(STARTED);
+        if (started != null) {
+            String leg = resourceInfo.getResourceMethod() == null ? "request"
+                    : resourceInfo.getResourceClass().getSimpleName() + "." + resourceInfo.getResourceMethod().getName();
+            spans.record(leg, (Long) started, String.valueOf(responseContext.getStatus()));
+        }
+        Correlation.end();
+    }
+}
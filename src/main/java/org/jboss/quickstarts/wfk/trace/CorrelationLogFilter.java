@@ -0,0 +1,48 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.quickstarts.wfk.trace;
+
+import java.util.logging.Filter;
+import java.util.logging.LogRecord;
+
+/**
+ * <p>Prefixes the message of every log record written while a request is handled with its {@link Correlation} ID,
+ * e.g. <code>[3f2c...] hotel booking created: ...</code>, then hands the record on to the filter it replaced.</p>
+ *
+ * @author Constance He
+ */
+public class CorrelationLogFilter implements Filter {
+
+    private final Filter next;
+
+    public CorrelationLogFilter(Filter next) {
+        this.next = next;
+    }
+
+    @Override
+    public boolean isLoggable(LogRecord record) {
+        if (next != null && !next.isLoggable(record)) {
+            return false;
+        }
+
+        String id = Correlation.current();
+        if (id != null && record.getMessage() != null) {
+            record.setMessage("[" + id + "] " + record.getMessage());
+        }
+        return true;
+    }
+}
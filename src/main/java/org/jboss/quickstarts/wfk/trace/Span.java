@@ -0,0 +1,89 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.quickstarts.wfk.trace;
+
+import java.time.Instant;
+
+/**
+ * <p>The timing of one leg of a request, e.g. the call to the hotel agency made while creating a travel agent
+ * booking.</p>
+ *
+ * @author Constance He
+ * @see SpanRecorder
+ */
+public class Span {
+
+    private final String correlationId;
+
+    private final String leg;
+
+    private final long startedAt;
+
+    private final long micros;
+
+    private final String outcome;
+
+    Span(String correlationId, String leg, long startedAt, long micros, String outcome) {
+        this.correlationId = correlationId;
+        this.leg = leg;
+        this.startedAt = startedAt;
+        this.micros = micros;
+        this.outcome = outcome;
+    }
+
+    public String getCorrelationId() {
+        return correlationId;
+    }
+
+    public String getLeg() {
+        return leg;
+    }
+
+    /**
+     * @return When the leg started, as an ISO-8601 instant
+     */
+    public String getStartedAt() {
+        return Instant.ofEpochMilli(startedAt).toString();
+    }
+
+    /**
+     * @return When the leg ended, as an ISO-8601 instant
+     */
+    public String getEndedAt() {
+        return Instant.ofEpochMilli(startedAt + micros / 1000).toString();
+    }
+
+    public long getMicros() {
+        return micros;
+    }
+
+    /**
+     * @return The status code of the response, "timeout", or "error"; for local legs "ok" or "error"
+     */
+    public String getOutcome() {
+        return outcome;
+    }
+
+    long getStartedAtMillis() {
+        return startedAt;
+    }
+
+    @Override
+    public String toString() {
+        return correlationId + " " + leg + " " + micros + "us " + outcome;
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.quickstarts.wfk.trace;
+
+import javax.enterprise.context.ApplicationScoped;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>Keeps the most recent {@link Span}s in memory so the legs of a slow request can be looked up by its correlation
+ * ID, see <code>/api/traces/{id}</code>.</p>
+ *
+ * <p>The buffer holds the last <code>spans.capacity</code> spans (10000 by default) across all requests; older spans
+ * are overwritten. Spans are only recorded while a request is being handled, i.e. while there is a
+ * {@link Correlation#current() correlation ID}.</p>
+ *
+ * @author Constance He
+ */
+@ApplicationScoped
+public class SpanRecorder {
+
+    private static final int CAPACITY = Math.max(1, Integer.getInteger("spans.capacity", 10000));
+
+    private final Span[] ring = new Span[CAPACITY];
+
+    private long next;
+
+    /**
+     * <p>Records a leg of the current request which has just ended.</p>
+     *
+     * @param leg The name of the leg, e.g. "hotel POST /bookings"
+     * @param startedNanos The {@link System#nanoTime()} at which the leg started
+     * @param outcome The status code, "ok", "timeout" or "error"
+     */
+    public void record(String leg, long startedNanos, String outcome) {
+        String correlationId = Correlation.current();
+        if (correlationId == null) {
+            return;
+        }
+
+        long micros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startedNanos);
+        Span span = new Span(correlationId, leg, System.currentTimeMillis() - micros / 1000, micros, outcome);
+        synchronized (ring) {
+            ring[(int) (next++ % CAPACITY)] = span;
+        }
+    }
+
+    /**
+     * <p>Starts timing a leg of the current request. Use it in a try-with-resources block and call
+     * {@link Leg#succeeded()} at its end; a leg left by an exception is recorded as "error".</p>
+     *
+     * @param leg The name of the leg, e.g. "taxi"
+     * @return The running leg
+     */
+    public Leg begin(String leg) {
+        return new Leg(leg);
+    }
+
+    /**
+     * @param correlationId The ID of a request
+     * @return The spans of the request still in the buffer, in the order they started
+     */
+    public List<Span> find(String correlationId) {
+        List<Span> spans = new ArrayList<>();
+        synchronized (ring) {
+            for (Span span : ring) {
+                if (span != null && span.getCorrelationId().equals(correlationId)) {
+                    spans.add(span);
+                }
+            }
+        }
+        spans.sort(Comparator.comparingLong(Span::getStartedAtMillis));
+        return spans;
+    }
+
+    /**
+     * A leg being timed, see {@link #begin}.
+     */
+    public final class Leg implements AutoCloseable {
+
+        private final String name;
+
+        private final long started = System.nanoTime();
+
+        private String outcome = "error";
+
+        private Leg(String name) {
+            this.name = name;
+        }
+
+        public void succeeded() {
+            outcome = "ok";
+        }
+
+        @Override
+        public void close() {
+            record(name, started, outcome);
+        }
+    }
+}
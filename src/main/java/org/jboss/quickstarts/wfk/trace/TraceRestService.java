@@ -0,0 +1,84 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.quickstarts.wfk.trace;
+
+import io.swagger.annotations.Api;
+import io.swagger.annotations.ApiOperation;
+import io.swagger.annotations.ApiParam;
+import io.swagger.annotations.ApiResponse;
+import io.swagger.annotations.ApiResponses;
+import org.jboss.quickstarts.wfk.util.RestServiceException;
+
+import javax.ejb.Stateless;
+import javax.ejb.TransactionAttribute;
+import javax.ejb.TransactionAttributeType;
+import javax.inject.Inject;
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import java.util.List;
+
+/**
+ * <p>This class produces a RESTful service exposing the recent {@link Span}s of a request, looked up by the correlation
+ * ID returned in its <code>X-Correlation-ID</code> response header.</p>
+ *
+ * <p>The full path for accessing endpoints defined herein is: api/traces/*</p>
+ *
+ * @author Constance He
+ * @see SpanRecorder
+ */
+@Path("/traces")
+@Produces(MediaType.APPLICATION_JSON)
+@Api(value = "/traces", description = "Request traces")
+@Stateless
+public class TraceRestService {
+
+    @Inject
+    private SpanRecorder spans;
+
+    /**
+     * <p>Return the legs of a recent request: the request itself, each call to an upstream service and, for travel
+     * agent bookings, each step of the booking.</p>
+     *
+     * <p>Example: <pre>GET api/traces/3f2c9a6e-...</pre></p>
+     *
+     * @param id The correlation ID of the request
+     * @return A Response containing the spans of the request, in the order they started
+     */
+    @GET
+    @Path("/{id}")
+    @TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+    @ApiOperation(value = "Fetch the legs of a recent request, in the order they started")
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = "The spans of the request"),
+            @ApiResponse(code = 404, message = "No spans of the request are left in the buffer")
+    })
+    public Response retrieveTrace(
+            @ApiParam(value = "Correlation ID of the request", required = true)
+            @PathParam("id")
+            String id) {
+
+        List<Span> trace = spans.find(id);
+        if (trace.isEmpty()) {
+            throw new RestServiceException("No trace with correlation ID " + id + " was found", Response.Status.NOT_FOUND);
+        }
+        return Response.ok(trace).build();
+    }
+}
@@ -0,0 +1,234 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.quickstarts.wfk.travelAgency;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import org.jboss.quickstarts.wfk.flight.FlightService;
+import org.jboss.quickstarts.wfk.hotel.HotelService;
+import org.jboss.quickstarts.wfk.util.RestServiceException;
+import org.jboss.quickstarts.wfk.util.UpstreamClients;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import javax.enterprise.concurrent.ManagedExecutorService;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.ws.rs.core.Response;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * <p>Keeps the hotel and flight listings of the partner agencies, so the travel agent booking form does not cost two
+ * upstream round trips every time it is opened.</p>
+ *
+ * <p>A listing is served from memory for <code>catalog.ttl</code> seconds (60 by default) after it was fetched. For
+ * <code>catalog.stale</code> seconds after that (600 by default) it is still served, while a fresh copy is fetched in
+ * the background; only after that does a request wait for the partner. Concurrent requests never fetch the same listing
+ * twice: they all wait for, or are served while, the one fetch in progress, which runs on the managed executor.</p>
+ *
+ * <p>If a fetch fails, the last listing is served for as long as there is one, without waiting for the partner again,
+ * and no new fetch is started for <code>catalog.backoff</code> seconds (5 by default). The pause doubles with every
+ * further failure, up to five minutes, so a partner which is down is neither hammered nor allowed to hold up every
+ * request for its read timeout.</p>
+ *
+ * @author Constance He
+ * @see TravelCatalogRestService
+ */
+@ApplicationScoped
+public class CatalogCache {
+
+    private static final long TTL = TimeUnit.SECONDS.toMillis(Long.getLong("catalog.ttl", 60));
+
+    private static final long STALE = TimeUnit.SECONDS.toMillis(Long.getLong("catalog.stale", 600));
+
+    private static final long BACKOFF = TimeUnit.SECONDS.toMillis(Long.getLong("catalog.backoff", 5));
+
+    private static final long MAX_BACKOFF = TimeUnit.MINUTES.toMillis(5);
+
+    @Inject
+    private @Named("logger") Logger log;
+
+    @Inject
+    private UpstreamClients clients;
+
+    @Resource
+    private ManagedExecutorService executor;
+
+    private final Listing hotels = new Listing();
+
+    private final Listing flights = new Listing();
+
+    private HotelService hotelService;
+
+    private FlightService flightService;
+
+    @PostConstruct
+    void init() {
+        hotelService = clients.client(UpstreamClients.HOTEL).target(TravelAgencyService.HOTEL_URL)
+                .proxy(HotelService.class);
+        flightService = clients.client(UpstreamClients.FLIGHT).target(TravelAgencyService.FLIGHT_URL)
+                .proxy(FlightService.class);
+    }
+
+    /**
+     * @return The hotels of the hotel agency, as it lists them
+     * @throws RestServiceException 502 Bad Gateway if they have never been fetched and cannot be now
+     */
+    JsonNode hotels() {
+        return get(UpstreamClients.HOTEL, hotels, () -> read(hotelService.listHotels()));
+    }
+
+    /**
+     * @return The flights of the flight agency, as it lists them
+     * @throws RestServiceException 502 Bad Gateway if they have never been fetched and cannot be now
+     */
+    JsonNode flights() {
+        return get(UpstreamClients.FLIGHT, flights, () -> read(flightService.listFlights()));
+    }
+
+    /**
+     * <p>Fetches the listings which are not held yet, opening the connections to the partners before the first request
+     * needs them. A partner which cannot be reached now is simply tried again by that request.</p>
+     */
+    public void warm() {
+        for (Supplier<JsonNode> listing : Arrays.<Supplier<JsonNode>>asList(this::hotels, this::flights)) {
+            try {
+                listing.get();
+            } catch (RestServiceException e) {
+                // Already logged by the failed fetch
+            }
+        }
+    }
+
+    private static JsonNode read(Response response) {
+        try {
+            if (response.getStatus() != Response.Status.OK.getStatusCode()) {
+                throw new IllegalStateException("Unexpected response code: " + response.getStatus());
+            }
+            return response.readEntity(JsonNode.class);
+        } finally {
+            response.close();
+        }
+    }
+
+    private JsonNode get(String upstream, Listing listing, Supplier<JsonNode> fetch) {
+        Copy copy = listing.copy;
+        long now = System.currentTimeMillis();
+        long age = copy == null ? Long.MAX_VALUE : now - copy.fetchedAt;
+        if (age < TTL) {
+            return copy.items;
+        }
+
+        CompletableFuture<JsonNode> fetching = refresh(upstream, listing, fetch, now);
+        // Once the partner has failed, even a copy past the stale period beats waiting for it again
+        if (copy != null && (age < TTL + STALE || listing.failures > 0)) {
+            return copy.items;
+        }
+
+        try {
+            return fetching.join();
+        } catch (CompletionException e) {
+            if (copy != null) {
+                return copy.items;
+            }
+            throw new RestServiceException("The " + upstream + " listing is unavailable", Response.Status.BAD_GATEWAY,
+                    e.getCause() instanceof Exception ? (Exception) e.getCause() : e);
+        }
+    }
+
+    /**
+     * Starts a fetch of the listing in the background unless one is already in progress, and returns the one in
+     * progress. While the partner is being backed off from, the failed fetch is returned instead.
+     */
+    private CompletableFuture<JsonNode> refresh(String upstream, Listing listing, Supplier<JsonNode> fetch, long now) {
+        CompletableFuture<JsonNode> fetching;
+        synchronized (listing) {
+            if (listing.fetching != null) {
+                return listing.fetching;
+            }
+            if (now < listing.retryAt) {
+                return listing.failed;
+            }
+            fetching = listing.fetching = new CompletableFuture<>();
+        }
+
+        Runnable load = () -> {
+            try {
+                JsonNode items = fetch.get();
+                synchronized (listing) {
+                    listing.copy = new Copy(items, System.currentTimeMillis());
+                    listing.failures = 0;
+                    listing.retryAt = 0;
+                    listing.failed = null;
+                    listing.fetching = null;
+                }
+                fetching.complete(items);
+            } catch (RuntimeException e) {
+                synchronized (listing) {
+                    listing.failures++;
+                    listing.retryAt = System.currentTimeMillis()
+                            + Math.min(BACKOFF << Math.min(listing.failures - 1, 16), MAX_BACKOFF);
+                    listing.failed = fetching;
+                    listing.fetching = null;
+                }
+                log.log(Level.WARNING, "Fetching the " + upstream + " listing failed", e);
+                fetching.completeExceptionally(e);
+            }
+        };
+
+        try {
+            executor.execute(load);
+        } catch (RejectedExecutionException e) {
+            load.run();
+        }
+        return fetching;
+    }
+
+    private static class Listing {
+
+        private volatile Copy copy;
+
+        private volatile int failures;
+
+        // Guarded by the listing
+        private CompletableFuture<JsonNode> fetching;
+
+        // Guarded by the listing; the last fetch, if it failed, and when the next one may start
+        private CompletableFuture<JsonNode> failed;
+
+        private long retryAt;
+    }
+
+    private static class Copy {
+
+        private final JsonNode items;
+
+        private final long fetchedAt;
+
+        Copy(JsonNode items, long fetchedAt) {
+            this.items = items;
+            this.fetchedAt = fetchedAt;
+        }
+    }
+}
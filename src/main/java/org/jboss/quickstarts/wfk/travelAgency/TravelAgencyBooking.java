@@ -12,15 +12,19 @@ import javax.persistence.JoinColumn;
 import javax.persistence.ManyToOne;
 import javax.persistence.NamedQueries;
 import javax.persistence.NamedQuery;
+import javax.persistence.QueryHint;
 import javax.persistence.Table;
 import javax.persistence.UniqueConstraint;
+import javax.persistence.Version;
 import javax.xml.bind.annotation.XmlRootElement;
 
 import org.jboss.quickstarts.wfk.customer.Customer;
+import org.jboss.quickstarts.wfk.util.QueryHints;
 
 @Entity
 @NamedQueries({
-	@NamedQuery(name = TravelAgencyBooking.FIND_ALL, query = "SELECT b FROM TravelAgencyBooking b ORDER BY b.id DESC"),
+	@NamedQuery(name = TravelAgencyBooking.FIND_ALL, query = "SELECT b FROM TravelAgencyBooking b ORDER BY b.id DESC",
+                hints = @QueryHint(name = QueryHints.READ_ONLY, value = "true")),
 	@NamedQuery(name = TravelAgencyBooking.FIND_BY_NUMBER, query = "SELECT b FROM TravelAgencyBooking b WHERE b.id = :number")
 })
 @XmlRootElement
@@ -60,6 +64,10 @@ public class TravelAgencyBooking implements Serializable {
 	
 	@Column(name = "date")
 	private Date time;
+	
+	@Version
+	@Column(name = "version")
+	private Long version;
 
 	public Long getId() {
 		return id;
@@ -132,4 +140,12 @@ public class TravelAgencyBooking implements Serializable {
 	public void setTime(Date time) {
 		this.time = time;
 	}
+
+	public Long getVersion() {
+		return version;
+	}
+
+	public void setVersion(Long version) {
+		this.version = version;
+	}
 }
@@ -1,14 +1,19 @@
 package org.jboss.quickstarts.wfk.travelAgency;
 
+import org.jboss.quickstarts.wfk.metrics.Timed;
+
 import java.util.List;
 import java.util.logging.Logger;
 
+import javax.enterprise.context.ApplicationScoped;
 import javax.inject.Inject;
 import javax.inject.Named;
 import javax.persistence.EntityManager;
 import javax.persistence.TypedQuery;
 
 
+@ApplicationScoped
+@Timed
 public class TravelAgencyRepository {
 
 	@Inject
@@ -29,10 +34,16 @@ public class TravelAgencyRepository {
     
     TravelAgencyBooking createBooking(TravelAgencyBooking tab){
     	em.persist(tab);
+    	// Insert now rather than at commit, so that a failure is seen while the remote bookings can still be undone
+    	em.flush();
     	return tab;
     }
     
     TravelAgencyBooking deleteBooking(TravelAgencyBooking tab){
+    	// Nothing to delete if it is gone already, e.g. deleted by a concurrent request
+    	if(tab.getId() == null || em.find(TravelAgencyBooking.class, tab.getId()) == null){
+    		return null;
+    	}
     	TravelAgencyBooking b = em.merge(tab);
     	em.remove(b);
     	return tab;
@@ -1,10 +1,16 @@
 package org.jboss.quickstarts.wfk.travelAgency;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import javax.ejb.Stateless;
+import javax.ejb.TransactionAttribute;
+import javax.ejb.TransactionAttributeType;
 import javax.inject.Inject;
 import javax.inject.Named;
+import javax.persistence.NoResultException;
 
 import javax.ws.rs.Consumes;
 import javax.ws.rs.DELETE;
@@ -13,23 +19,33 @@ import javax.ws.rs.POST;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
+import javax.ws.rs.core.Context;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Request;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.Response.Status;
 
 
 import org.jboss.quickstarts.wfk.booking.InvalidCredentialsException;
 import org.jboss.quickstarts.wfk.booking.TaxiBooking;
+import org.jboss.quickstarts.wfk.booking.TaxiHold;
 import org.jboss.quickstarts.wfk.flight.FlightBooking;
 import org.jboss.quickstarts.wfk.hotel.HotelBooking;
 
+import org.jboss.quickstarts.wfk.feed.ChangeEvent;
+import org.jboss.quickstarts.wfk.trace.SpanRecorder;
+import org.jboss.quickstarts.wfk.util.EntityTags;
+import org.jboss.quickstarts.wfk.util.ResponseCache;
+import org.jboss.quickstarts.wfk.util.BinaryMediaTypes;
 import org.jboss.quickstarts.wfk.util.RestServiceException;
+import org.jboss.quickstarts.wfk.util.SparseFieldsets;
 
 import io.swagger.annotations.Api;
 
 @Path("/travelagent")
-@Consumes(MediaType.APPLICATION_JSON)
-@Produces(MediaType.APPLICATION_JSON)
+@Consumes({MediaType.APPLICATION_JSON, BinaryMediaTypes.APPLICATION_CBOR, BinaryMediaTypes.APPLICATION_SMILE})
+@Produces({MediaType.APPLICATION_JSON, BinaryMediaTypes.APPLICATION_CBOR, BinaryMediaTypes.APPLICATION_SMILE})
+@SparseFieldsets
 @Api(value = "/travelagent", description = "Operations about travel agent bookings")
 @Stateless
 public class TravelAgencyRestService {
@@ -39,14 +55,18 @@ public class TravelAgencyRestService {
 	
 	@Inject
 	TravelAgencyService service;
+
+	@Inject
+	private ResponseCache cache;
+
+	@Inject
+	private SpanRecorder spans;
 	
-	private TaxiBooking makeTaxiBooking(TravelAgencyBooking booking){
-		TaxiBooking taxiBooking;
+	private TaxiHold holdTaxi(TravelAgencyBooking booking){
 		try{
-			taxiBooking = service.makeTaxiBooking(booking);
-			booking.setTaxiBookingId(taxiBooking.getId());
-			log.info("taxi booking created: " + taxiBooking.toString());
-			return taxiBooking;
+			TaxiHold hold = service.holdTaxi(booking);
+			log.log(Level.INFO, "taxi held: {0}", booking.getTaxiId());
+			return hold;
 		}catch(InvalidCredentialsException e){
 			throw new RestServiceException("bad request: " + e.getMessage(), Response.Status.BAD_REQUEST, e);
 		}catch(Exception e){
@@ -54,52 +74,91 @@ public class TravelAgencyRestService {
 		}
 	}
 	
-	private HotelBooking makeHotelBooking(TravelAgencyBooking booking, TaxiBooking taxiBooking){
+	private HotelBooking makeHotelBooking(TravelAgencyBooking booking){
 		HotelBooking hotelBooking;
 		try{
 			hotelBooking = service.makeHotelBooking(booking);
 			booking.setHotelBookingId(hotelBooking.getId());
-			log.info("hotel booking created: " + hotelBooking.toString());
+			log.log(Level.INFO, "hotel booking created: {0}", hotelBooking.getId());
 			return hotelBooking;
 		}catch(InvalidCredentialsException e){
-			if(taxiBooking != null && taxiBooking.getId() != null){
-				try{
-					service.rollBackTaxi(taxiBooking.getId());
-					throw new RestServiceException("bad request: " + e.getMessage(), Response.Status.BAD_REQUEST, e);
-				}catch(Exception ea){
-					ea.printStackTrace();
-					throw new RestServiceException("bad request: " + e.getMessage() + ", AND rollback failed because: " + ea.getMessage(), Response.Status.INTERNAL_SERVER_ERROR, ea);
-				}
-			}else{
-				throw new RestServiceException("bad request: " + e.getMessage() + ". And no id received", Response.Status.BAD_REQUEST, e);
-			}
+			// Only the taxi is held so far, and createTABooking releases it.
+			throw new RestServiceException("bad request: " + e.getMessage(), Response.Status.BAD_REQUEST, e);
 		}catch(Exception e){
 			throw new RestServiceException(e);
 		}
 	}
 	
-	private FlightBooking makeFlightBooking(TravelAgencyBooking booking, TaxiBooking taxiBooking, HotelBooking hotelBooking) throws Exception{
+	private FlightBooking makeFlightBooking(TravelAgencyBooking booking, HotelBooking hotelBooking) throws Exception{
 		FlightBooking flightBooking;
 		try{
 			flightBooking = service.makeFlightBooking(booking);
 			booking.setFlightBookingId(flightBooking.getId());
 			return flightBooking;
 		}catch(InvalidCredentialsException e){
-			if(taxiBooking != null && taxiBooking.getId() != null && hotelBooking != null && hotelBooking.getId() != null){
+			if(hotelBooking != null && hotelBooking.getId() != null){
 				try{
 					service.rollBackHotel(hotelBooking.getId());
-					service.rollBackTaxi(taxiBooking.getId());
-					throw new RestServiceException("bad request: " + e.getMessage(), Response.Status.BAD_REQUEST, e);
 				}catch(Exception ea){
-					ea.printStackTrace();
+					log.log(Level.WARNING, "Rollback failed", ea);
 					throw new RestServiceException("bad request: " + e.getMessage() + ", AND rollback failed because: " + ea.getMessage(), Response.Status.INTERNAL_SERVER_ERROR, ea);
 				}
+				throw new RestServiceException("bad request: " + e.getMessage(), Response.Status.BAD_REQUEST, e);
 			}else{
 				throw new RestServiceException("bad request: " + e.getMessage() + ". And no id received", Response.Status.BAD_REQUEST, e);
 			}
 		}
 	}
 	
+	private TaxiBooking confirmTaxi(TravelAgencyBooking booking, TaxiHold hold){
+		try{
+			TaxiBooking taxiBooking = service.confirmTaxi(hold);
+			log.log(Level.INFO, "taxi booking created: {0}", taxiBooking.getId());
+			return taxiBooking;
+		}catch(Exception e){
+			// The slot was taken through another node, or after the hold expired; undo the remote legs.
+			List<String> failures = rollBackHotelAndFlight(booking.getHotelBookingId(), booking.getFlightBookingId());
+			if(!failures.isEmpty()){
+				throw new RestServiceException("taxi booking failed: " + e.getMessage() + ", AND rollback failed because: " + String.join("; ", failures), Response.Status.INTERNAL_SERVER_ERROR, e);
+			}
+			throw e instanceof RestServiceException ? (RestServiceException) e : new RestServiceException(e);
+		}
+	}
+	
+	private TravelAgencyBooking storeBooking(TravelAgencyBooking booking){
+		try{
+			return service.storeTABooking(booking);
+		}catch(Exception e){
+			// The taxi booking goes with the transaction; the remote legs have to be undone.
+			List<String> failures = rollBackHotelAndFlight(booking.getHotelBookingId(), booking.getFlightBookingId());
+			if(!failures.isEmpty()){
+				throw new RestServiceException("storing the booking failed: " + e.getMessage() + ", AND rollback failed because: " + String.join("; ", failures), Response.Status.INTERNAL_SERVER_ERROR, e);
+			}
+			throw e instanceof RestServiceException ? (RestServiceException) e : new RestServiceException(e);
+		}
+	}
+	
+	/**
+	 * Rolls back the hotel and the flight booking independently, so that a failure of one does not leave the other
+	 * booked, and returns why each failed one failed.
+	 */
+	private List<String> rollBackHotelAndFlight(Long hotelBookingId, Long flightBookingId){
+		List<String> failures = new ArrayList<>();
+		try{
+			service.rollBackHotel(hotelBookingId);
+		}catch(Exception e){
+			log.log(Level.WARNING, "Rollback of hotel booking failed", e);
+			failures.add("hotel booking " + hotelBookingId + ": " + e.getMessage());
+		}
+		try{
+			service.rollBackFlight(flightBookingId);
+		}catch(Exception e){
+			log.log(Level.WARNING, "Rollback of flight booking failed", e);
+			failures.add("flight booking " + flightBookingId + ": " + e.getMessage());
+		}
+		return failures;
+	}
+	
 	
 
 	
@@ -108,26 +167,54 @@ public class TravelAgencyRestService {
 	@POST
 	public Response createTABooking(TravelAgencyBooking booking) throws Exception{
 		
-		TaxiBooking taxiBooking = makeTaxiBooking(booking);
-		booking.setTaxiBookingId(taxiBooking.getId());
-		
-		HotelBooking hotelBooking = makeHotelBooking(booking, taxiBooking);
-		booking.setHotelBookingId(hotelBooking.getId());
-		
-		FlightBooking flightBooking = makeFlightBooking(booking, taxiBooking, hotelBooking);
-		booking.setFlightBookingId(flightBooking.getFightId());
-		
-		TravelAgencyBooking tab = service.storeTABooking(booking);
+		// The taxi is only held while the hotel and flight are booked, so that a failure of either costs no write to
+		// our database, and is booked once both have succeeded. Each leg is recorded as a span of the request, see
+		// /api/traces/{id}
+		TaxiHold taxiHold;
+		try(SpanRecorder.Leg leg = spans.begin("hold")){
+			taxiHold = holdTaxi(booking);
+			leg.succeeded();
+		}
 		
-		return Response.status(Status.CREATED).entity(tab).build();
+		try{
+			HotelBooking hotelBooking;
+			try(SpanRecorder.Leg leg = spans.begin("hotel")){
+				hotelBooking = makeHotelBooking(booking);
+				booking.setHotelBookingId(hotelBooking.getId());
+				leg.succeeded();
+			}
+			
+			try(SpanRecorder.Leg leg = spans.begin("flight")){
+				makeFlightBooking(booking, hotelBooking);
+				leg.succeeded();
+			}
+			
+			try(SpanRecorder.Leg leg = spans.begin("taxi")){
+				TaxiBooking taxiBooking = confirmTaxi(booking, taxiHold);
+				booking.setTaxiBookingId(taxiBooking.getId());
+				leg.succeeded();
+			}
+			
+			TravelAgencyBooking tab;
+			try(SpanRecorder.Leg leg = spans.begin("store")){
+				tab = storeBooking(booking);
+				leg.succeeded();
+			}
+			
+			return Response.status(Status.CREATED).entity(tab).build();
+		}finally{
+			// The hold ends with the transaction, once the taxi booking has been committed or rolled back
+			service.releaseTaxi(taxiHold);
+		}
 	}
 	
 	
 
 	
 	@GET
-	public Response getAllBookings(){
-		return Response.status(Status.OK).entity(service.getAllBookings()).build();
+	@TransactionAttribute(TransactionAttributeType.SUPPORTS)
+	public Response getAllBookings(@Context Request request){
+		return cache.list(request, ChangeEvent.TRAVEL_AGENCY_BOOKING, "all", service::getAllBookings).build();
 	}
 	
 	@DELETE
@@ -135,12 +222,9 @@ public class TravelAgencyRestService {
 		TravelAgencyBooking bookingFull = service.getFlightBooking(booking);
 		if(bookingFull != null){
 			service.rollBackTaxi(bookingFull.getTaxiBookingId());
-			try{
-				service.rollBackHotel(bookingFull.getHotelBookingId());
-				service.rollBackFlight(bookingFull.getFlightBookingId());
-			}catch(Exception e){
-				e.printStackTrace();
-				throw new RestServiceException("bad request: " + e.getMessage() + ", rollback failed", Response.Status.BAD_REQUEST, e); 
+			List<String> failures = rollBackHotelAndFlight(bookingFull.getHotelBookingId(), bookingFull.getFlightBookingId());
+			if(!failures.isEmpty()){
+				throw new RestServiceException("bad request: " + String.join("; ", failures) + ", rollback failed", Response.Status.BAD_REQUEST);
 			}
 			service.deleteTABooking(bookingFull);
 			return Response.noContent().entity(bookingFull).build();
@@ -150,13 +234,23 @@ public class TravelAgencyRestService {
 	}
 	
 	@GET
+	@TransactionAttribute(TransactionAttributeType.SUPPORTS)
 	@Path("/{id:[0-9]+}")
-	public Response getBookingById(@PathParam("id")  Long id){
-		TravelAgencyBooking booking = service.getBookingById(id);
-		if(booking == null){
+	public Response getBookingById(@PathParam("id")  Long id, @Context Request request){
+		Response.ResponseBuilder builder;
+		try{
+			// The representation embeds the customer, so its version is part of the tag.
+			builder = cache.entity(request, ChangeEvent.TRAVEL_AGENCY_BOOKING, String.valueOf(id),
+					() -> service.getBookingById(id),
+					booking -> EntityTags.of(booking.getVersion(),
+							booking.getCustomer() == null ? null : booking.getCustomer().getVersion()));
+		}catch(NoResultException e){
+			builder = null;
+		}
+		if(builder == null){
 			throw new RestServiceException("no booking with id + " + id + " found", Response.Status.NOT_FOUND);
 		}else{
-			return Response.ok().entity(booking).build();
+			return builder.build();
 		}
 	}
 }
\ No newline at end of file
@@ -1,9 +1,12 @@
 package org.jboss.quickstarts.wfk.travelAgency;
 
 import java.util.List;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
-import javax.enterprise.context.Dependent;
+import javax.annotation.PostConstruct;
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Event;
 import javax.inject.Inject;
 import javax.inject.Named;
 import javax.validation.ConstraintViolationException;
@@ -15,7 +18,9 @@ import javax.ws.rs.core.Response;
 import org.jboss.quickstarts.wfk.booking.BookingService;
 import org.jboss.quickstarts.wfk.booking.InvalidCredentialsException;
 import org.jboss.quickstarts.wfk.booking.TaxiBooking;
+import org.jboss.quickstarts.wfk.booking.TaxiHold;
 import org.jboss.quickstarts.wfk.customer.Customer;
+import org.jboss.quickstarts.wfk.feed.ChangeEvent;
 
 
 import org.jboss.quickstarts.wfk.hotel.HotelBooking;
@@ -23,16 +28,32 @@ import org.jboss.quickstarts.wfk.hotel.HotelBookingService;
 import org.jboss.quickstarts.wfk.taxi.Taxi;
 import org.jboss.quickstarts.wfk.flight.FlightBooking;
 import org.jboss.quickstarts.wfk.flight.FlightBookingService;
-import org.jboss.resteasy.client.jaxrs.ResteasyClient;
-import org.jboss.resteasy.client.jaxrs.ResteasyClientBuilder;
-import org.jboss.resteasy.client.jaxrs.ResteasyWebTarget;
+import org.jboss.quickstarts.wfk.util.UpstreamClients;
 
-@Dependent
+// Every travel agency booking goes through the same instance and the same upstream proxies, built once over the
+// clients shared through UpstreamClients.
+@ApplicationScoped
 public class TravelAgencyService {
 	@Inject
 	private TravelAgencyRepository crud;
+
+	@Inject
+	private Event<ChangeEvent> changes;
+	
+	@Inject
+	private UpstreamClients clients;
+
+	// Each Response these proxies return is closed in a finally block, which hands its connection back to the pool of
+	// the shared client.
+	private HotelBookingService hotelBookings;
+	
+	private FlightBookingService flightBookings;
+	
+	private FlightBookingService flightRollbacks;
 	
-	private ResteasyClient client;
+	static final String HOTEL_URL = "http://api-deployment-csc8104-170152145.b9ad.pro-us-east-1.openshiftapps.com/";
+	static final String FLIGHT_URL = "http://api-deployment-csc8104-140230305.b9ad.pro-us-east-1.openshiftapps.com/";
+	private static final String FLIGHT_ROLLBACK_URL = "http://api-deployment-csc8104-130277853.7e14.starter-us-west-2.openshiftapps.com/api";
 	
 	private final Long agentIdTaxi = new Long("10001");
 	private final Long agentIdHotel = new Long("10002");
@@ -43,11 +64,16 @@ public class TravelAgencyService {
 	
 	@Inject
 	private BookingService taxiBookingService;
+	
+	@PostConstruct
+	void createProxies() {
+		hotelBookings = clients.client(UpstreamClients.HOTEL).target(HOTEL_URL).proxy(HotelBookingService.class);
+		flightBookings = clients.client(UpstreamClients.FLIGHT).target(FLIGHT_URL).proxy(FlightBookingService.class);
+		flightRollbacks = clients.client(UpstreamClients.FLIGHT).target(FLIGHT_ROLLBACK_URL).proxy(FlightBookingService.class);
+	}
 		
 	public HotelBooking makeHotelBooking(TravelAgencyBooking booking) throws Exception{
 		
-		client = new ResteasyClientBuilder().build();
-		
 		Long hotelId = booking.getHotelId();
 		
 		HotelBooking hotelBooking = new HotelBooking();
@@ -55,34 +81,31 @@ public class TravelAgencyService {
 		hotelBooking.setHotelId(hotelId);
 		hotelBooking.setCustomerId(agentIdHotel);;
 		hotelBooking.setDate(booking.getTime());
-		log.info("booking: " + hotelBooking.toString());
-		
-		ResteasyWebTarget hotelTarget = client.target("http://api-deployment-csc8104-170152145.b9ad.pro-us-east-1.openshiftapps.com/");
-		
-		HotelBookingService service = hotelTarget.proxy(HotelBookingService.class);
+		if (log.isLoggable(Level.INFO)) {
+			log.log(Level.INFO, "Booking hotel {0} on {1}", new Object[]{hotelId, booking.getTime()});
+		}
 		
 		try{
-			Response response = service.makeBooking(hotelBooking);
+			Response response = hotelBookings.makeBooking(hotelBooking);
+			try{
+				log.log(Level.INFO, "code: {0}", response.getStatus());
 			
-			log.info("code: " + response.getStatus());
+				if(response.getStatus() == 400){
+					throw new InvalidCredentialsException("Invalid input provided to the hotel booking");
+				}
 			
-			if(response.getStatus() == 400){
-				throw new InvalidCredentialsException("Invalid input provided to the hotel booking");
-			}
+				if(response.getStatus() == 409){
+					throw new InvalidCredentialsException("duplicate hotel booking provided");
+				}
 			
-			if(response.getStatus() == 409){
-				throw new InvalidCredentialsException("duplicate hotel booking provided");
-			}
+				if(response.getStatus() != 201){
+					throw new Exception("Unkown response code: " + response.getStatus());
+				}
 			
-			if(response.getStatus() != 201){
-				throw new Exception("Unkown response code: " + response.getStatus());
+				return response.readEntity(HotelBooking.class);
+			}finally{
+				response.close();
 			}
-			
-			HotelBooking returnedBooking = response.readEntity(HotelBooking.class);
-			
-			client.close();
-			
-			return returnedBooking;
 		}catch(ClientErrorException e){
 			return null;
 		}
@@ -90,8 +113,6 @@ public class TravelAgencyService {
 	
 	public FlightBooking makeFlightBooking(TravelAgencyBooking booking) throws Exception{
 		
-		client = new ResteasyClientBuilder().build();
-		
 		Long flightId = booking.getFlightId();
 		
 		FlightBooking flightBooking = new FlightBooking();
@@ -99,54 +120,65 @@ public class TravelAgencyService {
 		flightBooking.setFlightId(flightId);
 		flightBooking.setCustomerId(agentIdFlight);
 		flightBooking.setDate(booking.getTime());
-		log.info("booking: " + flightBooking.toString());
-		
-		ResteasyWebTarget flightTarget = client.target("http://api-deployment-csc8104-140230305.b9ad.pro-us-east-1.openshiftapps.com/");
-		
-		FlightBookingService service = flightTarget.proxy(FlightBookingService.class);
+		if (log.isLoggable(Level.INFO)) {
+			log.log(Level.INFO, "Booking flight {0} on {1}", new Object[]{flightId, booking.getTime()});
+		}
 		
 		try{
-			Response response = service.makeBooking(flightBooking);
+			Response response = flightBookings.makeBooking(flightBooking);
+			try{
+				log.log(Level.INFO, "code: {0}", response.getStatus());
 			
-			log.info("code: " + response.getStatus());
+				if(response.getStatus() == 400){
+					throw new InvalidCredentialsException("Invalid input provided to the flight booking");
+				}
 			
-			if(response.getStatus() == 400){
-				throw new InvalidCredentialsException("Invalid input provided to the flight booking");
-			}
+				if(response.getStatus() == 409){
+					throw new InvalidCredentialsException("duplicate flight booking provided");
+				}
 			
-			if(response.getStatus() == 409){
-				throw new InvalidCredentialsException("duplicate flight booking provided");
-			}
+				if(response.getStatus() != 201){
+					throw new Exception("Unkown response code: " + response.getStatus());
+				}
 			
-			if(response.getStatus() != 201){
-				throw new Exception("Unkown response code: " + response.getStatus());
+				return response.readEntity(FlightBooking.class);
+			}finally{
+				response.close();
 			}
-			
-			FlightBooking returnedBooking = response.readEntity(FlightBooking.class);
-			
-			client.close();
-			
-			return returnedBooking;
 		}catch(ClientErrorException e){
 			return null;
 		}
 	}
 
-	public TaxiBooking makeTaxiBooking(TravelAgencyBooking booking) throws ConstraintViolationException, ValidationException, Exception{
+	/**
+	 * Holds the taxi of the booking for its date, without writing anything yet. The hold is turned into the taxi
+	 * booking by {@link #confirmTaxi(TaxiHold)} once the hotel and flight are booked, and must be released otherwise.
+	 */
+	public TaxiHold holdTaxi(TravelAgencyBooking booking) throws ConstraintViolationException, ValidationException, Exception{
 		TaxiBooking taxiBooking = new TaxiBooking();
 		
 		Customer customer = new Customer();
-		customer.setId(agentIdFlight);
+		customer.setId(agentIdTaxi);
 		
 		Taxi taxi = new Taxi();
 		taxi.setId(booking.getTaxiId());
 		
-		taxiBooking.setCustomerId(agentIdFlight);;
-		taxiBooking.setTaxiId(agentIdTaxi);
-		taxiBooking.setDate(booking.getTime());;
+		taxiBooking.setCustomer(customer);
+		taxiBooking.setTaxi(taxi);
+		taxiBooking.setDate(booking.getTime());
+		if (log.isLoggable(Level.INFO)) {
+			log.log(Level.INFO, "Holding taxi {0} on {1}", new Object[]{booking.getTaxiId(), booking.getTime()});
+		}
 		
-		taxiBookingService.create(taxiBooking);
-		return taxiBooking;
+		return taxiBookingService.hold(taxiBooking);
+	}
+	
+	public TaxiBooking confirmTaxi(TaxiHold hold) throws ConstraintViolationException, ValidationException, Exception{
+		return taxiBookingService.confirm(hold);
+	}
+	
+	public void releaseTaxi(TaxiHold hold){
+		taxiBookingService.release(hold);
 	}
 	
 	public TravelAgencyBooking getFlightBooking(TravelAgencyBooking tab){
@@ -158,72 +190,60 @@ public class TravelAgencyService {
 	}
 	
 	public TravelAgencyBooking storeTABooking(TravelAgencyBooking booking){
-		return crud.createBooking(booking);
+		TravelAgencyBooking storedBooking = crud.createBooking(booking);
+		changes.fire(new ChangeEvent(ChangeEvent.TRAVEL_AGENCY_BOOKING, storedBooking.getId(), ChangeEvent.Action.CREATE));
+		return storedBooking;
 	}
 	
 	public HotelBooking rollBackHotel(Long id) throws Exception, InvalidCredentialsException{
-		client = new ResteasyClientBuilder().build();
-
-		ResteasyWebTarget hotelTarget = client.target("http://api-deployment-csc8104-170152145.b9ad.pro-us-east-1.openshiftapps.com/");
-		
-		HotelBookingService service = hotelTarget.proxy(HotelBookingService.class);
-		
 		try{
-			Response response = service.deleteBooking(id);
+			Response response = hotelBookings.deleteBooking(id);
+			try{
+				log.log(Level.INFO, "code: {0}", response.getStatus());
 			
-			log.info("code: " + response.getStatus());
+				if(response.getStatus() == 400){
+					throw new InvalidCredentialsException("Invalid booking id supplied");
+				}
 			
-			if(response.getStatus() == 400){
-				throw new InvalidCredentialsException("Invalid booking id supplied");
-			}
+				if(response.getStatus() == 409){
+					throw new InvalidCredentialsException("Booking with that id not supplied");
+				}
 			
-			if(response.getStatus() == 409){
-				throw new InvalidCredentialsException("Booking with that id not supplied");
-			}
+				if(response.getStatus() != 204){
+					throw new Exception("Unkown response code: " + response.getStatus());
+				}
 			
-			if(response.getStatus() != 204){
-				throw new Exception("Unkown response code: " + response.getStatus());
+				return response.readEntity(HotelBooking.class);
+			}finally{
+				response.close();
 			}
-			
-			HotelBooking returnedBooking = response.readEntity(HotelBooking.class);
-			
-			client.close();
-			
-			return returnedBooking;
 		}catch(ClientErrorException e){
 			return null;
 		}
 	}
 	
 	public FlightBooking rollBackFlight(Long id) throws Exception{
-		client = new ResteasyClientBuilder().build();
-
-		ResteasyWebTarget flightTarget = client.target("http://api-deployment-csc8104-130277853.7e14.starter-us-west-2.openshiftapps.com/api");
-		
-		FlightBookingService service = flightTarget.proxy(FlightBookingService.class);
-		
 		try{
-			Response response = service.deleteBooking(id);
+			Response response = flightRollbacks.deleteBooking(id);
+			try{
+				log.log(Level.INFO, "code: {0}", response.getStatus());
 			
-			log.info("code: " + response.getStatus());
+				if(response.getStatus() == 400){
+					throw new InvalidCredentialsException("Invalid booking id supplied");
+				}
 			
-			if(response.getStatus() == 400){
-				throw new InvalidCredentialsException("Invalid booking id supplied");
-			}
+				if(response.getStatus() == 409){
+					throw new InvalidCredentialsException("Booking with that id not supplied");
+				}
 			
-			if(response.getStatus() == 409){
-				throw new InvalidCredentialsException("Booking with that id not supplied");
-			}
+				if(response.getStatus() != 204){
+					throw new Exception("Unkown response code: " + response.getStatus());
+				}
 			
-			if(response.getStatus() != 204){
-				throw new Exception("Unkown response code: " + response.getStatus());
+				return response.readEntity(FlightBooking.class);
+			}finally{
+				response.close();
 			}
-			
-			FlightBooking returnedBooking = response.readEntity(FlightBooking.class);
-			
-			client.close();
-			
-			return returnedBooking;
 		}catch(ClientErrorException e){
 			return null;
 		}
@@ -235,12 +255,17 @@ public class TravelAgencyService {
 	
 	
 	public void rollBackTaxi(Long id) throws Exception{
-		TaxiBooking booking = new TaxiBooking();
-		booking.setId(id);
-		taxiBookingService.delete(booking);
+		// Load the stored booking rather than building one from the id, so that it carries its current version and is
+		// merged as a detached entity instead of a new one.
+		TaxiBooking booking = taxiBookingService.findById(id);
+		if (booking != null) {
+			taxiBookingService.delete(booking);
+		}
 	}
 
 	public void deleteTABooking(TravelAgencyBooking booking){
-		crud.deleteBooking(booking);
+		if(crud.deleteBooking(booking) != null){
+			changes.fire(new ChangeEvent(ChangeEvent.TRAVEL_AGENCY_BOOKING, booking.getId(), ChangeEvent.Action.DELETE));
+		}
 	}
 }
\ No newline at end of file
@@ -0,0 +1,134 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.quickstarts.wfk.travelAgency;
+
+import io.swagger.annotations.Api;
+import io.swagger.annotations.ApiOperation;
+import org.jboss.quickstarts.wfk.feed.ChangeEvent;
+import org.jboss.quickstarts.wfk.taxi.TaxiService;
+import org.jboss.quickstarts.wfk.util.BinaryMediaTypes;
+import org.jboss.quickstarts.wfk.util.ResponseCache;
+import org.jboss.quickstarts.wfk.util.RestServiceException;
+
+import javax.ejb.Stateless;
+import javax.ejb.TransactionAttribute;
+import javax.ejb.TransactionAttributeType;
+import javax.inject.Inject;
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Request;
+import javax.ws.rs.core.Response;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * <p>This class produces a RESTful service listing what a travel agent booking can be made of: our own taxis and the
+ * hotels and flights of the partner agencies.</p>
+ *
+ * <p>The hotels and flights are served from the {@link CatalogCache}, so opening the booking form does not wait for
+ * the partners.</p>
+ *
+ * <p>The full path for accessing endpoints defined herein is: api/travel/*</p>
+ *
+ * @author Constance He
+ */
+@Path("/travel")
+@Produces({MediaType.APPLICATION_JSON, BinaryMediaTypes.APPLICATION_CBOR, BinaryMediaTypes.APPLICATION_SMILE})
+@Api(value = "/travel", description = "Taxis, hotels and flights available to travel agent bookings")
+@Stateless
+public class TravelCatalogRestService {
+
+    @Inject
+    private CatalogCache catalog;
+
+    @Inject
+    private TaxiService taxiService;
+
+    @Inject
+    private ResponseCache cache;
+
+    /**
+     * <p>Return the taxis, hotels and flights in one response, e.g. to fill in the booking form.</p>
+     *
+     * <p>Example: <pre>GET api/travel/catalog</pre></p>
+     *
+     * @return A Response containing an object with a <code>taxis</code>, a <code>hotels</code> and a
+     * <code>flights</code> array; a partner listing which is unavailable is null
+     */
+    @GET
+    @Path("/catalog")
+    @TransactionAttribute(TransactionAttributeType.SUPPORTS)
+    @ApiOperation(value = "Fetch the taxis, hotels and flights which can be booked")
+    public Response retrieveCatalog() {
+        Map<String, Object> catalogue = new LinkedHashMap<>();
+        catalogue.put("taxis", taxiService.findAllOrderedByRegistration());
+        catalogue.put("hotels", unlessUnavailable(catalog::hotels));
+        catalogue.put("flights", unlessUnavailable(catalog::flights));
+        return Response.ok(catalogue).build();
+    }
+
+    private static Object unlessUnavailable(Supplier<?> listing) {
+        try {
+            return listing.get();
+        } catch (RestServiceException e) {
+            return null;
+        }
+    }
+
+    /**
+     * <p>Example: <pre>GET api/travel/taxis</pre></p>
+     *
+     * @return A Response containing our taxis, sorted by registration
+     */
+    @GET
+    @Path("/taxis")
+    @TransactionAttribute(TransactionAttributeType.SUPPORTS)
+    @ApiOperation(value = "Fetch the taxis which can be booked")
+    public Response retrieveTaxis(@Context Request request) {
+        return cache.list(request, ChangeEvent.TAXI, "all", taxiService::findAllOrderedByRegistration).build();
+    }
+
+    /**
+     * <p>Example: <pre>GET api/travel/hotels</pre></p>
+     *
+     * @return A Response containing the hotels of the hotel agency
+     */
+    @GET
+    @Path("/hotels")
+    @TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+    @ApiOperation(value = "Fetch the hotels which can be booked, as recently listed by the hotel agency")
+    public Response retrieveHotels() {
+        return Response.ok(catalog.hotels()).build();
+    }
+
+    /**
+     * <p>Example: <pre>GET api/travel/flights</pre></p>
+     *
+     * @return A Response containing the flights of the flight agency
+     */
+    @GET
+    @Path("/flights")
+    @TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+    @ApiOperation(value = "Fetch the flights which can be booked, as recently listed by the flight agency")
+    public Response retrieveFlights() {
+        return Response.ok(catalog.flights()).build();
+    }
+}
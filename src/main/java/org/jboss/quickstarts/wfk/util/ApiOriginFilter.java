@@ -18,29 +18,53 @@ package org.jboss.quickstarts.wfk.util;
 
 import javax.servlet.*;
 import javax.servlet.annotation.WebFilter;
+import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
 
 /**
  * <p>This filter adds response headers allowing for Cross-Origin Resource Sharing (CORS).</p>
  *
- * <p>This enables an API to serve requests from other domains.</p>
+ * <p>This enables an API to serve requests from other domains. Preflight requests are answered here, without reaching
+ * the resources, and browsers may cache the answer for <code>cors.max.age</code> seconds (a day by default).</p>
  *
  * @author hugofirth
  * @see javax.servlet.Filter
  */
 @WebFilter("/api/*")
 public class ApiOriginFilter implements Filter {
+
+    private static final String MAX_AGE = String.valueOf(Integer.getInteger("cors.max.age", 86400));
+
     @Override
     public void doFilter(ServletRequest request, ServletResponse response,
                          FilterChain chain) throws IOException, ServletException {
+        HttpServletRequest req = (HttpServletRequest) request;
         HttpServletResponse res = (HttpServletResponse) response;
-        res.addHeader("Access-Control-Allow-Origin", "*");
-        res.addHeader("Access-Control-Allow-Methods", "GET, POST, DELETE, PUT");
-        res.addHeader("Access-Control-Allow-Headers", "Content-Type");
+        allowOrigin(res);
+
+        if ("OPTIONS".equals(req.getMethod()) && req.getHeader("Access-Control-Request-Method") != null) {
+            res.setHeader("Access-Control-Max-Age", MAX_AGE);
+            res.setStatus(HttpServletResponse.SC_NO_CONTENT);
+            return;
+        }
         chain.doFilter(request, response);
     }
 
+    /**
+     * <p>Sets the CORS headers on a response. Other filters which answer a request themselves call this too, as the
+     * order of the filters is not defined.</p>
+     *
+     * @param res The response
+     */
+    public static void allowOrigin(HttpServletResponse res) {
+        res.setHeader("Access-Control-Allow-Origin", "*");
+        res.setHeader("Access-Control-Allow-Methods", "GET, POST, DELETE, PUT");
+        res.setHeader("Access-Control-Allow-Headers",
+                "Content-Type, Accept, If-Match, If-None-Match, Last-Event-ID, X-API-Key, X-Correlation-ID");
+        res.setHeader("Access-Control-Expose-Headers", "ETag, Retry-After, X-Correlation-ID");
+    }
+
     @Override
     public void destroy() {
     }
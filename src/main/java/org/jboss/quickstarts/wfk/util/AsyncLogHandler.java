@@ -0,0 +1,152 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.quickstarts.wfk.util;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.ErrorManager;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+/**
+ * <p>Takes log records off the request threads: {@link #publish} only queues the record, and a background thread
+ * formats and writes it through the handlers of the parent loggers, i.e. those configured in the server.</p>
+ *
+ * <p>The queue is bounded and publishing never blocks. Once it is three quarters full only records at WARNING and above
+ * are queued, and once it is full they are dropped too. The number of records dropped is logged as soon as there is
+ * room again.</p>
+ *
+ * <p>Parameters of queued records are turned into strings on the calling thread, so entities are never touched from
+ * the background thread and ids are not formatted with digit grouping. The caller's location is not worked out; the
+ * logger name stands in for the source class.</p>
+ *
+ * @author Constance He
+ * @see AsyncLogging
+ */
+class AsyncLogHandler extends Handler {
+
+    private final BlockingQueue<LogRecord> queue;
+
+    private final int reserve;
+
+    private final LongAdder dropped = new LongAdder();
+
+    private final Thread worker;
+
+    private volatile boolean closed;
+
+    /**
+     * @param capacity The number of records the queue holds
+     * @param threads Creates the background thread; in the container this is its managed thread factory
+     */
+    AsyncLogHandler(int capacity, ThreadFactory threads) {
+        queue = new ArrayBlockingQueue<>(capacity);
+        reserve = capacity / 4;
+        worker = threads.newThread(this::drain);
+        worker.start();
+    }
+
+    @Override
+    public void publish(LogRecord record) {
+        if (closed || !isLoggable(record)) {
+            return;
+        }
+
+        boolean important = record.getLevel().intValue() >= Level.WARNING.intValue();
+        if (important || queue.remainingCapacity() > reserve) {
+            freeze(record);
+            if (queue.offer(record)) {
+                return;
+            }
+        }
+        dropped.increment();
+    }
+
+    private static void freeze(LogRecord record) {
+        Object[] parameters = record.getParameters();
+        if (parameters != null) {
+            Object[] frozen = new Object[parameters.length];
+            for (int i = 0; i < parameters.length; i++) {
+                frozen[i] = parameters[i] == null ? null : String.valueOf(parameters[i]);
+            }
+            record.setParameters(frozen);
+        }
+        // Also stops the record from walking the stack of the background thread to find its caller
+        record.setSourceClassName(record.getLoggerName());
+    }
+
+    private void drain() {
+        while (!closed || !queue.isEmpty()) {
+            LogRecord record;
+            try {
+                record = queue.poll(1, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                break;
+            }
+            if (record != null) {
+                forward(record);
+            }
+
+            long lost = dropped.sumThenReset();
+            if (lost > 0) {
+                LogRecord warning = new LogRecord(Level.WARNING, "Dropped " + lost + " log records, the queue was full");
+                warning.setLoggerName(AsyncLogHandler.class.getName());
+                forward(warning);
+            }
+        }
+    }
+
+    /**
+     * Hands the record to the handlers a synchronous logger would have passed it on to after its own.
+     */
+    private void forward(LogRecord record) {
+        try {
+            Logger logger = Logger.getLogger(record.getLoggerName() == null ? "" : record.getLoggerName());
+            for (Logger parent = logger.getParent(); parent != null;
+                 parent = parent.getUseParentHandlers() ? parent.getParent() : null) {
+                for (Handler handler : parent.getHandlers()) {
+                    handler.publish(record);
+                }
+            }
+        } catch (RuntimeException e) {
+            reportError(null, e, ErrorManager.WRITE_FAILURE);
+        }
+    }
+
+    @Override
+    public void flush() {
+    }
+
+    /**
+     * <p>Writes out the records already queued, waiting for at most a few seconds, and stops the background thread.</p>
+     */
+    @Override
+    public void close() {
+        closed = true;
+        try {
+            worker.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        worker.interrupt();
+    }
+}
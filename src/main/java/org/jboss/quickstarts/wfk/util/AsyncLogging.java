@@ -0,0 +1,93 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.quickstarts.wfk.util;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import javax.enterprise.concurrent.ManagedThreadFactory;
+import javax.enterprise.context.ApplicationScoped;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Logger;
+
+/**
+ * <p>Owns the {@link AsyncLogHandler} of the application and the loggers it is attached to.</p>
+ *
+ * <p>Every logger injected with <code>@Named("logger")</code> writes through it (see {@link Resources#produceLog}),
+ * with a queue of <code>log.queue.size</code> records (8192 by default). Setting the system property
+ * <code>log.sync</code> leaves the loggers writing on the calling thread, e.g. to debug a crash where the last records
+ * matter.</p>
+ *
+ * <p>The background thread comes from the container's default {@link ManagedThreadFactory}, so the server knows about
+ * it and interrupts it if the application is undeployed without {@link #stop} running.</p>
+ *
+ * <p>Log calls should still be parameterised, e.g. <code>log.log(Level.INFO, "Creating taxi {0}", id)</code>, rather
+ * than concatenated, so nothing is built for records below the logger's level. Calls that pass several parameters
+ * allocate their array before the logger sees the level, so they are wrapped in <code>log.isLoggable</code>.</p>
+ *
+ * @author Constance He
+ */
+@ApplicationScoped
+public class AsyncLogging {
+
+    private static final int QUEUE_SIZE = Math.max(16, Integer.getInteger("log.queue.size", 8192));
+
+    private static final boolean SYNC = Boolean.getBoolean("log.sync");
+
+    private final Set<Logger> attached = ConcurrentHashMap.newKeySet();
+
+    @Resource
+    private ManagedThreadFactory threads;
+
+    private AsyncLogHandler handler;
+
+    @PostConstruct
+    void start() {
+        if (!SYNC) {
+            handler = new AsyncLogHandler(QUEUE_SIZE, threads);
+        }
+    }
+
+    /**
+     * <p>Makes the logger write through the background thread. Calling it again for the same logger does nothing.</p>
+     *
+     * @param logger The logger of an application class
+     */
+    void attach(Logger logger) {
+        if (handler != null && attached.add(logger)) {
+            logger.addHandler(handler);
+            logger.setUseParentHandlers(false);
+        }
+    }
+
+    /**
+     * The loggers outlive the deployment, so they are given back their parent handlers before the queue is drained.
+     */
+    @PreDestroy
+    void stop() {
+        if (handler == null) {
+            return;
+        }
+        for (Logger logger : attached) {
+            logger.setUseParentHandlers(true);
+            logger.removeHandler(handler);
+        }
+        attached.clear();
+        handler.close();
+    }
+}
@@ -0,0 +1,40 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.quickstarts.wfk.util;
+
+/**
+ * <p>Media types of the binary representations offered next to JSON by the REST services.</p>
+ *
+ * <p>CBOR and Smile carry the same data model as JSON, and are written and read by mappers configured like the JSON one
+ * (see {@link JacksonConfig}), but are smaller and cheaper to encode and parse. They are meant for machine to machine
+ * callers pulling large lists; such a client asks for one with e.g. <code>Accept: application/cbor</code> and sends
+ * one with the matching <code>Content-Type</code>. JSON is listed first in every <code>@Produces</code>, so it stays
+ * the representation for clients that accept anything.</p>
+ *
+ * @author Constance He
+ */
+public final class BinaryMediaTypes {
+
+    /** Concise Binary Object Representation, RFC 7049 */
+    public static final String APPLICATION_CBOR = "application/cbor";
+
+    /** Jackson's binary JSON format */
+    public static final String APPLICATION_SMILE = "application/x-jackson-smile";
+
+    private BinaryMediaTypes() {
+    }
+}
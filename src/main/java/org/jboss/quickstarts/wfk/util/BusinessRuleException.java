@@ -0,0 +1,75 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.quickstarts.wfk.util;
+
+import javax.validation.ValidationException;
+import javax.ws.rs.core.Response;
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * <p>ValidationException thrown when a request breaks a business rule, e.g. a booking for a taxi which is already
+ * booked that day. It carries the status and the reason to answer the request with.</p>
+ *
+ * <p>These rejections are expected, and may arrive in floods of bad input, so no stack trace is captured for them.
+ * {@link RestServiceException#RestServiceException(Exception)} turns one into the matching 4xx response.</p>
+ *
+ * @author Constance He
+ * @see Stackless
+ */
+public class BusinessRuleException extends ValidationException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final Response.Status status;
+
+    private final Map<String, String> reasons;
+
+    /**
+     * @param message The rule broken, for logs
+     * @param status The status of the response, a 4xx
+     * @param field The property of the request body at fault
+     * @param reason The explanation returned to the client
+     */
+    public BusinessRuleException(String message, Response.Status status, String field, String reason) {
+        super(message);
+        this.status = status;
+        this.reasons = Collections.singletonMap(field, reason);
+    }
+
+    public BusinessRuleException(String message, Throwable cause, Response.Status status, String field, String reason) {
+        super(message, cause);
+        this.status = status;
+        this.reasons = Collections.singletonMap(field, reason);
+    }
+
+    public Response.Status getStatus() {
+        return status;
+    }
+
+    /**
+     * @return The reason keyed by the property at fault; not modifiable
+     */
+    public Map<String, String> getReasons() {
+        return reasons;
+    }
+
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+        return this;
+    }
+}
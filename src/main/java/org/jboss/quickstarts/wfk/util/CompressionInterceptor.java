@@ -0,0 +1,232 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.quickstarts.wfk.util;
+
+import javax.annotation.Priority;
+import javax.ws.rs.Priorities;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.ext.Provider;
+import javax.ws.rs.ext.WriterInterceptor;
+import javax.ws.rs.ext.WriterInterceptorContext;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.Locale;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * <p>Compresses response bodies with gzip or deflate, as negotiated through the <code>Accept-Encoding</code> request
+ * header.</p>
+ *
+ * <p>Small bodies are not worth the CPU or the encoding overhead, so the body is buffered until it grows past the
+ * threshold set by the <code>compression.threshold</code> system property (1024 bytes by default, a negative value
+ * turns compression off). Only then is <code>Content-Encoding</code> set and the buffered bytes, and everything after
+ * them, compressed. Server-sent event streams are never compressed, since buffering would hold back the events.</p>
+ *
+ * @author Constance He
+ */
+@Provider
+@Priority(Priorities.ENTITY_CODER)
+public class CompressionInterceptor implements WriterInterceptor {
+
+    private static final int THRESHOLD = Integer.getInteger("compression.threshold", 1024);
+
+    static final String GZIP = "gzip";
+
+    static final String DEFLATE = "deflate";
+
+    @Context
+    private HttpHeaders headers;
+
+    @Override
+    public void aroundWriteTo(WriterInterceptorContext context) throws IOException {
+        MultivaluedMap<String, Object> responseHeaders = context.getHeaders();
+        if (THRESHOLD < 0 || responseHeaders.containsKey(HttpHeaders.CONTENT_ENCODING)
+                || isEventStream(context.getMediaType())) {
+            context.proceed();
+            return;
+        }
+
+        VaryAcceptFilter.vary(responseHeaders, HttpHeaders.ACCEPT_ENCODING);
+
+        String encoding = negotiate(headers.getRequestHeader(HttpHeaders.ACCEPT_ENCODING));
+        if (encoding == null) {
+            context.proceed();
+            return;
+        }
+
+        ThresholdOutputStream out = new ThresholdOutputStream(context.getOutputStream(), responseHeaders, encoding);
+        context.setOutputStream(out);
+        context.proceed();
+        out.finish();
+    }
+
+    /**
+     * <p>Returns the content coding a body of the given type is compressed with for a client sending the given
+     * Accept-Encoding, should the body grow past the threshold.</p>
+     *
+     * @param mediaType The media type of the body, may be null
+     * @param acceptEncoding The Accept-Encoding header values, may be null
+     * @return "gzip", "deflate" or null if the body is never compressed
+     */
+    static String encodingFor(MediaType mediaType, List<String> acceptEncoding) {
+        return THRESHOLD < 0 || isEventStream(mediaType) ? null : negotiate(acceptEncoding);
+    }
+
+    private static boolean isEventStream(MediaType mediaType) {
+        return mediaType != null && "text".equals(mediaType.getType()) && "event-stream".equals(mediaType.getSubtype());
+    }
+
+    /**
+     * <p>Picks the content coding to use from the values of the Accept-Encoding header, preferring gzip when the client
+     * rates both equally.</p>
+     *
+     * @param acceptEncoding The Accept-Encoding header values, may be null
+     * @return "gzip", "deflate" or null if the response must not be compressed
+     */
+    static String negotiate(List<String> acceptEncoding) {
+        if (acceptEncoding == null) {
+            return null;
+        }
+
+        double gzip = -1;
+        double deflate = -1;
+        double any = -1;
+        for (String header : acceptEncoding) {
+            for (String element : header.split(",")) {
+                String[] params = element.split(";");
+                double q = 1;
+                for (int i = 1; i < params.length; i++) {
+                    String param = params[i].trim();
+                    if (param.startsWith("q=")) {
+                        try {
+                            q = Double.parseDouble(param.substring(2));
+                        } catch (NumberFormatException e) {
+                            q = 0;
+                        }
+                    }
+                }
+
+                String coding = params[0].trim().toLowerCase(Locale.ROOT);
+                if (coding.equals(GZIP) || coding.equals("x-gzip")) {
+                    gzip = q;
+                } else if (coding.equals(DEFLATE)) {
+                    deflate = q;
+                } else if (coding.equals("*")) {
+                    any = q;
+                }
+            }
+        }
+
+        if (gzip < 0) {
+            gzip = any;
+        }
+        if (deflate < 0) {
+            deflate = any;
+        }
+        if (gzip > 0 && gzip >= deflate) {
+            return GZIP;
+        }
+        return deflate > 0 ? DEFLATE : null;
+    }
+
+    /**
+     * Buffers the body until it passes the threshold, then switches to writing it compressed.
+     */
+    private static class ThresholdOutputStream extends OutputStream {
+
+        private final OutputStream original;
+
+        private final MultivaluedMap<String, Object> responseHeaders;
+
+        private final String encoding;
+
+        private ByteArrayOutputStream buffer = new ByteArrayOutputStream(Math.min(THRESHOLD, 8192));
+
+        private DeflaterOutputStream compressor;
+
+        ThresholdOutputStream(OutputStream original, MultivaluedMap<String, Object> responseHeaders, String encoding) {
+            this.original = original;
+            this.responseHeaders = responseHeaders;
+            this.encoding = encoding;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[] {(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (compressor == null) {
+                if (buffer.size() + len <= THRESHOLD) {
+                    buffer.write(b, off, len);
+                    return;
+                }
+                startCompressing();
+            }
+            compressor.write(b, off, len);
+        }
+
+        /**
+         * Headers are only committed with the first byte written to the original stream, so they can still be
+         * changed here.
+         */
+        private void startCompressing() throws IOException {
+            responseHeaders.putSingle(HttpHeaders.CONTENT_ENCODING, encoding);
+            responseHeaders.remove(HttpHeaders.CONTENT_LENGTH);
+
+            // Closing the compressor releases its native resources, but the container owns the response stream
+            OutputStream target = new FilterOutputStream(original) {
+                @Override
+                public void write(byte[] b, int off, int len) throws IOException {
+                    out.write(b, off, len);
+                }
+
+                @Override
+                public void close() throws IOException {
+                    flush();
+                }
+            };
+            compressor = GZIP.equals(encoding) ? new GZIPOutputStream(target, 8192) : new DeflaterOutputStream(target);
+            buffer.writeTo(compressor);
+            buffer = null;
+        }
+
+        @Override
+        public void flush() throws IOException {
+            // Nothing is sent while buffering; Jackson flushes once it has written the entity
+            if (compressor != null) {
+                compressor.flush();
+            }
+        }
+
+        void finish() throws IOException {
+            if (compressor != null) {
+                compressor.close();
+            } else if (buffer.size() > 0) {
+                buffer.writeTo(original);
+            }
+        }
+    }
+}
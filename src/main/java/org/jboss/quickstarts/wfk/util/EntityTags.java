@@ -0,0 +1,94 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.quickstarts.wfk.util;
+
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.Response;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * <p>Helpers to translate between the JPA @Version of an entity and the HTTP entity tags used for conditional
+ * requests.</p>
+ *
+ * <p>The tag of a resource is simply its version number, quoted, e.g. <code>ETag: "3"</code>. Clients send it back in
+ * an <code>If-Match</code> header to make an update conditional on nobody else having changed the resource since it
+ * was read. The tags of the CBOR and Smile representations carry a suffix, see {@link RepresentationTags}, which is
+ * removed again before If-Match reaches {@link #parseIfMatch(String)}.</p>
+ *
+ * @author Constance He
+ */
+public final class EntityTags {
+
+    private EntityTags() {
+    }
+
+    /**
+     * <p>Returns the strong entity tag for the given entity version, or null if the entity has no version yet.</p>
+     *
+     * @param version The @Version value of the entity
+     * @return The EntityTag to send in the ETag header
+     */
+    public static EntityTag of(Long version) {
+        return version == null ? null : new EntityTag(version.toString());
+    }
+
+    /**
+     * <p>Returns a strong entity tag for a representation which embeds other entities, e.g. a booking together with its
+     * customer and taxi. The tag changes whenever any of the versions does.</p>
+     *
+     * @param version The @Version value of the entity
+     * @param embedded The @Version values of the entities embedded in its representation
+     * @return The EntityTag to send in the ETag header
+     */
+    public static EntityTag of(Long version, Long... embedded) {
+        StringBuilder tag = new StringBuilder(String.valueOf(version));
+        for (Long embeddedVersion : embedded) {
+            tag.append('.').append(embeddedVersion);
+        }
+        return new EntityTag(tag.toString());
+    }
+
+    /**
+     * <p>Extracts the expected entity version from an <code>If-Match</code> header.</p>
+     *
+     * <p>A missing header, or the wildcard <code>*</code>, means the update is unconditional and null is returned.
+     * Weak tags cannot be used with If-Match, so they are rejected along with anything that is not a version.</p>
+     *
+     * @param ifMatch The raw value of the If-Match header
+     * @return The version the client expects the entity to have; or null
+     * @throws RestServiceException 400 Bad Request if the header cannot be understood
+     */
+    public static Long parseIfMatch(String ifMatch) {
+        if (ifMatch == null || ifMatch.trim().isEmpty() || ifMatch.trim().equals("*")) {
+            return null;
+        }
+
+        String tag = ifMatch.trim();
+        if (tag.length() > 1 && tag.startsWith("\"") && tag.endsWith("\"")) {
+            tag = tag.substring(1, tag.length() - 1);
+        }
+
+        try {
+            return Long.valueOf(tag);
+        } catch (NumberFormatException e) {
+            Map<String, String> responseObj = new HashMap<>();
+            responseObj.put("If-Match", "The If-Match header must contain a single strong ETag previously returned by the API");
+            throw new RestServiceException("Bad Request", responseObj, Response.Status.BAD_REQUEST, e);
+        }
+    }
+}
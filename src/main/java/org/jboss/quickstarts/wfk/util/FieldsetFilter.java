@@ -0,0 +1,108 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.quickstarts.wfk.util;
+
+import com.fasterxml.jackson.annotation.JsonFilter;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonStreamContext;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.PropertyWriter;
+import com.fasterxml.jackson.databind.ser.impl.SimpleBeanPropertyFilter;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * <p>Jackson property filter which only writes the properties named in a sparse fieldset.</p>
+ *
+ * <p>A fieldset is a comma separated list of property paths, where nested properties are written with dots, e.g.
+ * <code>id,date,customer.name</code>. Naming an object property, such as <code>taxi</code>, keeps the whole object.
+ * Paths apply to every element of a list, so the same fieldset works for a single booking and for all of them.</p>
+ *
+ * <p>The filter is attached to the entity types through a mix-in in {@link JacksonConfig}. Outside of a request with a
+ * fieldset the mapper resolves {@link #ID} to a filter which writes everything.</p>
+ *
+ * @author Constance He
+ */
+class FieldsetFilter extends SimpleBeanPropertyFilter {
+
+    static final String ID = "fieldset";
+
+    /**
+     * Mix-in carrying the filter id, so the entities themselves do not need to know about it.
+     */
+    @JsonFilter(ID)
+    abstract static class Target {
+    }
+
+    private final Set<String> selected = new HashSet<>();
+
+    private final Set<String> ancestors = new HashSet<>();
+
+    FieldsetFilter(String fields) {
+        for (String field : fields.split(",")) {
+            String path = field.trim();
+            if (path.isEmpty()) {
+                continue;
+            }
+            selected.add(path);
+            for (int dot = path.indexOf('.'); dot > 0; dot = path.indexOf('.', dot + 1)) {
+                ancestors.add(path.substring(0, dot));
+            }
+        }
+    }
+
+    @Override
+    public void serializeAsField(Object pojo, JsonGenerator jgen, SerializerProvider provider, PropertyWriter writer)
+            throws Exception {
+        if (includes(pathOf(jgen.getOutputContext(), writer.getName()))) {
+            writer.serializeAsField(pojo, jgen, provider);
+        } else if (!jgen.canOmitFields()) {
+            writer.serializeAsOmittedField(pojo, jgen, provider);
+        }
+    }
+
+    private boolean includes(String path) {
+        if (selected.contains(path) || ancestors.contains(path)) {
+            return true;
+        }
+        // Inside an object that was selected as a whole
+        for (int dot = path.indexOf('.'); dot > 0; dot = path.indexOf('.', dot + 1)) {
+            if (selected.contains(path.substring(0, dot))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * The context passed in is the object being written; the names of the properties holding it, and the objects
+     * around it, are the current names of its parent contexts. Array contexts carry no name and are skipped.
+     */
+    private static String pathOf(JsonStreamContext context, String name) {
+        Deque<String> names = new ArrayDeque<>();
+        names.addFirst(name);
+        for (JsonStreamContext parent = context.getParent(); parent != null; parent = parent.getParent()) {
+            if (parent.inObject() && parent.getCurrentName() != null) {
+                names.addFirst(parent.getCurrentName());
+            }
+        }
+        return String.join(".", names);
+    }
+}
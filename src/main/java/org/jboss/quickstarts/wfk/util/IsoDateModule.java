@@ -0,0 +1,102 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.quickstarts.wfk.util;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.deser.std.StdScalarDeserializer;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.databind.ser.std.StdScalarSerializer;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Date;
+
+/**
+ * <p>Reads and writes {@link Date} values as ISO-8601 calendar dates, e.g. "2019-11-11".</p>
+ *
+ * <p>The output is the same as that of the <code>SimpleDateFormat("yyyy-MM-dd")</code> this application has always
+ * used, but {@link DateTimeFormatter} is immutable and thread safe, so nothing has to be cloned or synchronised for
+ * every value. Dates are converted in the default time zone of the JVM, as SimpleDateFormat did and as JDBC does for
+ * DATE columns. Numeric timestamps are still accepted on input.</p>
+ *
+ * @author Constance He
+ * @see JacksonConfig
+ */
+public class IsoDateModule extends SimpleModule {
+    private static final long serialVersionUID = 1L;
+
+    private static final DateTimeFormatter FORMAT = DateTimeFormatter.ISO_LOCAL_DATE;
+
+    public IsoDateModule() {
+        super("IsoDateModule");
+        ZoneId zone = ZoneId.systemDefault();
+        addSerializer(Date.class, new Serializer(zone));
+        addDeserializer(Date.class, new Deserializer(zone));
+    }
+
+    static class Serializer extends StdScalarSerializer<Date> {
+        private static final long serialVersionUID = 1L;
+
+        private final ZoneId zone;
+
+        Serializer(ZoneId zone) {
+            super(Date.class);
+            this.zone = zone;
+        }
+
+        @Override
+        public void serialize(Date value, JsonGenerator gen, SerializerProvider provider) throws IOException {
+            // java.sql.Date does not support toInstant(), so go through the epoch millis for every kind of Date.
+            gen.writeString(FORMAT.format(Instant.ofEpochMilli(value.getTime()).atZone(zone).toLocalDate()));
+        }
+    }
+
+    static class Deserializer extends StdScalarDeserializer<Date> {
+        private static final long serialVersionUID = 1L;
+
+        private final ZoneId zone;
+
+        Deserializer(ZoneId zone) {
+            super(Date.class);
+            this.zone = zone;
+        }
+
+        @Override
+        public Date deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+            if (p.getCurrentToken() == JsonToken.VALUE_NUMBER_INT) {
+                return new Date(p.getLongValue());
+            }
+            String text = p.getValueAsString();
+            if (text == null || text.trim().isEmpty()) {
+                return null;
+            }
+            try {
+                return Date.from(LocalDate.parse(text.trim(), FORMAT).atStartOfDay(zone).toInstant());
+            } catch (DateTimeParseException e) {
+                return (Date) ctxt.handleWeirdStringValue(Date.class, text, "expected a date in the form yyyy-MM-dd");
+            }
+        }
+    }
+}
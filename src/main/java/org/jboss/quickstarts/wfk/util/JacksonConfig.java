@@ -16,7 +16,19 @@
  */
 package org.jboss.quickstarts.wfk.util;
 
+import com.fasterxml.jackson.core.JsonFactory;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ser.impl.SimpleBeanPropertyFilter;
+import com.fasterxml.jackson.databind.ser.impl.SimpleFilterProvider;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.module.afterburner.AfterburnerModule;
+import org.jboss.quickstarts.wfk.booking.TaxiBooking;
+import org.jboss.quickstarts.wfk.contact.Contact;
+import org.jboss.quickstarts.wfk.customer.Customer;
+import org.jboss.quickstarts.wfk.feed.ChangeEvent;
+import org.jboss.quickstarts.wfk.taxi.Taxi;
+import org.jboss.quickstarts.wfk.travelAgency.TravelAgencyBooking;
 
 import javax.ws.rs.Produces;
 import javax.ws.rs.core.MediaType;
@@ -26,6 +38,17 @@ import java.text.SimpleDateFormat;
 
 /**
  * <p>This is a config class that effects the Jackson library used to translate the data over the REST endpoint.</p>
+ *
+ * <p>There is a single {@link ObjectMapper} for the whole application. It is used by JAX-RS through this resolver
+ * and injected elsewhere as <code>@Named("mapper")</code> (see {@link Resources}). It must not be reconfigured after
+ * start up, since ObjectMapper is only thread safe once configured.</p>
+ *
+ * <p>The mapper uses Afterburner to replace reflective getter and setter calls with generated bytecode, and writes
+ * dates with {@link IsoDateModule}. Serializers for the entity types are resolved up front so that the first requests
+ * do not pay for the introspection.</p>
+ *
+ * <p>The CBOR and Smile mappers behind the binary representations (see {@link BinaryMediaTypes}) are built by the same
+ * code, so all three formats read and write exactly the same properties.</p>
  * 
  * @author Joshua Wilson, Vineet Reynolds
  *
@@ -34,17 +57,63 @@ import java.text.SimpleDateFormat;
 @Produces(MediaType.APPLICATION_JSON)
 public class JacksonConfig implements ContextResolver<ObjectMapper> {
 
-    private ObjectMapper objectMapper;
+    private static final ObjectMapper MAPPER = createMapper(new JsonFactory());
 
-    // Configure the Date coming from the client to be in ISO-8601 instead of milliseconds from the epoch.
-    public JacksonConfig(){
+    private static final ObjectMapper CBOR_MAPPER = createMapper(new CBORFactory());
+
+    private static final ObjectMapper SMILE_MAPPER = createMapper(new SmileFactory());
 
-        this.objectMapper = new ObjectMapper();
-        this.objectMapper.setDateFormat(new SimpleDateFormat("yyyy-MM-dd"));
+    private final ObjectMapper objectMapper;
+
+    public JacksonConfig(){
+        this.objectMapper = MAPPER;
     }
 
     @Override
     public ObjectMapper getContext(Class<?> objectType) {
         return objectMapper;
     }
-}
\ No newline at end of file
+
+    /**
+     * @return The application wide ObjectMapper
+     */
+    public static ObjectMapper mapper() {
+        return MAPPER;
+    }
+
+    /**
+     * @return The ObjectMapper used for <code>application/cbor</code>, configured like {@link #mapper()}
+     */
+    public static ObjectMapper cborMapper() {
+        return CBOR_MAPPER;
+    }
+
+    /**
+     * @return The ObjectMapper used for <code>application/x-jackson-smile</code>, configured like {@link #mapper()}
+     */
+    public static ObjectMapper smileMapper() {
+        return SMILE_MAPPER;
+    }
+
+    static ObjectMapper createMapper(JsonFactory factory) {
+        ObjectMapper mapper = new ObjectMapper(factory);
+        // Configure the Date coming from the client to be in ISO-8601 instead of milliseconds from the epoch. The format
+        // is still set for anything that is not handled by IsoDateModule, such as dates used as Map keys.
+        mapper.setDateFormat(new SimpleDateFormat("yyyy-MM-dd"));
+        mapper.registerModule(new IsoDateModule());
+        mapper.registerModule(new AfterburnerModule());
+
+        // Entities which can be trimmed with ?fields= (see SparseFieldsetInterceptor); unfiltered by default
+        mapper.setFilterProvider(new SimpleFilterProvider()
+                .addFilter(FieldsetFilter.ID, SimpleBeanPropertyFilter.serializeAll()));
+        for (Class<?> type : new Class<?>[] {Customer.class, Taxi.class, TaxiBooking.class, TravelAgencyBooking.class}) {
+            mapper.addMixIn(type, FieldsetFilter.Target.class);
+        }
+
+        for (Class<?> type : new Class<?>[] {Customer.class, Taxi.class, TaxiBooking.class, TravelAgencyBooking.class,
+                Contact.class, ChangeEvent.class}) {
+            mapper.canSerialize(type);
+        }
+        return mapper;
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.quickstarts.wfk.util;
+
+import javax.ws.rs.core.Response;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <p>Parses the <code>ids</code> query parameter of the multi-get endpoints, e.g. <code>GET /taxis?ids=3,7,12</code>,
+ * which return the entities with the given ids in one response instead of one request per id.</p>
+ *
+ * <p>The ids may be given comma separated, as repeated parameters, or both. Their order is kept, since the response
+ * lists the entities in request order, with null in place of every id that was not found.</p>
+ *
+ * @author Constance He
+ * @see ResponseCache#batch
+ */
+public final class MultiGet {
+
+    public static final String IDS = "ids";
+
+    /** The most ids a single request may ask for; set with the multiget.max system property */
+    public static final int MAX_IDS = Integer.getInteger("multiget.max", 500);
+
+    private MultiGet() {
+    }
+
+    /**
+     * <p>Returns the ids from the values of the <code>ids</code> query parameter, in request order.</p>
+     *
+     * @param values The raw parameter values
+     * @return The ids; empty if the parameter was not given
+     * @throws RestServiceException 400 Bad Request if a value is not an id, or there are more than {@link #MAX_IDS}
+     */
+    public static List<Long> parseIds(List<String> values) {
+        List<Long> ids = new ArrayList<>();
+        if (values == null) {
+            return ids;
+        }
+
+        for (String value : values) {
+            for (String id : value.split(",")) {
+                if (id.trim().isEmpty()) {
+                    continue;
+                }
+                try {
+                    ids.add(Long.valueOf(id.trim()));
+                } catch (NumberFormatException e) {
+                    throw badRequest("'" + id.trim() + "' is not an id");
+                }
+            }
+        }
+
+        if (ids.size() > MAX_IDS) {
+            throw badRequest("At most " + MAX_IDS + " ids can be requested at once");
+        }
+        return ids;
+    }
+
+    private static RestServiceException badRequest(String reason) {
+        Map<String, String> responseObj = new HashMap<>();
+        responseObj.put(IDS, reason);
+        return new RestServiceException("Bad Request", responseObj, Response.Status.BAD_REQUEST);
+    }
+}
@@ -0,0 +1,42 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.quickstarts.wfk.util;
+
+/**
+ * <p>Names of the provider specific query hints used by the @NamedQueries of the entities.</p>
+ *
+ * <p>The names are repeated here rather than taken from Hibernate's own classes, so that the entities only depend on
+ * the JPA API.</p>
+ *
+ * @author Constance He
+ */
+public final class QueryHints {
+
+    /**
+     * Entities loaded by a query with this hint set to "true" are not dirty checked, so no snapshot of their state is
+     * kept in the persistence context. They can still be deleted, but changes to them are never flushed.
+     *
+     * <p>Only set it on queries that nothing but the GET endpoints runs. Lookups that the create, update and delete
+     * paths share, e.g. the e-mail checks of the validators or the bookings removed with a taxi, go without it, so that
+     * an entity they load in a writing transaction is not silently left unflushed. ReadOnlyQueryBenchmark in the
+     * test sources measures what the hint saves.</p>
+     */
+    public static final String READ_ONLY = "org.hibernate.readOnly";
+
+    private QueryHints() {
+    }
+}
@@ -0,0 +1,152 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.quickstarts.wfk.util;
+
+import javax.ws.rs.Produces;
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.container.ContainerRequestFilter;
+import javax.ws.rs.container.ContainerResponseContext;
+import javax.ws.rs.container.ContainerResponseFilter;
+import javax.ws.rs.container.PreMatching;
+import javax.ws.rs.container.ResourceInfo;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.ext.Provider;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * <p>Gives every representation of a resource its own entity tag.</p>
+ *
+ * <p>The services tag a resource by its state, e.g. its version (see {@link EntityTags}), but the same state is sent as
+ * JSON, CBOR or Smile. A strong tag promises identical bytes, so the tag of a CBOR or Smile body is suffixed here, e.g.
+ * <code>"3+cbor"</code>, and the response varies on <code>Accept</code>. Likewise a body which the
+ * {@link CompressionInterceptor} may compress gets the content coding added, e.g. <code>"3+cbor+gzip"</code>, and the
+ * response varies on <code>Accept-Encoding</code>. The coding is added whenever the client accepts it, even to a body
+ * too small to be compressed: two tags for the same bytes are harmless, one tag for different bytes is not. A 304 Not
+ * Modified gets the tag of the representation the request would have received. A body which a resource encoded
+ * itself, like the gzipped Swagger document, is tagged with the coding it set.</p>
+ *
+ * <p>Before the request reaches the services the suffixes are stripped from <code>If-None-Match</code> and
+ * <code>If-Match</code>, so the services keep comparing the tags of the state alone.</p>
+ *
+ * @author Constance He
+ * @see VaryAcceptFilter
+ */
+@Provider
+@PreMatching
+public class RepresentationTags implements ContainerRequestFilter, ContainerResponseFilter {
+
+    private static final char SEPARATOR = '+';
+
+    private static final Pattern SUFFIX = Pattern.compile("\"([^\"+]*)\\+[^\"]*\"");
+
+    private static final MediaType CBOR = MediaType.valueOf(BinaryMediaTypes.APPLICATION_CBOR);
+
+    private static final MediaType SMILE = MediaType.valueOf(BinaryMediaTypes.APPLICATION_SMILE);
+
+    @Context
+    private ResourceInfo resourceInfo;
+
+    @Override
+    public void filter(ContainerRequestContext requestContext) {
+        strip(requestContext, HttpHeaders.IF_NONE_MATCH);
+        strip(requestContext, HttpHeaders.IF_MATCH);
+    }
+
+    private static void strip(ContainerRequestContext requestContext, String header) {
+        List<String> values = requestContext.getHeaders().get(header);
+        if (values != null) {
+            values.replaceAll(value -> SUFFIX.matcher(value).replaceAll("\"$1\""));
+        }
+    }
+
+    @Override
+    public void filter(ContainerRequestContext requestContext, ContainerResponseContext responseContext) {
+        EntityTag tag = responseContext.getEntityTag();
+        if (tag == null || tag.getValue().indexOf(SEPARATOR) >= 0) {
+            return;
+        }
+
+        MultivaluedMap<String, Object> responseHeaders = responseContext.getHeaders();
+        VaryAcceptFilter.vary(responseHeaders, HttpHeaders.ACCEPT);
+        VaryAcceptFilter.vary(responseHeaders, HttpHeaders.ACCEPT_ENCODING);
+
+        MediaType mediaType = responseContext.hasEntity() ? responseContext.getMediaType()
+                : negotiate(requestContext.getAcceptableMediaTypes());
+        Object contentEncoding = responseHeaders.getFirst(HttpHeaders.CONTENT_ENCODING);
+        String encoding = contentEncoding == null ? null : contentEncoding.toString();
+        if (encoding == null) {
+            encoding = CompressionInterceptor.encodingFor(mediaType,
+                    requestContext.getHeaders().get(HttpHeaders.ACCEPT_ENCODING));
+        }
+
+        StringBuilder value = new StringBuilder(tag.getValue());
+        String suffix = suffixOf(mediaType);
+        if (!suffix.isEmpty()) {
+            value.append(SEPARATOR).append(suffix);
+        }
+        if (encoding != null) {
+            value.append(SEPARATOR).append(encoding);
+        }
+        if (value.length() > tag.getValue().length()) {
+            responseHeaders.putSingle(HttpHeaders.ETAG, new EntityTag(value.toString(), tag.isWeak()));
+        }
+    }
+
+    /**
+     * <p>Picks the media type a body would have been written in, for a response without one, the way JAX-RS picks it:
+     * the first acceptable type, best first, which the resource method produces.</p>
+     */
+    private MediaType negotiate(List<MediaType> acceptable) {
+        Produces produces = resourceInfo.getResourceMethod() == null ? null
+                : resourceInfo.getResourceMethod().getAnnotation(Produces.class);
+        if (produces == null && resourceInfo.getResourceClass() != null) {
+            produces = resourceInfo.getResourceClass().getAnnotation(Produces.class);
+        }
+        if (produces == null) {
+            return null;
+        }
+
+        for (MediaType accepted : acceptable) {
+            for (String produced : produces.value()) {
+                MediaType type = MediaType.valueOf(produced);
+                if (accepted.isCompatible(type)) {
+                    return type;
+                }
+            }
+        }
+        return null;
+    }
+
+    private static String suffixOf(MediaType type) {
+        if (type == null) {
+            return "";
+        }
+        if (isType(type, CBOR)) {
+            return "cbor";
+        }
+        return isType(type, SMILE) ? "smile" : "";
+    }
+
+    private static boolean isType(MediaType type, MediaType other) {
+        return type.getType().equalsIgnoreCase(other.getType()) && type.getSubtype().equalsIgnoreCase(other.getSubtype());
+    }
+}
@@ -17,6 +17,9 @@
 package org.jboss.quickstarts.wfk.util;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import org.jboss.quickstarts.wfk.metrics.QueryTrace;
+import org.jboss.quickstarts.wfk.metrics.Timed;
+import org.jboss.quickstarts.wfk.trace.CorrelationLogFilter;
 
 import javax.enterprise.inject.Produces;
 import javax.enterprise.inject.spi.InjectionPoint;
@@ -40,20 +43,42 @@ import java.util.logging.Logger;
  */
 public class Resources {
 
-    @Produces
     @PersistenceContext(unitName = "contacts_pu")
     private EntityManager em;
 
+    /**
+     * The persistence context. If {@link QueryTrace#ENABLED enabled}, it reports its queries to the slow query log of
+     * {@link Timed} repositories.
+     */
+    @Produces
+    public EntityManager produceEntityManager() {
+        return QueryTrace.ENABLED ? QueryTrace.wrap(em) : em;
+    }
+
+    /**
+     * A logger for the injecting class, which prefixes its messages with the correlation ID of the current request and
+     * writes them on a background thread, see {@link AsyncLogging}.
+     */
     @Produces
     @Named("logger")
-    public Logger produceLog(InjectionPoint injectionPoint) {
-        return Logger.getLogger(injectionPoint.getMember().getDeclaringClass().getName());
+    public Logger produceLog(InjectionPoint injectionPoint, AsyncLogging logging) {
+        Logger logger = Logger.getLogger(injectionPoint.getMember().getDeclaringClass().getName());
+        synchronized (logger) {
+            if (!(logger.getFilter() instanceof CorrelationLogFilter)) {
+                logger.setFilter(new CorrelationLogFilter(logger.getFilter()));
+            }
+        }
+        logging.attach(logger);
+        return logger;
     }
 
+    /**
+     * The application wide mapper, configured by {@link JacksonConfig}. It is shared, so do not reconfigure it.
+     */
     @Produces
     @Named("mapper")
     public ObjectMapper produceMapper() {
-        return new ObjectMapper();
+        return JacksonConfig.mapper();
     }
 
 }
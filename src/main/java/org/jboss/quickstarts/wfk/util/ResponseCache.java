@@ -0,0 +1,287 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.quickstarts.wfk.util;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import org.jboss.quickstarts.wfk.feed.ChangeEvent;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Observes;
+import javax.enterprise.event.TransactionPhase;
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.Request;
+import javax.ws.rs.core.Response;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * <p>Answers GET requests for entities and entity lists with an ETag, and with 304 Not Modified when the client
+ * already holds the current representation.</p>
+ *
+ * <p>Optionally, when the <code>responsecache.enabled</code> system property is true, the entities are also kept in
+ * memory between requests so that repeated GETs of unchanged customers and taxis do not reach the database. Entries are
+ * grouped into one region per entity type, and a region is emptied when a {@link ChangeEvent} of that type commits.
+ * Bookings embed their customer and taxi, so changes to those clear the booking regions too. The number of entries per
+ * region is capped by <code>responsecache.size</code>.</p>
+ *
+ * <p>Those events only reach the node which made the change. So that an entity changed through another node is not
+ * served, and tagged, with its old version for long, e.g. to a client which then fails an If-Match with it, entries
+ * expire <code>responsecache.ttl</code> seconds (5 by default) after they were loaded.</p>
+ *
+ * <p>Single entities are tagged with their @Version. Lists are tagged with the number of changes committed to the
+ * types of entity they are read from, including those embedded in them, e.g. the customers and taxis of bookings, as
+ * counted by {@link TableVersions}. The count moves on with every committed change and is the same on every node, and
+ * reading it is a single lookup by primary key, so a 304 costs next to nothing. That tag is read before the list is,
+ * so it can only ever be older than the data it is sent with; the worst case is a needless 200 later on. A cached list
+ * is only served while its tag is still current, so a change committed through another node is not hidden by it.
+ * Several entities fetched by id are tagged with a hash of their own tags.</p>
+ *
+ * @author Constance He
+ * @see EntityTags
+ */
+@ApplicationScoped
+public class ResponseCache {
+
+    private static final boolean ENABLED = Boolean.getBoolean("responsecache.enabled");
+    private static final int REGION_SIZE = Integer.getInteger("responsecache.size", 1000);
+    private static final long TTL = Long.getLong("responsecache.ttl", 5L);
+
+    @Inject
+    private @Named("logger") Logger log;
+
+    @Inject
+    private TableVersions versions;
+
+    private final Map<String, Cache<String, Entry>> regions = new HashMap<>();
+
+    // The entities each list region is read from, its own first, then those embedded in its representation
+    private static final Map<String, String[]> LISTED = new HashMap<>();
+    static {
+        LISTED.put(ChangeEvent.CUSTOMER, new String[] {ChangeEvent.CUSTOMER});
+        LISTED.put(ChangeEvent.TAXI, new String[] {ChangeEvent.TAXI});
+        LISTED.put(ChangeEvent.TAXI_BOOKING, new String[] {ChangeEvent.TAXI_BOOKING, ChangeEvent.CUSTOMER, ChangeEvent.TAXI});
+        LISTED.put(ChangeEvent.TRAVEL_AGENCY_BOOKING, new String[] {ChangeEvent.TRAVEL_AGENCY_BOOKING, ChangeEvent.CUSTOMER});
+    }
+
+    // Bumped on every invalidation, so that a value loaded before a change cannot be stored after it.
+    private final AtomicLong generation = new AtomicLong();
+
+    public ResponseCache() {
+        for (String region : new String[] {ChangeEvent.CUSTOMER, ChangeEvent.TAXI, ChangeEvent.TAXI_BOOKING,
+                ChangeEvent.TRAVEL_AGENCY_BOOKING}) {
+            regions.put(region, CacheBuilder.newBuilder().maximumSize(REGION_SIZE)
+                    .expireAfterWrite(TTL, TimeUnit.SECONDS).<String, Entry>build());
+        }
+    }
+
+    /**
+     * <p>Responds to a GET for a single entity.</p>
+     *
+     * @param request The request, to evaluate If-None-Match against; or null
+     * @param region The entity type, one of the {@link ChangeEvent} type constants
+     * @param key Identifies the entity within the region, e.g. its id
+     * @param loader Reads the entity from the database; may return null
+     * @param tagOf Derives the ETag of the entity from its version(s)
+     * @return A 200 or 304 response builder; or null if the entity does not exist
+     */
+    public <T> Response.ResponseBuilder entity(Request request, String region, String key, Supplier<T> loader,
+                                               Function<? super T, EntityTag> tagOf) {
+        Entry entry = lookup(region, key);
+        if (entry == null) {
+            long stamp = generation.get();
+            T entity = loader.get();
+            if (entity == null) {
+                return null;
+            }
+            entry = store(region, key, new Entry(entity, tagOf.apply(entity)), stamp);
+        }
+        return respond(request, entry);
+    }
+
+    /**
+     * <p>Responds to a GET for a list of entities.</p>
+     *
+     * <p>If the client's copy is current this returns 304 without reading the list at all.</p>
+     *
+     * @param request The request, to evaluate If-None-Match against; or null
+     * @param region The entity type, one of the {@link ChangeEvent} type constants
+     * @param key Identifies the list within the region, e.g. "all"
+     * @param loader Reads the list from the database
+     * @return A 200 or 304 response builder
+     */
+    public Response.ResponseBuilder list(Request request, String region, String key, Supplier<?> loader) {
+        EntityTag tag = listTag(region);
+        Response.ResponseBuilder notModified = notModified(request, tag);
+        if (notModified != null) {
+            return notModified;
+        }
+
+        Entry entry = lookup(region, key);
+        if (entry == null || !entry.tag.equals(tag)) {
+            long stamp = generation.get();
+            entry = store(region, key, new Entry(loader.get(), tag), stamp);
+        }
+        return Response.ok(entry.entity).tag(entry.tag);
+    }
+
+    /**
+     * <p>Responds to a GET for several entities by id, see {@link MultiGet}.</p>
+     *
+     * <p>The entities are listed in the order of the ids, with null for every id that does not exist. Each entity is
+     * taken from the same cache entry as a GET of it alone would use, and those that are not cached are read with a
+     * single query. The response is tagged with a hash of the tags of the entities, so it is only 304 when none of them
+     * has changed.</p>
+     *
+     * @param request The request, to evaluate If-None-Match against; or null
+     * @param region The entity type, one of the {@link ChangeEvent} type constants
+     * @param ids The ids, in request order
+     * @param loader Reads the entities with the given ids from the database, in any order
+     * @param idOf Returns the id of an entity
+     * @param tagOf Derives the ETag of an entity from its version(s)
+     * @return A 200 or 304 response builder
+     */
+    public <T> Response.ResponseBuilder batch(Request request, String region, List<Long> ids,
+                                              Function<Collection<Long>, List<T>> loader, Function<? super T, Long> idOf,
+                                              Function<? super T, EntityTag> tagOf) {
+        long stamp = generation.get();
+        Map<Long, Entry> found = new HashMap<>();
+        Set<Long> missing = new LinkedHashSet<>();
+        for (Long id : ids) {
+            Entry entry = lookup(region, String.valueOf(id));
+            if (entry != null) {
+                found.put(id, entry);
+            } else {
+                missing.add(id);
+            }
+        }
+        if (!missing.isEmpty()) {
+            for (T entity : loader.apply(missing)) {
+                Long id = idOf.apply(entity);
+                found.put(id, store(region, String.valueOf(id), new Entry(entity, tagOf.apply(entity)), stamp));
+            }
+        }
+
+        List<Object> entities = new ArrayList<>(ids.size());
+        Hasher tags = Hashing.murmur3_128().newHasher();
+        for (Long id : ids) {
+            Entry entry = found.get(id);
+            entities.add(entry == null ? null : entry.entity);
+            tags.putString(entry == null ? "-" : entry.tag.getValue(), StandardCharsets.UTF_8).putChar(',');
+        }
+        EntityTag tag = new EntityTag(tags.hash().toString());
+
+        Response.ResponseBuilder notModified = notModified(request, tag);
+        if (notModified != null) {
+            return notModified;
+        }
+        return Response.ok(entities).tag(tag);
+    }
+
+    /**
+     * <p>Empties the regions affected by a change once it has committed.</p>
+     *
+     * @param event The change
+     */
+    synchronized void onChange(@Observes(during = TransactionPhase.AFTER_SUCCESS) ChangeEvent event) {
+        if (ENABLED) {
+            log.log(Level.FINE, "ResponseCache.onChange() - Invalidating after {0}", event);
+        }
+        generation.incrementAndGet();
+        invalidate(event.getEntityType());
+        if (ChangeEvent.CUSTOMER.equals(event.getEntityType()) || ChangeEvent.TAXI.equals(event.getEntityType())) {
+            invalidate(ChangeEvent.TAXI_BOOKING);
+            invalidate(ChangeEvent.TRAVEL_AGENCY_BOOKING);
+        }
+    }
+
+    /**
+     * Reads the change counts of the entities a list region is read from, which are shared by every node.
+     */
+    private EntityTag listTag(String region) {
+        String[] types = LISTED.get(region);
+        Map<String, Long> changes = versions.read(types);
+        StringBuilder tag = new StringBuilder();
+        for (String type : types) {
+            if (tag.length() > 0) {
+                tag.append('.');
+            }
+            tag.append(changes.get(type));
+        }
+        return new EntityTag(tag.toString());
+    }
+
+    private void invalidate(String region) {
+        Cache<String, Entry> cache = regions.get(region);
+        if (cache != null) {
+            cache.invalidateAll();
+        }
+    }
+
+    private Entry lookup(String region, String key) {
+        return ENABLED ? regions.get(region).getIfPresent(key) : null;
+    }
+
+    private synchronized Entry store(String region, String key, Entry entry, long stamp) {
+        if (ENABLED && generation.get() == stamp) {
+            regions.get(region).put(key, entry);
+        }
+        return entry;
+    }
+
+    private static Response.ResponseBuilder respond(Request request, Entry entry) {
+        Response.ResponseBuilder notModified = notModified(request, entry.tag);
+        if (notModified != null) {
+            return notModified;
+        }
+        return Response.ok(entry.entity).tag(entry.tag);
+    }
+
+    /**
+     * Evaluates If-None-Match against the tag. The request is null when a resource is called directly rather than over
+     * HTTP, e.g. from a test, and such a call is unconditional.
+     */
+    private static Response.ResponseBuilder notModified(Request request, EntityTag tag) {
+        return request == null ? null : request.evaluatePreconditions(tag);
+    }
+
+    private static final class Entry {
+        final Object entity;
+        final EntityTag tag;
+
+        Entry(Object entity, EntityTag tag) {
+            this.entity = entity;
+            this.tag = tag;
+        }
+    }
+}
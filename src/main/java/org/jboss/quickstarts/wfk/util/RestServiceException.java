@@ -42,49 +42,47 @@ public class RestServiceException extends RuntimeException implements
     private final Response.Status status;
 
     public RestServiceException() {
-        super(defaultMsg);
-        this.reasons = new HashMap<>();
-        this.status = Response.Status.INTERNAL_SERVER_ERROR;
+        this(defaultMsg, new HashMap<>(), Response.Status.INTERNAL_SERVER_ERROR, null);
     }
 
     public RestServiceException(String msg) {
-        super(msg);
-        this.reasons = new HashMap<>();
-        this.status = Response.Status.INTERNAL_SERVER_ERROR;
+        this(msg, new HashMap<>(), Response.Status.INTERNAL_SERVER_ERROR, null);
     }
 
     public RestServiceException(String msg, Response.Status status) {
-        super(msg);
-        this.reasons = new HashMap<>();
-        this.status = status;
+        this(msg, new HashMap<>(), status, null);
     }
 
     public RestServiceException(String msg, Map<String, String> reasons, Response.Status status) {
-        super(msg);
-        this.reasons = reasons;
-        this.status = status;
+        this(msg, reasons, status, null);
     }
 
+    /**
+     * <p>Wraps an unexpected exception in a 500 Internal Server Error; or, if it is a {@link BusinessRuleException},
+     * in the rejection it describes.</p>
+     */
     public RestServiceException(Exception e) {
-        super(defaultMsg, e);
-        this.reasons = new HashMap<>();
-        this.status = Response.Status.INTERNAL_SERVER_ERROR;
+        this(e instanceof BusinessRuleException ? ((BusinessRuleException) e).getStatus().getReasonPhrase() : defaultMsg,
+                e instanceof BusinessRuleException ? ((BusinessRuleException) e).getReasons() : new HashMap<>(),
+                e instanceof BusinessRuleException ? ((BusinessRuleException) e).getStatus()
+                        : Response.Status.INTERNAL_SERVER_ERROR,
+                e);
     }
 
     public RestServiceException(String msg, Exception e) {
-        super(msg, e);
-        this.reasons = new HashMap<>();
-        this.status = Response.Status.INTERNAL_SERVER_ERROR;
+        this(msg, new HashMap<>(), Response.Status.INTERNAL_SERVER_ERROR, e);
     }
 
     public RestServiceException(String msg, Response.Status status, Exception e) {
-        super(msg, e);
-        this.reasons = new HashMap<>();
-        this.status = status;
+        this(msg, new HashMap<>(), status, e);
     }
 
+    /**
+     * <p>The stack trace is only captured for server errors. Client errors are expected, e.g. invalid input, and their
+     * cause, if any, holds whatever detail there is.</p>
+     */
     public RestServiceException(String msg, Map<String, String> reasons, Response.Status status, Exception e) {
-        super(msg, e);
+        super(msg, e, true, status == null || status.getFamily() != Response.Status.Family.CLIENT_ERROR);
         this.reasons = reasons;
         this.status = status;
     }
@@ -25,12 +25,15 @@ import javax.ws.rs.core.Response;
 import javax.ws.rs.ext.ExceptionMapper;
 import javax.ws.rs.ext.Provider;
 import java.util.List;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
  * <p>Handler object to convert {@link RestServiceException} exception into an actual {@link Response} containing JSON
  * so we can get a nice friendly error message, easily parsable by our API clients.</p>
  *
+ * <p>Client errors are logged at FINE only, so that a flood of bad input costs neither stack traces nor log I/O.</p>
+ *
  * @author hugofirth
  */
 @Provider
@@ -45,8 +48,16 @@ public class RestServiceExceptionHandler implements ExceptionMapper<RestServiceE
     @Override
     public Response toResponse(final RestServiceException e) {
 
-        log.severe("Mapping RestServiceException with status + \"" + e.getStatus() + "\", message: \"" + e.getMessage()
-                + "\" and stack trace:" + System.getProperty("line.separator") + e.toString());
+        if (e.getStatus().getFamily() == Response.Status.Family.CLIENT_ERROR) {
+            // Expected, e.g. invalid input or a duplicate; these carry no stack trace, see RestServiceException
+            if (log.isLoggable(Level.FINE)) {
+                log.log(Level.FINE, "Rejecting request with status {0}, message: \"{1}\", reasons: {2}",
+                        new Object[]{e.getStatus().getStatusCode(), e.getMessage(), e.getReasons()});
+            }
+        } else {
+            log.log(Level.SEVERE, "Mapping RestServiceException with status " + e.getStatus().getStatusCode()
+                    + ", message: \"" + e.getMessage() + "\"", e);
+        }
 
         Response.ResponseBuilder builder = Response.status(e.getStatus()).entity(new ErrorMessage(e.getMessage(), e.getReasons()));
 
@@ -54,7 +65,7 @@ public class RestServiceExceptionHandler implements ExceptionMapper<RestServiceE
         if (accepts!=null && accepts.size() > 0) {
             //just pick the first one
             MediaType m = accepts.get(0);
-            log.info("Setting response type to " + m);
+            log.log(Level.FINE, "Setting response type to {0}", m);
             builder = builder.type(m);
         }
         else {
@@ -0,0 +1,91 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.quickstarts.wfk.util;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonSerializable;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.jsontype.TypeSerializer;
+import com.fasterxml.jackson.databind.ser.impl.SimpleFilterProvider;
+
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.UriInfo;
+import javax.ws.rs.ext.Provider;
+import javax.ws.rs.ext.WriterInterceptor;
+import javax.ws.rs.ext.WriterInterceptorContext;
+import java.io.IOException;
+
+/**
+ * <p>Applies the <code>fields</code> query parameter of services marked with {@link SparseFieldsets}.</p>
+ *
+ * <p>The entity is wrapped in a {@link Sparse} value which, when the negotiated JSON, CBOR or Smile provider writes it,
+ * writes the entity into the same generator with a {@link FieldsetFilter}. The properties left out are skipped as the
+ * entity is serialized, in a single pass, so a sparse response costs less than the full one. Requests without the
+ * parameter are left untouched.</p>
+ *
+ * @author Constance He
+ */
+@Provider
+@SparseFieldsets
+public class SparseFieldsetInterceptor implements WriterInterceptor {
+
+    public static final String FIELDS = "fields";
+
+    @Context
+    private UriInfo uriInfo;
+
+    @Override
+    public void aroundWriteTo(WriterInterceptorContext context) throws IOException {
+        String fields = uriInfo.getQueryParameters().getFirst(FIELDS);
+        Object entity = context.getEntity();
+
+        if (fields != null && !fields.trim().isEmpty() && entity != null && !(entity instanceof Sparse)) {
+            context.setEntity(new Sparse(entity, fields));
+            context.setType(Sparse.class);
+            context.setGenericType(Sparse.class);
+        }
+        context.proceed();
+    }
+
+    /**
+     * <p>An entity to be written with only the properties named in a fieldset.</p>
+     */
+    static final class Sparse implements JsonSerializable {
+
+        private final Object entity;
+
+        private final ObjectWriter writer;
+
+        Sparse(Object entity, String fields) {
+            this.entity = entity;
+            this.writer = JacksonConfig.mapper()
+                    .writer(new SimpleFilterProvider().addFilter(FieldsetFilter.ID, new FieldsetFilter(fields)));
+        }
+
+        @Override
+        public void serialize(JsonGenerator gen, SerializerProvider serializers) throws IOException {
+            writer.writeValue(gen, entity);
+        }
+
+        @Override
+        public void serializeWithType(JsonGenerator gen, SerializerProvider serializers, TypeSerializer typeSer)
+                throws IOException {
+            serialize(gen, serializers);
+        }
+    }
+}
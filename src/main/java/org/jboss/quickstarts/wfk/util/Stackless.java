@@ -0,0 +1,57 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.quickstarts.wfk.util;
+
+import javax.validation.ConstraintViolation;
+import javax.validation.ConstraintViolationException;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * <p>Exceptions for expected rejections which skip capturing a stack trace. The validators throw these for invalid
+ * request bodies; the REST services map them to 400 responses by their violations alone.</p>
+ *
+ * @author Constance He
+ * @see BusinessRuleException
+ */
+public final class Stackless {
+
+    private Stackless() {
+    }
+
+    /**
+     * @param violations The Bean Validation violations of a request body
+     * @return A ConstraintViolationException without a stack trace
+     */
+    public static ConstraintViolationException constraintViolations(Set<? extends ConstraintViolation<?>> violations) {
+        return new StacklessConstraintViolationException(new HashSet<ConstraintViolation<?>>(violations));
+    }
+
+    private static class StacklessConstraintViolationException extends ConstraintViolationException {
+
+        private static final long serialVersionUID = 1L;
+
+        StacklessConstraintViolationException(Set<ConstraintViolation<?>> violations) {
+            super(violations);
+        }
+
+        @Override
+        public synchronized Throwable fillInStackTrace() {
+            return this;
+        }
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.quickstarts.wfk.util;
+
+import javax.ejb.Stateless;
+import javax.ejb.TransactionAttribute;
+import javax.ejb.TransactionAttributeType;
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Request;
+import javax.ws.rs.core.Response;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+
+/**
+ * <p>This class produces a RESTful service serving the Swagger document generated at build time by the
+ * swagger-maven-plugin, so that the application does not scan its classes for it during deployment.</p>
+ *
+ * <p>The document is read once from <code>META-INF/swagger</code>, where the build also leaves a gzipped copy which
+ * is sent as is to clients accepting gzip. Both carry a strong ETag, so the Swagger UI revalidates them cheaply; the
+ * tag of the gzipped copy has a <code>+gzip</code> suffix, see {@link RepresentationTags}.</p>
+ *
+ * <p>The full path for accessing endpoints defined herein is: api/swagger.json</p>
+ *
+ * @author Constance He
+ * @see org.jboss.quickstarts.wfk.ContactServiceApplication
+ */
+@Path("/swagger.json")
+@Produces(MediaType.APPLICATION_JSON)
+@TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+@Stateless
+public class SwaggerSpecRestService {
+
+    private static final String LOCATION = "/META-INF/swagger/swagger.json";
+
+    private static final byte[] SPEC = read(LOCATION);
+
+    private static final byte[] SPEC_GZIP = read(LOCATION + ".gz");
+
+    private static final EntityTag TAG = SPEC == null ? null
+            : new EntityTag(Integer.toHexString(Arrays.hashCode(SPEC)) + "-" + SPEC.length);
+
+    @Context
+    private HttpHeaders headers;
+
+    /**
+     * @return True if the build generated the Swagger document; if not it has to be scanned for at run time
+     */
+    public static boolean isPrecomputed() {
+        return SPEC != null;
+    }
+
+    /**
+     * <p>Return the Swagger document describing this API.</p>
+     *
+     * <p>Example: <pre>GET api/swagger.json</pre></p>
+     *
+     * @param request The request, for its If-None-Match header
+     * @return A Response containing the Swagger document, gzipped if the client accepts it
+     */
+    @GET
+    public Response retrieveSpec(@Context Request request) {
+        Response.ResponseBuilder notModified = request.evaluatePreconditions(TAG);
+        if (notModified != null) {
+            return notModified.build();
+        }
+
+        Response.ResponseBuilder builder = Response.ok().tag(TAG);
+        if (SPEC_GZIP != null
+                && CompressionInterceptor.GZIP.equals(CompressionInterceptor.negotiate(
+                        headers.getRequestHeader(HttpHeaders.ACCEPT_ENCODING)))) {
+            // Already compressed, which also keeps the CompressionInterceptor away
+            return builder.entity(SPEC_GZIP).header(HttpHeaders.CONTENT_ENCODING, CompressionInterceptor.GZIP).build();
+        }
+        return builder.entity(SPEC).build();
+    }
+
+    private static byte[] read(String location) {
+        try (InputStream in = SwaggerSpecRestService.class.getResourceAsStream(location)) {
+            if (in == null) {
+                return null;
+            }
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            for (int n; (n = in.read(buffer)) != -1; ) {
+                out.write(buffer, 0, n);
+            }
+            return out.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
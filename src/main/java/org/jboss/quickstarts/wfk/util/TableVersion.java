@@ -0,0 +1,74 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.quickstarts.wfk.util;
+
+import javax.persistence.*;
+import java.io.Serializable;
+
+/**
+ * <p>The number of changes committed so far to the entities of one type, e.g. to customers. It is shared by every node,
+ * and {@link ResponseCache} tags lists with it.</p>
+ *
+ * @author Constance He
+ * @see TableVersions
+ */
+@Entity
+@NamedQueries({
+        @NamedQuery(name = TableVersion.FIND_BY_TYPES, query = "SELECT v FROM TableVersion v WHERE v.entityType IN :types"),
+        @NamedQuery(name = TableVersion.BUMP, query = "UPDATE TableVersion v SET v.changes = v.changes + 1 "
+                + "WHERE v.entityType = :type")
+})
+@Table(name = "table_version")
+public class TableVersion implements Serializable {
+    /** Default value included to remove warning. Remove or modify at will. **/
+    private static final long serialVersionUID = 1L;
+
+    public static final String FIND_BY_TYPES = "TableVersion.findByTypes";
+    public static final String BUMP = "TableVersion.bump";
+
+    /** One of the {@link org.jboss.quickstarts.wfk.feed.ChangeEvent} type constants. */
+    @Id
+    @Column(name = "entityType", length = 32)
+    private String entityType;
+
+    @Column(name = "changes")
+    private long changes;
+
+    public TableVersion() {
+    }
+
+    TableVersion(String entityType, long changes) {
+        this.entityType = entityType;
+        this.changes = changes;
+    }
+
+    public String getEntityType() {
+        return entityType;
+    }
+
+    public void setEntityType(String entityType) {
+        this.entityType = entityType;
+    }
+
+    public long getChanges() {
+        return changes;
+    }
+
+    public void setChanges(long changes) {
+        this.changes = changes;
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.quickstarts.wfk.util;
+
+import org.jboss.quickstarts.wfk.feed.ChangeEvent;
+
+import javax.ejb.Stateless;
+import javax.ejb.TransactionAttribute;
+import javax.ejb.TransactionAttributeType;
+import javax.enterprise.event.Observes;
+import javax.enterprise.event.TransactionPhase;
+import javax.inject.Inject;
+import javax.persistence.EntityManager;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * <p>Counts the committed changes to each type of entity in the {@link TableVersion} rows.</p>
+ *
+ * <p>A count is raised in a transaction of its own once a change has committed, so the row is only locked for that
+ * single UPDATE rather than for the rest of the writing transaction. Until it is raised, readers see the count from
+ * before the change, as they would have an instant earlier.</p>
+ *
+ * @author Constance He
+ * @see ResponseCache
+ */
+@Stateless
+public class TableVersions {
+
+    @Inject
+    private EntityManager em;
+
+    /**
+     * <p>Raises the count of the type of entity changed, once the change has committed.</p>
+     *
+     * <p>A schema made from the entities rather than the migrations, as in the tests, has no rows to raise; they are
+     * added then.</p>
+     *
+     * @param event The change
+     */
+    @TransactionAttribute(TransactionAttributeType.REQUIRES_NEW)
+    public void onChange(@Observes(during = TransactionPhase.AFTER_SUCCESS) ChangeEvent event) {
+        int updated = em.createNamedQuery(TableVersion.BUMP).setParameter("type", event.getEntityType())
+                .executeUpdate();
+        if (updated == 0) {
+            em.persist(new TableVersion(event.getEntityType(), 1));
+        }
+    }
+
+    /**
+     * <p>Returns the counts of the given types of entity, with 0 for a type which has never changed.</p>
+     *
+     * @param types The {@link ChangeEvent} type constants
+     * @return The count of each type
+     */
+    @TransactionAttribute(TransactionAttributeType.SUPPORTS)
+    public Map<String, Long> read(String... types) {
+        Map<String, Long> changes = new HashMap<>();
+        for (String type : types) {
+            changes.put(type, 0L);
+        }
+        for (TableVersion version : em.createNamedQuery(TableVersion.FIND_BY_TYPES, TableVersion.class)
+                .setParameter("types", Arrays.asList(types)).getResultList()) {
+            changes.put(version.getEntityType(), version.getChanges());
+        }
+        return changes;
+    }
+}
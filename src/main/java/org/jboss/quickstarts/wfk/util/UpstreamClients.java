@@ -0,0 +1,94 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.quickstarts.wfk.util;
+
+import org.apache.http.client.config.RequestConfig;
+import org.jboss.quickstarts.wfk.metrics.MetricsRegistry;
+import org.jboss.quickstarts.wfk.trace.CorrelationClientFilter;
+import org.jboss.resteasy.client.jaxrs.ResteasyClient;
+
+import javax.annotation.PreDestroy;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * <p>Builds the REST clients used to call the services of other agencies.</p>
+ *
+ * <p>Every client is instrumented under the name of its upstream service, so the time spent in, and the errors and
+ * timeouts of, each partner show up at <code>/api/metrics</code> next to our own timings. Calls time out after
+ * <code>upstream.connect.timeout</code> milliseconds (5000 by default) without a connection and
+ * <code>upstream.read.timeout</code> milliseconds (15000 by default) without a response; a partner which hangs must
+ * not hold up our request threads forever. The correlation ID of the request being handled is sent along in the
+ * <code>X-Correlation-ID</code> header.</p>
+ *
+ * <p>Clients are expensive to build, and all of them draw on one connection pool. The services share one client per
+ * upstream service, see {@link #client}, which lives as long as the application and keeps its connections open between
+ * calls.</p>
+ *
+ * @author Constance He
+ * @see MetricsRegistry#clientBuilder
+ */
+@ApplicationScoped
+public class UpstreamClients {
+
+    public static final String HOTEL = "hotel";
+
+    public static final String FLIGHT = "flight";
+
+    public static final String AREA = "area";
+
+    private static final int CONNECT_TIMEOUT = Integer.getInteger("upstream.connect.timeout", 5000);
+
+    private static final int READ_TIMEOUT = Integer.getInteger("upstream.read.timeout", 15000);
+
+    private static final int POOL_SIZE = Integer.getInteger("upstream.pool.size", 10);
+
+    @Inject
+    private MetricsRegistry metrics;
+
+    private final Map<String, ResteasyClient> shared = new ConcurrentHashMap<>();
+
+    /**
+     * <p>Returns the client shared by all calls to the given upstream service. It is thread safe; do not close it, and
+     * do close every Response read through it, so that its connection goes back to the pool.</p>
+     *
+     * @param upstream The upstream service, one of the constants of this class
+     * @return The shared client
+     */
+    public ResteasyClient client(String upstream) {
+        return shared.computeIfAbsent(upstream, this::newClient);
+    }
+
+    @PreDestroy
+    void closeClients() {
+        shared.values().forEach(ResteasyClient::close);
+        shared.clear();
+    }
+
+    private ResteasyClient newClient(String upstream) {
+        RequestConfig requestConfig = RequestConfig.custom()
+                .setConnectTimeout(CONNECT_TIMEOUT)
+                .setConnectionRequestTimeout(CONNECT_TIMEOUT)
+                .setSocketTimeout(READ_TIMEOUT)
+                .build();
+        return metrics.clientBuilder(upstream, requestConfig, POOL_SIZE)
+                .register(CorrelationClientFilter.class)
+                .build();
+    }
+}
@@ -0,0 +1,63 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.quickstarts.wfk.util;
+
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.container.ContainerResponseContext;
+import javax.ws.rs.container.ContainerResponseFilter;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.ext.Provider;
+
+/**
+ * <p>Adds <code>Vary: Accept</code> to every response with a body.</p>
+ *
+ * <p>The same URL can be served as JSON, CBOR or Smile (see {@link BinaryMediaTypes}), so a shared cache must not
+ * hand a representation negotiated by one client to another that asked for a different format.</p>
+ *
+ * @author Constance He
+ */
+@Provider
+public class VaryAcceptFilter implements ContainerResponseFilter {
+
+    @Override
+    public void filter(ContainerRequestContext requestContext, ContainerResponseContext responseContext) {
+        if (responseContext.hasEntity()) {
+            vary(responseContext.getHeaders(), HttpHeaders.ACCEPT);
+        }
+    }
+
+    /**
+     * <p>Adds a request header to the <code>Vary</code> header of a response, unless it is listed already.</p>
+     *
+     * @param responseHeaders The headers of the response
+     * @param field The name of the request header the response depends on
+     */
+    static void vary(MultivaluedMap<String, Object> responseHeaders, String field) {
+        Object vary = responseHeaders.getFirst(HttpHeaders.VARY);
+        if (vary == null) {
+            responseHeaders.putSingle(HttpHeaders.VARY, field);
+            return;
+        }
+        for (String listed : vary.toString().split(",")) {
+            if (listed.trim().equalsIgnoreCase(field)) {
+                return;
+            }
+        }
+        responseHeaders.putSingle(HttpHeaders.VARY, vary + ", " + field);
+    }
+}
@@ -0,0 +1,107 @@
+--
+-- JBoss, Home of Professional Open Source
+-- Copyright 2014, Red Hat, Inc. and/or its affiliates, and individual
+-- contributors by the @authors tag. See the copyright.txt in the
+-- distribution for a full listing of individual contributors.
+--
+-- Licensed under the Apache License, Version 2.0 (the "License");
+-- you may not use this file except in compliance with the License.
+-- You may obtain a copy of the License at
+-- http://www.apache.org/licenses/LICENSE-2.0
+-- Unless required by applicable law or agreed to in writing, software
+-- distributed under the License is distributed on an "AS IS" BASIS,
+-- WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+-- See the License for the specific language governing permissions and
+-- limitations under the License.
+--
+
+-- The schema the entities map to, as hibernate.hbm2ddl.auto used to create it. Never edit a migration once it has been
+-- released; add a new V<n>__ script instead.
+
+-- Ids of every entity with @GeneratedValue(strategy = GenerationType.TABLE), one row per generator
+create table hibernate_sequences (
+    sequence_name varchar(255) not null,
+    next_val bigint,
+    primary key (sequence_name)
+);
+
+create table contact (
+    id bigint not null,
+    first_name varchar(25) not null,
+    last_name varchar(25) not null,
+    email varchar(255) not null,
+    phone_number varchar(255) not null,
+    birth_date date not null,
+    state varchar(255),
+    version bigint,
+    primary key (id),
+    constraint uk_contact_email unique (email)
+);
+
+create table customer (
+    id bigint not null,
+    name varchar(50) not null,
+    email varchar(255) not null,
+    phoneNumber varchar(255) not null,
+    version bigint,
+    primary key (id),
+    constraint uk_customer_email unique (email)
+);
+
+create table taxi (
+    id bigint not null,
+    registration varchar(255) not null,
+    seats integer not null,
+    version bigint,
+    primary key (id),
+    constraint uk_taxi_registration unique (registration)
+);
+
+create table booking (
+    id bigint not null,
+    customerId bigint not null,
+    taxiId bigint not null,
+    date date not null,
+    version bigint,
+    primary key (id),
+    constraint uk_booking_date_taxi unique (date, taxiId),
+    constraint fk_booking_customer foreign key (customerId) references customer (id),
+    constraint fk_booking_taxi foreign key (taxiId) references taxi (id)
+);
+
+create index ix_booking_customer on booking (customerId);
+
+create table TABooking (
+    id bigint not null,
+    customer bigint,
+    taxiId bigint,
+    taxiBookingId bigint,
+    hotelId bigint,
+    hotelBookingId bigint,
+    flightId bigint,
+    flightBookingId bigint,
+    date timestamp,
+    version bigint,
+    primary key (id),
+    constraint fk_tabooking_customer foreign key (customer) references customer (id)
+);
+
+create index ix_tabooking_customer on TABooking (customer);
+
+create table booking_rollup (
+    id bigint not null,
+    dimension varchar(16) not null,
+    rollupKey varchar(32) not null,
+    bookings bigint not null,
+    primary key (id),
+    constraint uk_booking_rollup_key unique (dimension, rollupKey)
+);
+
+create table change_event (
+    id bigint not null,
+    entityType varchar(32) not null,
+    entityId bigint not null,
+    action varchar(16) not null,
+    occurredAt bigint not null,
+    primary key (id)
+);
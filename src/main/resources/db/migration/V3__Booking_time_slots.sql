@@ -0,0 +1,27 @@
+--
+-- JBoss, Home of Professional Open Source
+-- Copyright 2014, Red Hat, Inc. and/or its affiliates, and individual
+-- contributors by the @authors tag. See the copyright.txt in the
+-- distribution for a full listing of individual contributors.
+--
+-- Licensed under the Apache License, Version 2.0 (the "License");
+-- you may not use this file except in compliance with the License.
+-- You may obtain a copy of the License at
+-- http://www.apache.org/licenses/LICENSE-2.0
+-- Unless required by applicable law or agreed to in writing, software
+-- distributed under the License is distributed on an "AS IS" BASIS,
+-- WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+-- See the License for the specific language governing permissions and
+-- limitations under the License.
+--
+
+-- Bookings hold their taxi for a slot of the day rather than the whole of it, so a taxi can make several trips on one
+-- date. Existing bookings keep the whole day. The unique (date, taxiId) constraint gives way to the rule that slots of
+-- the same taxi must not overlap, which BookingValidator checks through the index below.
+
+alter table booking add column startTime varchar(5) default '00:00' not null;
+alter table booking add column endTime varchar(5) default '24:00' not null;
+
+alter table booking drop constraint uk_booking_date_taxi;
+
+create index ix_booking_taxi_slot on booking (taxiId, date, startTime);
@@ -0,0 +1,27 @@
+--
+-- JBoss, Home of Professional Open Source
+-- Copyright 2014, Red Hat, Inc. and/or its affiliates, and individual
+-- contributors by the @authors tag. See the copyright.txt in the
+-- distribution for a full listing of individual contributors.
+--
+-- Licensed under the Apache License, Version 2.0 (the "License");
+-- you may not use this file except in compliance with the License.
+-- You may obtain a copy of the License at
+-- http://www.apache.org/licenses/LICENSE-2.0
+-- Unless required by applicable law or agreed to in writing, software
+-- distributed under the License is distributed on an "AS IS" BASIS,
+-- WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+-- See the License for the specific language governing permissions and
+-- limitations under the License.
+--
+
+-- The rollups are rebuilt by one node at a time, which locks this single row for the length of the rebuild and records
+-- when it finished. A null time means the rollups have never been rebuilt, e.g. since the seed data was loaded.
+
+create table rollup_rebuild (
+    id bigint not null,
+    rebuiltAt bigint,
+    primary key (id)
+);
+
+insert into rollup_rebuild (id, rebuiltAt) values (1, null);
@@ -0,0 +1,30 @@
+--
+-- JBoss, Home of Professional Open Source
+-- Copyright 2014, Red Hat, Inc. and/or its affiliates, and individual
+-- contributors by the @authors tag. See the copyright.txt in the
+-- distribution for a full listing of individual contributors.
+--
+-- Licensed under the Apache License, Version 2.0 (the "License");
+-- you may not use this file except in compliance with the License.
+-- You may obtain a copy of the License at
+-- http://www.apache.org/licenses/LICENSE-2.0
+-- Unless required by applicable law or agreed to in writing, software
+-- distributed under the License is distributed on an "AS IS" BASIS,
+-- WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+-- See the License for the specific language governing permissions and
+-- limitations under the License.
+--
+
+-- The number of changes committed to each type of entity, shared by every node. The ETags of lists are made from it,
+-- rather than from aggregates over the tables themselves.
+
+create table table_version (
+    entityType varchar(32) not null,
+    changes bigint not null,
+    primary key (entityType)
+);
+
+insert into table_version (entityType, changes) values ('Customer', 0);
+insert into table_version (entityType, changes) values ('Taxi', 0);
+insert into table_version (entityType, changes) values ('TaxiBooking', 0);
+insert into table_version (entityType, changes) values ('TravelAgencyBooking', 0);
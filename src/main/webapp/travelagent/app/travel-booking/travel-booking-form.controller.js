@@ -42,26 +42,21 @@
 
         // EDIT ==>
 
-        $http.get('api/travel/taxis')
+        // One request for all three lists; the hotels and flights are cached by the server
+        $http.get('api/travel/catalog')
             .success(function(data) {
-                $scope.taxis = data;
-            })
-            .error(function() {
-                $scope.messageService.push('danger', '/taxis resource unavailable');
-            });
-        $http.get('api/travel/hotels')
-            .success(function(data) {
-                $scope.hotels = data;
-            })
-            .error(function() {
+                $scope.taxis = data.taxis;
+                $scope.hotels = data.hotels || [];
+                $scope.flights = data.flights || [];
+                if (!data.hotels) {
                     $scope.messageService.push('danger', '/hotels resource unavailable');
-            });
-        $http.get('api/travel/flights')
-            .success(function(data) {
-                $scope.flights = data;
+                }
+                if (!data.flights) {
+                    $scope.messageService.push('danger', '/flights resource unavailable');
+                }
             })
             .error(function() {
-                $scope.messageService.push('danger', '/flights resource unavailable');
+                $scope.messageService.push('danger', '/catalog resource unavailable');
             });
 
         // <== EDIT
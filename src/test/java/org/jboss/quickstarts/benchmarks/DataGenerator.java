@@ -0,0 +1,458 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.quickstarts.benchmarks;
+
+import org.flywaydb.core.Flyway;
+import org.jboss.quickstarts.wfk.booking.TaxiBooking;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * <p>Fills a database with production sized volumes of valid customers, taxis, taxi bookings and travel agent
+ * bookings, so that queries and endpoints can be measured against realistic data rather than the few seed rows.</p>
+ *
+ * <p>The data respects the constraints of the entities: customer names are letters only and phone numbers match
+ * <code>0[0-9]{10}</code>, e-mail addresses and 7 character taxi registrations are unique, seats lie between 2 and
+ * 20, and every booking holds its taxi for the whole day, so no taxi is booked twice on a day. It is also skewed the
+ * way real bookings are: a few taxis and customers account for most of the bookings, weekends are busier than
+ * weekdays, and some dates (holidays, events) are much busier than the rest. Travel agent bookings wrap taxi bookings, for the same customer, taxi and date.</p>
+ *
+ * <p>By default the database is an H2 file under <code>target/datagen</code>, created with the application's own
+ * Flyway migrations (without the seed data); stop the server and copy it over
+ * <code>standalone/data/jboss-contacts-swagger-quickstart.h2.db</code> to use it. Rows are written with batched
+ * inserts. Run with</p>
+ *
+ * <pre>mvn test-compile exec:java -Pdatagen</pre>
+ *
+ * <p>configured by these system properties:</p>
+ * <ul>
+ *     <li><code>datagen.customers</code>, <code>datagen.taxis</code>, <code>datagen.bookings</code>,
+ *     <code>datagen.travelBookings</code> - how many of each to generate (1M, 10k, 20M and 1M by default)</li>
+ *     <li><code>datagen.days</code> - the days the bookings are spread over, half before and half after today
+ *     (3650 by default); there must be at least bookings / taxis of them</li>
+ *     <li><code>datagen.skew</code> - the Zipf exponent of the popularity of taxis and customers (1.1 by default)</li>
+ *     <li><code>datagen.seed</code> - the random seed, so a data set can be generated again (42 by default)</li>
+ *     <li><code>datagen.url</code>, <code>datagen.user</code>, <code>datagen.password</code> - the database to fill,
+ *     which must be empty</li>
+ *     <li><code>datagen.csv</code> - a directory to write CSV files to instead, in the format of
+ *     <code>db/seed</code>, loadable with <code>SeedLoader</code></li>
+ *     <li><code>datagen.batch</code> - the rows per batch insert (1000 by default)</li>
+ * </ul>
+ *
+ * @author Constance He
+ */
+public class DataGenerator {
+
+    private static final String[] FIRST_NAMES = {"Oliver", "Amelia", "George", "Isla", "Harry", "Ava", "Noah", "Mia",
+            "Jack", "Ivy", "Leo", "Lily", "Arthur", "Isabella", "Muhammad", "Rosie", "Oscar", "Sophia", "Charlie",
+            "Grace", "Jacob", "Freya", "Thomas", "Olivia", "Henry", "Florence", "William", "Willow", "Alfie", "Emily"};
+
+    private static final String[] LAST_NAMES = {"Smith", "Jones", "Taylor", "Brown", "Williams", "Wilson", "Johnson",
+            "Davies", "Patel", "Robinson", "Wright", "Thompson", "Evans", "Walker", "White", "Roberts", "Green", "Hall",
+            "Thomas", "Clarke", "Jackson", "Wood", "Harris", "Edwards", "Turner", "Martin", "Cooper", "Hill", "Ward",
+            "O'Brien"};
+
+    private static final String[] DOMAINS = {"mailinator.com", "example.com", "example.org", "example.net"};
+
+    /** Seats of the taxis, and how common each is. */
+    private static final int[] SEATS = {4, 4, 4, 4, 4, 4, 5, 6, 6, 7, 8, 8, 10, 12, 16, 20};
+
+    private static final long REGISTRATIONS = 78364164096L; // 36^7
+
+    private final int customers = Integer.getInteger("datagen.customers", 1000000);
+    private final int taxis = Integer.getInteger("datagen.taxis", 10000);
+    private final long bookings = Long.getLong("datagen.bookings", 20000000L);
+    private final long travelBookings = Long.getLong("datagen.travelBookings", 1000000L);
+    private final int days = Integer.getInteger("datagen.days", 3650);
+    private final double skew = Double.parseDouble(System.getProperty("datagen.skew", "1.1"));
+    private final SplittableRandom random = new SplittableRandom(Long.getLong("datagen.seed", 42L));
+
+    private final LocalDate firstDay = LocalDate.now().minusDays(days / 2);
+
+    private long nextId = 1;
+
+    public static void main(String[] args) throws Exception {
+        new DataGenerator().run();
+    }
+
+    private void run() throws Exception {
+        if (bookings > (long) taxis * days) {
+            throw new IllegalArgumentException(taxis + " taxis cannot take " + bookings + " bookings in " + days
+                    + " days without double booking; raise datagen.days or datagen.taxis");
+        }
+
+        long start = System.currentTimeMillis();
+        try (Sink sink = openSink()) {
+            generateCustomers(sink);
+            generateTaxis(sink);
+            generateBookings(sink);
+            sink.finish(nextId);
+        }
+        System.out.printf("Generated %d customers, %d taxis, %d bookings and %d travel agent bookings in %d s%n",
+                customers, taxis, bookings, Math.min(travelBookings, bookings),
+                (System.currentTimeMillis() - start) / 1000);
+    }
+
+    private Sink openSink() throws IOException, SQLException {
+        String csv = System.getProperty("datagen.csv");
+        if (csv != null) {
+            return new CsvSink(Paths.get(csv));
+        }
+        String url = System.getProperty("datagen.url", "jdbc:h2:./target/datagen/jboss-contacts-swagger-quickstart");
+        String user = System.getProperty("datagen.user", "sa");
+        String password = System.getProperty("datagen.password", "sa");
+
+        // The same schema as the application, but without its seed data
+        System.setProperty("seed.disabled", "true");
+        Flyway flyway = new Flyway();
+        flyway.setDataSource(url, user, password);
+        flyway.setLocations("classpath:db/migration", "classpath:org/jboss/quickstarts/wfk/migration");
+        flyway.migrate();
+
+        return new JdbcSink(DriverManager.getConnection(url, user, password));
+    }
+
+    private void generateCustomers(Sink sink) throws Exception {
+        for (int i = 0; i < customers; i++) {
+            String first = FIRST_NAMES[random.nextInt(FIRST_NAMES.length)];
+            String last = LAST_NAMES[random.nextInt(LAST_NAMES.length)];
+            String email = (first + "." + last).toLowerCase().replace("'", "") + "." + i + "@"
+                    + DOMAINS[random.nextInt(DOMAINS.length)];
+            String phone = "07" + String.format("%09d", random.nextInt(1000000000));
+            sink.row("customer", nextId++, first + "-" + last, email, phone, 0L);
+        }
+    }
+
+    private void generateTaxis(Sink sink) throws Exception {
+        for (int i = 0; i < taxis; i++) {
+            // A bijection of [0, 36^7), so the registrations look random but cannot collide
+            String registration = Long.toString((i * 2654435761L + 12345678901L) % REGISTRATIONS, 36).toUpperCase();
+            while (registration.length() < 7) {
+                registration = "0" + registration;
+            }
+            sink.row("taxi", nextId++, registration, SEATS[random.nextInt(SEATS.length)], 0L);
+        }
+    }
+
+    /**
+     * Hands out the bookings taxi by taxi, the busiest first, each on distinct days drawn from the popularity of the
+     * days. Every so often a booking also gets a travel agent booking.
+     */
+    private void generateBookings(Sink sink) throws Exception {
+        long firstCustomer = 1;
+        long firstTaxi = customers + 1;
+        long[] perTaxi = bookingsPerTaxi();
+        double[] dayWeights = cumulativeDayWeights();
+        ZipfSampler customerSampler = new ZipfSampler(customers, skew);
+        long travelEvery = travelBookings <= 0 ? Long.MAX_VALUE : Math.max(1, bookings / travelBookings);
+
+        long written = 0;
+        long travelWritten = 0;
+        BitSet booked = new BitSet(days);
+        for (int taxi = 0; taxi < taxis; taxi++) {
+            booked.clear();
+            for (long b = 0; b < perTaxi[taxi]; b++) {
+                int day = freeDay(booked, dayWeights);
+                booked.set(day);
+                LocalDate date = firstDay.plusDays(day);
+                long customer = firstCustomer + customerSampler.sample(random);
+                long bookingId = nextId++;
+                sink.row("booking", bookingId, customer, firstTaxi + taxi, java.sql.Date.valueOf(date),
+                        TaxiBooking.START_OF_DAY, TaxiBooking.END_OF_DAY, 0L);
+
+                if (++written % travelEvery == 0 && travelWritten < travelBookings) {
+                    travelWritten++;
+                    Timestamp time = Timestamp.valueOf(date.atTime(6 + random.nextInt(16), random.nextInt(60)));
+                    sink.row("TABooking", nextId++, customer, firstTaxi + taxi, bookingId,
+                            1L + random.nextInt(100), travelWritten, 1L + random.nextInt(100), travelWritten,
+                            time, 0L);
+                }
+            }
+            if (taxi % 1000 == 999) {
+                System.out.printf("%d of %d taxis booked, %d bookings%n", taxi + 1, taxis, written);
+            }
+        }
+    }
+
+    /**
+     * Splits the bookings between the taxis by a Zipf distribution, so taxi 0 is the busiest, but with no taxi booked
+     * on more days than there are.
+     */
+    private long[] bookingsPerTaxi() {
+        double[] weights = new double[taxis];
+        double total = 0;
+        for (int i = 0; i < taxis; i++) {
+            weights[i] = 1 / Math.pow(i + 1, skew);
+            total += weights[i];
+        }
+
+        long[] counts = new long[taxis];
+        long assigned = 0;
+        for (int i = 0; i < taxis; i++) {
+            counts[i] = Math.min(days, (long) (bookings * weights[i] / total));
+            assigned += counts[i];
+        }
+        // What the rounding and the cap on days left over goes to the taxis with room, quietest first
+        for (int i = taxis - 1; assigned < bookings; i = i == 0 ? taxis - 1 : i - 1) {
+            long room = Math.min(days - counts[i], bookings - assigned);
+            long add = Math.min(room, Math.max(1, (bookings - assigned) / taxis));
+            counts[i] += add;
+            assigned += add;
+        }
+        return counts;
+    }
+
+    /**
+     * The cumulative popularity of each day: Fridays and Saturdays are busier, December busier still, and one day in
+     * twenty is a hot date, five times as busy as it would otherwise be.
+     */
+    private double[] cumulativeDayWeights() {
+        double[] cumulative = new double[days];
+        double sum = 0;
+        for (int day = 0; day < days; day++) {
+            LocalDate date = firstDay.plusDays(day);
+            double weight = 1;
+            if (date.getDayOfWeek() == DayOfWeek.FRIDAY || date.getDayOfWeek() == DayOfWeek.SATURDAY) {
+                weight *= 1.6;
+            }
+            if (date.getMonthValue() == 12) {
+                weight *= 1.4;
+            }
+            if (random.nextInt(20) == 0) {
+                weight *= 5;
+            }
+            sum += weight;
+            cumulative[day] = sum;
+        }
+        return cumulative;
+    }
+
+    /**
+     * Draws a day the taxi is free on. Popular days are tried a few times; once a taxi is booked on most of them, the
+     * next free day after a random one is taken instead.
+     */
+    private int freeDay(BitSet booked, double[] cumulative) {
+        for (int attempt = 0; attempt < 8; attempt++) {
+            int index = Arrays.binarySearch(cumulative, random.nextDouble() * cumulative[days - 1]);
+            int day = index < 0 ? -index - 1 : index;
+            if (!booked.get(day)) {
+                return day;
+            }
+        }
+        int day = booked.nextClearBit(random.nextInt(days));
+        return day < days ? day : booked.nextClearBit(0);
+    }
+
+    /**
+     * Samples ranks from a Zipf distribution over [0, n), by inverting an approximation of its cumulative distribution,
+     * which needs no table however large n is.
+     */
+    private static class ZipfSampler {
+
+        private final long n;
+        private final double s;
+        private final double hn;
+
+        ZipfSampler(long n, double s) {
+            this.n = n;
+            this.s = s;
+            this.hn = h(n + 0.5);
+        }
+
+        private double h(double x) {
+            return s == 1 ? Math.log(x) : (Math.pow(x, 1 - s) - 1) / (1 - s);
+        }
+
+        private double hInverse(double y) {
+            return s == 1 ? Math.exp(y) : Math.pow(y * (1 - s) + 1, 1 / (1 - s));
+        }
+
+        long sample(SplittableRandom random) {
+            double lower = h(0.5);
+            double x = hInverse(lower + random.nextDouble() * (hn - lower));
+            return Math.min(n - 1, Math.max(0, Math.round(x) - 1));
+        }
+    }
+
+    /**
+     * Where the rows go. Columns are given in the order of the header of the matching <code>db/seed</code> file.
+     */
+    private interface Sink extends AutoCloseable {
+
+        void row(String table, Object... values) throws Exception;
+
+        /**
+         * Called once every row has been written, with the first id the application may hand out.
+         */
+        void finish(long nextId) throws Exception;
+    }
+
+    private static final Map<String, String> COLUMNS = new HashMap<>();
+
+    static {
+        COLUMNS.put("customer", "id,name,email,phoneNumber,version");
+        COLUMNS.put("taxi", "id,registration,seats,version");
+        COLUMNS.put("booking", "id,customerId,taxiId,date,startTime,endTime,version");
+        COLUMNS.put("TABooking", "id,customer,taxiId,taxiBookingId,hotelId,hotelBookingId,flightId,flightBookingId,date,version");
+    }
+
+    private static class JdbcSink implements Sink {
+
+        private static final int BATCH = Integer.getInteger("datagen.batch", 1000);
+
+        /** Batches between commits, so a failure does not lose everything, nor does every batch wait for the log. */
+        private static final int BATCHES_PER_COMMIT = 20;
+
+        private final Connection connection;
+        private final Map<String, PreparedStatement> inserts = new HashMap<>();
+        private final Map<String, Integer> pending = new HashMap<>();
+        private int batches;
+
+        JdbcSink(Connection connection) throws SQLException {
+            this.connection = connection;
+            connection.setAutoCommit(false);
+            try (Statement statement = connection.createStatement();
+                 ResultSet count = statement.executeQuery("select count(*) from customer")) {
+                count.next();
+                if (count.getLong(1) > 0) {
+                    throw new IllegalStateException("The database already has customers; generate into an empty one");
+                }
+            }
+        }
+
+        @Override
+        public void row(String table, Object... values) throws SQLException {
+            PreparedStatement insert = inserts.get(table);
+            if (insert == null) {
+                String columns = COLUMNS.get(table);
+                String parameters = columns.replaceAll("[^,]+", "?");
+                insert = connection.prepareStatement("insert into " + table + " (" + columns + ") values ("
+                        + parameters + ")");
+                inserts.put(table, insert);
+            }
+            for (int i = 0; i < values.length; i++) {
+                insert.setObject(i + 1, values[i]);
+            }
+            insert.addBatch();
+            int rows = pending.merge(table, 1, Integer::sum);
+            if (rows >= BATCH) {
+                insert.executeBatch();
+                pending.put(table, 0);
+                if (++batches % BATCHES_PER_COMMIT == 0) {
+                    connection.commit();
+                }
+            }
+        }
+
+        @Override
+        public void finish(long nextId) throws SQLException {
+            for (Map.Entry<String, PreparedStatement> insert : inserts.entrySet()) {
+                if (pending.getOrDefault(insert.getKey(), 0) > 0) {
+                    insert.getValue().executeBatch();
+                }
+            }
+            // Start the ids the application generates after ours, beyond a whole allocation of the table generator
+            try (Statement statement = connection.createStatement()) {
+                statement.executeUpdate("delete from hibernate_sequences where sequence_name = 'default'");
+            }
+            try (PreparedStatement insert = connection.prepareStatement(
+                    "insert into hibernate_sequences (sequence_name, next_val) values ('default', ?)")) {
+                insert.setLong(1, nextId + 100);
+                insert.executeUpdate();
+            }
+            connection.commit();
+        }
+
+        @Override
+        public void close() throws SQLException {
+            try {
+                for (PreparedStatement insert : inserts.values()) {
+                    insert.close();
+                }
+            } finally {
+                connection.close();
+            }
+        }
+    }
+
+    private static class CsvSink implements Sink {
+
+        private final Path directory;
+        private final Map<String, Writer> files = new HashMap<>();
+
+        CsvSink(Path directory) throws IOException {
+            this.directory = Files.createDirectories(directory);
+        }
+
+        @Override
+        public void row(String table, Object... values) throws IOException {
+            Writer out = files.computeIfAbsent(table, t -> {
+                try {
+                    Writer writer = new BufferedWriter(Files.newBufferedWriter(directory.resolve(t + ".csv"),
+                            StandardCharsets.UTF_8), 1 << 16);
+                    writer.write(COLUMNS.get(t));
+                    writer.write('\n');
+                    return writer;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            for (int i = 0; i < values.length; i++) {
+                if (i > 0) {
+                    out.write(',');
+                }
+                String value = String.valueOf(values[i]);
+                out.write(value.indexOf(',') < 0 && value.indexOf('"') < 0 ? value
+                        : '"' + value.replace("\"", "\"\"") + '"');
+            }
+            out.write('\n');
+        }
+
+        @Override
+        public void finish(long nextId) {
+            System.out.printf("Ids run up to %d; the application's table generator must start after them%n", nextId);
+        }
+
+        @Override
+        public void close() throws IOException {
+            for (Writer out : files.values()) {
+                out.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,146 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.quickstarts.benchmarks;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.jboss.quickstarts.wfk.booking.TaxiBooking;
+import org.jboss.quickstarts.wfk.customer.Customer;
+import org.jboss.quickstarts.wfk.taxi.Taxi;
+import org.jboss.quickstarts.wfk.travelAgency.TravelAgencyBooking;
+import org.jboss.quickstarts.wfk.util.JacksonConfig;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>Compares writing the booking lists returned by <code>GET api/bookings</code> and <code>GET api/travelagent</code>
+ * with the mapper configuration the application used to have (reflection and a SimpleDateFormat) against the shared
+ * mapper from {@link JacksonConfig}.</p>
+ *
+ * <p>Run with <code>mvn test-compile exec:exec -Pbenchmark -Dbenchmark=JsonSerialization</code>, adding
+ * <code>-prof gc</code> to the JMH arguments to see allocation per operation.</p>
+ *
+ * @author Constance He
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonSerializationBenchmark {
+
+    @Param({"100", "1000"})
+    private int size;
+
+    private List<TaxiBooking> taxiBookings;
+    private List<TravelAgencyBooking> travelAgencyBookings;
+
+    private ObjectWriter legacyTaxiBookings;
+    private ObjectWriter legacyTravelAgencyBookings;
+    private ObjectWriter sharedTaxiBookings;
+    private ObjectWriter sharedTravelAgencyBookings;
+
+    // Reused so that the benchmarks measure the encoding rather than growing a buffer.
+    private final ByteArrayOutputStream out = new ByteArrayOutputStream(1 << 20);
+
+    @Setup
+    public void setUp() {
+        taxiBookings = new ArrayList<>(size);
+        travelAgencyBookings = new ArrayList<>(size);
+        long day = 24L * 60 * 60 * 1000;
+        long start = System.currentTimeMillis();
+        for (int i = 0; i < size; i++) {
+            Customer customer = new Customer();
+            customer.setId(10000L + i % 50);
+            customer.setName("Customer" + i % 50);
+            customer.setEmail("customer" + i % 50 + "@mailinator.com");
+            customer.setPhoneNumber("07422123456");
+            customer.setVersion(0L);
+
+            Taxi taxi = new Taxi();
+            taxi.setId(20000L + i % 20);
+            taxi.setRegistration("TAX" + (1000 + i % 20));
+            taxi.setSeats(4);
+            taxi.setVersion(0L);
+
+            TaxiBooking booking = new TaxiBooking();
+            booking.setId(30000L + i);
+            booking.setCustomer(customer);
+            booking.setTaxi(taxi);
+            booking.setDate(new Date(start + i * day));
+            booking.setVersion(0L);
+            taxiBookings.add(booking);
+
+            TravelAgencyBooking travelAgencyBooking = new TravelAgencyBooking();
+            travelAgencyBooking.setId(40000L + i);
+            travelAgencyBooking.setCustomer(customer);
+            travelAgencyBooking.setTaxiId(taxi.getId());
+            travelAgencyBooking.setTaxiBookingId(booking.getId());
+            travelAgencyBooking.setHotelId(10001L);
+            travelAgencyBooking.setHotelBookingId(50000L + i);
+            travelAgencyBooking.setFlightId(10002L);
+            travelAgencyBooking.setFlightBookingId(60000L + i);
+            travelAgencyBooking.setTime(booking.getDate());
+            travelAgencyBooking.setVersion(0L);
+            travelAgencyBookings.add(travelAgencyBooking);
+        }
+
+        ObjectMapper legacy = new ObjectMapper();
+        legacy.setDateFormat(new SimpleDateFormat("yyyy-MM-dd"));
+        ObjectMapper shared = JacksonConfig.mapper();
+
+        legacyTaxiBookings = legacy.writerFor(new TypeReference<List<TaxiBooking>>() { });
+        legacyTravelAgencyBookings = legacy.writerFor(new TypeReference<List<TravelAgencyBooking>>() { });
+        sharedTaxiBookings = shared.writerFor(new TypeReference<List<TaxiBooking>>() { });
+        sharedTravelAgencyBookings = shared.writerFor(new TypeReference<List<TravelAgencyBooking>>() { });
+    }
+
+    @Benchmark
+    public int taxiBookingsLegacy() throws IOException {
+        return write(legacyTaxiBookings, taxiBookings);
+    }
+
+    @Benchmark
+    public int taxiBookingsShared() throws IOException {
+        return write(sharedTaxiBookings, taxiBookings);
+    }
+
+    @Benchmark
+    public int travelAgencyBookingsLegacy() throws IOException {
+        return write(legacyTravelAgencyBookings, travelAgencyBookings);
+    }
+
+    @Benchmark
+    public int travelAgencyBookingsShared() throws IOException {
+        return write(sharedTravelAgencyBookings, travelAgencyBookings);
+    }
+
+    private int write(ObjectWriter writer, Object value) throws IOException {
+        out.reset();
+        writer.writeValue(out, value);
+        return out.size();
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.quickstarts.benchmarks;
+
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.Transaction;
+import org.hibernate.cfg.Configuration;
+import org.jboss.quickstarts.wfk.customer.Customer;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>Measures what the read-only hint on the named queries of the GET endpoints saves, by loading every customer
+ * with {@link Customer#FIND_ALL} and committing, the way <code>GET api/customers</code> does.</p>
+ *
+ * <p>The tracked variant runs the same query with the hint switched off, so Hibernate keeps a snapshot of each
+ * customer and compares it against the entity when the transaction flushes. The read-only variant skips both. The
+ * database is an in-memory H2 with the schema generated from the entity.</p>
+ *
+ * <p>Run with <code>mvn test-compile exec:exec -Pbenchmark -Dbenchmark=ReadOnlyQuery</code>, adding
+ * <code>-prof gc</code> to the JMH arguments to see allocation per operation.</p>
+ *
+ * @author Constance He
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ReadOnlyQueryBenchmark {
+
+    @Param({"100", "1000", "10000"})
+    private int customers;
+
+    private SessionFactory sessionFactory;
+
+    @Setup
+    public void setUp() {
+        sessionFactory = new Configuration()
+                .addAnnotatedClass(Customer.class)
+                .setProperty("hibernate.connection.driver_class", "org.h2.Driver")
+                .setProperty("hibernate.connection.url", "jdbc:h2:mem:readonly;DB_CLOSE_DELAY=-1")
+                .setProperty("hibernate.dialect", "org.hibernate.dialect.H2Dialect")
+                .setProperty("hibernate.hbm2ddl.auto", "create")
+                .setProperty("hibernate.jdbc.batch_size", "1000")
+                .setProperty("javax.persistence.validation.mode", "none")
+                .buildSessionFactory();
+
+        Session session = sessionFactory.openSession();
+        try {
+            Transaction transaction = session.beginTransaction();
+            for (int i = 0; i < customers; i++) {
+                Customer customer = new Customer();
+                customer.setName("Rider");
+                customer.setEmail("rider" + i + "@example.com");
+                customer.setPhoneNumber(String.format("0%010d", i));
+                session.save(customer);
+                if (i % 1000 == 999) {
+                    session.flush();
+                    session.clear();
+                }
+            }
+            transaction.commit();
+        } finally {
+            session.close();
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        sessionFactory.close();
+    }
+
+    /** The query as it was: every customer is snapshotted on load and dirty checked on commit. */
+    @Benchmark
+    public List<?> tracked() {
+        return findAll(false);
+    }
+
+    /** The query with the hint from its @NamedQuery. */
+    @Benchmark
+    public List<?> readOnly() {
+        return findAll(true);
+    }
+
+    private List<?> findAll(boolean readOnly) {
+        Session session = sessionFactory.openSession();
+        try {
+            Transaction transaction = session.beginTransaction();
+            List<?> rows = session.getNamedQuery(Customer.FIND_ALL).setReadOnly(readOnly).list();
+            transaction.commit();
+            return rows;
+        } finally {
+            session.close();
+        }
+    }
+}
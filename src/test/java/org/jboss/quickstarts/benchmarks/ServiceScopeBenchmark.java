@@ -0,0 +1,96 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.quickstarts.benchmarks;
+
+import org.jboss.quickstarts.wfk.hotel.HotelBookingService;
+import org.jboss.resteasy.client.jaxrs.ResteasyClient;
+import org.jboss.resteasy.client.jaxrs.ResteasyClientBuilder;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>Compares the upstream plumbing each request used to pay for against the shared, application scoped version.</p>
+ *
+ * <p>Before, every new instance of BookingService, TaxiService and CustomerService built its own RESTEasy client,
+ * ContactService and TravelAgencyService built a target and a proxy on each call, and TravelAgencyService built a new
+ * client on each call. Now each upstream has one client, and each service builds its proxies once. The container's own
+ * cost of creating a bean cannot be measured outside the server, so the client and proxy construction stands in for
+ * it.</p>
+ *
+ * <p>Run with <code>mvn test-compile exec:exec -Pbenchmark -Dbenchmark=ServiceScope</code>, adding
+ * <code>-prof gc</code> to the JMH arguments to see allocation per operation.</p>
+ *
+ * @author Constance He
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ServiceScopeBenchmark {
+
+    private static final String HOTEL_URL = "http://localhost:8080/hotel/api/bookings";
+
+    private ResteasyClient client;
+    private HotelBookingService hotelBookings;
+
+    @Setup
+    public void setUp() {
+        client = new ResteasyClientBuilder().build();
+        hotelBookings = client.target(HOTEL_URL).proxy(HotelBookingService.class);
+    }
+
+    @TearDown
+    public void tearDown() {
+        client.close();
+    }
+
+    /** A new service instance: three clients, as the constructors of the dependent services used to build. */
+    @Benchmark
+    public int newServiceInstances() {
+        int built = 0;
+        for (int i = 0; i < 3; i++) {
+            ResteasyClient perInstance = new ResteasyClientBuilder().build();
+            built += perInstance.hashCode() & 1;
+            perInstance.close();
+        }
+        return built;
+    }
+
+    /** A new client, target and proxy for one upstream call. */
+    @Benchmark
+    public HotelBookingService clientPerCall() {
+        ResteasyClient perCall = new ResteasyClientBuilder().build();
+        HotelBookingService proxy = perCall.target(HOTEL_URL).proxy(HotelBookingService.class);
+        perCall.close();
+        return proxy;
+    }
+
+    /** A new target and proxy over an existing client for one upstream call. */
+    @Benchmark
+    public HotelBookingService proxyPerCall() {
+        return client.target(HOTEL_URL).proxy(HotelBookingService.class);
+    }
+
+    /** The proxy built once over the shared client. */
+    @Benchmark
+    public HotelBookingService sharedProxy() {
+        return hotelBookings;
+    }
+}
@@ -0,0 +1,73 @@
+package org.jboss.quickstarts.wfk.admission;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+/**
+ * Drives {@link AdaptiveLimit} with the latencies of a mix of routes, as a busy node sees them.
+ */
+public class AdaptiveLimitTest {
+	
+	private static final long FAST = TimeUnit.MILLISECONDS.toNanos(2);
+	
+	private static final long SLOW = TimeUnit.MILLISECONDS.toNanos(80);
+	
+	@Test
+	public void testMixedRoutesAtTheirUsualLatencyGrowTheLimit(){
+		AdaptiveLimit limit = new AdaptiveLimit();
+		int initial = limit.getLimit();
+		for(int i = 0; i < 200; i++){
+			busy(limit);
+			limit.release("GET customers", FAST);
+			busy(limit);
+			limit.release("GET travel", SLOW);
+		}
+		assertTrue("limit " + limit.getLimit() + " should have grown from " + initial, limit.getLimit() > initial);
+	}
+	
+	@Test
+	public void testSlowerRouteShrinksTheLimit(){
+		AdaptiveLimit limit = new AdaptiveLimit();
+		for(int i = 0; i < 50; i++){
+			busy(limit);
+			limit.release("GET customers", FAST);
+			busy(limit);
+			limit.release("GET travel", SLOW);
+		}
+		int before = limit.getLimit();
+		
+		// The partner behind travel slows down tenfold, while customers keep their latency
+		for(int i = 0; i < 20; i++){
+			busy(limit);
+			limit.release("GET customers", FAST);
+			busy(limit);
+			limit.release("GET travel", SLOW * 10);
+		}
+		assertTrue("limit " + limit.getLimit() + " should have shrunk from " + before, limit.getLimit() < before);
+	}
+	
+	@Test
+	public void testSlowRouteIsNotJudgedAgainstFastOne(){
+		AdaptiveLimit limit = new AdaptiveLimit();
+		for(int i = 0; i < 50; i++){
+			busy(limit);
+			limit.release("GET customers", FAST);
+		}
+		int before = limit.getLimit();
+		
+		for(int i = 0; i < 20; i++){
+			busy(limit);
+			limit.release("POST travelagent", SLOW);
+		}
+		assertTrue("limit " + limit.getLimit() + " should not have shrunk from " + before, limit.getLimit() >= before);
+	}
+	
+	// Fills half the limit, so that completing requests count as the limit being used, and leaves one to release
+	private static void busy(AdaptiveLimit limit){
+		while(limit.getInFlight() < limit.getLimit() / 2 + 1 && limit.tryAcquire()){
+		}
+	}
+}
@@ -0,0 +1,64 @@
+package org.jboss.quickstarts.wfk.admission;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.Test;
+
+/**
+ * Tells clients apart behind reverse proxies, see {@link AdmissionFilter#addressOf}.
+ */
+public class AdmissionFilterTest {
+	
+	private static final Set<String> PROXIES = new HashSet<>(Arrays.asList("10.0.0.1", "10.0.0.2"));
+	
+	@Test
+	public void testHeadersFromAnUntrustedAddressAreIgnored(){
+		assertEquals("203.0.113.9", AdmissionFilter.addressOf("203.0.113.9", "198.51.100.7", null, PROXIES));
+		assertEquals("203.0.113.9", AdmissionFilter.addressOf("203.0.113.9", null, "for=198.51.100.7", PROXIES));
+		assertEquals("10.0.0.1", AdmissionFilter.addressOf("10.0.0.1", "198.51.100.7", null,
+				Collections.<String>emptySet()));
+	}
+	
+	@Test
+	public void testForwardedForBehindATrustedProxy(){
+		assertEquals("198.51.100.7", AdmissionFilter.addressOf("10.0.0.1", "198.51.100.7", null, PROXIES));
+	}
+	
+	@Test
+	public void testAddressesMadeUpByTheClientAreSkipped(){
+		// The client sent "X-Forwarded-For: 192.0.2.1" itself; our proxies appended what they saw.
+		assertEquals("198.51.100.7",
+				AdmissionFilter.addressOf("10.0.0.1", "192.0.2.1, 198.51.100.7, 10.0.0.2", null, PROXIES));
+	}
+	
+	@Test
+	public void testForwardedHeader(){
+		assertEquals("198.51.100.7", AdmissionFilter.addressOf("10.0.0.1",
+				null, "for=192.0.2.1, for=\"198.51.100.7:4711\";proto=https;by=10.0.0.1", PROXIES));
+		assertEquals("2001:db8::1", AdmissionFilter.addressOf("10.0.0.1", null, "For=\"[2001:db8::1]:4711\"", PROXIES));
+	}
+	
+	@Test
+	public void testForwardedForTakesPrecedence(){
+		assertEquals("198.51.100.7", AdmissionFilter.addressOf("10.0.0.1", "198.51.100.7", "for=192.0.2.1", PROXIES));
+	}
+	
+	@Test
+	public void testNoUsableHopFallsBackToTheProxy(){
+		assertEquals("10.0.0.1", AdmissionFilter.addressOf("10.0.0.1", null, null, PROXIES));
+		assertEquals("10.0.0.1", AdmissionFilter.addressOf("10.0.0.1", "10.0.0.2", null, PROXIES));
+		assertEquals("10.0.0.1", AdmissionFilter.addressOf("10.0.0.1", "198.51.100.7, ", null, PROXIES));
+		assertEquals("10.0.0.1", AdmissionFilter.addressOf("10.0.0.1", null, "proto=https", PROXIES));
+	}
+	
+	@Test
+	public void testIpv6WithoutAPortIsKeptWhole(){
+		assertEquals("2001:db8::1", AdmissionFilter.addressOf("10.0.0.1", "2001:db8::1", null, PROXIES));
+		assertEquals("198.51.100.7", AdmissionFilter.addressOf("10.0.0.1", "198.51.100.7:4711", null, PROXIES));
+	}
+}
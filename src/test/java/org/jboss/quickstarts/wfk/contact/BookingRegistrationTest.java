@@ -14,7 +14,9 @@ import org.jboss.arquillian.container.test.api.Deployment;
 import org.jboss.arquillian.junit.Arquillian;
 import org.jboss.arquillian.junit.InSequence;
 import org.jboss.quickstarts.wfk.booking.TaxiBooking;
+import org.jboss.quickstarts.wfk.booking.TaxiHold;
 import org.jboss.quickstarts.wfk.booking.BookingRestService;
+import org.jboss.quickstarts.wfk.booking.BookingService;
 import org.jboss.quickstarts.wfk.taxi.Taxi;
 import org.jboss.quickstarts.wfk.taxi.TaxiRestService;
 import org.jboss.quickstarts.wfk.util.RestServiceException;
@@ -37,7 +39,12 @@ public class BookingRegistrationTest {
         File[] libs = Maven.resolver().loadPomFromFile("pom.xml")
 //                .importRuntimeAndTestDependencies()
                 .resolve(
-                        "io.swagger:swagger-jaxrs:1.5.15"
+                        "io.swagger:swagger-jaxrs:1.5.15",
+                        "com.fasterxml.jackson.module:jackson-module-afterburner:2.8.9",
+                        "com.fasterxml.jackson.jaxrs:jackson-jaxrs-cbor-provider:2.8.9",
+                        "com.fasterxml.jackson.jaxrs:jackson-jaxrs-smile-provider:2.8.9",
+                        "org.hdrhistogram:HdrHistogram:2.1.9",
+                        "org.flywaydb:flyway-core:4.2.0"
         ).withTransitivity().asFile();
 
         return ShrinkWrap
@@ -46,6 +53,7 @@ public class BookingRegistrationTest {
                 .addAsLibraries(libs)
                 .addAsResource("META-INF/test-persistence.xml", "META-INF/persistence.xml")
                 .addAsWebInfResource("arquillian-ds.xml")
+                .addAsWebInfResource(new File("src/main/webapp/WEB-INF/jboss-deployment-structure.xml"))
                 .addAsWebInfResource(EmptyAsset.INSTANCE, "beans.xml");
     }
 	
@@ -55,6 +63,9 @@ public class BookingRegistrationTest {
 	@Inject
 	BookingRestService bookingRestService;
 	
+	@Inject
+	BookingService bookingService;
+	
 	@Inject
 	CustomerRestService customerRestService;
 	
@@ -128,7 +139,7 @@ public class BookingRegistrationTest {
     @Test
     @InSequence(8)
     public void testGetAllBookings(){
-    	bookingRestService.retrieveAllBookings().getStatus();
+    	bookingRestService.retrieveAllBookings(null, null).getStatus();
     }
     
     @Test
@@ -151,6 +162,79 @@ public class BookingRegistrationTest {
     	}
     }
     
+    @Test
+    @InSequence(10)
+    public void testSeparateSlotsOnOneDay(){
+    	Date day = new Date(System.currentTimeMillis() + 30L * 24 * 60 * 60 * 1000);
+    	assertEquals(201, bookingRestService.createBooking(createSlot(day, "09:00", "10:30")).getStatus());
+    	assertEquals(201, bookingRestService.createBooking(createSlot(day, "10:30", "12:00")).getStatus());
+    }
+    
+    @Test
+    @InSequence(11)
+    public void testOverlappingSlot(){
+    	Date day = new Date(System.currentTimeMillis() + 30L * 24 * 60 * 60 * 1000);
+    	try{
+    		bookingRestService.createBooking(createSlot(day, "11:00", "11:30"));
+    		fail("should return 409");
+    	}catch(RestServiceException e){
+    		assertEquals(409, e.getStatus().getStatusCode());
+    	}
+    }
+    
+    @Test
+    @InSequence(12)
+    public void testAllocationWhenNoTaxiIsFree(){
+    	Date day = new Date(System.currentTimeMillis() + 30L * 24 * 60 * 60 * 1000);
+    	TaxiBooking booking = createSlot(day, "09:30", "10:00");
+    	booking.setTaxi(null);
+    	try{
+    		bookingRestService.allocateTaxi(5, booking);
+    		fail("should return 409");
+    	}catch(RestServiceException e){
+    		assertEquals(409, e.getStatus().getStatusCode());
+    	}
+    }
+    
+    @Test
+    @InSequence(13)
+    public void testAllocation(){
+    	Date day = new Date(System.currentTimeMillis() + 30L * 24 * 60 * 60 * 1000);
+    	TaxiBooking booking = createSlot(day, "13:00", "14:00");
+    	booking.setTaxi(null);
+    	assertEquals(201, bookingRestService.allocateTaxi(5, booking).getStatus());
+    	assertEquals(new Long(2), booking.getTaxiId());
+    }
+    
+    @Test
+    @InSequence(14)
+    public void testHeldSlot() throws Exception{
+    	Date day = new Date(System.currentTimeMillis() + 30L * 24 * 60 * 60 * 1000);
+    	TaxiHold hold = bookingService.hold(createSlot(day, "15:00", "16:00"));
+    	try{
+    		bookingRestService.createBooking(createSlot(day, "15:30", "16:30"));
+    		fail("should return 409");
+    	}catch(RestServiceException e){
+    		assertEquals(409, e.getStatus().getStatusCode());
+    	}
+    	bookingService.release(hold);
+    	assertEquals(201, bookingRestService.createBooking(createSlot(day, "15:30", "16:30")).getStatus());
+    }
+    
+    public TaxiBooking createSlot(Date day, String startTime, String endTime){
+    	TaxiBooking booking = new TaxiBooking();
+    	Customer customer = new Customer();
+    	customer.setId(new Long(1));
+    	Taxi taxi = new Taxi();
+    	taxi.setId(new Long(2));
+    	booking.setCustomer(customer);
+    	booking.setTaxi(taxi);
+    	booking.setDate(day);
+    	booking.setStartTime(startTime);
+    	booking.setEndTime(endTime);
+    	return booking;
+    }
+    
     public Taxi createTaxi(String registration, int seats){
     	Taxi taxi = new Taxi();
     	taxi.setRegistration(registration);
@@ -64,7 +64,12 @@ public class ContactRegistrationTest {
         File[] libs = Maven.resolver().loadPomFromFile("pom.xml")
 //                .importRuntimeAndTestDependencies()
                 .resolve(
-                        "io.swagger:swagger-jaxrs:1.5.15"
+                        "io.swagger:swagger-jaxrs:1.5.15",
+                        "com.fasterxml.jackson.module:jackson-module-afterburner:2.8.9",
+                        "com.fasterxml.jackson.jaxrs:jackson-jaxrs-cbor-provider:2.8.9",
+                        "com.fasterxml.jackson.jaxrs:jackson-jaxrs-smile-provider:2.8.9",
+                        "org.hdrhistogram:HdrHistogram:2.1.9",
+                        "org.flywaydb:flyway-core:4.2.0"
         ).withTransitivity().asFile();
 
         return ShrinkWrap
@@ -73,6 +78,7 @@ public class ContactRegistrationTest {
                 .addAsLibraries(libs)
                 .addAsResource("META-INF/test-persistence.xml", "META-INF/persistence.xml")
                 .addAsWebInfResource("arquillian-ds.xml")
+                .addAsWebInfResource(new File("src/main/webapp/WEB-INF/jboss-deployment-structure.xml"))
                 .addAsWebInfResource(EmptyAsset.INSTANCE, "beans.xml");
     }
 
@@ -135,6 +141,53 @@ public class ContactRegistrationTest {
 
     }
 
+    @Test
+    @InSequence(4)
+    public void testStaleUpdate() throws Exception {
+        Contact contact = createContactInstance("Jill", "Doe", "jill@mailinator.com", "(212) 555-4321", date);
+        contactRestService.createContact(contact);
+
+        // The first writer names the version it read and wins.
+        contact.setLastName("Smith");
+        Response response = contactRestService.updateContact(contact.getId(), "\"0\"", contact);
+        assertEquals("Unexpected response status", 200, response.getStatus());
+        assertEquals("Unexpected ETag", "1", response.getEntityTag().getValue());
+
+        // A second writer which read the same version loses.
+        contact.setLastName("Jones");
+        try {
+            contactRestService.updateContact(contact.getId(), "\"0\"", contact);
+            fail("Expected a RestServiceException to be thrown");
+        } catch(RestServiceException e) {
+            assertEquals("Unexpected response status", Response.Status.PRECONDITION_FAILED, e.getStatus());
+            log.info("Stale contact update attempt failed with return code " + e.getStatus());
+        }
+    }
+
+    @Test
+    @InSequence(5)
+    public void testUnconditionalUpdate() throws Exception {
+        Contact contact = createContactInstance("Joan", "Doe", "joan@mailinator.com", "(212) 555-8765", date);
+        contactRestService.createContact(contact);
+
+        // Without a version the last writer wins, and gets no ETag back.
+        contact.setVersion(null);
+        contact.setLastName("Smith");
+        Response response = contactRestService.updateContact(contact.getId(), null, contact);
+        assertEquals("Unexpected response status", 200, response.getStatus());
+        assertNull("Unexpected ETag", response.getEntityTag());
+
+        contact.setId(contact.getId() + 1000);
+        contact.setEmail("nobody@mailinator.com");
+        try {
+            contactRestService.updateContact(contact.getId(), null, contact);
+            fail("Expected a RestServiceException to be thrown");
+        } catch(RestServiceException e) {
+            assertEquals("Unexpected response status", Response.Status.NOT_FOUND, e.getStatus());
+            log.info("Update of a missing contact failed with return code " + e.getStatus());
+        }
+    }
+
     /**
      * <p>A utility method to construct a {@link org.jboss.quickstarts.wfk.contact.Contact Contact} object for use in
      * testing. This object is not persisted.</p>
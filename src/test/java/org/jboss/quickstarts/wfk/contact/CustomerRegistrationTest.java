@@ -29,11 +29,7 @@ import org.jboss.arquillian.container.test.api.Deployment;
 import org.jboss.arquillian.junit.Arquillian;
 import org.jboss.arquillian.junit.InSequence;
 import org.jboss.quickstarts.wfk.customer.Customer;
-import org.jboss.quickstarts.wfk.customer.CustomerRepository;
 import org.jboss.quickstarts.wfk.customer.CustomerRestService;
-import org.jboss.quickstarts.wfk.customer.CustomerService;
-import org.jboss.quickstarts.wfk.customer.CustomerValidator;
-import org.jboss.quickstarts.wfk.util.Resources;
 import org.jboss.shrinkwrap.api.Archive;
 import org.jboss.shrinkwrap.api.ShrinkWrap;
 import org.jboss.shrinkwrap.api.asset.EmptyAsset;
@@ -68,20 +64,22 @@ public class CustomerRegistrationTest {
         //HttpComponents and org.JSON are required by CustomerService
         File[] libs = Maven.resolver().loadPomFromFile("pom.xml").resolve(
                 "org.apache.httpcomponents:httpclient:4.3.2",
-                "org.json:json:20140107"
+                "org.json:json:20140107",
+                "com.fasterxml.jackson.module:jackson-module-afterburner:2.8.9",
+                "com.fasterxml.jackson.jaxrs:jackson-jaxrs-cbor-provider:2.8.9",
+                "com.fasterxml.jackson.jaxrs:jackson-jaxrs-smile-provider:2.8.9",
+                "org.hdrhistogram:HdrHistogram:2.1.9",
+                "org.flywaydb:flyway-core:4.2.0",
+                "io.swagger:swagger-jaxrs:1.5.15"
         ).withTransitivity().asFile();
 
         Archive<?> archive = ShrinkWrap
             .create(WebArchive.class, "test.war")
-            .addClasses(Customer.class, 
-                        CustomerRestService.class, 
-                        CustomerRepository.class, 
-                        CustomerValidator.class, 
-                        CustomerService.class, 
-                        Resources.class)
+            .addPackages(true, "org.jboss.quickstarts.wfk")
             .addAsLibraries(libs)
             .addAsResource("META-INF/test-persistence.xml", "META-INF/persistence.xml")
             .addAsWebInfResource("arquillian-ds.xml")
+            .addAsWebInfResource(new File("src/main/webapp/WEB-INF/jboss-deployment-structure.xml"))
             .addAsWebInfResource(EmptyAsset.INSTANCE, "beans.xml");
         
         return archive;
@@ -163,7 +161,7 @@ public class CustomerRegistrationTest {
     @Test
     @InSequence(5)
     public void testRetrieveCustomer() throws Exception {
-        Response response = customerRESTService.retrieveAllCustomers();
+        Response response = customerRESTService.retrieveAllCustomers(null, null);
 
         assertEquals("Unexpected response status", 200, response.getStatus());
         assertNotNull("response.getEntity() should not be null", response.getEntity());
@@ -0,0 +1,108 @@
+package org.jboss.quickstarts.wfk.contact;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.inject.Alternative;
+import javax.inject.Inject;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceException;
+
+import org.jboss.quickstarts.wfk.booking.TaxiBooking;
+import org.jboss.quickstarts.wfk.customer.Customer;
+import org.jboss.quickstarts.wfk.flight.FlightBooking;
+import org.jboss.quickstarts.wfk.hotel.HotelBooking;
+import org.jboss.quickstarts.wfk.taxi.Taxi;
+import org.jboss.quickstarts.wfk.travelAgency.TravelAgencyBooking;
+import org.jboss.quickstarts.wfk.travelAgency.TravelAgencyService;
+
+/**
+ * Stands in for the hotel and flight upstreams of {@link TravelAgencyService}, recording the bookings it rolls back.
+ * It is only enabled by the beans.xml of {@link TravelAgencyFlowTest}.
+ */
+@Alternative
+@ApplicationScoped
+public class StubTravelAgencyService extends TravelAgencyService {
+	
+	final List<Long> hotelRollbacks = new CopyOnWriteArrayList<>();
+	
+	final List<Long> flightRollbacks = new CopyOnWriteArrayList<>();
+	
+	// Books the held taxi for the whole day while the flight is booked, as a booking made through another node would
+	volatile boolean takeTaxiDuringFlight;
+	
+	volatile boolean failHotelRollback;
+	
+	// Fails the write of the travel agent booking itself, once every leg has been booked
+	volatile boolean failStore;
+	
+	volatile Long lastFlightBookingId;
+	
+	private final AtomicLong ids = new AtomicLong(1000);
+	
+	@Inject
+	private EntityManager em;
+	
+	void reset(){
+		hotelRollbacks.clear();
+		flightRollbacks.clear();
+		takeTaxiDuringFlight = false;
+		failHotelRollback = false;
+		failStore = false;
+		lastFlightBookingId = null;
+	}
+	
+	@Override
+	public HotelBooking makeHotelBooking(TravelAgencyBooking booking) throws Exception{
+		HotelBooking hotelBooking = new HotelBooking();
+		hotelBooking.setId(ids.incrementAndGet());
+		hotelBooking.setHotelId(booking.getHotelId());
+		hotelBooking.setDate(booking.getTime());
+		return hotelBooking;
+	}
+	
+	@Override
+	public FlightBooking makeFlightBooking(TravelAgencyBooking booking) throws Exception{
+		if(takeTaxiDuringFlight){
+			TaxiBooking taken = new TaxiBooking();
+			taken.setCustomer(em.find(Customer.class, TravelAgencyFlowTest.AGENT_ID));
+			taken.setTaxi(em.find(Taxi.class, booking.getTaxiId()));
+			taken.setDate(booking.getTime());
+			taken.setStartTime(TaxiBooking.START_OF_DAY);
+			taken.setEndTime(TaxiBooking.END_OF_DAY);
+			em.persist(taken);
+			em.flush();
+		}
+		FlightBooking flightBooking = new FlightBooking();
+		flightBooking.setId(ids.incrementAndGet());
+		flightBooking.setFlightId(booking.getFlightId());
+		flightBooking.setDate(booking.getTime());
+		lastFlightBookingId = flightBooking.getId();
+		return flightBooking;
+	}
+	
+	@Override
+	public TravelAgencyBooking storeTABooking(TravelAgencyBooking booking){
+		if(failStore){
+			throw new PersistenceException("travel agent booking could not be written");
+		}
+		return super.storeTABooking(booking);
+	}
+	
+	@Override
+	public HotelBooking rollBackHotel(Long id) throws Exception{
+		if(failHotelRollback){
+			throw new Exception("hotel upstream unavailable");
+		}
+		hotelRollbacks.add(id);
+		return null;
+	}
+	
+	@Override
+	public FlightBooking rollBackFlight(Long id) throws Exception{
+		flightRollbacks.add(id);
+		return null;
+	}
+}
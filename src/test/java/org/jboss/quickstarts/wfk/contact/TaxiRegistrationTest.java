@@ -35,11 +35,7 @@ import org.jboss.quickstarts.wfk.contact.Contact;
 import org.jboss.quickstarts.wfk.contact.ContactRestService;
 
 import org.jboss.quickstarts.wfk.taxi.Taxi;
-import org.jboss.quickstarts.wfk.taxi.TaxiRepository;
 import org.jboss.quickstarts.wfk.taxi.TaxiRestService;
-import org.jboss.quickstarts.wfk.taxi.TaxiService;
-import org.jboss.quickstarts.wfk.taxi.TaxiValidator;
-import org.jboss.quickstarts.wfk.util.Resources;
 import org.jboss.shrinkwrap.api.Archive;
 import org.jboss.shrinkwrap.api.ShrinkWrap;
 import org.jboss.shrinkwrap.api.asset.EmptyAsset;
@@ -74,20 +70,22 @@ public class TaxiRegistrationTest {
         //HttpComponents and org.JSON are required by ContactService
         File[] libs = Maven.resolver().loadPomFromFile("pom.xml").resolve(
                 "org.apache.httpcomponents:httpclient:4.3.2",
-                "org.json:json:20140107"
+                "org.json:json:20140107",
+                "com.fasterxml.jackson.module:jackson-module-afterburner:2.8.9",
+                "com.fasterxml.jackson.jaxrs:jackson-jaxrs-cbor-provider:2.8.9",
+                "com.fasterxml.jackson.jaxrs:jackson-jaxrs-smile-provider:2.8.9",
+                "org.hdrhistogram:HdrHistogram:2.1.9",
+                "org.flywaydb:flyway-core:4.2.0",
+                "io.swagger:swagger-jaxrs:1.5.15"
         ).withTransitivity().asFile();
 
         Archive<?> archive = ShrinkWrap
             .create(WebArchive.class, "test.war")
-            .addClasses(Taxi.class, 
-                        TaxiRestService.class, 
-                        TaxiRepository.class, 
-                        TaxiValidator.class, 
-                        TaxiService.class, 
-                        Resources.class)
+            .addPackages(true, "org.jboss.quickstarts.wfk")
             .addAsLibraries(libs)
             .addAsResource("META-INF/test-persistence.xml", "META-INF/persistence.xml")
             .addAsWebInfResource("arquillian-ds.xml")
+            .addAsWebInfResource(new File("src/main/webapp/WEB-INF/jboss-deployment-structure.xml"))
             .addAsWebInfResource(EmptyAsset.INSTANCE, "beans.xml");
         
         return archive;
@@ -159,7 +157,7 @@ public class TaxiRegistrationTest {
     @Test
     @InSequence(5)
     public void testRetrieveContact() throws Exception {
-        Response response = taxiRestService.retrieveAllTaxis();
+        Response response = taxiRestService.retrieveAllTaxis(null, null);
 
         assertEquals("Unexpected response status", 200, response.getStatus());
         assertNotNull("response.getEntity() should not be null", response.getEntity());
@@ -0,0 +1,200 @@
+package org.jboss.quickstarts.wfk.contact;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.Date;
+
+import javax.inject.Inject;
+import javax.persistence.EntityManager;
+import javax.transaction.UserTransaction;
+import javax.ws.rs.core.Response;
+
+import org.jboss.arquillian.container.test.api.Deployment;
+import org.jboss.arquillian.junit.Arquillian;
+import org.jboss.arquillian.junit.InSequence;
+import org.jboss.quickstarts.wfk.booking.BookingService;
+import org.jboss.quickstarts.wfk.booking.TaxiBooking;
+import org.jboss.quickstarts.wfk.booking.TaxiHold;
+import org.jboss.quickstarts.wfk.customer.Customer;
+import org.jboss.quickstarts.wfk.taxi.Taxi;
+import org.jboss.quickstarts.wfk.taxi.TaxiRestService;
+import org.jboss.quickstarts.wfk.travelAgency.TravelAgencyBooking;
+import org.jboss.quickstarts.wfk.travelAgency.TravelAgencyRestService;
+import org.jboss.quickstarts.wfk.util.RestServiceException;
+import org.jboss.shrinkwrap.api.Archive;
+import org.jboss.shrinkwrap.api.ShrinkWrap;
+import org.jboss.shrinkwrap.api.asset.StringAsset;
+import org.jboss.shrinkwrap.api.spec.WebArchive;
+import org.jboss.shrinkwrap.resolver.api.maven.Maven;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/**
+ * Drives a travel agent booking through hold, hotel, flight and confirm, against {@link StubTravelAgencyService} in
+ * place of the hotel and flight upstreams.
+ */
+@RunWith(Arquillian.class)
+public class TravelAgencyFlowTest {
+	
+	static final Long AGENT_ID = new Long(10001);
+	
+	@Deployment
+    public static Archive<?> createTestArchive() {
+        File[] libs = Maven.resolver().loadPomFromFile("pom.xml")
+                .resolve(
+                        "io.swagger:swagger-jaxrs:1.5.15",
+                        "com.fasterxml.jackson.module:jackson-module-afterburner:2.8.9",
+                        "com.fasterxml.jackson.jaxrs:jackson-jaxrs-cbor-provider:2.8.9",
+                        "com.fasterxml.jackson.jaxrs:jackson-jaxrs-smile-provider:2.8.9",
+                        "org.hdrhistogram:HdrHistogram:2.1.9",
+                        "org.flywaydb:flyway-core:4.2.0"
+        ).withTransitivity().asFile();
+
+        return ShrinkWrap
+                .create(WebArchive.class, "test.war")
+                .addPackages(true, "org.jboss.quickstarts.wfk")
+                .addAsLibraries(libs)
+                .addAsResource("META-INF/test-persistence.xml", "META-INF/persistence.xml")
+                .addAsWebInfResource("arquillian-ds.xml")
+                .addAsWebInfResource(new File("src/main/webapp/WEB-INF/jboss-deployment-structure.xml"))
+                .addAsWebInfResource(new StringAsset("<beans><alternatives><class>"
+                        + StubTravelAgencyService.class.getName() + "</class></alternatives></beans>"), "beans.xml");
+    }
+	
+	@Inject
+	TravelAgencyRestService travelAgencyRestService;
+	
+	@Inject
+	StubTravelAgencyService upstreams;
+	
+	@Inject
+	BookingService bookingService;
+	
+	@Inject
+	TaxiRestService taxiRestService;
+	
+	@Inject
+	EntityManager em;
+	
+	@Inject
+	UserTransaction tx;
+	
+	private static Long taxiId;
+	
+	@Before
+	public void resetUpstreams(){
+		upstreams.reset();
+	}
+	
+	@Test
+	@InSequence(1)
+	public void createAgentAndTaxi() throws Exception{
+		// Taxi bookings of the travel agent are made for its own customer
+		tx.begin();
+		em.createNativeQuery("INSERT INTO customer (id, name, email, phoneNumber, version) "
+				+ "VALUES (10001, 'Agent', 'agent@ncl.com', '01234567890', 0)").executeUpdate();
+		tx.commit();
+		
+		Taxi taxi = new Taxi();
+		taxi.setRegistration("AGENT01");
+		taxi.setSeats(4);
+		taxiId = ((Taxi) taxiRestService.createTaxi(taxi).getEntity()).getId();
+	}
+	
+	@Test
+	@InSequence(2)
+	public void testConfirmedBooking() throws Exception{
+		Response response = travelAgencyRestService.createTABooking(createBooking(daysAhead(40)));
+		assertEquals(201, response.getStatus());
+		
+		TravelAgencyBooking stored = (TravelAgencyBooking) response.getEntity();
+		assertNotNull(stored.getTaxiBookingId());
+		assertNotNull(stored.getHotelBookingId());
+		assertEquals(upstreams.lastFlightBookingId, stored.getFlightBookingId());
+		assertTrue(upstreams.hotelRollbacks.isEmpty());
+		assertTrue(upstreams.flightRollbacks.isEmpty());
+	}
+	
+	@Test
+	@InSequence(3)
+	public void testConfirmFailureRollsBackHotelAndFlight() throws Exception{
+		Date day = daysAhead(41);
+		upstreams.takeTaxiDuringFlight = true;
+		TravelAgencyBooking booking = createBooking(day);
+		try{
+			travelAgencyRestService.createTABooking(booking);
+			fail("should return 409");
+		}catch(RestServiceException e){
+			assertEquals(409, e.getStatus().getStatusCode());
+		}
+		assertEquals(Collections.singletonList(booking.getHotelBookingId()), upstreams.hotelRollbacks);
+		assertEquals(Collections.singletonList(upstreams.lastFlightBookingId), upstreams.flightRollbacks);
+		
+		// The hold was released, and the booking taken during the flight went with the transaction
+		TaxiHold hold = bookingService.hold(createSlot(day));
+		bookingService.release(hold);
+	}
+	
+	@Test
+	@InSequence(4)
+	public void testFlightRolledBackWhenHotelRollbackFails() throws Exception{
+		upstreams.takeTaxiDuringFlight = true;
+		upstreams.failHotelRollback = true;
+		TravelAgencyBooking booking = createBooking(daysAhead(42));
+		try{
+			travelAgencyRestService.createTABooking(booking);
+			fail("should return 500");
+		}catch(RestServiceException e){
+			assertEquals(500, e.getStatus().getStatusCode());
+		}
+		assertEquals(Collections.singletonList(upstreams.lastFlightBookingId), upstreams.flightRollbacks);
+	}
+	
+	@Test
+	@InSequence(5)
+	public void testStoreFailureRollsBackEveryLeg() throws Exception{
+		Date day = daysAhead(43);
+		upstreams.failStore = true;
+		TravelAgencyBooking booking = createBooking(day);
+		try{
+			travelAgencyRestService.createTABooking(booking);
+			fail("should return 500");
+		}catch(RestServiceException e){
+			assertEquals(500, e.getStatus().getStatusCode());
+		}
+		assertEquals(Collections.singletonList(booking.getHotelBookingId()), upstreams.hotelRollbacks);
+		assertEquals(Collections.singletonList(upstreams.lastFlightBookingId), upstreams.flightRollbacks);
+		
+		// The confirmed taxi booking went with the transaction, and the hold ended with it
+		TaxiHold hold = bookingService.hold(createSlot(day));
+		bookingService.release(hold);
+	}
+	
+	private TravelAgencyBooking createBooking(Date day){
+		TravelAgencyBooking booking = new TravelAgencyBooking();
+		booking.setTaxiId(taxiId);
+		booking.setHotelId(new Long(3));
+		booking.setFlightId(new Long(7));
+		booking.setTime(day);
+		return booking;
+	}
+	
+	private TaxiBooking createSlot(Date day){
+		TaxiBooking booking = new TaxiBooking();
+		Customer customer = new Customer();
+		customer.setId(AGENT_ID);
+		Taxi taxi = new Taxi();
+		taxi.setId(taxiId);
+		booking.setCustomer(customer);
+		booking.setTaxi(taxi);
+		booking.setDate(day);
+		return booking;
+	}
+	
+	private static Date daysAhead(int days){
+		return new Date(System.currentTimeMillis() + days * 24L * 60 * 60 * 1000);
+	}
+}
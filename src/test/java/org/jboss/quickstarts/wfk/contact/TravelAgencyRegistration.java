@@ -37,7 +37,12 @@ public class TravelAgencyRegistration {
         File[] libs = Maven.resolver().loadPomFromFile("pom.xml")
 //                .importRuntimeAndTestDependencies()
                 .resolve(
-                        "io.swagger:swagger-jaxrs:1.5.15"
+                        "io.swagger:swagger-jaxrs:1.5.15",
+                        "com.fasterxml.jackson.module:jackson-module-afterburner:2.8.9",
+                        "com.fasterxml.jackson.jaxrs:jackson-jaxrs-cbor-provider:2.8.9",
+                        "com.fasterxml.jackson.jaxrs:jackson-jaxrs-smile-provider:2.8.9",
+                        "org.hdrhistogram:HdrHistogram:2.1.9",
+                        "org.flywaydb:flyway-core:4.2.0"
         ).withTransitivity().asFile();
 
         return ShrinkWrap
@@ -46,6 +51,7 @@ public class TravelAgencyRegistration {
                 .addAsLibraries(libs)
                 .addAsResource("META-INF/test-persistence.xml", "META-INF/persistence.xml")
                 .addAsWebInfResource("arquillian-ds.xml")
+                .addAsWebInfResource(new File("src/main/webapp/WEB-INF/jboss-deployment-structure.xml"))
                 .addAsWebInfResource(EmptyAsset.INSTANCE, "beans.xml");
     }
 	
@@ -0,0 +1,119 @@
+package org.jboss.quickstarts.wfk.migration;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Splits CSV lines the way the files in <code>db/seed</code> are written, and loads them into an in-memory table.
+ */
+public class SeedLoaderTest {
+
+	private Connection connection;
+
+	@Before
+	public void setUp() throws SQLException{
+		connection = DriverManager.getConnection("jdbc:h2:mem:seed");
+		try(Statement statement = connection.createStatement()){
+			statement.execute("create table taxi (id bigint not null, registration varchar(255) not null, "
+					+ "seats integer not null, bought date, version bigint, primary key (id))");
+		}
+	}
+
+	@After
+	public void tearDown() throws SQLException{
+		connection.close();
+	}
+
+	@Test
+	public void testPlainFields(){
+		assertEquals(Arrays.asList("1", "AB12CDE", "4"), SeedLoader.parse("1,AB12CDE,4"));
+	}
+
+	@Test
+	public void testSingleField(){
+		assertEquals(Collections.singletonList("id"), SeedLoader.parse("id"));
+	}
+
+	@Test
+	public void testEmptyFieldsAreKept(){
+		assertEquals(Arrays.asList("", "a", "", ""), SeedLoader.parse(",a,,"));
+		assertEquals(Collections.singletonList(""), SeedLoader.parse(""));
+	}
+
+	@Test
+	public void testQuotedFieldKeepsItsCommas(){
+		assertEquals(Arrays.asList("1", "Doe, Jane", "x"), SeedLoader.parse("1,\"Doe, Jane\",x"));
+	}
+
+	@Test
+	public void testDoubledQuoteIsAQuote(){
+		assertEquals(Arrays.asList("say \"hi\"", "2"), SeedLoader.parse("\"say \"\"hi\"\"\",2"));
+		assertEquals(Arrays.asList("\"", ""), SeedLoader.parse("\"\"\"\","));
+	}
+
+	@Test
+	public void testQuotedEmptyFieldIsEmpty(){
+		assertEquals(Arrays.asList("", "b"), SeedLoader.parse("\"\",b"));
+	}
+
+	@Test
+	public void testQuotesInsideAFieldAreUnquoted(){
+		assertEquals(Arrays.asList("O'Brien-Smith"), SeedLoader.parse("O\"'Brien\"-Smith"));
+	}
+
+	@Test
+	public void testLoadConvertsToTheColumnTypes() throws Exception{
+		String csv = "id,registration,seats,bought,version\n"
+				+ "1,AB12CDE,4,2016-03-01,0\n"
+				+ "\n"
+				+ "2,\"ZZ,99\",7,,\n";
+		assertEquals(2, new SeedLoader(connection).load("taxi", new StringReader(csv)));
+
+		try(Statement statement = connection.createStatement();
+				ResultSet rows = statement.executeQuery("select * from taxi order by id")){
+			assertTrue(rows.next());
+			assertEquals("AB12CDE", rows.getString("registration"));
+			assertEquals(4, rows.getInt("seats"));
+			assertEquals(Date.valueOf("2016-03-01"), rows.getDate("bought"));
+			assertEquals(0L, rows.getLong("version"));
+			assertTrue(rows.next());
+			assertEquals("ZZ,99", rows.getString("registration"));
+			assertNull(rows.getDate("bought"));
+			assertNull(rows.getObject("version"));
+			assertFalse(rows.next());
+		}
+	}
+
+	@Test
+	public void testLoadOfAnEmptyFileInsertsNothing() throws Exception{
+		assertEquals(0, new SeedLoader(connection).load("taxi", new StringReader("")));
+		assertEquals(0, new SeedLoader(connection).load("taxi", new StringReader("id,registration,seats\n")));
+	}
+
+	@Test
+	public void testLoadRejectsALineWithTheWrongNumberOfFields() throws Exception{
+		String csv = "id,registration,seats\n"
+				+ "1,AB12CDE,4\n"
+				+ "2,ZZ99\n";
+		try{
+			new SeedLoader(connection).load("taxi", new StringReader(csv));
+			fail("Expected an IOException to be thrown");
+		}catch(IOException e){
+			assertEquals("taxi.csv line 3 has 2 fields, expected 3", e.getMessage());
+		}
+	}
+}
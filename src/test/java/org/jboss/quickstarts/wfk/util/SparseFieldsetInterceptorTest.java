@@ -0,0 +1,101 @@
+package org.jboss.quickstarts.wfk.util;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+
+import org.jboss.quickstarts.wfk.booking.TaxiBooking;
+import org.jboss.quickstarts.wfk.customer.Customer;
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Writes entities through {@link SparseFieldsetInterceptor.Sparse} with the mappers the providers use, and checks which
+ * properties come out.
+ */
+public class SparseFieldsetInterceptorTest {
+	
+	@Test
+	public void testOnlyNamedFieldsAreWritten() throws Exception {
+		JsonNode customer = write(JacksonConfig.mapper(), customer(), "id,name");
+		
+		assertEquals(Arrays.asList("id", "name"), names(customer));
+		assertEquals("Jane Doe", customer.get("name").asText());
+	}
+	
+	@Test
+	public void testNestedFieldsApplyToEveryElement() throws Exception {
+		JsonNode bookings = write(JacksonConfig.mapper(), Arrays.asList(booking(1L), booking(2L)), "id,customer.name");
+		
+		assertEquals(2, bookings.size());
+		for (JsonNode booking : bookings) {
+			assertEquals(Arrays.asList("id", "customer"), names(booking));
+			assertEquals(Arrays.asList("name"), names(booking.get("customer")));
+		}
+		assertEquals(2, bookings.get(1).get("id").asLong());
+	}
+	
+	@Test
+	public void testNamedObjectIsWrittenWhole() throws Exception {
+		JsonNode booking = write(JacksonConfig.mapper(), booking(1L), "customer");
+		
+		assertEquals(Arrays.asList("customer"), names(booking));
+		assertEquals(names(JacksonConfig.mapper().valueToTree(customer())), names(booking.get("customer")));
+	}
+	
+	@Test
+	public void testBinaryFormatsWriteTheSameFields() throws Exception {
+		List<TaxiBooking> entity = Arrays.asList(booking(1L), booking(2L));
+		JsonNode json = write(JacksonConfig.mapper(), entity, "id,date,customer.email");
+		
+		assertEquals(json, write(JacksonConfig.cborMapper(), entity, "id,date,customer.email"));
+		assertEquals(json, write(JacksonConfig.smileMapper(), entity, "id,date,customer.email"));
+	}
+	
+	@Test
+	public void testEntityIsUnfilteredOutsideSparse() throws Exception {
+		JsonNode customer = JacksonConfig.mapper().valueToTree(customer());
+		
+		assertTrue(customer.has("email"));
+		assertTrue(customer.has("phoneNumber"));
+	}
+	
+	// Writes the entity as the provider for the mapper's format would, then reads it back
+	private static JsonNode write(ObjectMapper mapper, Object entity, String fields) throws Exception {
+		byte[] body = mapper.writeValueAsBytes(new SparseFieldsetInterceptor.Sparse(entity, fields));
+		return mapper.readTree(body);
+	}
+	
+	private static List<String> names(JsonNode node) {
+		List<String> names = new ArrayList<>();
+		for (Iterator<String> it = node.fieldNames(); it.hasNext(); ) {
+			names.add(it.next());
+		}
+		return names;
+	}
+	
+	private static Customer customer() {
+		Customer customer = new Customer();
+		customer.setId(10001L);
+		customer.setName("Jane Doe");
+		customer.setEmail("jane.doe@example.com");
+		customer.setPhoneNumber("07700900001");
+		return customer;
+	}
+	
+	private static TaxiBooking booking(Long id) {
+		TaxiBooking booking = new TaxiBooking();
+		booking.setId(id);
+		booking.setCustomer(customer());
+		booking.setDate(new Date(0));
+		booking.setStartTime("09:00");
+		booking.setEndTime("10:00");
+		return booking;
+	}
+}